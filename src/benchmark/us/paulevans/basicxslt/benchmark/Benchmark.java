@@ -0,0 +1,79 @@
+/*
+	Copyright 2006 Paul Evans
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+package us.paulevans.basicxslt.benchmark;
+
+/**
+ * A single operation to be measured by the BenchmarkRunner.  setUp() is
+ * called once with the synthetic document of the size being measured, then
+ * run() is called repeatedly.  The value returned by run() is consumed by the
+ * runner so that the work it measures cannot be optimized away.
+ * @author pevans
+ *
+ */
+public abstract class Benchmark {
+
+	// instance members...
+	private String name;
+
+	/**
+	 * Constructor
+	 * @param aName
+	 */
+	protected Benchmark(String aName) {
+		name = aName;
+	}
+
+	/**
+	 * Getter
+	 * @return
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns true if the cost of run() depends on the size of the document;
+	 * a benchmark that does not is only measured once.
+	 * @return
+	 */
+	public boolean isSized() {
+		return true;
+	}
+
+	/**
+	 * Prepares to measure aXmlContents
+	 * @param aXmlContents
+	 * @throws Exception
+	 */
+	public void setUp(byte aXmlContents[]) throws Exception {
+		// does nothing by default...
+	}
+
+	/**
+	 * Performs the operation being measured once.
+	 * @return
+	 * @throws Exception
+	 */
+	public abstract Object run() throws Exception;
+
+	/**
+	 * Releases anything acquired by setUp()
+	 * @throws Exception
+	 */
+	public void tearDown() throws Exception {
+		// does nothing by default...
+	}
+}
@@ -0,0 +1,182 @@
+/*
+	Copyright 2006 Paul Evans
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+package us.paulevans.basicxslt.benchmark;
+
+import us.paulevans.basicxslt.Utils;
+
+/**
+ * The measurements of one benchmark at one document size: the average
+ * nanoseconds per operation of each measured iteration.
+ * @author pevans
+ *
+ */
+public class BenchmarkResult {
+
+	// number of nanoseconds in a second...
+	private static final double NANOS_PER_SECOND = 1000000000.0;
+
+	// instance members...
+	private String name;
+	private int size;
+	private double iterations[];
+	private long operations;
+
+	/**
+	 * Constructor
+	 * @param aName
+	 * @param aSize the size of the document in bytes, or 0
+	 * @param aIterations the nanoseconds per operation of each iteration
+	 * @param aOperations the number of operations measured
+	 */
+	public BenchmarkResult(String aName, int aSize, double aIterations[],
+			long aOperations) {
+		name = aName;
+		size = aSize;
+		iterations = aIterations;
+		operations = aOperations;
+	}
+
+	/**
+	 * Returns the mean nanoseconds per operation
+	 * @return
+	 */
+	public double getMean() {
+
+		double total;
+		int loop;
+
+		total = 0;
+		for (loop = 0; loop < iterations.length; loop++) {
+			total += iterations[loop];
+		}
+		return iterations.length == 0 ? 0 : total / iterations.length;
+	}
+
+	/**
+	 * Returns the sample standard deviation of the nanoseconds per operation
+	 * @return
+	 */
+	public double getStandardDeviation() {
+
+		double mean, total;
+		int loop;
+
+		if (iterations.length < 2) {
+			return 0;
+		}
+		mean = getMean();
+		total = 0;
+		for (loop = 0; loop < iterations.length; loop++) {
+			total += (iterations[loop] - mean) * (iterations[loop] - mean);
+		}
+		return Math.sqrt(total / (iterations.length - 1));
+	}
+
+	/**
+	 * Returns the fastest iteration's nanoseconds per operation
+	 * @return
+	 */
+	public double getMin() {
+
+		double min;
+		int loop;
+
+		min = iterations.length == 0 ? 0 : iterations[0];
+		for (loop = 1; loop < iterations.length; loop++) {
+			min = Math.min(min, iterations[loop]);
+		}
+		return min;
+	}
+
+	/**
+	 * Returns the slowest iteration's nanoseconds per operation
+	 * @return
+	 */
+	public double getMax() {
+
+		double max;
+		int loop;
+
+		max = iterations.length == 0 ? 0 : iterations[0];
+		for (loop = 1; loop < iterations.length; loop++) {
+			max = Math.max(max, iterations[loop]);
+		}
+		return max;
+	}
+
+	/**
+	 * Returns the mean number of operations per second
+	 * @return
+	 */
+	public double getOperationsPerSecond() {
+
+		double mean;
+
+		mean = getMean();
+		return mean == 0 ? 0 : NANOS_PER_SECOND / mean;
+	}
+
+	/**
+	 * Getter
+	 * @return
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Getter
+	 * @return
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Getter
+	 * @return
+	 */
+	public long getOperations() {
+		return operations;
+	}
+
+	/**
+	 * Returns this result as a JSON object
+	 * @return
+	 */
+	public String toJSON() {
+
+		StringBuffer buffer;
+		int loop;
+
+		buffer = new StringBuffer("{\"benchmark\": ");
+		buffer.append(Utils.quoteJSON(name));
+		buffer.append(", \"size\": ").append(size);
+		buffer.append(", \"operations\": ").append(operations);
+		buffer.append(", \"operationsPerSecond\": ").append(
+				getOperationsPerSecond());
+		buffer.append(", \"nanosPerOperation\": {\"mean\": ").append(
+				getMean());
+		buffer.append(", \"stdev\": ").append(getStandardDeviation());
+		buffer.append(", \"min\": ").append(getMin());
+		buffer.append(", \"max\": ").append(getMax());
+		buffer.append(", \"iterations\": [");
+		for (loop = 0; loop < iterations.length; loop++) {
+			buffer.append(loop == 0 ? "" : ", ").append(iterations[loop]);
+		}
+		return buffer.append("]}}").toString();
+	}
+}
@@ -0,0 +1,280 @@
+/*
+	Copyright 2006 Paul Evans
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+package us.paulevans.basicxslt.benchmark;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import net.blueslate.commons.io.IOUtils;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.math.NumberUtils;
+import org.apache.log4j.Logger;
+
+import us.paulevans.basicxslt.Utils;
+
+/**
+ * Runs the Benchmarks over synthetic documents of several sizes and writes
+ * the results as JSON.  Each benchmark is run for a number of warm-up
+ * iterations, whose results are thrown away, then for a number of measured
+ * iterations; an iteration calls the benchmark repeatedly for a fixed time.
+ * <p>
+ * usage: BenchmarkRunner [-out file] [-sizes kb,kb,...] [-warmup n]
+ * [-iterations n] [-time ms] [-only name]
+ * @author pevans
+ *
+ */
+public class BenchmarkRunner {
+
+	// defaults...
+	private static final String DEFAULT_SIZES = "1,64,1024";
+	private static final int DEFAULT_WARMUP = 3;
+	private static final int DEFAULT_ITERATIONS = 5;
+	private static final int DEFAULT_TIME = 1000;
+
+	// number of nanoseconds in a millisecond...
+	private static final long NANOS_PER_MILLI = 1000000L;
+
+	// logger object...
+	private static final Logger logger = Logger.getLogger(
+			BenchmarkRunner.class);
+
+	// instance members...
+	private File outputFile;
+	private int sizes[];
+	private int warmup;
+	private int iterations;
+	private int time;
+	private String only;
+	private int sink;
+
+	/**
+	 * Constructor
+	 *
+	 */
+	public BenchmarkRunner() {
+		warmup = DEFAULT_WARMUP;
+		iterations = DEFAULT_ITERATIONS;
+		time = DEFAULT_TIME;
+		setSizes(DEFAULT_SIZES);
+	}
+
+	/**
+	 * Parses the command-line arguments; returns false if they are not valid.
+	 * @param aArgs
+	 * @return
+	 */
+	public boolean parseArguments(String aArgs[]) {
+
+		int loop;
+
+		for (loop = 0; loop + 1 < aArgs.length; loop += 2) {
+			if (aArgs[loop].equals("-out")) {
+				outputFile = new File(aArgs[loop + 1]);
+			} else if (aArgs[loop].equals("-sizes")) {
+				setSizes(aArgs[loop + 1]);
+			} else if (aArgs[loop].equals("-warmup")) {
+				warmup = NumberUtils.stringToInt(aArgs[loop + 1], -1);
+			} else if (aArgs[loop].equals("-iterations")) {
+				iterations = NumberUtils.stringToInt(aArgs[loop + 1], -1);
+			} else if (aArgs[loop].equals("-time")) {
+				time = NumberUtils.stringToInt(aArgs[loop + 1], -1);
+			} else if (aArgs[loop].equals("-only")) {
+				only = aArgs[loop + 1];
+			} else {
+				return false;
+			}
+		}
+		return loop == aArgs.length && warmup >= 0 && iterations > 0 &&
+			time > 0 && sizes.length > 0;
+	}
+
+	/**
+	 * Sets the document sizes from a comma-separated list of kilobytes.
+	 * @param aSizes
+	 */
+	private void setSizes(String aSizes) {
+
+		String values[];
+		int loop;
+
+		values = StringUtils.split(aSizes, ',');
+		sizes = new int[values.length];
+		for (loop = 0; loop < values.length; loop++) {
+			sizes[loop] = NumberUtils.stringToInt(values[loop].trim()) * 1024;
+		}
+	}
+
+	/**
+	 * Runs every benchmark at every size and returns the results.
+	 * @return
+	 * @throws Exception
+	 */
+	public List<BenchmarkResult> run() throws Exception {
+
+		List<Benchmark> benchmarks;
+		List<BenchmarkResult> results;
+		Benchmark benchmark;
+		int loop, sizeLoop;
+
+		benchmarks = Benchmarks.getAll();
+		results = new ArrayList<BenchmarkResult>();
+		for (loop = 0; loop < benchmarks.size(); loop++) {
+			benchmark = benchmarks.get(loop);
+			if (only != null && benchmark.getName().indexOf(only) == -1) {
+				continue;
+			}
+			if (!benchmark.isSized()) {
+				results.add(run(benchmark, 0));
+				continue;
+			}
+			for (sizeLoop = 0; sizeLoop < sizes.length; sizeLoop++) {
+				results.add(run(benchmark, sizes[sizeLoop]));
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Measures aBenchmark over a document of aSize bytes.
+	 * @param aBenchmark
+	 * @param aSize
+	 * @return
+	 * @throws Exception
+	 */
+	private BenchmarkResult run(Benchmark aBenchmark, int aSize)
+	throws Exception {
+
+		double measured[];
+		long counts[], operations;
+		int loop;
+
+		logger.info("running " + aBenchmark.getName() + " (" + aSize +
+				" bytes)");
+		aBenchmark.setUp(SyntheticXml.generate(aSize));
+		measured = new double[iterations];
+		counts = new long[1];
+		operations = 0;
+		try {
+			for (loop = 0; loop < warmup; loop++) {
+				runIteration(aBenchmark, counts);
+			}
+			for (loop = 0; loop < iterations; loop++) {
+				measured[loop] = runIteration(aBenchmark, counts);
+				operations += counts[0];
+			}
+		} finally {
+			aBenchmark.tearDown();
+		}
+		return new BenchmarkResult(aBenchmark.getName(), aSize, measured,
+				operations);
+	}
+
+	/**
+	 * Calls aBenchmark repeatedly for the iteration time and returns the
+	 * average nanoseconds per call; the number of calls is stored in
+	 * aCount[0].
+	 * @param aBenchmark
+	 * @param aCount
+	 * @return
+	 * @throws Exception
+	 */
+	private double runIteration(Benchmark aBenchmark, long aCount[])
+	throws Exception {
+
+		long start, end, elapsed, count;
+		Object result;
+
+		count = 0;
+		start = System.nanoTime();
+		end = start + time * NANOS_PER_MILLI;
+		do {
+			result = aBenchmark.run();
+			sink += System.identityHashCode(result);
+			count++;
+			elapsed = System.nanoTime() - start;
+		} while (start + elapsed < end);
+		aCount[0] = count;
+		return elapsed / (double)count;
+	}
+
+	/**
+	 * Returns aResults as a JSON document
+	 * @param aResults
+	 * @return
+	 */
+	public String toJSON(List<BenchmarkResult> aResults) {
+
+		StringBuffer buffer;
+		int loop;
+
+		buffer = new StringBuffer("{\n");
+		buffer.append("  \"timestamp\": ").append(Utils.quoteJSON(
+				new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssZ").format(
+						new Date()))).append(",\n");
+		buffer.append("  \"javaVersion\": ").append(Utils.quoteJSON(
+				System.getProperty("java.version"))).append(",\n");
+		buffer.append("  \"javaVm\": ").append(Utils.quoteJSON(
+				System.getProperty("java.vm.name"))).append(",\n");
+		buffer.append("  \"processors\": ").append(
+				Runtime.getRuntime().availableProcessors()).append(",\n");
+		buffer.append("  \"warmupIterations\": ").append(warmup).append(",\n");
+		buffer.append("  \"measuredIterations\": ").append(iterations).append(
+				",\n");
+		buffer.append("  \"iterationMillis\": ").append(time).append(",\n");
+		buffer.append("  \"results\": [");
+		for (loop = 0; loop < aResults.size(); loop++) {
+			buffer.append(loop == 0 ? "\n    " : ",\n    ");
+			buffer.append(aResults.get(loop).toJSON());
+		}
+		buffer.append("\n  ]\n}");
+		return buffer.toString();
+	}
+
+	/**
+	 * Main method - runs the benchmarks and writes the results to the -out
+	 * file, or standard output.
+	 * @param aArgs
+	 * @throws Exception
+	 */
+	public static void main(String aArgs[]) throws Exception {
+
+		BenchmarkRunner runner;
+		String json;
+
+		System.setProperty("java.awt.headless", "true");
+		runner = new BenchmarkRunner();
+		if (!runner.parseArguments(aArgs)) {
+			System.err.println("usage: BenchmarkRunner [-out file] " +
+					"[-sizes kb,kb,...] [-warmup n] [-iterations n] " +
+					"[-time ms] [-only name]");
+			System.exit(2);
+		}
+		json = runner.toJSON(runner.run());
+		if (runner.outputFile != null) {
+			IOUtils.writeTextFile(runner.outputFile, json);
+			logger.info("results written to " + runner.outputFile);
+		} else {
+			System.out.println(json);
+		}
+		if (runner.sink == 0) {
+			logger.debug("sink: " + runner.sink);
+		}
+	}
+}
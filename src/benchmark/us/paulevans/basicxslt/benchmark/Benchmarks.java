@@ -0,0 +1,369 @@
+/*
+	Copyright 2006 Paul Evans
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+package us.paulevans.basicxslt.benchmark;
+
+import java.io.File;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamSource;
+
+import net.blueslate.commons.io.IOUtils;
+import net.blueslate.commons.xml.XMLUtils;
+
+import org.apache.commons.vfs.FileObject;
+import org.apache.commons.vfs.FileSystemManager;
+import org.apache.commons.vfs.VFS;
+
+import us.paulevans.basicxslt.TransformPipeline;
+import us.paulevans.basicxslt.TransformTimings;
+import us.paulevans.basicxslt.Utils;
+
+/**
+ * The benchmarks of the transform chain hot paths: compiling a stylesheet,
+ * validating the source, single- and multi-stage transforms, and the xml
+ * checks made on each result.
+ * @author pevans
+ *
+ */
+public class Benchmarks {
+
+	// first stage - turns catalog items into products...
+	static final String PRODUCTS_XSL =
+		"<xsl:stylesheet version=\"1.0\" " +
+		"xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">" +
+		"<xsl:template match=\"/catalog\"><products>" +
+		"<xsl:apply-templates select=\"item\"/></products></xsl:template>" +
+		"<xsl:template match=\"item\"><product id=\"{@id}\" " +
+		"category=\"{translate(@category, 'abcdefghijklmnopqrstuvwxyz', " +
+		"'ABCDEFGHIJKLMNOPQRSTUVWXYZ')}\" price=\"{price}\">" +
+		"<xsl:value-of select=\"name\"/><xsl:for-each select=\"tags/tag\">" +
+		"<tag><xsl:value-of select=\".\"/></tag></xsl:for-each></product>" +
+		"</xsl:template></xsl:stylesheet>";
+
+	// second stage - sorts the products by price...
+	static final String SORT_XSL =
+		"<xsl:stylesheet version=\"1.0\" " +
+		"xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">" +
+		"<xsl:template match=\"/products\"><products>" +
+		"<xsl:for-each select=\"product\">" +
+		"<xsl:sort select=\"@price\" data-type=\"number\"/>" +
+		"<xsl:copy-of select=\".\"/></xsl:for-each></products>" +
+		"</xsl:template></xsl:stylesheet>";
+
+	// third stage - summarizes the products by category...
+	static final String SUMMARY_XSL =
+		"<xsl:stylesheet version=\"1.0\" " +
+		"xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">" +
+		"<xsl:output indent=\"yes\"/>" +
+		"<xsl:key name=\"category\" match=\"product\" use=\"@category\"/>" +
+		"<xsl:template match=\"/products\"><summary count=\"{count(product)}\">" +
+		"<xsl:for-each select=\"product[generate-id() = " +
+		"generate-id(key('category', @category)[1])]\">" +
+		"<category name=\"{@category}\" " +
+		"count=\"{count(key('category', @category))}\" " +
+		"total=\"{sum(key('category', @category)/@price)}\"/>" +
+		"</xsl:for-each></summary></xsl:template></xsl:stylesheet>";
+
+	/**
+	 * Returns every benchmark
+	 * @return
+	 */
+	public static List<Benchmark> getAll() {
+
+		List<Benchmark> benchmarks;
+
+		benchmarks = new ArrayList<Benchmark>();
+		benchmarks.add(new CompileBenchmark());
+		benchmarks.add(new ValidateBenchmark());
+		benchmarks.add(new IsXmlBenchmark());
+		benchmarks.add(new GetDocumentBenchmark());
+		benchmarks.add(new TransformBenchmark());
+		benchmarks.add(new MultiStageBenchmark());
+		benchmarks.add(new PipelinedBenchmark());
+		return benchmarks;
+	}
+
+	/**
+	 * Compiles aXsl
+	 * @param aXsl
+	 * @return
+	 * @throws Exception
+	 */
+	static Templates compile(String aXsl) throws Exception {
+		return TransformerFactory.newInstance().newTemplates(
+				new StreamSource(new StringReader(aXsl)));
+	}
+
+	/**
+	 * Compiles each of the stylesheets of the multi-stage chain
+	 * @return
+	 * @throws Exception
+	 */
+	static Templates[] compileChain() throws Exception {
+		return new Templates[] { compile(PRODUCTS_XSL), compile(SORT_XSL),
+				compile(SUMMARY_XSL) };
+	}
+
+	/**
+	 * Measures compiling a stylesheet (without the TemplatesCache)
+	 */
+	static class CompileBenchmark extends Benchmark {
+
+		/**
+		 * Constructor
+		 */
+		CompileBenchmark() {
+			super("compile");
+		}
+
+		/**
+		 * Only measured once
+		 */
+		public boolean isSized() {
+			return false;
+		}
+
+		/**
+		 * Compiles the summary stylesheet
+		 */
+		public Object run() throws Exception {
+			return compile(SUMMARY_XSL);
+		}
+	}
+
+	/**
+	 * Measures Utils.isValidXml() on a file read through commons-VFS
+	 */
+	static class ValidateBenchmark extends Benchmark {
+
+		File file;
+		FileObject fileObject;
+
+		/**
+		 * Constructor
+		 */
+		ValidateBenchmark() {
+			super("isValidXml");
+		}
+
+		/**
+		 * Writes aXmlContents to a temporary file
+		 */
+		public void setUp(byte aXmlContents[]) throws Exception {
+
+			FileSystemManager fsManager;
+
+			file = File.createTempFile("benchmark", ".xml");
+			IOUtils.writeFile(file, aXmlContents);
+			fsManager = VFS.getManager();
+			fileObject = fsManager.resolveFile(file.getAbsolutePath());
+		}
+
+		/**
+		 * Checks the file is well-formed
+		 */
+		public Object run() throws Exception {
+			fileObject.refresh();
+			Utils.getInstance().isValidXml(fileObject.getContent(), false,
+					false, true);
+			return fileObject;
+		}
+
+		/**
+		 * Deletes the temporary file
+		 */
+		public void tearDown() throws Exception {
+			fileObject.close();
+			file.delete();
+		}
+	}
+
+	/**
+	 * Measures XMLUtils.isXml()
+	 */
+	static class IsXmlBenchmark extends Benchmark {
+
+		byte xmlContents[];
+
+		/**
+		 * Constructor
+		 */
+		IsXmlBenchmark() {
+			super("isXml");
+		}
+
+		/**
+		 * Setup
+		 */
+		public void setUp(byte aXmlContents[]) {
+			xmlContents = aXmlContents;
+		}
+
+		/**
+		 * Checks the document is xml
+		 */
+		public Object run() {
+			return Boolean.valueOf(XMLUtils.isXml(xmlContents));
+		}
+	}
+
+	/**
+	 * Measures XMLUtils.getDocument()
+	 */
+	static class GetDocumentBenchmark extends Benchmark {
+
+		byte xmlContents[];
+
+		/**
+		 * Constructor
+		 */
+		GetDocumentBenchmark() {
+			super("getDocument");
+		}
+
+		/**
+		 * Setup
+		 */
+		public void setUp(byte aXmlContents[]) {
+			xmlContents = aXmlContents;
+		}
+
+		/**
+		 * Parses the document into a DOM
+		 */
+		public Object run() throws Exception {
+			return XMLUtils.getDocument(xmlContents);
+		}
+	}
+
+	/**
+	 * Measures a single-stage transform
+	 */
+	static class TransformBenchmark extends Benchmark {
+
+		byte xmlContents[];
+		Templates templates;
+
+		/**
+		 * Constructor
+		 */
+		TransformBenchmark() {
+			super("transform");
+		}
+
+		/**
+		 * Compiles the stylesheet
+		 */
+		public void setUp(byte aXmlContents[]) throws Exception {
+			xmlContents = aXmlContents;
+			templates = compile(PRODUCTS_XSL);
+		}
+
+		/**
+		 * Transforms the document
+		 */
+		public Object run() throws Exception {
+			return Utils.transform(xmlContents, templates, null, null);
+		}
+	}
+
+	/**
+	 * Measures a three-stage transform, run one stage after another
+	 */
+	static class MultiStageBenchmark extends Benchmark {
+
+		byte xmlContents[];
+		Templates templates[];
+
+		/**
+		 * Constructor
+		 */
+		MultiStageBenchmark() {
+			super("transformMultiStage");
+		}
+
+		/**
+		 * Compiles the stylesheets
+		 */
+		public void setUp(byte aXmlContents[]) throws Exception {
+			xmlContents = aXmlContents;
+			templates = compileChain();
+		}
+
+		/**
+		 * Transforms the document with each stage in turn
+		 */
+		public Object run() throws Exception {
+
+			byte result[];
+			int loop;
+
+			result = xmlContents;
+			for (loop = 0; loop < templates.length; loop++) {
+				result = Utils.transform(result, templates[loop], null, null);
+				if (loop < templates.length - 1 && !XMLUtils.isXml(result)) {
+					throw new IllegalStateException("stage " + loop +
+							" did not produce xml");
+				}
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Measures the same three-stage transform as a SAX pipeline
+	 */
+	static class PipelinedBenchmark extends Benchmark {
+
+		byte xmlContents[];
+		Templates templates[];
+
+		/**
+		 * Constructor
+		 */
+		PipelinedBenchmark() {
+			super("transformPipelined");
+		}
+
+		/**
+		 * Compiles the stylesheets
+		 */
+		public void setUp(byte aXmlContents[]) throws Exception {
+			xmlContents = aXmlContents;
+			templates = compileChain();
+		}
+
+		/**
+		 * Transforms the document through the pipeline
+		 */
+		public Object run() throws Exception {
+
+			TransformPipeline pipeline;
+			int loop;
+
+			pipeline = new TransformPipeline();
+			for (loop = 0; loop < templates.length; loop++) {
+				pipeline.addStage(templates[loop], null, null,
+						new TransformTimings());
+			}
+			return pipeline.transform(xmlContents);
+		}
+	}
+}
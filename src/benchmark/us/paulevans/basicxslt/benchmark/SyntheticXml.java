@@ -0,0 +1,61 @@
+/*
+	Copyright 2006 Paul Evans
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+package us.paulevans.basicxslt.benchmark;
+
+/**
+ * Generates synthetic XML documents of a given size.  The documents are a
+ * flat catalog of items with attributes, text and nested elements, and are
+ * the same every time for the same size so runs can be compared.
+ * @author pevans
+ *
+ */
+public class SyntheticXml {
+
+	// names used for the item text...
+	private static final String NAMES[] = { "alpha", "bravo", "charlie",
+		"delta", "echo", "foxtrot", "golf", "hotel" };
+
+	/**
+	 * Returns a document of roughly aSize bytes (never less).
+	 * @param aSize
+	 * @return
+	 */
+	public static byte[] generate(int aSize) {
+
+		StringBuffer buffer;
+		int item;
+
+		buffer = new StringBuffer(aSize + 256);
+		buffer.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		buffer.append("<catalog>\n");
+		for (item = 0; buffer.length() < aSize; item++) {
+			buffer.append("  <item id=\"").append(item).append(
+					"\" category=\"").append(NAMES[item % NAMES.length]).append(
+							"\">\n");
+			buffer.append("    <name>").append(NAMES[item % NAMES.length]).append(
+					' ').append(item).append("</name>\n");
+			buffer.append("    <price>").append(item % 1000).append('.').append(
+					item % 100).append("</price>\n");
+			buffer.append("    <tags><tag>").append(
+					NAMES[(item + 1) % NAMES.length]).append("</tag><tag>").append(
+							NAMES[(item + 2) % NAMES.length]).append(
+									"</tag></tags>\n");
+			buffer.append("  </item>\n");
+		}
+		buffer.append("</catalog>\n");
+		return buffer.toString().getBytes();
+	}
+}
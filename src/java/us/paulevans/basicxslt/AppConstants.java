@@ -44,6 +44,19 @@ public class AppConstants {
     public static final String CHK_WARNINGS_PROP = "chk_warnings";
     public static final String CHK_ERRORS_PROP = "chk_errors";
     public static final String CHK_FATAL_ERRORS_PROP = "chk_fatal_errors";
+    public static final String VALIDATE_WHILE_TRANSFORMING_PROP = 
+    	"validate_while_transforming";
+    public static final String COLLECT_ALL_ERRORS_PROP = "collect_all_errors";
+    public static final String ERROR_LIMIT_PROP = "error_limit";
+    public static final String TRANSFORM_TIMEOUT_PROP = "transform_timeout";
+    public static final String PIPELINE_STAGES_PROP = "pipeline_stages";
+    public static final String ENGINE_PROP = "engine";
+    public static final String CACHE_RESULTS_PROP = "cache_results";
+    public static final String DISCARD_GC_ITERATIONS_PROP = 
+    	"discard_gc_iterations";
+    public static final String BENCHMARK_WARMUP_PROP = "benchmark_warmup";
+    public static final String BENCHMARK_ITERATIONS_PROP = 
+    	"benchmark_iterations";
     public static final String X_COORD_PROP = "x_coord";
     public static final String Y_COORD_PROP = "y_coord";
     public static final String LAST_FILE_CHOSEN_PROP = "last_file_chosen";
@@ -78,6 +91,15 @@ public class AppConstants {
     public static final String APP_PREFS_FILE = "basicxslt.properties";
     public static final String DEFAULT_DIR_PROP = "default_dir";
     public static final String DEFAULT_CONFIGURATION = "default";
+    public static final String TRANSLETS_DIR = "translets";
+    public static final String RESULTS_DIR = "results";
+    public static final String RESOURCES_DIR = "resources";
+    public static final String CATALOG_FILE = "catalog.xml";
+    public static final String VALIDATION_CACHE_FILE = "validation.properties";
+    
+    // transform engines...
+    public static final String ENGINE_XALAN = "xalan";
+    public static final String ENGINE_XSLTC = "xsltc";
     
     // gui labels...
 	public static final String INSERT = "->";
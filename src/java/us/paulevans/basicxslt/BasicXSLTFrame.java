@@ -27,17 +27,22 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.SocketException;
 import java.net.UnknownHostException;
 import java.text.MessageFormat;
 import java.util.ArrayList;
-import java.util.Enumeration;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import javax.swing.BorderFactory;
+import javax.swing.ButtonGroup;
 import javax.swing.JButton;
 import javax.swing.JCheckBox;
 import javax.swing.JCheckBoxMenuItem;
@@ -50,9 +55,13 @@ import javax.swing.JMenuBar;
 import javax.swing.JMenuItem;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.JProgressBar;
+import javax.swing.JRadioButtonMenuItem;
 import javax.swing.JScrollPane;
 import javax.swing.JSeparator;
 import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 import javax.swing.border.BevelBorder;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.TransformerException;
@@ -65,11 +74,14 @@ import net.blueslate.commons.xml.XMLUtils;
 
 import org.apache.commons.lang.BooleanUtils;
 import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.math.NumberUtils;
 import org.apache.commons.lang.exception.ExceptionUtils;
 import org.apache.commons.vfs.FileContent;
+import org.apache.commons.vfs.FileSystemException;
 import org.apache.commons.vfs.FileSystemManager;
 import org.apache.commons.vfs.VFS;
 import org.apache.log4j.Logger;
+import org.w3c.dom.Document;
 import org.xml.sax.SAXException;
 
 /**
@@ -78,7 +90,7 @@ import org.xml.sax.SAXException;
  *
  */
 public class BasicXSLTFrame extends JFrame implements ActionListener,
-	Runnable {
+	ChainWatcher.Client {
     
     // static members...
     private static UserPreferences userPrefs;
@@ -89,21 +101,41 @@ public class BasicXSLTFrame extends JFrame implements ActionListener,
     private static final LabelStringFactory stringFactory = 
     	LabelStringFactory.getInstance();
     
-	// constants used by Runnable...
-	private static final int THREADMODE_DO_TRANSFORM = 0;
-	private static final int THREADMODE_DO_VALIDATE  = 1;
-	private static final int THREADMODE_DO_XML_IDENTITY_TRANSFORM = 2;
-	
     // constants...
     private static final int XML_VALIDATE_ACTION_INDEX = 2;
     private static final int XML_VIEW_EDIT_OUTPUT_PROPS_INDEX = 3;
     private static final int XML_CLEAR_OUTPUT_PROPS_INDEX = 4;
     private static final int XML_DO_IDENTITY_TRANSFORM_ACTION_INDEX = 5;
     
+    // most validation and identity-transform jobs run at once...
+    private static final int MAX_JOB_THREADS = 4;
+    
+    // kinds of transform job, and the keys of their descriptions...
+    private static final int TRANSFORM_JOB = 0;
+    private static final int BENCHMARK_JOB = 1;
+    private static final int PROFILE_JOB = 2;
+    private static final String TRANSFORM_JOB_KEYS[] = {
+    	LabelStringFactory.JOB_TRANSFORM, LabelStringFactory.JOB_BENCHMARK, 
+    	LabelStringFactory.JOB_PROFILE };
+    
+    // milliseconds between refreshes of the transform progress bar, and 
+    // the bar's maximum value...
+    private static final int PROGRESS_INTERVAL = 250;
+    private static final int PROGRESS_BAR_MAXIMUM = 1000;
+    
 	// default frame width and height - these values are used if
 	// a height and width are not found in the user's preferences...
 	private static final String DEFAULT_FRAME_WIDTH = "930";
 	private static final String DEFAULT_FRAME_HEIGHT = "415";
+	
+	// default number of warm-up and measured benchmark iterations - these
+	// values are used if they are not found in the user's preferences...
+	private static final String DEFAULT_BENCHMARK_WARMUP = "5";
+	private static final String DEFAULT_BENCHMARK_ITERATIONS = "20";
+	
+	// default maximum number of validation errors collected per document -
+	// this value is used if it is not found in the user's preferences...
+	private static final String DEFAULT_ERROR_LIMIT = "1000";
     
     // XML action labels...
     private static final String XML_ACTIONS[] = {
@@ -121,13 +153,7 @@ public class BasicXSLTFrame extends JFrame implements ActionListener,
     private static final Logger logger = Logger.getLogger(BasicXSLTFrame.class);
     
 	// instance members...
-	private int threadMode;
-	private String label, identityTransformMessage;
-	private String identityTransformSourceXmlFile, 
-	identityTransformResultXmlFile;
-	private JTextField textField;
-	private boolean suppressSuccessDialog;
-	private List<Component> components;
+	private JobQueue jobQueue;
 	private JTextField sourceXmlTf, autosavePathTf;
     private List<XSLRow> xslRows;
     private JPanel xslPanel;
@@ -135,16 +161,26 @@ public class BasicXSLTFrame extends JFrame implements ActionListener,
     private GridBagConstraints xslPanelConstraints;
     private JLabel transformTimeLabel, currentConfigLabel, 
     	outputAsTextIfXmlLabel, xmlIndicatorLabel;
-    private JButton exitBtn, transformBtn, addXslBtn, 
+    private JProgressBar transformProgressBar;
+    private JButton exitBtn, transformBtn, cancelBtn, addXslBtn, 
 		removeCheckedBtn, validateAutosaveBtn;
 	private JComboBox xmlAction;
     private JButton browseXmlBtn, browseAutosavePathBtn;
     private JCheckBoxMenuItem checkSaxWarning, checkSaxError, 
-    checkSaxFatalError;
+    checkSaxFatalError, collectAllErrors, validateWhileTransforming, 
+    pipelineStages, 
+    cacheResults, watchFiles, discardGCIterations;
+    private JRadioButtonMenuItem xalanEngine, xsltcEngine;
     private JCheckBox autosaveCb, suppressOutputWindowCb, outputAsTextIfXml;
     private JMenuItem exit, about, resetForm, transformTimings, 
-    	saveConfiguration, saveAsConfiguration, loadConfiguration;
+    	saveConfiguration, saveAsConfiguration, loadConfiguration, benchmark,
+    	profile, transformTimeout, viewJobs;
     private long lastTotalTransformTime;
+    private BenchmarkRun lastBenchmark;
+    private XSLRow lastBenchmarkRows[];
+    private ChainWatcher chainWatcher;
+    private WatchRun watchRun;
+    private OutputFrame watchOutputFrame;
     private TransformOutputProperties xmlIdentityTransformOutputProps;
     private boolean areXmlOutputPropertiesSet;
 
@@ -160,7 +196,8 @@ public class BasicXSLTFrame extends JFrame implements ActionListener,
 		userPrefs.loadDefaultConfiguration();
 		lastFileChosen = 
 			userPrefs.getProperty(AppConstants.LAST_FILE_CHOSEN_PROP);
-		components = new ArrayList<Component>();
+		jobQueue = new JobQueue(Math.min(MAX_JOB_THREADS, 
+				Runtime.getRuntime().availableProcessors()));
         buildGui();
         setTitle(stringFactory.getString(
         		LabelStringFactory.MAIN_FRAME_TITLE_BAR));
@@ -190,6 +227,8 @@ public class BasicXSLTFrame extends JFrame implements ActionListener,
 				LabelStringFactory.TOOL_TIP_XML_ACTION));
 		transformBtn.setToolTipText(stringFactory.getString(
 				LabelStringFactory.TOOL_TIP_TRANSFORM_BTN));	
+		cancelBtn.setToolTipText(stringFactory.getString(
+				LabelStringFactory.TOOL_TIP_CANCEL_BTN));
 		exitBtn.setToolTipText(stringFactory.getString(
 				LabelStringFactory.TOOL_TIP_EXIT_BTN));
 		addXslBtn.setToolTipText(stringFactory.getString(
@@ -214,79 +253,6 @@ public class BasicXSLTFrame extends JFrame implements ActionListener,
 				LabelStringFactory.TOOL_TIP_OUTPUT_AS_TEXT_IF_XML_CB));
     }
     
-    private static void loadParameters(XSLRow aXSLRow) {
-    	
-    	// local declarations...
-    	TransformParameters parameters;
-    	Enumeration propertyNames;
-    	String propName, propValue, prefix;
-    	int index;
-    	
-    	parameters = aXSLRow.getTransformParameters();
-    	propertyNames = userPrefs.propertyNames();
-    	prefix = userPrefs.getConfiguration() + ".xsl_" + 
-    		aXSLRow.getIndex() + "_params_";
-    	while (propertyNames.hasMoreElements()) {
-    		propName = (String)propertyNames.nextElement();
-    		if (propName.startsWith(prefix)) {
-    			propValue = userPrefs.getPropertyNoPrefix(propName);
-    			index = propName.indexOf('{');
-    			if (index != -1) {
-    				propName = propName.substring(index);
-    			} else {
-    				index = propName.indexOf("_", prefix.length());
-    				propName = propName.substring(index + 1);
-    			}    	
-    			parameters.setParameter(
-					TransformParameters.getNamespaceURI(propName),
-    				TransformParameters.getParameterName(propName),
-    				propValue);
-    		}
-    	}
-    }
-    
-    /**
-     * Load the output properties on the aOutputProperties object from the 
-     * user's preferences.
-     * @param aOutputProperties
-     * @param aPropertyNamePrefix
-     */
-    private void loadOutputProperties(
-    		TransformOutputProperties aOutputProperties, 
-    		String aPropertyNamePrefix) {
-    		
-		aOutputProperties.setCDATA_SECTION_ELEMENTS(
-			StringUtils.defaultString(userPrefs.getProperty(
-				aPropertyNamePrefix + AppConstants.CDATA_SECTION_ELEMENTS)));
-		aOutputProperties.setDOCTYPE_PUBLIC(
-			StringUtils.defaultString(userPrefs.getProperty(
-				aPropertyNamePrefix + AppConstants.DOCTYPE_PUBLIC)));
-		aOutputProperties.setDOCTYPE_SYSTEM(
-			StringUtils.defaultString(userPrefs.getProperty(
-				aPropertyNamePrefix + AppConstants.DOCTYPE_SYSTEM)));
-		aOutputProperties.setENCODING(
-			StringUtils.defaultString(userPrefs.getProperty(
-				aPropertyNamePrefix + AppConstants.ENCODING)));
-		aOutputProperties.setINDENT(BooleanUtils.toBoolean(
-				userPrefs.getProperty(aPropertyNamePrefix + 
-						AppConstants.INDENT)));
-		aOutputProperties.setMEDIA_TYPE(
-			StringUtils.defaultString(userPrefs.getProperty(
-				aPropertyNamePrefix + AppConstants.MEDIA_TYPE)));
-		aOutputProperties.setMETHOD(
-			StringUtils.defaultString(userPrefs.getProperty(
-				aPropertyNamePrefix + AppConstants.METHOD)));
-		aOutputProperties.setOMIT_XML_DECLARATION(
-			BooleanUtils.toBoolean(userPrefs.getProperty(
-				aPropertyNamePrefix + AppConstants.OMIT_XML_DECLARATION)));
-		aOutputProperties.setSTANDALONE(
-			BooleanUtils.toBoolean(userPrefs.getProperty(
-				aPropertyNamePrefix + AppConstants.STANDALONE)));		
-		aOutputProperties.setVERSION(
-			StringUtils.defaultString(userPrefs.getProperty(
-				aPropertyNamePrefix + AppConstants.VERSION)));    	
-    }
-
     /**
      * Initialize the gui
      *
@@ -308,6 +274,28 @@ public class BasicXSLTFrame extends JFrame implements ActionListener,
         val = userPrefs.getProperty(AppConstants.CHK_FATAL_ERRORS_PROP);
         checkSaxFatalError.setSelected(val != null ? 
         		Boolean.valueOf(val).booleanValue() : false);
+        val = userPrefs.getProperty(AppConstants.COLLECT_ALL_ERRORS_PROP);
+        collectAllErrors.setSelected(val != null ? 
+        		Boolean.valueOf(val).booleanValue() : false);
+        val = userPrefs.getProperty(
+        		AppConstants.VALIDATE_WHILE_TRANSFORMING_PROP);
+        validateWhileTransforming.setSelected(val != null ? 
+        		Boolean.valueOf(val).booleanValue() : false);
+        val = userPrefs.getProperty(AppConstants.PIPELINE_STAGES_PROP);
+        pipelineStages.setSelected(val != null ? 
+        		Boolean.valueOf(val).booleanValue() : true);
+        val = userPrefs.getProperty(AppConstants.CACHE_RESULTS_PROP);
+        cacheResults.setSelected(val != null ? 
+        		Boolean.valueOf(val).booleanValue() : false);
+        val = userPrefs.getProperty(AppConstants.ENGINE_PROP);
+        if (AppConstants.ENGINE_XSLTC.equals(val)) {
+        	xsltcEngine.setSelected(true);
+        } else {
+        	xalanEngine.setSelected(true);
+        }
+        val = userPrefs.getProperty(AppConstants.DISCARD_GC_ITERATIONS_PROP);
+        discardGCIterations.setSelected(val != null ? 
+        		Boolean.valueOf(val).booleanValue() : false);
         xCoord = userPrefs.getProperty(AppConstants.X_COORD_PROP);
         yCoord = userPrefs.getProperty(AppConstants.Y_COORD_PROP);
         areGoodCoordinates = false;
@@ -338,7 +326,7 @@ public class BasicXSLTFrame extends JFrame implements ActionListener,
 		// load xml output props from user prefs
 		val = userPrefs.getProperty("xml_identity_transform_opInd");
 		setAreOutputPropertiesSet(BooleanUtils.toBoolean(val));
-		loadOutputProperties(xmlIdentityTransformOutputProps,
+		userPrefs.loadOutputProperties(xmlIdentityTransformOutputProps,
 			"xml_identity_transform_outputproperties_");
 		
 		refreshXmlIndicatorLabel();
@@ -348,13 +336,17 @@ public class BasicXSLTFrame extends JFrame implements ActionListener,
         	val = userPrefs.getProperty("xsl_" + loop + "_file");
         	if (val != null) {
         		xslRow = xslRows.get(loop);
-        		loadParameters(xslRow);
+        		userPrefs.loadParameters(xslRow.getTransformParameters(), 
+        				xslRow.getIndex());
         		xslRow.getTextField().setText(val);
         		val = userPrefs.getProperty("xsl_" + loop + "_onoff"); 
         		xslRow.setOn(BooleanUtils.toBoolean(val));   
         		val = userPrefs.getProperty("xsl_" + loop + "_opInd");
         		xslRow.setAreOutputPropertiesSet(BooleanUtils.toBoolean(val));  
-        		loadOutputProperties(xslRow.getTransformOutputProperties(),
+        		xslRow.setTimeout(NumberUtils.stringToInt(userPrefs.getProperty(
+        				"xsl_" + loop + "_timeout"), 0));
+        		userPrefs.loadOutputProperties(
+        				xslRow.getTransformOutputProperties(),
         			propertyNamePrefix);        		        		
        			loop++;
         	}
@@ -375,7 +367,8 @@ public class BasicXSLTFrame extends JFrame implements ActionListener,
     	
     	// local declarations...
         JMenuBar menuBar;
-        JMenu help, file, validation, view;
+        JMenu help, file, validation, transformation, view;
+        ButtonGroup engines;
         
         // build the file menu and associated menu items...
         file = new JMenu(stringFactory.getString(LabelStringFactory.MF_FILE_MENU));
@@ -431,6 +424,99 @@ public class BasicXSLTFrame extends JFrame implements ActionListener,
 				LabelStringFactory.MF_VALIDATION_CHECK_SAX_FATAL_MI)));
 		checkSaxFatalError.setMnemonic(stringFactory.getMnemonic(
 				LabelStringFactory.MF_VALIDATION_CHECK_SAX_FATAL_MI));
+		validation.add(new JSeparator());
+		validation.add(collectAllErrors = new JCheckBoxMenuItem(
+				stringFactory.getString(
+				LabelStringFactory.MF_VALIDATION_COLLECT_ALL_ERRORS_MI)));
+		collectAllErrors.setMnemonic(stringFactory.getMnemonic(
+				LabelStringFactory.MF_VALIDATION_COLLECT_ALL_ERRORS_MI));
+		collectAllErrors.setToolTipText(stringFactory.getString(
+				LabelStringFactory.TOOL_TIP_COLLECT_ALL_ERRORS));
+		collectAllErrors.addActionListener(this);
+		validation.add(validateWhileTransforming = new JCheckBoxMenuItem(
+				stringFactory.getString(
+				LabelStringFactory.MF_VALIDATION_WHILE_TRANSFORMING_MI)));
+		validateWhileTransforming.setMnemonic(stringFactory.getMnemonic(
+				LabelStringFactory.MF_VALIDATION_WHILE_TRANSFORMING_MI));
+		validateWhileTransforming.setToolTipText(stringFactory.getString(
+				LabelStringFactory.TOOL_TIP_VALIDATE_WHILE_TRANSFORMING));
+        
+		// build the transform menu and associated menu items...
+		transformation = new JMenu(stringFactory.getString(
+				LabelStringFactory.MF_TRANSFORM_MENU));
+		transformation.setMnemonic(stringFactory.getMnemonic(
+				LabelStringFactory.MF_TRANSFORM_MENU));
+		transformation.add(pipelineStages = new JCheckBoxMenuItem(
+				stringFactory.getString(
+				LabelStringFactory.MF_TRANSFORM_PIPELINE_STAGES_MI)));
+		pipelineStages.setMnemonic(stringFactory.getMnemonic(
+				LabelStringFactory.MF_TRANSFORM_PIPELINE_STAGES_MI));
+		pipelineStages.setToolTipText(stringFactory.getString(
+				LabelStringFactory.TOOL_TIP_PIPELINE_STAGES));
+		transformation.add(cacheResults = new JCheckBoxMenuItem(
+				stringFactory.getString(
+				LabelStringFactory.MF_TRANSFORM_CACHE_RESULTS_MI)));
+		cacheResults.setMnemonic(stringFactory.getMnemonic(
+				LabelStringFactory.MF_TRANSFORM_CACHE_RESULTS_MI));
+		cacheResults.setToolTipText(stringFactory.getString(
+				LabelStringFactory.TOOL_TIP_CACHE_RESULTS));
+		transformation.add(watchFiles = new JCheckBoxMenuItem(
+				stringFactory.getString(
+				LabelStringFactory.MF_TRANSFORM_WATCH_FILES_MI)));
+		watchFiles.setMnemonic(stringFactory.getMnemonic(
+				LabelStringFactory.MF_TRANSFORM_WATCH_FILES_MI));
+		watchFiles.setToolTipText(stringFactory.getString(
+				LabelStringFactory.TOOL_TIP_WATCH_FILES));
+		watchFiles.addActionListener(this);
+		transformation.add(new JSeparator());
+		engines = new ButtonGroup();
+		transformation.add(xalanEngine = new JRadioButtonMenuItem(
+				stringFactory.getString(
+				LabelStringFactory.MF_TRANSFORM_ENGINE_XALAN_MI)));
+		xalanEngine.setMnemonic(stringFactory.getMnemonic(
+				LabelStringFactory.MF_TRANSFORM_ENGINE_XALAN_MI));
+		xalanEngine.setToolTipText(stringFactory.getString(
+				LabelStringFactory.TOOL_TIP_ENGINE_XALAN));
+		engines.add(xalanEngine);
+		transformation.add(xsltcEngine = new JRadioButtonMenuItem(
+				stringFactory.getString(
+				LabelStringFactory.MF_TRANSFORM_ENGINE_XSLTC_MI)));
+		xsltcEngine.setMnemonic(stringFactory.getMnemonic(
+				LabelStringFactory.MF_TRANSFORM_ENGINE_XSLTC_MI));
+		xsltcEngine.setToolTipText(stringFactory.getString(
+				LabelStringFactory.TOOL_TIP_ENGINE_XSLTC));
+		engines.add(xsltcEngine);
+		transformation.add(new JSeparator());
+		transformation.add(benchmark = new JMenuItem(stringFactory.getString(
+				LabelStringFactory.MF_TRANSFORM_BENCHMARK_MI)));
+		benchmark.setMnemonic(stringFactory.getMnemonic(
+				LabelStringFactory.MF_TRANSFORM_BENCHMARK_MI));
+		benchmark.setToolTipText(stringFactory.getString(
+				LabelStringFactory.TOOL_TIP_BENCHMARK));
+		benchmark.addActionListener(this);
+		transformation.add(profile = new JMenuItem(stringFactory.getString(
+				LabelStringFactory.MF_TRANSFORM_PROFILE_MI)));
+		profile.setMnemonic(stringFactory.getMnemonic(
+				LabelStringFactory.MF_TRANSFORM_PROFILE_MI));
+		profile.setToolTipText(stringFactory.getString(
+				LabelStringFactory.TOOL_TIP_PROFILE));
+		profile.addActionListener(this);
+		transformation.add(discardGCIterations = new JCheckBoxMenuItem(
+				stringFactory.getString(
+				LabelStringFactory.MF_TRANSFORM_DISCARD_GC_ITERATIONS_MI)));
+		discardGCIterations.setMnemonic(stringFactory.getMnemonic(
+				LabelStringFactory.MF_TRANSFORM_DISCARD_GC_ITERATIONS_MI));
+		discardGCIterations.setToolTipText(stringFactory.getString(
+				LabelStringFactory.TOOL_TIP_DISCARD_GC_ITERATIONS));
+		transformation.add(new JSeparator());
+		transformation.add(transformTimeout = new JMenuItem(
+				stringFactory.getString(
+				LabelStringFactory.MF_TRANSFORM_TIMEOUT_MI)));
+		transformTimeout.setMnemonic(stringFactory.getMnemonic(
+				LabelStringFactory.MF_TRANSFORM_TIMEOUT_MI));
+		transformTimeout.setToolTipText(stringFactory.getString(
+				LabelStringFactory.TOOL_TIP_TIMEOUT));
+		transformTimeout.addActionListener(this);
         
 		// build the view menu and associate menu items...
         view = new JMenu(stringFactory.getString(LabelStringFactory.MF_VIEW_MENU));
@@ -442,6 +528,11 @@ public class BasicXSLTFrame extends JFrame implements ActionListener,
         		LabelStringFactory.MF_VIEW_LAST_TIMINGS_MI));
         transformTimings.setEnabled(false);
         transformTimings.addActionListener(this);
+        view.add(viewJobs = new JMenuItem(stringFactory.getString(
+        		LabelStringFactory.MF_VIEW_JOBS_MI)));
+        viewJobs.setMnemonic(stringFactory.getMnemonic(
+        		LabelStringFactory.MF_VIEW_JOBS_MI));
+        viewJobs.addActionListener(this);
         
         // build the help menu and associated menu items...
         help = new JMenu(stringFactory.getString(LabelStringFactory.MF_HELP_MENU));
@@ -458,6 +549,7 @@ public class BasicXSLTFrame extends JFrame implements ActionListener,
         menuBar = new JMenuBar();
         menuBar.add(file);
         menuBar.add(validation);
+        menuBar.add(transformation);
         menuBar.add(view);
         menuBar.add(help);
         setJMenuBar(menuBar);
@@ -745,6 +837,9 @@ public class BasicXSLTFrame extends JFrame implements ActionListener,
 		transformBtnPanel.add(transformBtn = new JButton(
 				stringFactory.getString(
 						LabelStringFactory.MAIN_FRAME_TRANSFORM_BTN)));		
+		transformBtnPanel.add(cancelBtn = new JButton(stringFactory.getString(
+				LabelStringFactory.CANCEL_BUTTON)));
+		cancelBtn.setEnabled(false);
 		transformBtnPanel.add(exitBtn = new JButton(stringFactory.getString(
 				LabelStringFactory.MAIN_FRAME_EXIT_BTN)));
         
@@ -776,12 +871,18 @@ public class BasicXSLTFrame extends JFrame implements ActionListener,
 				stringFactory.getString(LabelStringFactory.
 						MAIN_FRAME_MILLISECONDS_ABBREVIATION)));
 		transformTimeLabel.setFont(footerPanelFont);		
+		panel.add(transformProgressBar = new JProgressBar(0, 
+				PROGRESS_BAR_MAXIMUM));
+		transformProgressBar.setFont(footerPanelFont);
+		transformProgressBar.setStringPainted(true);
+		transformProgressBar.setVisible(false);
 		footerPanel.add(panel);
 		
 		transformTimeLabel.setFont(footerPanelFont);
 		footerPanel.add(new JLabel(""));
 		footerPanel.add(new JLabel(""));		
 		transformBtn.addActionListener(this);
+		cancelBtn.addActionListener(this);
 		exitBtn.addActionListener(this);
 		return southPanel;
     }
@@ -849,6 +950,26 @@ public class BasicXSLTFrame extends JFrame implements ActionListener,
     	boolean isValid;
     	
     	isValid = false;
+    	if (isFileSpecified(aTextField)) {
+        	isValid = validateXml(aLabel, aTextField.getText(), 
+        			checkSaxWarning.isSelected(), checkSaxError.isSelected(),
+                    checkSaxFatalError.isSelected(), getErrorLimit(), this, 
+                    aSuppressSuccessDialog);
+    	}
+    	return isValid;
+    }
+    
+    /**
+     * Returns true if aTextField points to an existing file; if not, the user
+     * is told so.
+     * @param aTextField
+     * @return
+     */
+    private boolean isFileSpecified(JTextField aTextField) {
+    	
+    	boolean isSpecified;
+    	
+    	isSpecified = false;
     	if (isEmpty(aTextField)) {
     		Utils.showDialog(this, stringFactory.getString(
     				LabelStringFactory.MAIN_FRAME_XML_FILE_NOT_SPECIFIED), 
@@ -863,25 +984,24 @@ public class BasicXSLTFrame extends JFrame implements ActionListener,
     						LabelStringFactory.MAIN_FRAME_ERROR_LBL), 
 					JOptionPane.ERROR_MESSAGE);
         } else {
-        	isValid = validateXml(aLabel, aTextField.getText(), 
-        			checkSaxWarning.isSelected(), checkSaxError.isSelected(),
-                    checkSaxFatalError.isSelected(), this, 
-                    aSuppressSuccessDialog);
+        	isSpecified = true;
         }
-    	return isValid;
+    	return isSpecified;
     }
     
     /**
-     * Validates the input xml, each of the stylesheets.
+     * Returns true if the form is ready to be transformed: the autosave 
+     * path, if the result is autosaved, is in a directory that exists, and 
+     * the source xml and each of the stylesheets that are toggled on are 
+     * files that exist.  Otherwise the user is told what is wrong.
      * @return
      */
-    private boolean validateAll() {
+    private boolean isTransformFormValid() {
     	
     	boolean isValid;
     	int loop, size;
     	String autosavePath;
     	XSLRow xslRow;
-    	JTextField textField;
     	File file;
     	
     	isValid = true;
@@ -910,20 +1030,75 @@ public class BasicXSLTFrame extends JFrame implements ActionListener,
 					JOptionPane.ERROR_MESSAGE);
     		}
     	}
-    	if (isValid) {
-    	   	if (isValid = validateXml(stringFactory.getString(
-    	   			LabelStringFactory.MAIN_FRAME_XML_FILE), sourceXmlTf, 
-    	   			true)) {
-    			size = xslRows.size();
-    			for (loop = 0; (loop < size) && isValid; loop++) {
-    				xslRow = xslRows.get(loop);
-    				textField = xslRow.getTextField();
-    				if (xslRow.isOnAndNotEmpty()) {
-    					isValid = validateXml(xslRow.getDescription(), 
-    							textField, true);
-    				}
-    			}
-    	   	}
+    	if (!isValid || !isFileSpecified(sourceXmlTf)) {
+    		return false;
+    	}
+    	size = xslRows.size();
+    	for (loop = 0; loop < size; loop++) {
+    		xslRow = xslRows.get(loop);
+    		if (xslRow.isOnAndNotEmpty() && 
+    				!isFileSpecified(xslRow.getTextField())) {
+    			return false;
+    		}
+    	}
+    	return true;
+    }
+    
+    /**
+     * Validates the source xml of aJob, unless aValidateSource is false, and
+     * each of its stylesheets, with the settings of aJob.  The documents are
+     * validated at the same time; the first one found not to be valid is 
+     * reported, with all of its errors if they are being collected.
+     * @param aJob
+     * @param aValidateSource
+     * @return
+     */
+    private boolean validateAll(TransformJob aJob, boolean aValidateSource) {
+    	
+    	boolean isValid;
+    	int loop;
+    	List<String> labels, paths;
+    	List<FileContent> contents;
+    	
+    	isValid = true;
+    	labels = new ArrayList<String>();
+    	paths = new ArrayList<String>();
+    	if (aValidateSource) {
+    		labels.add(stringFactory.getString(
+    				LabelStringFactory.MAIN_FRAME_XML_FILE));
+    		paths.add(aJob.sourceXml);
+    	}
+    	for (loop = 0; loop < aJob.chain.getSize(); loop++) {
+    		labels.add(aJob.stageLabels.get(loop));
+    		paths.add(aJob.chain.getStage(loop).getStylesheet());
+    	}
+    	contents = new ArrayList<FileContent>();
+    	try {
+    		for (loop = 0; loop < paths.size(); loop++) {
+    			contents.add(fsManager.resolveFile(paths.get(loop)).
+    					getContent());
+    		}
+    		ParallelValidator.getInstance().validate(contents, 
+    				aJob.checkWarnings, aJob.checkErrors, 
+    				aJob.checkFatalErrors, aJob.errorLimit);
+    	} catch (FileSystemException aException) {
+    		handleValidationError(labels.get(loop), paths.get(loop), 
+    				aException);
+    		isValid = false;
+    	} catch (ValidationException aException) {
+    		if (aException.getErrors() != null) {
+    			handleValidationErrors(labels.get(aException.getIndex()), 
+    					paths.get(aException.getIndex()), 
+    					aException.getErrors());
+    		} else {
+    			handleValidationError(labels.get(aException.getIndex()), 
+    					paths.get(aException.getIndex()), 
+    					aException.getCause());
+    		}
+    		isValid = false;
+    	} catch (InterruptedException aException) {
+    		Thread.currentThread().interrupt();
+    		isValid = false;
     	}
     	return isValid;
     }
@@ -981,6 +1156,14 @@ public class BasicXSLTFrame extends JFrame implements ActionListener,
 		checkSaxError.setSelected(false);
 		checkSaxWarning.setSelected(false);
 		checkSaxFatalError.setSelected(false);
+		collectAllErrors.setSelected(false);
+		validateWhileTransforming.setSelected(false);
+		pipelineStages.setSelected(true);
+		cacheResults.setSelected(false);
+		watchFiles.setSelected(false);
+		stopWatching();
+		xalanEngine.setSelected(true);
+		discardGCIterations.setSelected(false);
 		removeCheckedBtn.setEnabled(false);
 		suppressOutputWindowCb.setSelected(false);
 		outputAsTextIfXml.setSelected(false);
@@ -1012,18 +1195,67 @@ public class BasicXSLTFrame extends JFrame implements ActionListener,
 										MAIN_FRAME_TRANSFORM_MESSAGE), 
 										JOptionPane.ERROR_MESSAGE);
       	  		}
+  	      	} else if (eventSource == cancelBtn) {
+  	      		cancelTransform();
+  	      		setCursor(new Cursor(Cursor.DEFAULT_CURSOR));
   	      	} else if (eventSource == about) {
    	       		about();
    	       		setCursor(new Cursor(Cursor.DEFAULT_CURSOR));
    	     	} else if (eventSource == exit) {
    	         	destroy();
+	        } else if (eventSource == benchmark || eventSource == profile) {
+    	    	if (areAnyStylesheets()) {
+    	    		if (eventSource == benchmark) {
+    	    			doBenchmark();
+    	    		} else {
+    	    			doProfile();
+    	    		}
+  	    	  	} else {
+    	    		Utils.showDialog(this, 
+						stringFactory.getString(LabelStringFactory.
+								MAIN_FRAME_SPECIFICY_AT_LEAST_ONE_STYLESHEET), 
+								stringFactory.getString(LabelStringFactory.
+										MAIN_FRAME_TRANSFORM_MESSAGE), 
+										JOptionPane.ERROR_MESSAGE);
+    	    		setCursor(new Cursor(Cursor.DEFAULT_CURSOR));
+      	  		}
+	        } else if (eventSource == collectAllErrors) {
+	        	if (collectAllErrors.isSelected()) {
+	        		collectAllErrors.setSelected(askErrorLimit());
+	        	}
+	        } else if (eventSource == transformTimeout) {
+	        	askRunTimeout();
+	        	setCursor(new Cursor(Cursor.DEFAULT_CURSOR));
+	        } else if (eventSource == watchFiles) {
+	        	if (!watchFiles.isSelected()) {
+	        		stopWatching();
+	        	} else if (areAnyStylesheets()) {
+	        		startWatching();
+	        	} else {
+	        		watchFiles.setSelected(false);
+    	    		Utils.showDialog(this, 
+						stringFactory.getString(LabelStringFactory.
+								MAIN_FRAME_SPECIFICY_AT_LEAST_ONE_STYLESHEET), 
+								stringFactory.getString(LabelStringFactory.
+										MAIN_FRAME_TRANSFORM_MESSAGE), 
+										JOptionPane.ERROR_MESSAGE);
+	        	}
+	        	setCursor(new Cursor(Cursor.DEFAULT_CURSOR));
 	        } else if (eventSource == transformTimings) {
-	        	new TimingsFrame(this, Utils.toArray(xslRows));
+	        	if (lastBenchmark != null) {
+	        		new TimingsFrame(this, lastBenchmarkRows, lastBenchmark);
+	        	} else {
+	        		new TimingsFrame(this, Utils.toArray(xslRows));
+	        	}
+	        	setCursor(new Cursor(Cursor.DEFAULT_CURSOR));
+	        } else if (eventSource == viewJobs) {
+	        	new JobsFrame(this, jobQueue);
 	        	setCursor(new Cursor(Cursor.DEFAULT_CURSOR));
    	     	} else if (eventSource == validateAutosaveBtn) {
 				doValidateXml(stringFactory.getString(
 	    	   			LabelStringFactory.MAIN_FRAME_XML_FILE), autosavePathTf, 
-	    	   			false);
+	    	   			Arrays.<Component>asList(autosavePathTf, 
+	    	   					validateAutosaveBtn));
 			} else if (eventSource == exitBtn) {
    	     	   	destroy();
 	        } else if (eventSource == resetForm) {
@@ -1089,13 +1321,10 @@ public class BasicXSLTFrame extends JFrame implements ActionListener,
 	        		action = (String)xmlAction.getSelectedItem();
 	        		xmlAction.setSelectedIndex(0);
 	        		if (action.equals(XML_ACTIONS[XML_VALIDATE_ACTION_INDEX])) {
-						components.clear();
-						components.add(sourceXmlTf);
-						components.add(xmlAction);
-						components.add(browseXmlBtn);
 	        			doValidateXml(stringFactory.getString(
 	    	    	   			LabelStringFactory.MAIN_FRAME_XML_FILE), 
-	    	    	   			sourceXmlTf, false);
+	    	    	   			sourceXmlTf, Arrays.<Component>asList(
+	    	    	   					sourceXmlTf, xmlAction, browseXmlBtn));
 	        		} else if (action.equals(
 	        				XML_ACTIONS[XML_VIEW_EDIT_OUTPUT_PROPS_INDEX])) {
 	        			new TransformOutputPropertiesFrame(this,
@@ -1113,16 +1342,14 @@ public class BasicXSLTFrame extends JFrame implements ActionListener,
 	        			if (validateXml(stringFactory.getString(
 	    	    	   			LabelStringFactory.MAIN_FRAME_XML_FILE), 
 	    	    	   			sourceXmlTf, true)) {							
-							components.clear();
-							components.add(sourceXmlTf);
-							components.add(browseXmlBtn);
-							components.add(xmlAction);
 							doIdentityTransform(
 								stringFactory.getString(
 										LabelStringFactory.
 										MAIN_FRAME_SELECT_FILE_FOR_IT_RESULT),
 								sourceXmlTf.getText(), 
-								sourceXmlTf.getText());
+								sourceXmlTf.getText(), 
+								Arrays.<Component>asList(sourceXmlTf, 
+										browseXmlBtn, xmlAction));
 	        			} else {
 							setCursor(new Cursor(Cursor.DEFAULT_CURSOR));
 	        			}
@@ -1153,16 +1380,14 @@ public class BasicXSLTFrame extends JFrame implements ActionListener,
 						xslRow.setSelectedActionIndex(0);
 						if (action.equals(
 								XSLRow.ACTIONS[XSLRow.VALIDATE_INDEX])) {
-							components.clear();
-							components.add(xslRow.getTextField());
-							components.add(xslRow.getAction());
-							components.add(xslRow.getRemoveCb());
-							components.add(xslRow.getInsertBtn());
-							components.add(xslRow.getBrowseBtn());
 							doValidateXml(stringFactory.getString(
 									LabelStringFactory.MAIN_FRAME_XSL_PREFIX) + 
 									(xslRow.getIndex() + 1), 
-								xslRow.getTextField(), false);
+								xslRow.getTextField(), 
+								Arrays.<Component>asList(xslRow.getTextField(), 
+										xslRow.getAction(), xslRow.getRemoveCb(), 
+										xslRow.getInsertBtn(), 
+										xslRow.getBrowseBtn()));
 						} else if (
 								action.startsWith(XSLRow.ON_OFF_ITEM_PREFIX)) {
 							xslRow.toggleOnOffBtn();
@@ -1180,23 +1405,26 @@ public class BasicXSLTFrame extends JFrame implements ActionListener,
 						} else if (action.equals(XSLRow.ACTIONS[XSLRow.
 						                         VIEW_EDIT_PARAMETERS_INDEX])) {
 							new TransformParametersFrame(this, xslRow);
+						} else if (action.equals(XSLRow.ACTIONS[XSLRow.
+						                         SET_TIMEOUT_INDEX])) {
+							askStageTimeout(xslRow);
 						} else if (action.equals(XSLRow.ACTIONS[XSLRow.
 						                   PERFORM_IDENTITY_TRANSFORM_INDEX])) {
 							if (validateXml(stringFactory.getString(
 									LabelStringFactory.MAIN_FRAME_XSL_PREFIX) + 
 									(xslRow.getIndex()+1),
 								xslRow.getTextField(), true)) {
-								components.clear();
-								components.add(xslRow.getBrowseBtn());
-								components.add(xslRow.getRemoveCb());
-								components.add(xslRow.getInsertBtn());
-								components.add(xslRow.getTextField());
 								doIdentityTransform(
 									stringFactory.getString(
 											LabelStringFactory.
 											MAIN_FRAME_PICK_FILE_FOR_IT),
 									xslRow.getTextField().getText(),
-									xslRow.getTextField().getText());									
+									xslRow.getTextField().getText(), 
+									Arrays.<Component>asList(
+											xslRow.getBrowseBtn(), 
+											xslRow.getRemoveCb(), 
+											xslRow.getInsertBtn(), 
+											xslRow.getTextField()));
 							} else {
 								setCursor(new Cursor(Cursor.DEFAULT_CURSOR));
 							}							
@@ -1314,21 +1542,34 @@ public class BasicXSLTFrame extends JFrame implements ActionListener,
     }
 
     /**
-     * Method to validate the source xml.
+     * Method to validate the source xml.  If aErrorLimit is more than 0 every
+     * error, up to aErrorLimit of them, is reported rather than only the
+     * first.
      */
     private boolean validateXml(String aLabel, String sourceXmlFile, 
     		boolean checkWarnings, boolean checkErrors, 
-			boolean checkFatalErrors, JFrame parent, 
+			boolean checkFatalErrors, int aErrorLimit, JFrame parent, 
 			boolean aSuppressSuccessDialog) {
     	
         boolean isValid;
         FileContent content;
+        List<Error> errors;
         
         isValid = false;
         try {
         	content = fsManager.resolveFile(sourceXmlFile).getContent();
-            Utils.getInstance().isValidXml(content, checkWarnings, checkErrors, 
-            		checkFatalErrors);
+        	if (aErrorLimit > 0) {
+        		errors = Utils.getInstance().getValidationErrors(content, 
+        				checkWarnings, checkErrors, checkFatalErrors, 
+        				aErrorLimit);
+        		if (!errors.isEmpty()) {
+        			handleValidationErrors(aLabel, sourceXmlFile, errors);
+        			return false;
+        		}
+        	} else {
+        		Utils.getInstance().isValidXml(content, checkWarnings, 
+        				checkErrors, checkFatalErrors);
+        	}
             isValid = true;
             if (!aSuppressSuccessDialog) {
             	Utils.showDialog(parent, MessageFormat.format(
@@ -1339,28 +1580,198 @@ public class BasicXSLTFrame extends JFrame implements ActionListener,
                     					MAIN_FRAME_VALID_XML_MSG_HDR_YES), 
 					JOptionPane.INFORMATION_MESSAGE);
             }
-        } catch (UnknownHostException aException) {
-        	logger.error(aException);
-        	Utils.handleXMLError(stringFactory.getString(LabelStringFactory.
-					MAIN_FRAME_VALID_XML_MSG_HDR_NO), aLabel, 
-					stringFactory.getString(LabelStringFactory.
-							MAIN_FRAME_XML_VALIDATION_ERR), 
-            		sourceXmlFile, this, aException.getMessage());
-        } catch (SocketException aException) {
-        	logger.error(aException);
+        } catch (Throwable aAny) {
+        	handleValidationError(aLabel, sourceXmlFile, aAny);
+        }
+        return isValid;
+    }
+    
+    /**
+     * Tells the user the xml file aFile, labelled aLabel, is not valid.
+     * @param aLabel
+     * @param aFile
+     * @param aCause
+     */
+    private void handleValidationError(String aLabel, String aFile, 
+    		Throwable aCause) {
+    	if ((aCause instanceof UnknownHostException) || 
+    			(aCause instanceof SocketException)) {
+        	logger.error(aCause);
         	Utils.handleXMLError(stringFactory.getString(LabelStringFactory.
 					MAIN_FRAME_VALID_XML_MSG_HDR_NO), aLabel, 
 					stringFactory.getString(LabelStringFactory.
 							MAIN_FRAME_XML_VALIDATION_ERR), 
-            		sourceXmlFile, this, aException.getMessage());
-        } catch (Throwable aAny) {
+            		aFile, this, aCause.getMessage());
+    	} else {
         	Utils.handleXMLError(stringFactory.getString(LabelStringFactory.
 					MAIN_FRAME_VALID_XML_MSG_HDR_NO), aLabel, 
 					stringFactory.getString(LabelStringFactory.
 							MAIN_FRAME_XML_VALIDATION_ERR), 
-            		sourceXmlFile, this, aAny);
-        }
-        return isValid;
+            		aFile, this, aCause);
+    	}
+    }
+
+    /**
+     * Tells the user the xml file aFile, labelled aLabel, is not valid,
+     * listing each of aErrors.
+     * @param aLabel
+     * @param aFile
+     * @param aErrors
+     */
+    private void handleValidationErrors(String aLabel, String aFile, 
+    		List<Error> aErrors) {
+    	Utils.handleXMLErrors(stringFactory.getString(LabelStringFactory.
+				MAIN_FRAME_VALID_XML_MSG_HDR_NO), aLabel, 
+				stringFactory.getString(LabelStringFactory.
+						MAIN_FRAME_XML_VALIDATION_ERR), 
+        		aFile, this, aErrors, getErrorLimit());
+    }
+    
+    /**
+     * Returns the maximum number of errors collected per document, or 0 if
+     * validation stops at the first error.
+     * @return
+     */
+    private int getErrorLimit() {
+    	
+    	int limit;
+    	
+    	limit = 0;
+    	if (collectAllErrors.isSelected()) {
+    		limit = NumberUtils.stringToInt(userPrefs.getProperty(
+    				AppConstants.ERROR_LIMIT_PROP, DEFAULT_ERROR_LIMIT), 
+    				Integer.parseInt(DEFAULT_ERROR_LIMIT));
+    	}
+    	return limit;
+    }
+    
+    /**
+     * Asks the user for the maximum number of errors collected per
+     * document; returns false if the user cancels or the number is not
+     * valid.
+     * @return
+     */
+    private boolean askErrorLimit() {
+    	
+    	String value;
+    	int limit;
+    	
+    	value = (String)JOptionPane.showInputDialog(this, 
+    			stringFactory.getString(
+    					LabelStringFactory.MAIN_FRAME_ERROR_LIMIT), 
+    			stringFactory.getString(
+    					LabelStringFactory.MAIN_FRAME_COLLECT_ALL_ERRORS), 
+    			JOptionPane.QUESTION_MESSAGE, null, null, 
+    			userPrefs.getProperty(AppConstants.ERROR_LIMIT_PROP, 
+    					DEFAULT_ERROR_LIMIT));
+    	if (value == null) {
+    		return false;
+    	}
+    	limit = NumberUtils.stringToInt(value.trim(), -1);
+    	if (limit < 1) {
+    		Utils.showDialog(this, stringFactory.getString(
+    				LabelStringFactory.MAIN_FRAME_INVALID_ERROR_LIMIT), 
+    				stringFactory.getString(
+    						LabelStringFactory.MAIN_FRAME_COLLECT_ALL_ERRORS), 
+    				JOptionPane.ERROR_MESSAGE);
+    		return false;
+    	}
+    	userPrefs.setProperty(AppConstants.ERROR_LIMIT_PROP, 
+    			Integer.toString(limit));
+    	return true;
+    }
+    
+    /**
+     * Returns the number of milliseconds a transform may run for, or 0 if
+     * there is no limit.
+     * @return
+     */
+    private long getRunTimeout() {
+    	return NumberUtils.stringToInt(userPrefs.getProperty(
+    			AppConstants.TRANSFORM_TIMEOUT_PROP), 0);
+    }
+    
+    /**
+     * Asks the user for the number of seconds a transform may run for.
+     */
+    private void askRunTimeout() {
+    	
+    	long timeout;
+    	
+    	timeout = askTimeout(stringFactory.getString(
+    			LabelStringFactory.MAIN_FRAME_RUN_TIMEOUT), getRunTimeout());
+    	if (timeout != -1) {
+    		userPrefs.setProperty(AppConstants.TRANSFORM_TIMEOUT_PROP, 
+    				Long.toString(timeout));
+    	}
+    }
+    
+    /**
+     * Asks the user for the number of seconds the stylesheet of aXSLRow may
+     * run for.
+     * @param aXSLRow
+     */
+    private void askStageTimeout(XSLRow aXSLRow) {
+    	
+    	long timeout;
+    	
+    	timeout = askTimeout(MessageFormat.format(stringFactory.getString(
+    			LabelStringFactory.MAIN_FRAME_STAGE_TIMEOUT), 
+    			aXSLRow.getDescription()), aXSLRow.getTimeout());
+    	if (timeout != -1) {
+    		aXSLRow.setTimeout(timeout);
+    	}
+    }
+    
+    /**
+     * Asks the user, with aMessage, for a number of seconds, showing
+     * aTimeout (in milliseconds) to start with; returns the number of
+     * milliseconds, 0 for no limit, or -1 if the user cancels or the number
+     * is not valid.
+     * @param aMessage
+     * @param aTimeout
+     * @return
+     */
+    private long askTimeout(String aMessage, long aTimeout) {
+    	
+    	String value;
+    	int seconds;
+    	
+    	value = (String)JOptionPane.showInputDialog(this, aMessage, 
+    			stringFactory.getString(LabelStringFactory.MAIN_FRAME_TIMEOUT), 
+    			JOptionPane.QUESTION_MESSAGE, null, null, 
+    			Long.toString(TimeUnit.MILLISECONDS.toSeconds(aTimeout)));
+    	if (value == null) {
+    		return -1;
+    	}
+    	seconds = NumberUtils.stringToInt(value.trim(), -1);
+    	if (seconds < 0) {
+    		Utils.showDialog(this, stringFactory.getString(
+    				LabelStringFactory.MAIN_FRAME_INVALID_TIMEOUT), 
+    				stringFactory.getString(
+    						LabelStringFactory.MAIN_FRAME_TIMEOUT), 
+    				JOptionPane.ERROR_MESSAGE);
+    		return -1;
+    	}
+    	return TimeUnit.SECONDS.toMillis(seconds);
+    }
+    
+    /**
+     * Cancels the transforms, benchmarks and profiles that are queued or 
+     * running; one that is still validating stops before it transforms.
+     */
+    private void cancelTransform() {
+    	
+    	Iterator<Job> iter;
+    	Job job;
+    	
+    	iter = jobQueue.getJobs().iterator();
+    	while (iter.hasNext()) {
+    		job = iter.next();
+    		if (job instanceof TransformJob && !job.isFinished()) {
+    			job.cancel();
+    		}
+    	}
     }
 
     /**
@@ -1386,62 +1797,41 @@ public class BasicXSLTFrame extends JFrame implements ActionListener,
     }
     
     /**
-     * Initiates the xml-validation in a separate thread.
+     * Queues a job validating the xml file pointed-to by aTextField; 
+     * aComponents are disabled until it has finished.
      * @param aLabel
      * @param aTextField
-     * @param aSuppressSuccessDialog
+     * @param aComponents
      */
     private void doValidateXml(String aLabel, JTextField aTextField, 
-    		boolean aSuppressSuccessDialog) {
-    	label = aLabel;
-    	textField = aTextField;
-    	suppressSuccessDialog = aSuppressSuccessDialog;
-    	threadMode = THREADMODE_DO_VALIDATE;
-    	Utils.setEnabled(components, false);
-    	new Thread(this).start();
+    		List<Component> aComponents) {
+    	if (isFileSpecified(aTextField)) {
+    		submit(new ValidateJob(aLabel, aTextField.getText(), 
+    				checkSaxWarning.isSelected(), checkSaxError.isSelected(), 
+    				checkSaxFatalError.isSelected(), getErrorLimit(), 
+    				aComponents));
+    	} else {
+    		setCursor(new Cursor(Cursor.DEFAULT_CURSOR));
+    	}
     }
     
     /**
-     * Entry point of threads.
+     * Queues aJob, disabling its components until it has finished.
+     * @param aJob
      */
-    public void run() { 
-    	
-    	String sresultsFile;   	
-    	File xmlFile, resultsFile;
-    	byte results[];
-    	
-    	try {
-    		switch (threadMode) {
-    		case THREADMODE_DO_TRANSFORM:
-    			executeTransform();
-    			break;
-    		case THREADMODE_DO_VALIDATE:
-    			validateXml(label, textField, suppressSuccessDialog);
-    			break;
-    		case THREADMODE_DO_XML_IDENTITY_TRANSFORM:
-    			xmlFile = new File(identityTransformSourceXmlFile);
-    			sresultsFile = (String)JOptionPane.showInputDialog(this, 
-    					identityTransformMessage, stringFactory.getString(
-    							LabelStringFactory.
-    							MAIN_FRAME_IDENTITY_TRANSFORM), 
-						JOptionPane.QUESTION_MESSAGE,
-						null, null, identityTransformResultXmlFile);
-    			if (sresultsFile != null) {
-    				resultsFile = new File(sresultsFile);
-    				resultsFile.getParentFile().mkdirs();
-    				results = XMLUtils.transform(xmlFile, 
-    	    		xmlIdentityTransformOutputProps);
-    	    		IOUtils.writeFile(resultsFile, results);	
-    			}
-    			break;
-    		}
-    	} catch (Throwable aAny) {
-    		logger.error(ExceptionUtils.getFullStackTrace(aAny));
-    		Utils.showErrorDialog(this, aAny);
-    	} finally {
-			Utils.setEnabled(components, true);
-    		setCursor(new Cursor(Cursor.DEFAULT_CURSOR));
-    	}
+    private void submit(FrameJob aJob) {
+    	Utils.setEnabled(aJob.components, false);
+    	jobQueue.submit(aJob);
+    	refreshCursor();
+    }
+    
+    /**
+     * Shows the wait cursor while a transform or benchmark is queued or
+     * running; the frame can still be used while other jobs run.
+     */
+    private void refreshCursor() {
+    	setCursor(new Cursor(jobQueue.isExclusiveJobPending() ? 
+    			Cursor.WAIT_CURSOR : Cursor.DEFAULT_CURSOR));
     }
     
     /**
@@ -1449,151 +1839,753 @@ public class BasicXSLTFrame extends JFrame implements ActionListener,
      *
      */
     private void doTransform() {
-    	components.clear();
-    	components.add(transformBtn);
-    	threadMode = THREADMODE_DO_TRANSFORM;
-    	Utils.setEnabled(components, false);
-    	new Thread(this).start();
+    	if (isTransformFormValid()) {
+    		submitTransform(TRANSFORM_JOB);
+    	}
+    }
+    
+    /**
+     * Initiates a profiled transform in a seperate thread.
+     *
+     */
+    private void doProfile() {
+    	if (isTransformFormValid()) {
+    		submitTransform(PROFILE_JOB);
+    	}
+    }
+    
+    /**
+     * Queues a TransformJob of aKind, taken from the form as it is now.
+     * @param aKind
+     */
+    private void submitTransform(int aKind) {
+    	cancelBtn.setEnabled(true);
+    	submit(new TransformJob(aKind, Arrays.<Component>asList(
+    			transformBtn, benchmark, profile)));
+    }
+    
+    /**
+     * Asks the user for the number of warm-up and measured iterations and
+     * initiates the benchmark in a seperate thread.
+     *
+     */
+    private void doBenchmark() {
+    	
+    	JPanel panel;
+    	JTextField warmupTf, iterationsTf;
+    	int warmup, iterations;
+    	
+    	if (!isTransformFormValid()) {
+    		return;
+    	}
+    	panel = new JPanel(new BorderLayout());
+    	panel.add(warmupTf = new JTextField(userPrefs.getProperty(
+    			AppConstants.BENCHMARK_WARMUP_PROP, DEFAULT_BENCHMARK_WARMUP)), 
+    			BorderLayout.NORTH);
+    	panel.add(iterationsTf = new JTextField(userPrefs.getProperty(
+    			AppConstants.BENCHMARK_ITERATIONS_PROP, 
+    			DEFAULT_BENCHMARK_ITERATIONS)), BorderLayout.SOUTH);
+    	warmupTf.setBorder(BorderFactory.createTitledBorder(
+    			stringFactory.getString(
+    					LabelStringFactory.MAIN_FRAME_BENCHMARK_WARMUP)));
+    	iterationsTf.setBorder(BorderFactory.createTitledBorder(
+    			stringFactory.getString(
+    					LabelStringFactory.MAIN_FRAME_BENCHMARK_ITERATIONS)));
+    	setCursor(new Cursor(Cursor.DEFAULT_CURSOR));
+    	if (JOptionPane.showConfirmDialog(this, panel, stringFactory.getString(
+    			LabelStringFactory.MAIN_FRAME_BENCHMARK), 
+    			JOptionPane.OK_CANCEL_OPTION, JOptionPane.QUESTION_MESSAGE) != 
+    				JOptionPane.OK_OPTION) {
+    		return;
+    	}
+    	warmup = NumberUtils.stringToInt(warmupTf.getText().trim(), -1);
+    	iterations = NumberUtils.stringToInt(iterationsTf.getText().trim(), -1);
+    	if (warmup < 0 || iterations < 1) {
+    		Utils.showDialog(this, stringFactory.getString(
+    				LabelStringFactory.MAIN_FRAME_BENCHMARK_INVALID_ITERATIONS), 
+    				stringFactory.getString(
+    						LabelStringFactory.MAIN_FRAME_BENCHMARK), 
+    				JOptionPane.ERROR_MESSAGE);
+    		return;
+    	}
+    	userPrefs.setProperty(AppConstants.BENCHMARK_WARMUP_PROP, 
+    			Integer.toString(warmup));
+    	userPrefs.setProperty(AppConstants.BENCHMARK_ITERATIONS_PROP, 
+    			Integer.toString(iterations));
+    	submitTransform(BENCHMARK_JOB);
     }
     
     /**
-     * Initiates the identity-transform operation in a separate thread.
+     * Asks the user where to write the identity transform of 
+     * aIdentityTransformSourceXmlFile, suggesting 
+     * aIdentityTransformResultXmlFile, and queues a job to write it; 
+     * aComponents are disabled until it has finished.
      * @param aMessage
      * @param aIdentityTransformSourceXmlFile
      * @param aIdentityTransformResultXmlFile
+     * @param aComponents
      */
     private void doIdentityTransform(String aMessage, 
     	String aIdentityTransformSourceXmlFile,
-    	String aIdentityTransformResultXmlFile) {
-    	Utils.setEnabled(components, false);
-    	threadMode = THREADMODE_DO_XML_IDENTITY_TRANSFORM;
-    	identityTransformMessage = aMessage;
-    	identityTransformSourceXmlFile = aIdentityTransformSourceXmlFile;
-		identityTransformResultXmlFile = aIdentityTransformResultXmlFile;    	
-    	new Thread(this).start();
+    	String aIdentityTransformResultXmlFile, List<Component> aComponents) {
+    	
+    	String sresultsFile;
+    	
+    	setCursor(new Cursor(Cursor.DEFAULT_CURSOR));
+    	sresultsFile = (String)JOptionPane.showInputDialog(this, aMessage, 
+    			stringFactory.getString(
+    					LabelStringFactory.MAIN_FRAME_IDENTITY_TRANSFORM), 
+    			JOptionPane.QUESTION_MESSAGE, null, null, 
+    			aIdentityTransformResultXmlFile);
+    	if (sresultsFile != null) {
+    		submit(new IdentityTransformJob(aIdentityTransformSourceXmlFile, 
+    				sresultsFile, Utils.copyOutputProperties(
+    						xmlIdentityTransformOutputProps), aComponents));
+    	}
     }
     
     /**
-     * Performs transforms.
+     * Validates the documents of aJob and, unless it has been cancelled, 
+     * performs its transform; returns true if a result was produced.  
+     * Nothing is shown here: the outcome is recorded on aJob and shown by
+     * showTransformOutcome() once the job has finished.  A job cancelled 
+     * before or while its documents are validated stops without 
+     * transforming.
+     * @param aJob
+     * @return
      * @throws Exception
      */
-    private void executeTransform() throws Exception {
-    	
-    	int loop;
-    	XSLRow lrows[];
-    	
-    	if (validateAll()) {
-    		lrows = Utils.toArray(xslRows);
-    		for (loop = 0; loop < lrows.length; loop++) {
-    			lrows[loop].setTimeToTransform(0);
-    		}
-			transform(Utils.getXMLContents(fsManager, sourceXmlTf.getText()));        			
-		}
+    private boolean executeTransform(TransformJob aJob) throws Exception {
+    	if (aJob.isCancelRequested() || 
+    			!validateAll(aJob, !aJob.validateInline) || 
+    			aJob.isCancelRequested()) {
+    		return false;
+    	}
+    	aJob.ran = true;
+    	return transform(aJob, fsManager.resolveFile(
+    			aJob.sourceXml).getContent());
     }
     
     /**
-     * Method to do xslt transform.
+     * Shows the outcome of the transform of aJob, which has finished: the 
+     * timings of its chain and its result, or the reason it failed.  If 
+     * aJob profiled the stylesheets the timings window, which links to the
+     * profile, is shown.  Called on the event dispatch thread.
+     * @param aJob
      */
-    private void transform(byte aXmlContents[]) throws TransformerException,
-		IOException, ParserConfigurationException, SAXException {
-
-		int loop, size;
-		long transformTime;
-		byte tmp[];
-    	XSLRow xslRow;
-    	byte transformResult[];
-    	boolean success;
-    	TransformOutputProperties transformOutputProps;
-    	TransformParameters transformParameters;
+    private void showTransformOutcome(TransformJob aJob) {
     	
-    	xslRow = null;
-    	transformOutputProps = null;
-    	transformParameters = null;
-    	size = xslRows.size();
-		transformResult = aXmlContents;
-		success = true;
-		lastTotalTransformTime = 0;
-		try {
-	    	for (loop = 0; loop < size; loop++) {
-   		 		xslRow = (XSLRow)xslRows.get(loop);
-   	 			transformOutputProps = xslRow.getTransformOutputProperties();
-   	 			transformParameters = xslRow.getTransformParameters();
-   	 			if (xslRow.isOnAndNotEmpty()) {
-   	 				transformResult = XMLUtils.transform(tmp = transformResult, 
-   	 					Utils.getXSLSource(fsManager, 
-   	 							xslRow.getTextField().getText()),
-   	 					transformOutputProps, transformParameters);
-   	 				transformTime = XMLUtils.getTransformTime(tmp, 
-   	 					Utils.getXSLSource(fsManager, 
-   	 							xslRow.getTextField().getText()),
-	   	 					transformOutputProps, transformParameters);
-    				xslRow.setTimeToTransform(transformTime);
-    				lastTotalTransformTime += transformTime;
-    				if (!XMLUtils.isXml(transformResult)) {
-    					if (isNextStylesheet(loop + 1, size)) {
-    						success = false;
-    						Utils.showDialog(this, MessageFormat.format(
-    								stringFactory.getString(
-    								LabelStringFactory.
-    								MAIN_FRAME_TRANSFORM_RESULT_NOT_XML), 
-    								(loop + 1)), stringFactory.getString(
-    	    								LabelStringFactory.
-    	    								MAIN_FRAME_TRANSFORM_ERR_MSG), 
-    							JOptionPane.INFORMATION_MESSAGE);  
-    						break;  					
-    					}
-    				}
-    			}
+    	int loop;
+    	List<XSLRow> stageRows;
+    	TransformChain chain;
+    	
+    	if (!aJob.ran) {
+    		return;
+    	}
+    	clearTimings(aJob.rows);
+    	stageRows = aJob.stageRows;
+    	chain = aJob.chain;
+    	if (aJob.transformError != null) {
+    		if (chain.isCancelled() || chain.isTimedOut()) {
+    			showTransformStopped(chain, stageRows);
+    		} else if (chain.getSourceError() != null) {
+    			handleValidationError(stringFactory.getString(
+    					LabelStringFactory.MAIN_FRAME_XML_FILE), 
+    					aJob.sourceXml, chain.getSourceError());
+    		} else {
+    			handleTransformError(stageRows.get(Math.max(0, 
+    					chain.getFailedStage())), aJob.transformError);
     		}
-		} catch (TransformerException aTransformerException) {
-			success = false;
-			Utils.handleXMLError(stringFactory.getString(
-					LabelStringFactory.MAIN_FRAME_ERR_IN_XSL), 
-					xslRow.getDescription(),
-				stringFactory.getString(
-						LabelStringFactory.MAIN_FRAME_XSL_TRANSFORMATION_ERR), 
-						xslRow.getTextField().getText(),
-				this, aTransformerException);
-		}
-    	if (success) {
-    		transformTimeLabel.setText(lastTotalTransformTime + " " +
-    				stringFactory.getString(
-    						LabelStringFactory.
-    						MAIN_FRAME_MILLISECONDS_ABBREVIATION));
-			logger.info("total transform time: " + lastTotalTransformTime + 
-					" " + stringFactory.getString(LabelStringFactory.
-					MAIN_FRAME_MILLISECONDS_ABBREVIATION));
-    		transformTimings.setEnabled(true);
-			if (autosaveCb.isSelected()) {
-				IOUtils.writeFile(new File(autosavePathTf.getText()), 
-					transformResult);    		
-			}
-			if (!suppressOutputWindowCb.isSelected()) {
-				if (XMLUtils.isXml(transformResult)) {
-					if (outputAsTextIfXml.isSelected()) {
-						new OutputFrame(this, stringFactory.getString(
-								LabelStringFactory.
-								MAIN_FRAME_TRANSFORM_RESULTS), transformResult,
-							Utils.toArray(xslRows));
-					} else {
-						new OutputFrame(this, stringFactory.getString(
-								LabelStringFactory.
-								MAIN_FRAME_TRANSFORM_RESULTS), 
-							XMLUtils.getDocument(transformResult), 
-							transformOutputProps, 
-							Utils.toArray(xslRows), true);
-					}					
-				} else {
-					new OutputFrame(this, stringFactory.getString(
-							LabelStringFactory.MAIN_FRAME_TRANSFORM_RESULTS), 
-							transformResult, Utils.toArray(xslRows));
-				}
-			}
+    		return;
+    	}
+    	if (!aJob.produced) {
+    		showResultNotXmlDialog(Arrays.asList(aJob.rows).indexOf(
+    				stageRows.get(chain.getNonXmlStage())));
+    		return;
+    	}
+    	for (loop = 0; loop < chain.getSize(); loop++) {
+    		recordTimings(stageRows.get(loop), chain.getTimings(loop));
+    		stageRows.get(loop).setTemplateProfiler(chain.getProfiler(loop));
+    	}
+    	showTotalTime();
+    	if (aJob.preparedResult != null) {
+    		showTransformResult(aJob.preparedResult, aJob.rows);
+    	}
+    	if (aJob.kind == PROFILE_JOB) {
+    		new TimingsFrame(this, aJob.rows);
     	}
     }
-
+    
     /**
-     * Writes transform output property values to the user preferences
+     * Validates the documents of aJob and, unless it has been cancelled, 
+     * runs its chain repeatedly; returns true if the benchmark ran to the 
+     * end.  The outcome is recorded on aJob and shown by 
+     * showBenchmarkOutcome() once the job has finished.
+     * @param aJob
+     * @return
+     * @throws Exception
+     */
+    private boolean executeBenchmark(TransformJob aJob) throws Exception {
+    	
+    	BenchmarkRun run;
+    	
+    	if (aJob.isCancelRequested() || !validateAll(aJob, true) || 
+    			aJob.isCancelRequested()) {
+    		return false;
+    	}
+    	aJob.ran = true;
+    	aJob.benchmarkRun = run = new BenchmarkRun(aJob.chain, aJob.warmup, 
+    			aJob.iterations, aJob.discardGC);
+    	try {
+    		aJob.produced = run.run(fsManager, Utils.getXMLContents(
+    				fsManager, aJob.sourceXml)) != null;
+    	} catch (TransformerException aTransformerException) {
+    		aJob.transformError = aTransformerException;
+    		return false;
+    	}
+    	if (!aJob.produced) {
+    		return false;
+    	}
+    	aJob.totalTime = Math.round(TransformTimings.toMillis(
+    			(long)run.getTotalStatistics().getMedian()));
+    	return true;
+    }
+    
+    /**
+     * Shows the outcome of the benchmark of aJob, which has finished: the 
+     * statistics of the measured iterations, or the reason it failed.  
+     * Called on the event dispatch thread.
+     * @param aJob
+     */
+    private void showBenchmarkOutcome(TransformJob aJob) {
+    	
+    	int loop;
+    	List<XSLRow> stageRows;
+    	BenchmarkRun run;
+    	
+    	if (!aJob.ran) {
+    		return;
+    	}
+    	clearTimings(aJob.rows);
+    	stageRows = aJob.stageRows;
+    	run = aJob.benchmarkRun;
+    	if (aJob.transformError != null) {
+    		handleTransformError(stageRows.get(Math.max(0, 
+    				run.getChain().getFailedStage())), aJob.transformError);
+    		return;
+    	}
+    	if (!aJob.produced) {
+    		showResultNotXmlDialog(Arrays.asList(aJob.rows).indexOf(
+    				stageRows.get(run.getChain().getNonXmlStage())));
+    		return;
+    	}
+    	for (loop = 0; loop < stageRows.size(); loop++) {
+    		recordTimings(stageRows.get(loop), 
+    				run.getChain().getTimings(loop));
+    	}
+    	lastBenchmark = run;
+    	lastBenchmarkRows = stageRows.toArray(
+    			new XSLRow[stageRows.size()]);
+    	transformTimeLabel.setText(toMillisText(aJob.totalTime));
+    	transformTimings.setEnabled(true);
+    	new TimingsFrame(this, lastBenchmarkRows, run);
+    }
+    
+    /**
+     * Method to do the xslt transform of aJob.  aSource is streamed into the
+     * first stylesheet and, if the job validates while transforming, 
+     * validated as it is transformed.  If the result is to be autosaved the
+     * final stylesheet writes it straight to a temp file, which replaces the
+     * autosave file once the transform succeeds; the result is only also 
+     * kept in memory if it is to be shown in an output window, in which 
+     * case it is made ready to be shown here, so the event dispatch thread
+     * only has to open the window.  Returns true if a result was produced.
+     */
+    private boolean transform(TransformJob aJob, FileContent aSource) 
+    throws TransformerException, IOException, ParserConfigurationException, 
+    SAXException {
+
+    	byte transformResult[];
+    	File autosaveFile, tempFile;
+    	OutputStream out;
+    	ByteArrayOutputStream result;
+    	boolean saved;
+    	
+		if (aJob.autosavePath == null) {
+			transformResult = transformChain(aJob, aSource, null);
+		} else {
+			autosaveFile = new File(aJob.autosavePath);
+			tempFile = Utils.newTempFile(autosaveFile);
+			out = Utils.newOutputStream(tempFile);
+			result = null;
+			if (aJob.showOutput) {
+				out = new Utils.TeeOutputStream(out, 
+						result = new ByteArrayOutputStream());
+			}
+			saved = false;
+			try {
+				transformResult = transformChain(aJob, aSource, out);
+				out.close();
+				if (transformResult != null) {
+					Utils.replaceFile(tempFile, autosaveFile);
+					saved = true;
+				}
+			} finally {
+				if (!saved) {
+					Utils.closeQuietly(out);
+					tempFile.delete();
+				}
+			}
+			if (result != null && transformResult != null) {
+				transformResult = result.toByteArray();
+			}
+		}
+    	if (transformResult == null) {
+    		return false;
+    	}
+    	aJob.produced = true;
+    	aJob.totalTime = getTotalTime(aJob.chain);
+    	if (aJob.showOutput) {
+    		aJob.preparedResult = prepareResult(transformResult, 
+    				aJob.resultOutputProps, aJob.outputAsText);
+    	}
+    	return true;
+    }
+    
+    /**
+     * Makes aTransformResult ready to be shown in an output window: it is 
+     * written to a temp file and, unless it is to be shown as text 
+     * (aAsText), indexed so that it can be shown as a tree.  aOutputProps 
+     * are the output properties of the last stylesheet row.
+     * @param aTransformResult
+     * @param aOutputProps
+     * @param aAsText
+     * @return
+     */
+    private static PreparedResult prepareResult(byte aTransformResult[], 
+    		TransformOutputProperties aOutputProps, boolean aAsText) 
+    throws IOException, ParserConfigurationException, SAXException {
+    	
+    	PreparedResult result;
+    	
+    	result = new PreparedResult();
+    	result.textFile = OutputFrame.newTextFile(aTransformResult);
+    	if (aAsText) {
+    		return result;
+    	}
+		try {
+			result.index = new XmlIndex(result.textFile);
+		} catch (SAXException aException) {
+			logger.info("result not indexed: " + aException.getMessage());
+		}
+		if (result.index == null && XMLUtils.isXml(aTransformResult)) {
+			// xml in an encoding the index cannot read...
+			result.textFile.close();
+			result.textFile.getFile().delete();
+			result.textFile = null;
+			result.document = XMLUtils.getDocument(aTransformResult);
+			result.outputProps = aOutputProps;
+		}
+		return result;
+    }
+    
+    /**
+     * Shows aResult, from prepareResult(), in an output window that links 
+     * to aRows and returns the window.  Called on the event dispatch thread.
+     * @param aResult
+     * @param aRows
+     * @return
+     */
+    private OutputFrame showTransformResult(PreparedResult aResult, 
+    		XSLRow aRows[]) {
+    	
+    	String title;
+    	
+    	title = stringFactory.getString(
+    			LabelStringFactory.MAIN_FRAME_TRANSFORM_RESULTS);
+    	if (aResult.document != null) {
+    		return new OutputFrame(this, title, aResult.document, 
+    				aResult.outputProps, aRows, true);
+    	}
+    	if (aResult.index != null) {
+    		return new OutputFrame(this, title, aResult.textFile, 
+    				aResult.index, aRows, true);
+    	}
+    	return new OutputFrame(this, title, aResult.textFile, aRows);
+    }
+    
+    /**
+     * Displays the total transform time of the last run and enables the 
+     * timings window.
+     */
+    private void showTotalTime() {
+		transformTimeLabel.setText(toMillisText(lastTotalTransformTime));
+		logger.info("total transform time: " + 
+				toMillisText(lastTotalTransformTime));
+		transformTimings.setEnabled(true);
+    }
+    
+    /**
+     * Returns aMillis followed by the abbreviation for milliseconds
+     * @param aMillis
+     * @return
+     */
+    private String toMillisText(long aMillis) {
+    	return aMillis + " " + stringFactory.getString(
+    			LabelStringFactory.MAIN_FRAME_MILLISECONDS_ABBREVIATION);
+    }
+    
+    /**
+     * Returns the total time, in milliseconds, taken by the stages of 
+     * aChain; the same total recordTimings() adds up.
+     * @param aChain
+     * @return
+     */
+    private static long getTotalTime(TransformChain aChain) {
+    	
+    	long total;
+    	int loop;
+    	
+    	total = 0;
+    	for (loop = 0; loop < aChain.getSize(); loop++) {
+    		total += TimeUnit.NANOSECONDS.toMillis(
+    				aChain.getTimings(loop).getTotalTime());
+    	}
+    	return total;
+    }
+    
+    /**
+     * Clears the timings and profiles of aRows, the total transform time 
+     * and the last benchmark, before those of a new run are recorded.
+     * @param aRows
+     */
+    private void clearTimings(XSLRow aRows[]) {
+    	
+    	int loop;
+    	
+    	for (loop = 0; loop < aRows.length; loop++) {
+    		aRows[loop].setTimeToTransform(0);
+    		aRows[loop].setTransformTimings(null);
+    		aRows[loop].setTemplateProfiler(null);
+    	}
+    	lastTotalTransformTime = 0;
+    	lastBenchmark = null;
+    	lastBenchmarkRows = null;
+    }
+    
+    /**
+     * Runs aSource through the chain of aJob and returns the result of the
+     * final stylesheet, or null if the transform failed; the error, if any,
+     * is recorded on aJob.  If the job validates while transforming the 
+     * source xml is validated as the first stylesheet reads it.  If 
+     * aResultStream is not null the result is written to it instead, and an
+     * empty array returned in its place.  While it runs the chain can be
+     * stopped by cancelling the job; a chain that is cancelled or runs out 
+     * of time records how far each stylesheet got.  A profiling chain 
+     * records the profile of each stylesheet with its timings; a profiled 
+     * chain does not use the result cache, since a cached stage is not run.
+     * @param aJob
+     * @param aSource
+     * @param aResultStream
+     * @return
+     * @throws FileSystemException
+     */
+    private byte[] transformChain(TransformJob aJob, FileContent aSource, 
+    		OutputStream aResultStream) 
+    throws FileSystemException {
+    	
+    	TransformChain chain;
+    	
+    	chain = aJob.chain;
+    	if (aJob.useResultCache && aJob.kind != PROFILE_JOB) {
+    		chain.setResultCache(ResultCache.getInstance());
+    	}
+    	chain.setResultStream(aResultStream);
+    	try {
+    		if (!aJob.validateInline) {
+    			return chain.transform(fsManager, aSource);
+    		}
+    		return chain.transform(fsManager, aSource, aJob.checkWarnings, 
+    				aJob.checkErrors, aJob.checkFatalErrors);
+    	} catch (TransformerException aTransformerException) {
+    		aJob.transformError = aTransformerException;
+    		return null;
+    	}
+    }
+    
+    /**
+     * Records the timings of aChain, which was cancelled or ran out of time,
+     * so the timings window shows which stylesheet was stopped and how far 
+     * it got, and tells the user.  aStageRows are the rows of the stages.
+     * @param aChain
+     * @param aStageRows
+     */
+    private void showTransformStopped(TransformChain aChain, 
+    		List<XSLRow> aStageRows) {
+    	
+    	int loop;
+    	XSLRow stoppedRow;
+    	
+    	for (loop = 0; loop < aChain.getSize(); loop++) {
+    		recordTimings(aStageRows.get(loop), aChain.getTimings(loop));
+    	}
+    	transformTimings.setEnabled(true);
+    	stoppedRow = aStageRows.get(Math.max(0, aChain.getFailedStage()));
+    	Utils.showDialog(this, MessageFormat.format(stringFactory.getString(
+    			aChain.isCancelled() ? 
+    					LabelStringFactory.MAIN_FRAME_TRANSFORM_CANCELLED :
+    					LabelStringFactory.MAIN_FRAME_TRANSFORM_TIMED_OUT), 
+    			stoppedRow.getDescription()), stringFactory.getString(
+    					LabelStringFactory.MAIN_FRAME_TRANSFORM_MESSAGE), 
+    			JOptionPane.WARNING_MESSAGE);
+    }
+    
+    /**
+     * Returns a TransformChain of the stylesheets that are toggled on; the
+     * rows of those stylesheets are added to aStageRows.  The stages hold
+     * copies of the rows' settings, so later edits do not change a chain 
+     * that is queued or running.  A chain that is
+     * to profile its stylesheets (aProfile) compiles them with the 
+     * interpretive engine, as only it reports what it is running.
+     * @param aStageRows
+     * @param aProfile
+     * @return
+     */
+    private TransformChain newTransformChain(List<XSLRow> aStageRows, 
+    		boolean aProfile) {
+    	
+    	int loop, size;
+    	XSLRow xslRow;
+    	List<TransformStage> stages;
+    	TransformChain chain;
+    	
+    	size = xslRows.size();
+    	stages = new ArrayList<TransformStage>();
+    	for (loop = 0; loop < size; loop++) {
+	 		xslRow = (XSLRow)xslRows.get(loop);
+ 			if (xslRow.isOnAndNotEmpty()) {
+ 				aStageRows.add(xslRow);
+ 				stages.add(TransformStage.valueOf(xslRow));
+ 			}
+    	}
+    	chain = new TransformChain(stages, pipelineStages.isSelected(), 
+    			xsltcEngine.isSelected() && !aProfile);
+    	chain.setProfiling(aProfile);
+    	chain.setTimeout(getRunTimeout());
+    	return chain;
+    }
+    
+    /**
+     * Starts re-running the chain of stylesheets that are toggled on whenever
+     * the source xml or a stylesheet changes on disk.
+     * @throws IOException
+     */
+    private void startWatching() throws IOException {
+    	stopWatching();
+    	chainWatcher = new ChainWatcher(this, fsManager, jobQueue, 
+    			MessageFormat.format(stringFactory.getString(
+    					LabelStringFactory.JOB_WATCH), sourceXmlTf.getText()), 
+    			FileWatcher.DEFAULT_QUIET_PERIOD);
+    	chainWatcher.start();
+    }
+    
+    /**
+     * Stops re-running the chain when files change.
+     */
+    private void stopWatching() {
+    	if (chainWatcher != null) {
+    		chainWatcher.stop();
+    		chainWatcher = null;
+    	}
+    	watchOutputFrame = null;
+    }
+    
+    /**
+     * Returns a new chain of the stylesheets that are toggled on, for the
+     * ChainWatcher; the rows and output settings of the run are taken from
+     * the form along with it.
+     * @return
+     */
+    public TransformChain newTransformChain() {
+    	
+    	List<XSLRow> stageRows;
+    	
+    	stageRows = new ArrayList<XSLRow>();
+    	watchRun = new WatchRun(stageRows);
+    	return newTransformChain(stageRows, false);
+    }
+    
+    /**
+     * Returns the location of the source xml, for the ChainWatcher.
+     * @return
+     */
+    public String getSourceXml() {
+    	return sourceXmlTf.getText();
+    }
+    
+    /**
+     * Autosaves the result of a run of the ChainWatcher and makes it ready
+     * to be shown on the thread of the run, then shows it on the event 
+     * dispatch thread.
+     * @param aChain
+     * @param aResult
+     */
+    public void transformed(TransformChain aChain, byte aResult[]) {
+    	
+    	WatchRun run;
+    	
+    	run = watchRun;
+    	run.chain = aChain;
+    	try {
+    		prepareWatchResult(run, aResult);
+    	} catch (Exception aException) {
+    		run.exception = aException;
+    	}
+    	SwingUtilities.invokeLater(run);
+    }
+    
+    /**
+     * Displays the error of a run of the ChainWatcher, on the event 
+     * dispatch thread.
+     * @param aChain
+     * @param aException
+     */
+    public void transformFailed(TransformChain aChain, Exception aException) {
+    	
+    	WatchRun run;
+    	
+    	run = watchRun;
+    	run.chain = aChain;
+    	run.exception = aException;
+    	SwingUtilities.invokeLater(run);
+    }
+    
+    /**
+     * Writes aResult, the result of aRun, to the autosave file by way of a 
+     * temp file, which replaces it once written, and makes it ready to be 
+     * shown in an output window; aResult is null if it was not xml.
+     * @param aRun
+     * @param aResult
+     * @throws IOException
+     * @throws ParserConfigurationException
+     * @throws SAXException
+     */
+    private void prepareWatchResult(WatchRun aRun, byte aResult[]) 
+    throws IOException, ParserConfigurationException, SAXException {
+    	if (aResult == null) {
+    		return;
+    	}
+    	aRun.produced = true;
+    	if (aRun.autosavePath != null) {
+    		Utils.writeFile(new File(aRun.autosavePath), aResult);
+    	}
+    	if (aRun.showOutput) {
+    		aRun.preparedResult = prepareResult(aResult, 
+    				aRun.resultOutputProps, aRun.outputAsText);
+    	}
+    }
+    
+    /**
+     * Shows the result of aRun, a run of the ChainWatcher, in place of the
+     * result of its previous run.  Called on the event dispatch thread.
+     * @param aRun
+     */
+    void showWatchResult(WatchRun aRun) {
+    	
+    	int loop;
+    	OutputFrame outputFrame;
+    	
+    	if (!aRun.produced) {
+    		showResultNotXmlDialog(Arrays.asList(aRun.rows).indexOf(
+    				aRun.stageRows.get(aRun.chain.getNonXmlStage())));
+    		return;
+    	}
+    	clearTimings(aRun.rows);
+    	for (loop = 0; loop < aRun.chain.getSize(); loop++) {
+    		recordTimings(aRun.stageRows.get(loop), 
+    				aRun.chain.getTimings(loop));
+    	}
+    	showTotalTime();
+    	if (aRun.preparedResult != null) {
+    		outputFrame = showTransformResult(aRun.preparedResult, aRun.rows);
+    		if (watchOutputFrame != null) {
+    			watchOutputFrame.dispose();
+    		}
+    		watchOutputFrame = outputFrame;
+    	}
+    }
+    
+    /**
+     * Displays the error of a run of the ChainWatcher; aStageRows are the 
+     * rows of the chain's stages.
+     * @param aChain
+     * @param aStageRows
+     * @param aException
+     */
+    void showWatchFailure(TransformChain aChain, List<XSLRow> aStageRows, 
+    		Exception aException) {
+    	if (aException instanceof TransformerException && 
+    			aStageRows.size() > 0) {
+    		handleTransformError(aStageRows.get(Math.max(0, 
+    				aChain.getFailedStage())), 
+    				(TransformerException)aException);
+    	} else {
+    		logger.error(ExceptionUtils.getFullStackTrace(aException));
+    		Utils.showErrorDialog(this, aException);
+    	}
+    }
+    
+    /**
+     * Stores aTimings on aXSLRow and adds them to the total transform time.
+     * @param aXSLRow
+     * @param aTimings
+     */
+    private void recordTimings(XSLRow aXSLRow, TransformTimings aTimings) {
+    	
+    	long transformTime;
+    	
+    	transformTime = TimeUnit.NANOSECONDS.toMillis(aTimings.getTotalTime());
+    	logger.info(aXSLRow.getDescription() + ": " + aTimings);
+    	aXSLRow.setTransformTimings(aTimings);
+    	aXSLRow.setTimeToTransform(transformTime);
+    	lastTotalTransformTime += transformTime;
+    }
+    
+    /**
+     * Tells the user that the result of the stylesheet at aIndex is not xml
+     * and so cannot be passed to the next stylesheet.
+     * @param aIndex
+     */
+    private void showResultNotXmlDialog(int aIndex) {
+		Utils.showDialog(this, MessageFormat.format(
+				stringFactory.getString(
+				LabelStringFactory.
+				MAIN_FRAME_TRANSFORM_RESULT_NOT_XML), 
+				(aIndex + 1)), stringFactory.getString(
+    				LabelStringFactory.
+    				MAIN_FRAME_TRANSFORM_ERR_MSG), 
+			JOptionPane.INFORMATION_MESSAGE);  
+    }
+    
+    /**
+     * Displays aTransformerException, which occurred while transforming with
+     * the stylesheet of aXSLRow.
+     * @param aXSLRow
+     * @param aTransformerException
+     */
+    private void handleTransformError(XSLRow aXSLRow, 
+    		TransformerException aTransformerException) {
+		Utils.handleXMLError(stringFactory.getString(
+				LabelStringFactory.MAIN_FRAME_ERR_IN_XSL), 
+				aXSLRow.getDescription(),
+			stringFactory.getString(
+					LabelStringFactory.MAIN_FRAME_XSL_TRANSFORMATION_ERR), 
+					aXSLRow.getTextField().getText(),
+			this, aTransformerException);
+    }
+
+    /**
+     * Writes transform output property values to the user preferences
      * object.
      * @param aOutputProperties
      * @param aPropertyNamePrefix
@@ -1675,6 +2667,19 @@ public class BasicXSLTFrame extends JFrame implements ActionListener,
 			"" + checkSaxError.isSelected());
         userPrefs.setProperty(AppConstants.CHK_FATAL_ERRORS_PROP, 
 			"" + checkSaxFatalError.isSelected());
+        userPrefs.setProperty(AppConstants.COLLECT_ALL_ERRORS_PROP, 
+			"" + collectAllErrors.isSelected());
+        userPrefs.setProperty(AppConstants.VALIDATE_WHILE_TRANSFORMING_PROP, 
+			"" + validateWhileTransforming.isSelected());
+        userPrefs.setProperty(AppConstants.PIPELINE_STAGES_PROP, 
+			"" + pipelineStages.isSelected());
+        userPrefs.setProperty(AppConstants.CACHE_RESULTS_PROP, 
+			"" + cacheResults.isSelected());
+        userPrefs.setProperty(AppConstants.ENGINE_PROP, 
+			xsltcEngine.isSelected() ? AppConstants.ENGINE_XSLTC : 
+				AppConstants.ENGINE_XALAN);
+        userPrefs.setProperty(AppConstants.DISCARD_GC_ITERATIONS_PROP, 
+			"" + discardGCIterations.isSelected());
         userPrefs.setProperty(AppConstants.X_COORD_PROP, 
            	Integer.toString(this.getX()));
         userPrefs.setProperty(AppConstants.Y_COORD_PROP, 
@@ -1708,6 +2713,9 @@ public class BasicXSLTFrame extends JFrame implements ActionListener,
            	propertyName = "xsl_" + loop + "_opInd";
            	userPrefs.setProperty(propertyName, "" + 
            			xslRow.areOutputPropertiesSet());
+           	// timeout
+           	propertyName = "xsl_" + loop + "_timeout";
+           	userPrefs.setProperty(propertyName, "" + xslRow.getTimeout());
            	
            	persistOutputProperties(xslRow.getTransformOutputProperties(), 
 				"xsl_" + loop + "_outputproperties_");
@@ -1735,6 +2743,8 @@ public class BasicXSLTFrame extends JFrame implements ActionListener,
      * Method to shutdown the app.
      */
     private void destroy() {
+    	jobQueue.shutdown();
+    	ValidationCache.getInstance().flush();
     	try {
     		persistUserPrefs();
     		userPrefs.persistUserPrefs();
@@ -1755,4 +2765,373 @@ public class BasicXSLTFrame extends JFrame implements ActionListener,
 		JFrame.setDefaultLookAndFeelDecorated(true);
         new BasicXSLTFrame();
     }
+    
+    /**
+     * A job started from the main frame; the components it works on are
+     * disabled while it is queued or running.  A failure that was not 
+     * already reported is logged and shown.
+     */
+    abstract class FrameJob extends Job {
+    	
+    	List<Component> components;
+    	
+    	/**
+    	 * Constructor
+    	 * @param aDescription
+    	 * @param aExclusive
+    	 * @param aComponents
+    	 */
+    	FrameJob(String aDescription, boolean aExclusive, 
+    			List<Component> aComponents) {
+    		super(aDescription, aExclusive);
+    		components = aComponents;
+    	}
+    	
+    	/**
+    	 * Shows that the job has finished, on the event dispatch thread
+    	 */
+    	protected void finished() {
+    		SwingUtilities.invokeLater(new JobFinished(this));
+    	}
+    	
+    	/**
+    	 * Enables the components again and shows the failure, if any; called
+    	 * on the event dispatch thread
+    	 */
+    	void showFinished() {
+    		Utils.setEnabled(components, true);
+    		refreshCursor();
+    		if (getState() == FAILED) {
+    			logger.error(ExceptionUtils.getFullStackTrace(getFailure()));
+    			Utils.showErrorDialog(BasicXSLTFrame.this, getFailure());
+    		}
+    	}
+    }
+    
+    /**
+     * Calls showFinished() of a FrameJob that has finished.
+     */
+    static class JobFinished implements Runnable {
+    	
+    	FrameJob job;
+    	
+    	/**
+    	 * Constructor
+    	 * @param aJob
+    	 */
+    	JobFinished(FrameJob aJob) {
+    		job = aJob;
+    	}
+    	
+    	/**
+    	 * Shows that the job has finished
+    	 */
+    	public void run() {
+    		job.showFinished();
+    	}
+    }
+    
+    /**
+     * The result of a transform, made ready off the event dispatch thread to
+     * be shown in an output window: a temp file holding it, along with its 
+     * index if it is to be shown as a tree, or, for xml the index cannot 
+     * read, the parsed document.
+     */
+    static class PreparedResult {
+    	
+    	MappedTextFile textFile;
+    	XmlIndex index;
+    	Document document;
+    	TransformOutputProperties outputProps;
+    }
+    
+    /**
+     * Transforms the source xml through the stylesheets that are toggled on,
+     * or benchmarks or profiles the chain.  The chain and every setting the 
+     * job uses are taken from the form when the job is queued, on the event
+     * dispatch thread, so later edits do not change it; only one of these 
+     * jobs runs at a time.  While it runs the progress of its chain is 
+     * polled and shown in the progress bar and as the job's progress; the 
+     * chain itself only counts.  The job only transforms: its outcome is 
+     * recorded on it and shown once it has finished, on the event dispatch
+     * thread.
+     */
+    class TransformJob extends FrameJob implements ActionListener {
+    	
+    	int kind;
+    	Timer progressTimer;
+    	String sourceXml, autosavePath;
+    	XSLRow rows[];
+    	List<XSLRow> stageRows;
+    	List<String> stageLabels;
+    	TransformChain chain;
+    	TransformOutputProperties resultOutputProps;
+    	boolean validateInline, checkWarnings, checkErrors, checkFatalErrors,
+    		useResultCache, showOutput, outputAsText, discardGC;
+    	int errorLimit, warmup, iterations;
+    	boolean ran, produced;
+    	long totalTime;
+    	TransformerException transformError;
+    	BenchmarkRun benchmarkRun;
+    	PreparedResult preparedResult;
+    	
+    	/**
+    	 * Constructor - takes the chain and the settings from the form
+    	 * @param aKind TRANSFORM_JOB, BENCHMARK_JOB or PROFILE_JOB
+    	 * @param aComponents
+    	 */
+    	TransformJob(int aKind, List<Component> aComponents) {
+    		super(MessageFormat.format(stringFactory.getString(
+    				TRANSFORM_JOB_KEYS[aKind]), sourceXmlTf.getText()), true, 
+    				aComponents);
+    		
+    		int loop;
+    		
+    		kind = aKind;
+    		sourceXml = sourceXmlTf.getText();
+    		autosavePath = autosaveCb.isSelected() ? 
+    				autosavePathTf.getText() : null;
+    		rows = Utils.toArray(xslRows);
+    		resultOutputProps = Utils.copyOutputProperties(
+    				rows[rows.length - 1].getTransformOutputProperties());
+    		stageRows = new ArrayList<XSLRow>();
+    		chain = newTransformChain(stageRows, aKind == PROFILE_JOB);
+    		stageLabels = new ArrayList<String>();
+    		for (loop = 0; loop < stageRows.size(); loop++) {
+    			stageLabels.add(stageRows.get(loop).getDescription());
+    		}
+    		validateInline = validateWhileTransforming.isSelected();
+    		checkWarnings = checkSaxWarning.isSelected();
+    		checkErrors = checkSaxError.isSelected();
+    		checkFatalErrors = checkSaxFatalError.isSelected();
+    		errorLimit = getErrorLimit();
+    		useResultCache = cacheResults.isSelected();
+    		showOutput = !suppressOutputWindowCb.isSelected();
+    		outputAsText = outputAsTextIfXml.isSelected();
+    		discardGC = discardGCIterations.isSelected();
+    		warmup = NumberUtils.stringToInt(userPrefs.getProperty(
+    				AppConstants.BENCHMARK_WARMUP_PROP, 
+    				DEFAULT_BENCHMARK_WARMUP), 0);
+    		iterations = NumberUtils.stringToInt(userPrefs.getProperty(
+    				AppConstants.BENCHMARK_ITERATIONS_PROP, 
+    				DEFAULT_BENCHMARK_ITERATIONS), 1);
+    		progressTimer = new Timer(PROGRESS_INTERVAL, this);
+    	}
+    	
+    	/**
+    	 * Runs the transform, benchmark or profile; the result is its time
+    	 */
+    	protected String execute() throws Exception {
+    		
+    		boolean succeeded;
+    		
+    		progressTimer.start();
+    		succeeded = kind == BENCHMARK_JOB ? executeBenchmark(this) : 
+    			executeTransform(this);
+    		return succeeded ? toMillisText(totalTime) : null;
+    	}
+    	
+    	/**
+    	 * Shows the progress of the running chain, or hides the progress bar
+    	 * and stops polling once the job has finished; called on the event 
+    	 * dispatch thread.
+    	 * @param aEvt
+    	 */
+    	public void actionPerformed(ActionEvent aEvt) {
+    		
+    		TransformProgress progress;
+    		String text;
+    		long timeLeft;
+    		
+    		if (isFinished()) {
+    			progressTimer.stop();
+    			transformProgressBar.setVisible(false);
+    			return;
+    		}
+    		if ((progress = chain.getProgress()).getStage() < 0) {
+    			return;
+    		}
+    		setProgress(progress.getFraction());
+    		text = MessageFormat.format(stringFactory.getString(
+    				progress.isPipelined() ? 
+    						LabelStringFactory.MAIN_FRAME_PROGRESS_PIPELINE : 
+    							LabelStringFactory.MAIN_FRAME_PROGRESS_STAGE), 
+    				Integer.valueOf(progress.getStage() + 1), 
+    				Integer.valueOf(progress.getStageCount()), 
+    				Long.valueOf(Math.round(progress.getStageFraction() < 0 ? 
+    						0 : progress.getStageFraction() * 100)), 
+    				Long.valueOf(progress.getEvents()));
+    		if ((timeLeft = progress.getStageTimeLeft()) >= 0) {
+    			text = MessageFormat.format(stringFactory.getString(
+    					LabelStringFactory.MAIN_FRAME_PROGRESS_TIME_LEFT), 
+    					text, Long.valueOf(TimeUnit.MILLISECONDS.toSeconds(
+    							timeLeft)));
+    		}
+    		transformProgressBar.setIndeterminate(
+    				progress.getStageFraction() < 0);
+    		transformProgressBar.setValue((int)Math.round(
+    				progress.getFraction() * PROGRESS_BAR_MAXIMUM));
+    		transformProgressBar.setString(text);
+    		transformProgressBar.setVisible(true);
+    	}
+    	
+    	/**
+    	 * Stops the chain; if it has not started yet it will not run
+    	 */
+    	protected void stop() {
+    		chain.cancel();
+    	}
+    	
+    	/**
+    	 * Disables the cancel button once no transform is pending and shows
+    	 * the outcome of the job, unless it failed
+    	 */
+    	void showFinished() {
+    		if (!jobQueue.isExclusiveJobPending()) {
+    			cancelBtn.setEnabled(false);
+    		}
+    		super.showFinished();
+    		if (getState() == FAILED) {
+    			return;
+    		}
+    		if (kind == BENCHMARK_JOB) {
+    			showBenchmarkOutcome(this);
+    		} else {
+    			showTransformOutcome(this);
+    		}
+    	}
+    }
+    
+    /**
+     * A run of the ChainWatcher: the rows and output settings its chain was
+     * built with, taken from the form along with the chain, and its 
+     * outcome.  The stage rows are those of the run's chain, as the watcher
+     * may already be building the next one.  The result is autosaved and 
+     * made ready to be shown on the thread of the run; the outcome is shown
+     * on the event dispatch thread.
+     */
+    class WatchRun implements Runnable {
+    	
+    	List<XSLRow> stageRows;
+    	XSLRow rows[];
+    	String autosavePath;
+    	TransformOutputProperties resultOutputProps;
+    	boolean showOutput, outputAsText, produced;
+    	TransformChain chain;
+    	PreparedResult preparedResult;
+    	Exception exception;
+    	
+    	/**
+    	 * Constructor - takes the settings from the form
+    	 * @param aStageRows filled in as the chain is built
+    	 */
+    	WatchRun(List<XSLRow> aStageRows) {
+    		stageRows = aStageRows;
+    		rows = Utils.toArray(xslRows);
+    		autosavePath = autosaveCb.isSelected() ? 
+    				autosavePathTf.getText() : null;
+    		resultOutputProps = Utils.copyOutputProperties(
+    				rows[rows.length - 1].getTransformOutputProperties());
+    		showOutput = !suppressOutputWindowCb.isSelected();
+    		outputAsText = outputAsTextIfXml.isSelected();
+    	}
+    	
+    	/**
+    	 * Shows the result or the error
+    	 */
+    	public void run() {
+    		if (exception == null) {
+    			showWatchResult(this);
+    		} else {
+    			showWatchFailure(chain, stageRows, exception);
+    		}
+    	}
+    }
+    
+    /**
+     * Validates one xml file with the settings given when it was queued.
+     */
+    class ValidateJob extends FrameJob {
+    	
+    	String label, file;
+    	boolean checkWarnings, checkErrors, checkFatalErrors;
+    	int errorLimit;
+    	
+    	/**
+    	 * Constructor
+    	 * @param aLabel
+    	 * @param aFile
+    	 * @param aCheckWarnings
+    	 * @param aCheckErrors
+    	 * @param aCheckFatalErrors
+    	 * @param aErrorLimit
+    	 * @param aComponents
+    	 */
+    	ValidateJob(String aLabel, String aFile, boolean aCheckWarnings, 
+    			boolean aCheckErrors, boolean aCheckFatalErrors, 
+    			int aErrorLimit, List<Component> aComponents) {
+    		super(MessageFormat.format(stringFactory.getString(
+    				LabelStringFactory.JOB_VALIDATE), aLabel, aFile), false, 
+    				aComponents);
+    		label = aLabel;
+    		file = aFile;
+    		checkWarnings = aCheckWarnings;
+    		checkErrors = aCheckErrors;
+    		checkFatalErrors = aCheckFatalErrors;
+    		errorLimit = aErrorLimit;
+    	}
+    	
+    	/**
+    	 * Validates the file, showing the outcome
+    	 */
+    	protected String execute() {
+    		return stringFactory.getString(validateXml(label, file, 
+    				checkWarnings, checkErrors, checkFatalErrors, errorLimit, 
+    				BasicXSLTFrame.this, false) ? LabelStringFactory.JOB_VALID : 
+    					LabelStringFactory.JOB_NOT_VALID);
+    	}
+    }
+    
+    /**
+     * Writes the identity transform of one xml file to another, with the
+     * output properties given when it was queued.
+     */
+    class IdentityTransformJob extends FrameJob {
+    	
+    	String sourceFile, resultFile;
+    	TransformOutputProperties outputProps;
+    	
+    	/**
+    	 * Constructor
+    	 * @param aSourceFile
+    	 * @param aResultFile
+    	 * @param aOutputProps
+    	 * @param aComponents
+    	 */
+    	IdentityTransformJob(String aSourceFile, String aResultFile, 
+    			TransformOutputProperties aOutputProps, 
+    			List<Component> aComponents) {
+    		super(MessageFormat.format(stringFactory.getString(
+    				LabelStringFactory.JOB_IDENTITY_TRANSFORM), aSourceFile), 
+    				false, aComponents);
+    		sourceFile = aSourceFile;
+    		resultFile = aResultFile;
+    		outputProps = aOutputProps;
+    	}
+    	
+    	/**
+    	 * Writes the result file
+    	 */
+    	protected String execute() throws Exception {
+    		
+    		File file;
+    		
+    		file = new File(resultFile);
+    		file.getParentFile().mkdirs();
+    		IOUtils.writeFile(file, XMLUtils.transform(new File(sourceFile), 
+    				outputProps));
+    		return MessageFormat.format(stringFactory.getString(
+    				LabelStringFactory.JOB_WRITTEN), file.getAbsolutePath());
+    	}
+    }
 }
\ No newline at end of file
@@ -0,0 +1,432 @@
+/*
+	Copyright 2006 Paul Evans
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+package us.paulevans.basicxslt;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerException;
+
+import net.blueslate.commons.io.IOUtils;
+
+import org.apache.commons.lang.exception.ExceptionUtils;
+import org.apache.commons.vfs.FileSystemException;
+import org.apache.commons.vfs.FileSystemManager;
+import org.apache.log4j.Logger;
+import org.xml.sax.InputSource;
+
+/**
+ * Transforms a batch of documents with a chain of stylesheets, spreading the
+ * documents across a fixed pool of worker threads.  The stylesheets are
+ * compiled once and the compiled Templates are shared by every worker; each
+ * worker has its own TransformChain, and so its own Transformers.  A
+ * document that fails is recorded in its BatchResult and does not affect
+ * the other documents.
+ * @author pevans
+ *
+ */
+public class BatchEngine {
+
+	// number of nanoseconds in a second...
+	private static final double NANOS_PER_SECOND = 1000000000.0;
+
+	// number of bytes in a megabyte...
+	private static final double BYTES_PER_MEGABYTE = 1024.0 * 1024.0;
+
+	// get the i18n factory singleton instance...
+	private static final LabelStringFactory stringFactory =
+		LabelStringFactory.getInstance();
+
+	// logger object...
+	private static final Logger logger = Logger.getLogger(BatchEngine.class);
+
+	// instance members...
+	private List<TransformStage> stages;
+	private boolean pipelined;
+	private boolean xsltc;
+	private int threads;
+	private Templates templates[];
+	private TransformTimings compileTimings[];
+	private ThreadLocal<TransformChain> chains;
+	private File outputDir;
+	private int succeeded;
+	private int failed;
+	private long bytes;
+	private long elapsedTime;
+
+	/**
+	 * Constructor
+	 * @param aStages
+	 * @param aPipelined
+	 * @param aXSLTC true to compile the stylesheets with XSLTC
+	 * @param aThreads the number of worker threads
+	 */
+	public BatchEngine(List<TransformStage> aStages, boolean aPipelined,
+			boolean aXSLTC, int aThreads) {
+		if (aThreads < 1) {
+			throw new IllegalArgumentException("aThreads must be at least 1");
+		}
+		stages = new ArrayList<TransformStage>(aStages);
+		pipelined = aPipelined;
+		xsltc = aXSLTC;
+		threads = aThreads;
+		chains = new ThreadLocal<TransformChain>();
+	}
+
+	/**
+	 * Returns the default number of worker threads: one per processor.
+	 * @return
+	 */
+	public static int getDefaultThreads() {
+		return Runtime.getRuntime().availableProcessors();
+	}
+
+	/**
+	 * Transforms each of aInputs, writing each result to aOutputDir under the
+	 * name of its input.  The results are returned in the same order as
+	 * aInputs.
+	 * @param aFSMgr used to resolve the stylesheets
+	 * @param aInputs
+	 * @param aOutputDir
+	 * @return
+	 */
+	public List<BatchResult> transform(FileSystemManager aFSMgr,
+			List<File> aInputs, File aOutputDir) {
+
+		List<BatchResult> results;
+		TransformChain chain;
+		String error;
+		long start;
+		int loop;
+
+		results = new ArrayList<BatchResult>();
+		outputDir = aOutputDir;
+		succeeded = 0;
+		failed = 0;
+		bytes = 0;
+		start = System.nanoTime();
+		chain = new TransformChain(stages, pipelined, xsltc);
+		error = null;
+		try {
+			templates = chain.compile(aFSMgr);
+		} catch (TransformerException aException) {
+			error = aException.getMessageAndLocation();
+		} catch (FileSystemException aException) {
+			error = aException.getMessage();
+		}
+		compileTimings = new TransformTimings[stages.size()];
+		for (loop = 0; loop < compileTimings.length; loop++) {
+			compileTimings[loop] = chain.getTimings(loop);
+		}
+		if (error != null) {
+			logger.info(chain.getStage(chain.getFailedStage()) + ": " + error);
+			for (loop = 0; loop < aInputs.size(); loop++) {
+				results.add(newFailure(aInputs.get(loop), error,
+						chain.getFailedStage()));
+			}
+		} else {
+			transformAll(aInputs, results);
+		}
+		elapsedTime = System.nanoTime() - start;
+		for (loop = 0; loop < results.size(); loop++) {
+			if (results.get(loop).isSucceeded()) {
+				succeeded++;
+			} else {
+				failed++;
+			}
+			bytes += results.get(loop).getBytes();
+		}
+		return results;
+	}
+
+	/**
+	 * Hands each of aInputs to the worker pool and collects the results, in
+	 * order, into aResults.
+	 * @param aInputs
+	 * @param aResults
+	 */
+	private void transformAll(List<File> aInputs, List<BatchResult> aResults) {
+
+		ExecutorService pool;
+		List<Future<BatchResult>> futures;
+		int loop;
+
+		pool = Executors.newFixedThreadPool(threads);
+		futures = new ArrayList<Future<BatchResult>>();
+		try {
+			for (loop = 0; loop < aInputs.size(); loop++) {
+				futures.add(pool.submit(new DocumentTask(this,
+						aInputs.get(loop))));
+			}
+			for (loop = 0; loop < futures.size(); loop++) {
+				try {
+					aResults.add(futures.get(loop).get());
+				} catch (ExecutionException aException) {
+					logger.error(ExceptionUtils.getFullStackTrace(
+							aException.getCause()));
+					aResults.add(newFailure(aInputs.get(loop),
+							aException.getCause().toString(), -1));
+				} catch (InterruptedException aException) {
+					Thread.currentThread().interrupt();
+					aResults.add(newFailure(aInputs.get(loop),
+							aException.toString(), -1));
+				}
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Transforms aInput on the calling (worker) thread and writes its
+	 * result.  Every failure is caught and recorded in the returned
+	 * BatchResult.
+	 * @param aInput
+	 * @return
+	 */
+	BatchResult transform(File aInput) {
+
+		BatchResult result;
+		TransformChain chain;
+		File outputFile;
+		InputSource input;
+		byte output[];
+		long start;
+
+		result = new BatchResult(aInput);
+		chain = chains.get();
+		if (chain == null) {
+			chain = new TransformChain(stages, pipelined);
+			chains.set(chain);
+		}
+		outputFile = new File(outputDir, aInput.getName());
+		start = System.nanoTime();
+		try {
+			if (outputFile.getCanonicalFile().equals(
+					aInput.getCanonicalFile())) {
+				result.setError(stringFactory.getString(
+						LabelStringFactory.BATCH_OUTPUT_IS_INPUT));
+			} else {
+				result.setBytes(aInput.length());
+				input = Utils.getXMLInput(aInput);
+				try {
+					output = chain.transform(templates, input);
+				} finally {
+					org.apache.commons.io.IOUtils.closeQuietly(
+							input.getByteStream());
+				}
+				if (output == null) {
+					result.setError(MessageFormat.format(
+							stringFactory.getString(
+									LabelStringFactory.BATCH_RESULT_NOT_XML),
+							chain.getStage(chain.getNonXmlStage())));
+				} else {
+					IOUtils.writeFile(outputFile, output);
+					result.setOutput(outputFile);
+					result.setTimings(getTimings(chain));
+				}
+			}
+		} catch (TransformerException aException) {
+			result.setError(aException.getMessageAndLocation());
+			result.setFailedStage(chain.getFailedStage());
+		} catch (IOException aException) {
+			result.setError(aException.toString());
+		} catch (Exception aException) {
+			logger.error(ExceptionUtils.getFullStackTrace(aException));
+			result.setError(aException.toString());
+			result.setFailedStage(chain.getFailedStage());
+		}
+		result.setElapsedTime(System.nanoTime() - start);
+		if (!result.isSucceeded()) {
+			logger.info(aInput + ": " + result.getError());
+		}
+		return result;
+	}
+
+	/**
+	 * Returns a failed BatchResult for aInput
+	 * @param aInput
+	 * @param aError
+	 * @param aFailedStage
+	 * @return
+	 */
+	private static BatchResult newFailure(File aInput, String aError,
+			int aFailedStage) {
+
+		BatchResult result;
+
+		result = new BatchResult(aInput);
+		result.setError(aError);
+		result.setFailedStage(aFailedStage);
+		return result;
+	}
+
+	/**
+	 * Returns the timings of each stage of aChain's last transform
+	 * @param aChain
+	 * @return
+	 */
+	private static TransformTimings[] getTimings(TransformChain aChain) {
+
+		TransformTimings timings[];
+		int loop;
+
+		timings = new TransformTimings[aChain.getSize()];
+		for (loop = 0; loop < timings.length; loop++) {
+			timings[loop] = aChain.getTimings(loop);
+		}
+		return timings;
+	}
+
+	/**
+	 * Returns the number of documents transformed per second by the last
+	 * call to transform()
+	 * @return
+	 */
+	public double getDocumentsPerSecond() {
+		return elapsedTime == 0 ? 0 :
+			(succeeded + failed) / (elapsedTime / NANOS_PER_SECOND);
+	}
+
+	/**
+	 * Returns the megabytes of input transformed per second by the last call
+	 * to transform()
+	 * @return
+	 */
+	public double getMegabytesPerSecond() {
+		return elapsedTime == 0 ? 0 :
+			(bytes / BYTES_PER_MEGABYTE) / (elapsedTime / NANOS_PER_SECOND);
+	}
+
+	/**
+	 * Getter
+	 * @return
+	 */
+	public boolean isPipelined() {
+		return pipelined;
+	}
+
+	/**
+	 * Getter
+	 * @return
+	 */
+	public boolean isXSLTC() {
+		return xsltc;
+	}
+
+	/**
+	 * Getter
+	 * @return
+	 */
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * Returns the number of stages
+	 * @return
+	 */
+	public int getSize() {
+		return stages.size();
+	}
+
+	/**
+	 * Returns the stage at aIndex
+	 * @param aIndex
+	 * @return
+	 */
+	public TransformStage getStage(int aIndex) {
+		return stages.get(aIndex);
+	}
+
+	/**
+	 * Returns the compile timings of the stage at aIndex from the last call
+	 * to transform(); the timings of stages that were not compiled are null.
+	 * @param aIndex
+	 * @return
+	 */
+	public TransformTimings getCompileTimings(int aIndex) {
+		return compileTimings[aIndex];
+	}
+
+	/**
+	 * Getter
+	 * @return
+	 */
+	public int getSucceeded() {
+		return succeeded;
+	}
+
+	/**
+	 * Getter
+	 * @return
+	 */
+	public int getFailed() {
+		return failed;
+	}
+
+	/**
+	 * Returns the total size, in bytes, of the documents read by the last
+	 * call to transform()
+	 * @return
+	 */
+	public long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * Returns the nanoseconds taken by the last call to transform()
+	 * @return
+	 */
+	public long getElapsedTime() {
+		return elapsedTime;
+	}
+
+	/**
+	 * Transforms a single document on a worker thread
+	 */
+	static class DocumentTask implements Callable<BatchResult> {
+
+		BatchEngine engine;
+		File input;
+
+		/**
+		 * Constructor
+		 * @param aEngine
+		 * @param aInput
+		 */
+		DocumentTask(BatchEngine aEngine, File aInput) {
+			engine = aEngine;
+			input = aInput;
+		}
+
+		/**
+		 * Transforms the document
+		 */
+		public BatchResult call() {
+			return engine.transform(input);
+		}
+	}
+}
@@ -0,0 +1,156 @@
+/*
+	Copyright 2006 Paul Evans
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+package us.paulevans.basicxslt;
+
+import java.io.File;
+
+/**
+ * The outcome of transforming a single document in a batch.
+ * @author pevans
+ *
+ */
+public class BatchResult {
+
+	// instance members...
+	private File input;
+	private File output;
+	private long bytes;
+	private long elapsedTime;
+	private String error;
+	private int failedStage;
+	private TransformTimings timings[];
+
+	/**
+	 * Constructor
+	 * @param aInput
+	 */
+	public BatchResult(File aInput) {
+		input = aInput;
+		failedStage = -1;
+	}
+
+	/**
+	 * Returns true if the document was transformed and its result written.
+	 * @return
+	 */
+	public boolean isSucceeded() {
+		return error == null;
+	}
+
+	/**
+	 * Getter
+	 * @return
+	 */
+	public File getInput() {
+		return input;
+	}
+
+	/**
+	 * Getter
+	 * @return
+	 */
+	public File getOutput() {
+		return output;
+	}
+
+	/**
+	 * Setter
+	 * @param aOutput
+	 */
+	public void setOutput(File aOutput) {
+		output = aOutput;
+	}
+
+	/**
+	 * Returns the size of the input document in bytes
+	 * @return
+	 */
+	public long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * Setter
+	 * @param aBytes
+	 */
+	public void setBytes(long aBytes) {
+		bytes = aBytes;
+	}
+
+	/**
+	 * Returns the nanoseconds taken to read, transform and write the document
+	 * @return
+	 */
+	public long getElapsedTime() {
+		return elapsedTime;
+	}
+
+	/**
+	 * Setter
+	 * @param aElapsedTime
+	 */
+	public void setElapsedTime(long aElapsedTime) {
+		elapsedTime = aElapsedTime;
+	}
+
+	/**
+	 * Returns the reason the document failed, or null
+	 * @return
+	 */
+	public String getError() {
+		return error;
+	}
+
+	/**
+	 * Setter
+	 * @param aError
+	 */
+	public void setError(String aError) {
+		error = aError;
+	}
+
+	/**
+	 * Returns the index of the stage that failed, or -1
+	 * @return
+	 */
+	public int getFailedStage() {
+		return failedStage;
+	}
+
+	/**
+	 * Setter
+	 * @param aFailedStage
+	 */
+	public void setFailedStage(int aFailedStage) {
+		failedStage = aFailedStage;
+	}
+
+	/**
+	 * Returns the timings of each stage, or null if the document failed
+	 * @return
+	 */
+	public TransformTimings[] getTimings() {
+		return timings;
+	}
+
+	/**
+	 * Setter
+	 * @param aTimings
+	 */
+	public void setTimings(TransformTimings aTimings[]) {
+		timings = aTimings;
+	}
+}
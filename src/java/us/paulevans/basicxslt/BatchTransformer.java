@@ -0,0 +1,374 @@
+/*
+	Copyright 2006 Paul Evans
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+package us.paulevans.basicxslt;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.blueslate.commons.io.IOUtils;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.lang.ArrayUtils;
+import org.apache.commons.lang.BooleanUtils;
+import org.apache.commons.lang.math.NumberUtils;
+import org.apache.commons.vfs.VFS;
+import org.apache.log4j.Logger;
+
+/**
+ * Command-line entry point that applies a saved configuration to a batch of
+ * XML files without any GUI.  The stylesheet chain, parameters and output
+ * properties are taken from the named configuration in the user's
+ * preferences; the input files are transformed in parallel (see BatchEngine)
+ * and each result written to the output directory under the same file name.  A JSON summary of the timings
+ * and failures is written to standard output (or the -summary file).  The
+ * exit code is 0 if every file was transformed, 1 if any file failed, and 2
+ * if the arguments or configuration are not usable.
+ * @author pevans
+ *
+ */
+public class BatchTransformer {
+
+	// exit codes...
+	public static final int EXIT_SUCCESS = 0;
+	public static final int EXIT_FAILURES = 1;
+	public static final int EXIT_USAGE = 2;
+
+	// command-line options...
+	private static final String CONFIG_OPTION = "-config";
+	private static final String OUT_OPTION = "-out";
+	private static final String SUMMARY_OPTION = "-summary";
+	private static final String THREADS_OPTION = "-threads";
+
+	// summary status values...
+	private static final String SUCCEEDED = "succeeded";
+	private static final String FAILED = "failed";
+
+	// get the i18n factory singleton instance...
+	private static final LabelStringFactory stringFactory =
+		LabelStringFactory.getInstance();
+
+	// logger object...
+	private static final Logger logger = Logger.getLogger(
+			BatchTransformer.class);
+
+	// instance members...
+	private String configuration;
+	private File outputDir;
+	private File summaryFile;
+	private List<String> inputs;
+	private int threads;
+
+	/**
+	 * Constructor
+	 *
+	 */
+	public BatchTransformer() {
+		inputs = new ArrayList<String>();
+		threads = BatchEngine.getDefaultThreads();
+	}
+
+	/**
+	 * Runs the batch and returns the exit code.
+	 * @param aArgs
+	 * @return
+	 * @throws IOException
+	 */
+	public int run(String aArgs[]) throws IOException {
+
+		UserPreferences userPrefs;
+		List<TransformStage> stages;
+		List<File> files;
+		BatchEngine engine;
+		List<BatchResult> results;
+
+		if (!parseArguments(aArgs)) {
+			System.err.println(stringFactory.getString(
+					LabelStringFactory.BATCH_USAGE));
+			return EXIT_USAGE;
+		}
+		userPrefs = Utils.getUserPrefs();
+		if (configuration == null) {
+			configuration = userPrefs.loadDefaultConfiguration();
+		} else if (!configuration.equals(
+				userPrefs.loadDefaultConfiguration()) &&
+				!ArrayUtils.contains(userPrefs.getAllConfigurations(),
+						configuration)) {
+			System.err.println(MessageFormat.format(stringFactory.getString(
+					LabelStringFactory.BATCH_UNKNOWN_CONFIGURATION),
+					configuration));
+			return EXIT_USAGE;
+		}
+		userPrefs.setConfiguration(configuration, false);
+		stages = userPrefs.getTransformStages();
+		if (stages.isEmpty()) {
+			System.err.println(MessageFormat.format(stringFactory.getString(
+					LabelStringFactory.BATCH_NO_STYLESHEETS), configuration));
+			return EXIT_USAGE;
+		}
+		files = getInputFiles();
+		if (files.isEmpty()) {
+			System.err.println(stringFactory.getString(
+					LabelStringFactory.BATCH_NO_INPUTS));
+			return EXIT_USAGE;
+		}
+		engine = new BatchEngine(stages, BooleanUtils.toBoolean(
+				userPrefs.getProperty(AppConstants.PIPELINE_STAGES_PROP,
+						"true")), AppConstants.ENGINE_XSLTC.equals(
+								userPrefs.getProperty(AppConstants.ENGINE_PROP,
+										AppConstants.ENGINE_XALAN)), threads);
+		outputDir.mkdirs();
+		results = engine.transform(VFS.getManager(), files, outputDir);
+		writeSummary(engine, results);
+		logger.info(MessageFormat.format(
+				"{0} documents in {1,number,0.000}s: " +
+				"{2,number,0.0} documents/sec, {3,number,0.00} MB/sec",
+				new Object[] { Integer.valueOf(results.size()),
+						Double.valueOf(engine.getElapsedTime() / 1000000000.0),
+						Double.valueOf(engine.getDocumentsPerSecond()),
+						Double.valueOf(engine.getMegabytesPerSecond()) }));
+		return engine.getFailed() == 0 ? EXIT_SUCCESS : EXIT_FAILURES;
+	}
+
+	/**
+	 * Parses the command-line arguments; returns false if they are not valid.
+	 * @param aArgs
+	 * @return
+	 */
+	private boolean parseArguments(String aArgs[]) {
+
+		int loop;
+
+		for (loop = 0; loop < aArgs.length; loop++) {
+			if (aArgs[loop].equals(CONFIG_OPTION) && loop + 1 < aArgs.length) {
+				configuration = aArgs[++loop];
+			} else if (aArgs[loop].equals(OUT_OPTION) &&
+					loop + 1 < aArgs.length) {
+				outputDir = new File(aArgs[++loop]);
+			} else if (aArgs[loop].equals(SUMMARY_OPTION) &&
+					loop + 1 < aArgs.length) {
+				summaryFile = new File(aArgs[++loop]);
+			} else if (aArgs[loop].equals(THREADS_OPTION) &&
+					loop + 1 < aArgs.length) {
+				threads = NumberUtils.stringToInt(aArgs[++loop], 0);
+				if (threads < 1) {
+					return false;
+				}
+			} else if (aArgs[loop].startsWith("-")) {
+				return false;
+			} else {
+				inputs.add(aArgs[loop]);
+			}
+		}
+		return outputDir != null && !inputs.isEmpty();
+	}
+
+	/**
+	 * Expands the input arguments into a list of files.  A directory stands
+	 * for every file in it; a name containing '*' or '?' is matched against
+	 * the files of its directory.  Anything else is taken as a file name,
+	 * whether or not it exists, so that a missing file is reported as a
+	 * failure.
+	 * @return
+	 */
+	private List<File> getInputFiles() {
+
+		List<File> files;
+		File file, dir, children[];
+		int loop, innerLoop;
+
+		files = new ArrayList<File>();
+		for (loop = 0; loop < inputs.size(); loop++) {
+			file = new File(inputs.get(loop));
+			if (file.isDirectory()) {
+				children = file.listFiles();
+				Arrays.sort(children);
+				for (innerLoop = 0; innerLoop < children.length; innerLoop++) {
+					if (children[innerLoop].isFile()) {
+						files.add(children[innerLoop]);
+					}
+				}
+			} else if (file.getName().indexOf('*') != -1 ||
+					file.getName().indexOf('?') != -1) {
+				dir = file.getAbsoluteFile().getParentFile();
+				children = dir.listFiles();
+				if (children != null) {
+					Arrays.sort(children);
+					for (innerLoop = 0; innerLoop < children.length;
+							innerLoop++) {
+						if (children[innerLoop].isFile() &&
+								FilenameUtils.wildcardMatch(
+										children[innerLoop].getName(),
+										file.getName())) {
+							files.add(children[innerLoop]);
+						}
+					}
+				}
+			} else {
+				files.add(file);
+			}
+		}
+		return files;
+	}
+
+	/**
+	 * Returns the JSON summary of aResult.
+	 * @param aEngine
+	 * @param aResult
+	 * @return
+	 */
+	private static String toJSON(BatchEngine aEngine, BatchResult aResult) {
+
+		StringBuffer buffer;
+		TransformTimings timings[];
+		int loop;
+
+		buffer = new StringBuffer("    {\"input\": ");
+		buffer.append(Utils.quoteJSON(aResult.getInput().getPath()));
+		if (!aResult.isSucceeded()) {
+			buffer.append(", \"status\": ").append(Utils.quoteJSON(FAILED));
+			buffer.append(", \"elapsedNanos\": ").append(
+					aResult.getElapsedTime());
+			buffer.append(", \"failedStage\": ").append(
+					aResult.getFailedStage());
+			buffer.append(", \"error\": ").append(Utils.quoteJSON(aResult.getError()));
+			return buffer.append("}").toString();
+		}
+		buffer.append(", \"output\": ").append(Utils.quoteJSON(
+				aResult.getOutput().getPath()));
+		buffer.append(", \"status\": ").append(Utils.quoteJSON(SUCCEEDED));
+		buffer.append(", \"bytes\": ").append(aResult.getBytes());
+		buffer.append(", \"elapsedNanos\": ").append(aResult.getElapsedTime());
+		buffer.append(", \"stages\": [");
+		timings = aResult.getTimings();
+		for (loop = 0; loop < timings.length; loop++) {
+			buffer.append(loop == 0 ? "" : ", ");
+			buffer.append("{\"stylesheet\": ").append(
+					Utils.quoteJSON(aEngine.getStage(loop).getStylesheet()));
+			buffer.append(", \"parseNanos\": ").append(
+					timings[loop].getParseTime());
+			buffer.append(", \"transformNanos\": ").append(
+					timings[loop].getTransformTime());
+			buffer.append(", \"serializeNanos\": ").append(
+					timings[loop].getSerializeTime());
+			buffer.append("}");
+		}
+		return buffer.append("]}").toString();
+	}
+
+	/**
+	 * Returns the JSON compile time of each stylesheet of aEngine.
+	 * @param aEngine
+	 * @return
+	 */
+	private static String getCompileTimings(BatchEngine aEngine) {
+
+		StringBuffer buffer;
+		TransformTimings timings;
+		int loop;
+
+		buffer = new StringBuffer();
+		for (loop = 0; loop < aEngine.getSize(); loop++) {
+			timings = aEngine.getCompileTimings(loop);
+			buffer.append(loop == 0 ? "" : ", ");
+			buffer.append("{\"stylesheet\": ").append(
+					Utils.quoteJSON(aEngine.getStage(loop).getStylesheet()));
+			buffer.append(", \"compileNanos\": ").append(
+					timings != null ? timings.getCompileTime() : 0);
+			buffer.append("}");
+		}
+		return buffer.toString();
+	}
+
+	/**
+	 * Writes the JSON summary to the summary file, or standard output.
+	 * @param aEngine
+	 * @param aResults
+	 * @throws IOException
+	 */
+	private void writeSummary(BatchEngine aEngine, List<BatchResult> aResults)
+	throws IOException {
+
+		StringBuffer summary;
+		PrintStream out;
+		int loop;
+
+		summary = new StringBuffer("{\n");
+		summary.append("  \"configuration\": ").append(
+				Utils.quoteJSON(configuration)).append(",\n");
+		summary.append("  \"pipelined\": ").append(
+				aEngine.isPipelined()).append(",\n");
+		summary.append("  \"engine\": ").append(Utils.quoteJSON(
+				aEngine.isXSLTC() ? AppConstants.ENGINE_XSLTC :
+					AppConstants.ENGINE_XALAN)).append(",\n");
+		summary.append("  \"threads\": ").append(
+				aEngine.getThreads()).append(",\n");
+		summary.append("  \"documents\": ").append(aResults.size()).append(
+				",\n");
+		summary.append("  \"succeeded\": ").append(
+				aEngine.getSucceeded()).append(",\n");
+		summary.append("  \"failed\": ").append(aEngine.getFailed()).append(
+				",\n");
+		summary.append("  \"bytes\": ").append(aEngine.getBytes()).append(
+				",\n");
+		summary.append("  \"elapsedNanos\": ").append(
+				aEngine.getElapsedTime()).append(",\n");
+		summary.append("  \"documentsPerSecond\": ").append(
+				aEngine.getDocumentsPerSecond()).append(",\n");
+		summary.append("  \"megabytesPerSecond\": ").append(
+				aEngine.getMegabytesPerSecond()).append(",\n");
+		summary.append("  \"transformerPool\": {\"size\": ").append(
+				TransformerPool.getInstance().getSize());
+		summary.append(", \"borrows\": ").append(
+				TransformerPool.getInstance().getBorrows());
+		summary.append(", \"creates\": ").append(
+				TransformerPool.getInstance().getCreates());
+		summary.append(", \"reuseRatio\": ").append(
+				TransformerPool.getInstance().getReuseRatio());
+		summary.append(", \"averageBorrowNanos\": ").append(
+				TransformerPool.getInstance().getAverageBorrowTime()).append(
+						"},\n");
+		summary.append("  \"stylesheets\": [").append(
+				getCompileTimings(aEngine)).append("],\n");
+		summary.append("  \"results\": [");
+		for (loop = 0; loop < aResults.size(); loop++) {
+			summary.append(loop == 0 ? "\n" : ",\n");
+			summary.append(toJSON(aEngine, aResults.get(loop)));
+		}
+		summary.append("\n  ]\n}");
+		if (summaryFile != null) {
+			IOUtils.writeTextFile(summaryFile, summary.toString());
+		} else {
+			out = System.out;
+			out.println(summary);
+			out.flush();
+		}
+	}
+
+	/**
+	 * Main method - runs the batch and exits with its exit code.
+	 * @param aArgs
+	 * @throws IOException
+	 */
+	public static void main(String aArgs[]) throws IOException {
+		System.setProperty("java.awt.headless", "true");
+		System.exit(new BatchTransformer().run(aArgs));
+	}
+}
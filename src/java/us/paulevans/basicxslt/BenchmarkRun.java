@@ -0,0 +1,228 @@
+/*
+	Copyright 2006 Paul Evans
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+package us.paulevans.basicxslt;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerException;
+
+import org.apache.commons.vfs.FileSystemException;
+import org.apache.commons.vfs.FileSystemManager;
+import org.apache.log4j.Logger;
+
+/**
+ * Runs a TransformChain repeatedly to get stable timings: a number of
+ * warm-up iterations, whose timings are thrown away, are followed by a
+ * number of measured iterations.  The stylesheets are compiled once, before
+ * the warm-up, so the iterations measure only the transforms.  Optionally an
+ * iteration during which the garbage collector ran is discarded and run
+ * again.
+ * @author pevans
+ *
+ */
+public class BenchmarkRun {
+
+	// the most attempts made per measured iteration when discarding
+	// iterations interrupted by a garbage collection...
+	private static final int MAX_ATTEMPTS_PER_ITERATION = 10;
+
+	// logger object...
+	private static final Logger logger = Logger.getLogger(BenchmarkRun.class);
+
+	// instance members...
+	private TransformChain chain;
+	private int warmupIterations;
+	private int measuredIterations;
+	private boolean discardGCIterations;
+	private int discardedIterations;
+	private TransformTimings compileTimings[];
+	private Statistics stageStatistics[];
+	private Statistics totalStatistics;
+
+	/**
+	 * Constructor
+	 * @param aChain
+	 * @param aWarmupIterations
+	 * @param aMeasuredIterations
+	 * @param aDiscardGCIterations true to discard iterations during which
+	 * the garbage collector ran
+	 */
+	public BenchmarkRun(TransformChain aChain, int aWarmupIterations,
+			int aMeasuredIterations, boolean aDiscardGCIterations) {
+		chain = aChain;
+		warmupIterations = aWarmupIterations;
+		measuredIterations = aMeasuredIterations;
+		discardGCIterations = aDiscardGCIterations;
+	}
+
+	/**
+	 * Runs the benchmark over aXmlContents and returns the result of the
+	 * last iteration.  If the result of a stage is not xml null is returned
+	 * and the chain's getNonXmlStage() reports the offending stage; if a
+	 * transform fails the chain's getFailedStage() reports the stage.
+	 * @param aFSMgr
+	 * @param aXmlContents
+	 * @return
+	 * @throws TransformerException
+	 * @throws FileSystemException
+	 */
+	public byte[] run(FileSystemManager aFSMgr, byte aXmlContents[])
+	throws TransformerException, FileSystemException {
+
+		Templates templates[];
+		long stageSamples[][], totalSamples[], gcCount, total;
+		byte result[];
+		int loop, stage, measured, attempts;
+
+		templates = chain.compile(aFSMgr);
+		compileTimings = new TransformTimings[chain.getSize()];
+		for (loop = 0; loop < compileTimings.length; loop++) {
+			compileTimings[loop] = chain.getTimings(loop);
+		}
+		result = null;
+		for (loop = 0; loop < warmupIterations; loop++) {
+			if ((result = chain.transform(templates, aXmlContents)) == null) {
+				return null;
+			}
+		}
+		stageSamples = new long[chain.getSize()][measuredIterations];
+		totalSamples = new long[measuredIterations];
+		discardedIterations = 0;
+		measured = 0;
+		attempts = 0;
+		while (measured < measuredIterations) {
+			gcCount = getGCCount();
+			if ((result = chain.transform(templates, aXmlContents)) == null) {
+				return null;
+			}
+			attempts++;
+			if (discardGCIterations && getGCCount() != gcCount &&
+					attempts < measuredIterations * MAX_ATTEMPTS_PER_ITERATION) {
+				discardedIterations++;
+				continue;
+			}
+			total = 0;
+			for (stage = 0; stage < chain.getSize(); stage++) {
+				stageSamples[stage][measured] =
+					chain.getTimings(stage).getTotalTime();
+				total += stageSamples[stage][measured];
+			}
+			totalSamples[measured++] = total;
+		}
+		stageStatistics = new Statistics[chain.getSize()];
+		for (stage = 0; stage < stageStatistics.length; stage++) {
+			stageStatistics[stage] = new Statistics(stageSamples[stage]);
+			logger.info(chain.getStage(stage) + ": " + stageStatistics[stage]);
+		}
+		totalStatistics = new Statistics(totalSamples);
+		logger.info("total: " + totalStatistics + ", discarded=" +
+				discardedIterations);
+		return result;
+	}
+
+	/**
+	 * Returns the number of garbage collections so far, or -1 if it is not
+	 * known.
+	 * @return
+	 */
+	static long getGCCount() {
+
+		List<GarbageCollectorMXBean> collectors;
+		long count;
+		int loop;
+
+		collectors = ManagementFactory.getGarbageCollectorMXBeans();
+		count = 0;
+		for (loop = 0; loop < collectors.size(); loop++) {
+			if (collectors.get(loop).getCollectionCount() == -1) {
+				return -1;
+			}
+			count += collectors.get(loop).getCollectionCount();
+		}
+		return count;
+	}
+
+	/**
+	 * Getter
+	 * @return
+	 */
+	public TransformChain getChain() {
+		return chain;
+	}
+
+	/**
+	 * Getter
+	 * @return
+	 */
+	public int getWarmupIterations() {
+		return warmupIterations;
+	}
+
+	/**
+	 * Getter
+	 * @return
+	 */
+	public int getMeasuredIterations() {
+		return measuredIterations;
+	}
+
+	/**
+	 * Getter
+	 * @return
+	 */
+	public boolean isDiscardGCIterations() {
+		return discardGCIterations;
+	}
+
+	/**
+	 * Returns the number of iterations discarded because the garbage
+	 * collector ran during them
+	 * @return
+	 */
+	public int getDiscardedIterations() {
+		return discardedIterations;
+	}
+
+	/**
+	 * Returns the compile timings of the stage at aIndex
+	 * @param aIndex
+	 * @return
+	 */
+	public TransformTimings getCompileTimings(int aIndex) {
+		return compileTimings[aIndex];
+	}
+
+	/**
+	 * Returns the statistics of the measured iterations of the stage at
+	 * aIndex
+	 * @param aIndex
+	 * @return
+	 */
+	public Statistics getStageStatistics(int aIndex) {
+		return stageStatistics[aIndex];
+	}
+
+	/**
+	 * Returns the statistics of the measured iterations of the whole chain
+	 * @return
+	 */
+	public Statistics getTotalStatistics() {
+		return totalStatistics;
+	}
+}
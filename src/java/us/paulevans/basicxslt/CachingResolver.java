@@ -0,0 +1,379 @@
+/*
+	Copyright 2006 Paul Evans
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+package us.paulevans.basicxslt;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.catalog.Catalog;
+import javax.xml.catalog.CatalogException;
+import javax.xml.catalog.CatalogFeatures;
+import javax.xml.catalog.CatalogManager;
+import javax.xml.transform.Source;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.URIResolver;
+import javax.xml.transform.stream.StreamSource;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.exception.ExceptionUtils;
+import org.apache.log4j.Logger;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+/**
+ * Resolves the DTDs and XML schemas referred to by documents being parsed,
+ * and the stylesheets and documents referred to by stylesheets, without
+ * going to the network where possible.  A reference is first looked up in
+ * the OASIS XML catalogs: ~/.basicxslt/catalog.xml, if there is one, followed
+ * by any listed in the javax.xml.catalog.files system property.  A remote
+ * reference not in a catalog is fetched once and kept in an on-disk cache;
+ * after that it is served from the cache.  Anything else is left to the
+ * parser or transformer to resolve as usual.
+ * @author pevans
+ *
+ */
+public class CachingResolver implements EntityResolver, URIResolver {
+
+	// extension of the cache files...
+	private static final String EXTENSION = ".resource";
+
+	// prefix and extension of the file a cache file is written to before it
+	// is renamed...
+	private static final String TEMP_PREFIX = "basicxslt";
+	private static final String TEMP_EXTENSION = ".tmp";
+
+	// system property listing further catalog files...
+	private static final String CATALOG_FILES_PROPERTY =
+		"javax.xml.catalog.files";
+
+	// schemes of remote resources...
+	private static final String REMOTE_SCHEMES[] = { "http", "https", "ftp" };
+
+	// singleton instance...
+	private static final CachingResolver instance = new CachingResolver(
+			getDefaultCatalogs(), new File(System.getProperty("user.home") +
+					"/" + AppConstants.APP_PREFS_DIR,
+					AppConstants.RESOURCES_DIR));
+
+	// logger object...
+	private static final Logger logger = Logger.getLogger(
+			CachingResolver.class);
+
+	// instance members...
+	private Catalog catalog;
+	private File dir;
+	private AtomicLong catalogHits;
+	private AtomicLong cacheHits;
+	private AtomicLong remoteFetches;
+
+	/**
+	 * Constructor
+	 * @param aCatalogs the URIs of the catalog files; may be empty
+	 * @param aDir the directory fetched resources are stored in
+	 */
+	public CachingResolver(List<URI> aCatalogs, File aDir) {
+		dir = aDir;
+		catalogHits = new AtomicLong();
+		cacheHits = new AtomicLong();
+		remoteFetches = new AtomicLong();
+		if (!aCatalogs.isEmpty()) {
+			try {
+				catalog = CatalogManager.catalog(CatalogFeatures.builder().
+						with(CatalogFeatures.Feature.RESOLVE, "continue").
+						build(), aCatalogs.toArray(new URI[aCatalogs.size()]));
+			} catch (CatalogException aException) {
+				logger.error(ExceptionUtils.getFullStackTrace(aException));
+			}
+		}
+	}
+
+	/**
+	 * Returns the singleton instance
+	 * @return CachingResolver
+	 */
+	public static CachingResolver getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Returns the URIs of the user's catalog file, if it exists, and of the
+	 * catalog files listed in the javax.xml.catalog.files system property.
+	 * @return
+	 */
+	private static List<URI> getDefaultCatalogs() {
+
+		List<URI> catalogs;
+		File file;
+		String files[];
+		int loop;
+
+		catalogs = new ArrayList<URI>();
+		file = new File(System.getProperty("user.home") + "/" +
+				AppConstants.APP_PREFS_DIR, AppConstants.CATALOG_FILE);
+		if (file.isFile()) {
+			catalogs.add(file.toURI());
+		}
+		files = StringUtils.split(System.getProperty(CATALOG_FILES_PROPERTY,
+				""), ';');
+		for (loop = 0; loop < files.length; loop++) {
+			try {
+				catalogs.add(new URI(files[loop].trim()));
+			} catch (URISyntaxException aException) {
+				logger.warn("ignoring catalog " + files[loop]);
+			}
+		}
+		return catalogs;
+	}
+
+	/**
+	 * Resolves the external entity (a DTD, for example) identified by
+	 * aPublicId and aSystemId, or returns null to have the parser resolve it
+	 * as usual.
+	 */
+	public InputSource resolveEntity(String aPublicId, String aSystemId)
+	throws SAXException, IOException {
+
+		String uri;
+		InputSource source;
+
+		uri = null;
+		if (catalog != null) {
+			uri = matchEntity(catalog, aPublicId, aSystemId);
+		}
+		if (uri != null) {
+			catalogHits.incrementAndGet();
+		} else if (isRemote(aSystemId)) {
+			uri = getCachedFile(aSystemId).toURI().toString();
+		} else {
+			return null;
+		}
+		source = new InputSource(openStream(uri));
+		source.setPublicId(aPublicId);
+		source.setSystemId(aSystemId);
+		return source;
+	}
+
+	/**
+	 * Resolves aHref, found in a stylesheet whose location is aBase, or
+	 * returns null to have the transformer resolve it as usual.
+	 */
+	public Source resolve(String aHref, String aBase)
+	throws TransformerException {
+
+		String uri, match;
+
+		try {
+			uri = aBase != null ? new URI(aBase).resolve(
+					new URI(aHref)).toString() : aHref;
+			match = null;
+			if (catalog != null) {
+				match = matchURI(catalog, uri);
+			}
+			if (match != null) {
+				catalogHits.incrementAndGet();
+				return new StreamSource(openStream(match), match);
+			}
+			if (isRemote(uri)) {
+				return new StreamSource(new FileInputStream(
+						getCachedFile(uri)), uri);
+			}
+			return null;
+		} catch (URISyntaxException aException) {
+			throw new TransformerException(aException);
+		} catch (IOException aException) {
+			throw new TransformerException(aException);
+		}
+	}
+
+	/**
+	 * Returns the location aURI is mapped to by aCatalog, or one of the
+	 * catalogs it refers to, or null.
+	 * @param aCatalog
+	 * @param aURI
+	 * @return
+	 */
+	private static String matchURI(Catalog aCatalog, String aURI) {
+
+		String match;
+		Iterator<Catalog> iter;
+
+		match = aCatalog.matchURI(aURI);
+		iter = aCatalog.catalogs().iterator();
+		while (match == null && iter.hasNext()) {
+			match = matchURI(iter.next(), aURI);
+		}
+		return match;
+	}
+
+	/**
+	 * Returns the location the entity identified by aPublicId and aSystemId
+	 * is mapped to by aCatalog, or one of the catalogs it refers to, or null.
+	 * @param aCatalog
+	 * @param aPublicId
+	 * @param aSystemId
+	 * @return
+	 */
+	private static String matchEntity(Catalog aCatalog, String aPublicId,
+			String aSystemId) {
+
+		String match;
+		Iterator<Catalog> iter;
+
+		match = null;
+		if (aSystemId != null) {
+			match = aCatalog.matchSystem(aSystemId);
+		}
+		if (match == null && aPublicId != null) {
+			match = aCatalog.matchPublic(aPublicId);
+		}
+		iter = aCatalog.catalogs().iterator();
+		while (match == null && iter.hasNext()) {
+			match = matchEntity(iter.next(), aPublicId, aSystemId);
+		}
+		return match;
+	}
+
+	/**
+	 * Returns the cached copy of the remote resource at aURI, fetching it if
+	 * it is not cached yet.
+	 * @param aURI
+	 * @return
+	 * @throws IOException
+	 */
+	private File getCachedFile(String aURI) throws IOException {
+
+		File file, temp;
+		InputStream in;
+		OutputStream out;
+
+		file = new File(dir, DigestUtils.shaHex(aURI) + EXTENSION);
+		if (file.isFile()) {
+			cacheHits.incrementAndGet();
+			return file;
+		}
+		logger.info("fetching " + aURI);
+		dir.mkdirs();
+		temp = File.createTempFile(TEMP_PREFIX, TEMP_EXTENSION, dir);
+		in = null;
+		out = null;
+		try {
+			in = openStream(aURI);
+			out = new FileOutputStream(temp);
+			IOUtils.copy(in, out);
+		} catch (IOException aException) {
+			IOUtils.closeQuietly(out);
+			temp.delete();
+			throw aException;
+		} finally {
+			IOUtils.closeQuietly(in);
+			IOUtils.closeQuietly(out);
+		}
+		if (!temp.renameTo(file)) {
+			// another thread fetched it first...
+			temp.delete();
+		}
+		remoteFetches.incrementAndGet();
+		return file;
+	}
+
+	/**
+	 * Opens the resource at aURI
+	 * @param aURI
+	 * @return
+	 * @throws IOException
+	 */
+	private static InputStream openStream(String aURI) throws IOException {
+		return new URL(aURI).openStream();
+	}
+
+	/**
+	 * Returns true if aURI refers to a resource on the network
+	 * @param aURI
+	 * @return
+	 */
+	private static boolean isRemote(String aURI) {
+
+		int loop;
+
+		if (aURI == null) {
+			return false;
+		}
+		for (loop = 0; loop < REMOTE_SCHEMES.length; loop++) {
+			if (aURI.startsWith(REMOTE_SCHEMES[loop] + ":")) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Deletes every cached resource
+	 */
+	public void clear() {
+		try {
+			FileUtils.deleteDirectory(dir);
+		} catch (IOException aException) {
+			logger.error(ExceptionUtils.getFullStackTrace(aException));
+		}
+	}
+
+	/**
+	 * Returns the directory fetched resources are stored in
+	 * @return
+	 */
+	public File getDir() {
+		return dir;
+	}
+
+	/**
+	 * Returns the number of references resolved by a catalog
+	 * @return
+	 */
+	public long getCatalogHits() {
+		return catalogHits.get();
+	}
+
+	/**
+	 * Returns the number of remote references served from the cache
+	 * @return
+	 */
+	public long getCacheHits() {
+		return cacheHits.get();
+	}
+
+	/**
+	 * Returns the number of remote references fetched from the network
+	 * @return
+	 */
+	public long getRemoteFetches() {
+		return remoteFetches.get();
+	}
+}
@@ -0,0 +1,440 @@
+/*
+	Copyright 2006 Paul Evans
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+package us.paulevans.basicxslt;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.lang.exception.ExceptionUtils;
+import org.apache.commons.vfs.FileObject;
+import org.apache.commons.vfs.FileSystemManager;
+import org.apache.log4j.Logger;
+
+/**
+ * Re-runs a transform chain whenever the source xml, one of the stylesheets
+ * or a stylesheet they import or include changes on disk.  Only the stages
+ * from the earliest affected stage onwards are re-run; the inputs of the
+ * stages before it are taken from the last run that completed.  A change
+ * that arrives while a run is in progress cancels that run, and the next run
+ * starts from the earliest stage affected by either change.  Runs are queued
+ * as exclusive jobs on a JobQueue, so they happen one at a time and never
+ * alongside another exclusive job, such as a transform the user started.
+ * This class has no GUI dependencies; the client builds the chains and is
+ * told of the results.
+ * @author pevans
+ *
+ */
+public class ChainWatcher implements FileWatcher.Listener {
+
+	// value of pendingStage when no run is pending...
+	private static final int NONE = Integer.MAX_VALUE;
+
+	// local file scheme...
+	private static final String FILE_SCHEME = "file";
+
+	// logger object...
+	private static final Logger logger = Logger.getLogger(ChainWatcher.class);
+
+	// instance members...
+	private Client client;
+	private FileSystemManager fsMgr;
+	private FileWatcher watcher;
+	private JobQueue jobQueue;
+	private String jobDescription;
+	private RunJob queuedJob;
+	private boolean stopped;
+	private TransformChain lastChain;
+	private List<String> lastStageKeys;
+	private File sourceFile;
+	private List<Set<File>> stageFiles;
+	private TransformChain runningChain;
+	private int pendingStage;
+
+	/**
+	 * Constructor
+	 * @param aClient
+	 * @param aFSMgr
+	 * @param aJobQueue queue the runs are submitted to
+	 * @param aJobDescription description of the run jobs
+	 * @param aQuietPeriod milliseconds without a change before the chain is
+	 * re-run
+	 * @throws IOException
+	 */
+	public ChainWatcher(Client aClient, FileSystemManager aFSMgr,
+			JobQueue aJobQueue, String aJobDescription, long aQuietPeriod) 
+	throws IOException {
+		client = aClient;
+		fsMgr = aFSMgr;
+		watcher = new FileWatcher(this, aQuietPeriod);
+		jobQueue = aJobQueue;
+		jobDescription = aJobDescription;
+		stageFiles = new ArrayList<Set<File>>();
+		pendingStage = NONE;
+	}
+
+	/**
+	 * Starts watching and runs the whole chain once, to find the files to
+	 * watch and to have inputs to resume from.
+	 */
+	public void start() {
+		watcher.start();
+		schedule(0);
+	}
+
+	/**
+	 * Stops watching and cancels the run in progress and the queued run, if
+	 * any.
+	 */
+	public synchronized void stop() {
+		stopped = true;
+		watcher.stop();
+		cancelRun();
+		if (queuedJob != null) {
+			queuedJob.cancel();
+		}
+	}
+
+	/**
+	 * Returns the files being watched
+	 * @return
+	 */
+	public Set<File> getFiles() {
+		return watcher.getFiles();
+	}
+
+	/**
+	 * Re-runs the chain from the earliest stage affected by aFiles.
+	 */
+	public void filesChanged(Set<File> aFiles) {
+
+		int stage;
+
+		stage = getEarliestStage(aFiles);
+		logger.info("files changed: " + aFiles + ", re-running from stage " +
+				stage);
+		if (stage >= 0) {
+			schedule(stage);
+		}
+	}
+
+	/**
+	 * Returns the earliest stage that reads one of aFiles, 0 if the source
+	 * xml is one of them, or -1 if none of the stages are affected.
+	 * @param aFiles
+	 * @return
+	 */
+	synchronized int getEarliestStage(Set<File> aFiles) {
+
+		int loop;
+		Iterator<File> iter;
+
+		if (lastChain == null || aFiles.contains(sourceFile)) {
+			return 0;
+		}
+		for (loop = 0; loop < stageFiles.size(); loop++) {
+			iter = aFiles.iterator();
+			while (iter.hasNext()) {
+				if (stageFiles.get(loop).contains(iter.next())) {
+					return loop;
+				}
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Makes sure a run starting no later than aStage happens, cancelling the
+	 * run in progress.  A job is only queued if one is not already waiting
+	 * to take the pending run.
+	 * @param aStage
+	 */
+	synchronized void schedule(int aStage) {
+		pendingStage = Math.min(pendingStage, aStage);
+		cancelRun();
+		if (!stopped && queuedJob == null) {
+			queuedJob = new RunJob(this, jobDescription);
+			jobQueue.submit(queuedJob);
+		}
+	}
+
+	/**
+	 * Cancels the run in progress, if any.
+	 */
+	synchronized void cancelRun() {
+		if (runningChain != null) {
+			runningChain.cancel();
+		}
+	}
+
+	/**
+	 * Forgets aJob once it has finished, if it is the queued job; a queued
+	 * job that is cancelled never takes the pending run.
+	 * @param aJob
+	 */
+	synchronized void jobFinished(RunJob aJob) {
+		if (queuedJob == aJob) {
+			queuedJob = null;
+		}
+	}
+
+	/**
+	 * Runs the pending run, if there is one.  A run that is cancelled or 
+	 * fails leaves its first stage pending so that the next run covers it.
+	 */
+	void runPending() {
+
+		TransformChain chain, previous;
+		List<String> stageKeys;
+		byte result[];
+		int firstStage;
+
+		synchronized (this) {
+			queuedJob = null;
+			firstStage = pendingStage;
+			pendingStage = NONE;
+			if (firstStage == NONE || stopped) {
+				return;
+			}
+			chain = client.newTransformChain();
+			chain.setKeepInputs(true);
+			stageKeys = getStageKeys(chain);
+			previous = lastChain;
+			if (previous == null || previous.isXSLTC() != chain.isXSLTC() ||
+					firstStage >= chain.getSize() ||
+					!isSameStages(stageKeys, lastStageKeys, firstStage)) {
+				firstStage = 0;
+			}
+			runningChain = chain;
+		}
+		try {
+			if (firstStage == 0) {
+				result = chain.transform(fsMgr, Utils.getXMLContents(fsMgr,
+						client.getSourceXml()));
+			} else {
+				result = chain.transform(fsMgr, previous, firstStage);
+			}
+			synchronized (this) {
+				runningChain = null;
+				if (chain.isCancelled()) {
+					pendingStage = Math.min(pendingStage, firstStage);
+					return;
+				}
+				if (result != null) {
+					lastChain = chain;
+					lastStageKeys = stageKeys;
+				} else {
+					pendingStage = Math.min(pendingStage, firstStage);
+				}
+				watch(chain);
+			}
+			client.transformed(chain, result);
+		} catch (Exception aException) {
+			synchronized (this) {
+				runningChain = null;
+				pendingStage = Math.min(pendingStage, firstStage);
+				if (chain.isCancelled()) {
+					return;
+				}
+				watch(chain);
+			}
+			client.transformFailed(chain, aException);
+		}
+	}
+
+	/**
+	 * Returns true if the first aCount stages of aKeys and aLastKeys are the
+	 * same
+	 * @param aKeys
+	 * @param aLastKeys
+	 * @param aCount
+	 * @return
+	 */
+	private static boolean isSameStages(List<String> aKeys,
+			List<String> aLastKeys, int aCount) {
+		return aLastKeys.size() >= aCount &&
+			aKeys.subList(0, aCount).equals(aLastKeys.subList(0, aCount));
+	}
+
+	/**
+	 * Returns a key for each stage of aChain that changes whenever its
+	 * stylesheet, parameters or output properties do.  The parameters and
+	 * output properties are edited in place, so the keys must be taken when
+	 * the chain is built.
+	 * @param aChain
+	 * @return
+	 */
+	private static List<String> getStageKeys(TransformChain aChain) {
+
+		List<String> keys;
+		TransformStage stage;
+		int loop;
+
+		keys = new ArrayList<String>();
+		for (loop = 0; loop < aChain.getSize(); loop++) {
+			stage = aChain.getStage(loop);
+			keys.add(ResultCache.getKey("", stage.getStylesheet(),
+					stage.getParameters(), stage.getOutputProperties()));
+		}
+		return keys;
+	}
+
+	/**
+	 * Watches the source xml and the stylesheets of aChain, along with the
+	 * stylesheets they import or include.
+	 * @param aChain
+	 */
+	private void watch(TransformChain aChain) {
+
+		Set<File> files, all;
+		Iterator<String> iter;
+		String stylesheet;
+		File file;
+		int loop;
+
+		all = new HashSet<File>();
+		stageFiles = new ArrayList<Set<File>>();
+		try {
+			sourceFile = toFile(client.getSourceXml());
+			if (sourceFile != null) {
+				all.add(sourceFile);
+			}
+			for (loop = 0; loop < aChain.getSize(); loop++) {
+				files = new HashSet<File>();
+				stylesheet = aChain.getStage(loop).getStylesheet();
+				file = toFile(stylesheet);
+				if (file != null) {
+					files.add(file);
+				}
+				try {
+					iter = TemplatesCache.getInstance().getDependencies(fsMgr,
+							stylesheet, aChain.isXSLTC()).iterator();
+					while (iter.hasNext()) {
+						file = toFile(iter.next());
+						if (file != null) {
+							files.add(file);
+						}
+					}
+				} catch (Exception aException) {
+					// the stylesheet does not compile; only it is watched...
+				}
+				stageFiles.add(files);
+				all.addAll(files);
+			}
+			watcher.setFiles(all);
+		} catch (IOException aException) {
+			logger.error(ExceptionUtils.getFullStackTrace(aException));
+		}
+	}
+
+	/**
+	 * Returns the local file located at aURI, or null if it is not a local
+	 * file.
+	 * @param aURI
+	 * @return
+	 * @throws IOException
+	 */
+	private File toFile(String aURI) throws IOException {
+
+		FileObject file;
+
+		file = fsMgr.resolveFile(aURI);
+		if (!FILE_SCHEME.equals(file.getName().getScheme())) {
+			return null;
+		}
+		return new File(file.getName().getPath()).getAbsoluteFile();
+	}
+
+	/**
+	 * Runs the pending run of a watcher as a job; cancelling the job cancels
+	 * the run.
+	 */
+	static class RunJob extends Job {
+
+		ChainWatcher watcher;
+
+		/**
+		 * Constructor
+		 * @param aWatcher
+		 * @param aDescription
+		 */
+		RunJob(ChainWatcher aWatcher, String aDescription) {
+			super(aDescription, true);
+			watcher = aWatcher;
+		}
+
+		/**
+		 * Runs the pending run
+		 */
+		protected String execute() {
+			watcher.runPending();
+			return null;
+		}
+
+		/**
+		 * Cancels the run
+		 */
+		protected void stop() {
+			watcher.cancelRun();
+		}
+
+		/**
+		 * Lets the watcher queue another job
+		 */
+		protected void finished() {
+			watcher.jobFinished(this);
+		}
+	}
+
+	/**
+	 * Builds the chains to run and receives their results.  The methods are
+	 * called on the job queue's exclusive thread, not the event dispatch
+	 * thread.
+	 */
+	public interface Client {
+
+		/**
+		 * Returns a new chain of the stages to run
+		 * @return
+		 */
+		TransformChain newTransformChain();
+
+		/**
+		 * Returns the location of the source xml
+		 * @return
+		 */
+		String getSourceXml();
+
+		/**
+		 * Called when a run completes; aResult is null if the result of a
+		 * stage other than the last was not xml.
+		 * @param aChain
+		 * @param aResult
+		 */
+		void transformed(TransformChain aChain, byte aResult[]);
+
+		/**
+		 * Called when a run fails
+		 * @param aChain
+		 * @param aException
+		 */
+		void transformFailed(TransformChain aChain, Exception aException);
+	}
+}
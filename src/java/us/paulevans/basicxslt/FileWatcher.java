@@ -0,0 +1,230 @@
+/*
+	Copyright 2006 Paul Evans
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+package us.paulevans.basicxslt;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang.exception.ExceptionUtils;
+import org.apache.log4j.Logger;
+
+/**
+ * Watches a set of files for changes using a WatchService on the
+ * directories that hold them.  Editors often write a file several times, or
+ * write a temporary file and rename it, when saving; so the changes are
+ * collected until no further change has been seen for a quiet period and then
+ * reported to the listener all at once, on the watcher's own thread.
+ * @author pevans
+ *
+ */
+public class FileWatcher implements Runnable {
+
+	// default number of milliseconds without a change before the changes are
+	// reported...
+	public static final long DEFAULT_QUIET_PERIOD = 250;
+
+	// logger object...
+	private static final Logger logger = Logger.getLogger(FileWatcher.class);
+
+	// instance members...
+	private Listener listener;
+	private long quietPeriod;
+	private WatchService watchService;
+	private Set<File> files;
+	private Map<File,WatchKey> keys;
+	private Thread thread;
+	private volatile boolean stopped;
+
+	/**
+	 * Constructor
+	 * @param aListener
+	 * @param aQuietPeriod milliseconds without a change before the changes
+	 * are reported
+	 * @throws IOException
+	 */
+	public FileWatcher(Listener aListener, long aQuietPeriod)
+	throws IOException {
+		listener = aListener;
+		quietPeriod = aQuietPeriod;
+		watchService = FileSystems.getDefault().newWatchService();
+		files = new HashSet<File>();
+		keys = new HashMap<File,WatchKey>();
+	}
+
+	/**
+	 * Replaces the files being watched with aFiles; directories no longer
+	 * needed stop being watched.
+	 * @param aFiles
+	 * @throws IOException
+	 */
+	public synchronized void setFiles(Collection<File> aFiles)
+	throws IOException {
+
+		Iterator<File> iter;
+		Iterator<Map.Entry<File,WatchKey>> keyIter;
+		Map.Entry<File,WatchKey> entry;
+		Set<File> dirs;
+		File file, dir;
+
+		files = new HashSet<File>();
+		dirs = new HashSet<File>();
+		iter = aFiles.iterator();
+		while (iter.hasNext()) {
+			file = iter.next().getAbsoluteFile();
+			files.add(file);
+			if (file.getParentFile() != null) {
+				dirs.add(file.getParentFile());
+			}
+		}
+		keyIter = keys.entrySet().iterator();
+		while (keyIter.hasNext()) {
+			entry = keyIter.next();
+			if (!dirs.contains(entry.getKey())) {
+				entry.getValue().cancel();
+				keyIter.remove();
+			}
+		}
+		iter = dirs.iterator();
+		while (iter.hasNext()) {
+			dir = iter.next();
+			if (!keys.containsKey(dir) && dir.isDirectory()) {
+				keys.put(dir, dir.toPath().register(watchService,
+						StandardWatchEventKinds.ENTRY_CREATE,
+						StandardWatchEventKinds.ENTRY_MODIFY,
+						StandardWatchEventKinds.ENTRY_DELETE));
+			}
+		}
+	}
+
+	/**
+	 * Returns the files being watched
+	 * @return
+	 */
+	public synchronized Set<File> getFiles() {
+		return new HashSet<File>(files);
+	}
+
+	/**
+	 * Starts watching on a new daemon thread.
+	 */
+	public void start() {
+		thread = new Thread(this, "FileWatcher");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Stops watching; changes not yet reported are dropped.
+	 */
+	public void stop() {
+		stopped = true;
+		try {
+			watchService.close();
+		} catch (IOException aException) {
+			logger.warn(ExceptionUtils.getFullStackTrace(aException));
+		}
+	}
+
+	/**
+	 * Waits for changes, reporting each burst of changes once it has been
+	 * quiet for the quiet period.
+	 */
+	public void run() {
+
+		Set<File> changed;
+		WatchKey key;
+
+		try {
+			while (!stopped) {
+				changed = new HashSet<File>();
+				key = watchService.take();
+				while (key != null) {
+					collect(key, changed);
+					key = watchService.poll(quietPeriod, TimeUnit.MILLISECONDS);
+				}
+				if (!changed.isEmpty() && !stopped) {
+					listener.filesChanged(changed);
+				}
+			}
+		} catch (InterruptedException aException) {
+			// stopped...
+		} catch (ClosedWatchServiceException aException) {
+			// stopped...
+		}
+	}
+
+	/**
+	 * Adds the watched files affected by the events of aKey to aChanged.  If
+	 * events were lost every watched file in the directory is added.
+	 * @param aKey
+	 * @param aChanged
+	 */
+	private synchronized void collect(WatchKey aKey, Set<File> aChanged) {
+
+		Iterator<WatchEvent<?>> iter;
+		Iterator<File> fileIter;
+		WatchEvent<?> event;
+		File dir, file;
+
+		dir = ((Path)aKey.watchable()).toFile();
+		iter = aKey.pollEvents().iterator();
+		while (iter.hasNext()) {
+			event = iter.next();
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+				fileIter = files.iterator();
+				while (fileIter.hasNext()) {
+					file = fileIter.next();
+					if (dir.equals(file.getParentFile())) {
+						aChanged.add(file);
+					}
+				}
+			} else {
+				file = new File(dir, ((Path)event.context()).toString());
+				if (files.contains(file)) {
+					aChanged.add(file);
+				}
+			}
+		}
+		aKey.reset();
+	}
+
+	/**
+	 * Receives the files that have changed
+	 */
+	public interface Listener {
+
+		/**
+		 * Called, on the watcher's thread, with the watched files that have
+		 * changed.
+		 * @param aFiles
+		 */
+		void filesChanged(Set<File> aFiles);
+	}
+}
@@ -0,0 +1,246 @@
+/*
+	Copyright 2006 Paul Evans
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+package us.paulevans.basicxslt;
+
+/**
+ * A background operation - a transform, a validation and so on - run by a
+ * JobQueue.  Everything a job works on is given to it when it is made, so
+ * any number of jobs may be in the queue at once.  A job records its state,
+ * its progress and, once it has finished, its result or the reason it
+ * failed; these may be read from any thread.  An exclusive job runs only
+ * when no other exclusive job is running.
+ * @author pevans
+ *
+ */
+public abstract class Job implements Runnable {
+
+	// job states...
+	public static final int QUEUED = 0;
+	public static final int RUNNING = 1;
+	public static final int DONE = 2;
+	public static final int FAILED = 3;
+	public static final int CANCELLED = 4;
+
+	// instance members...
+	private final String description;
+	private final boolean exclusive;
+	private volatile int state;
+	private volatile double progress;
+	private volatile String result;
+	private volatile Throwable failure;
+	private volatile long startTime;
+	private volatile long endTime;
+	private volatile boolean cancelRequested;
+	private JobQueue queue;
+
+	/**
+	 * Constructor
+	 * @param aDescription
+	 * @param aExclusive
+	 */
+	protected Job(String aDescription, boolean aExclusive) {
+		description = aDescription;
+		exclusive = aExclusive;
+		state = QUEUED;
+		progress = -1;
+	}
+
+	/**
+	 * Does the work of the job, returning a short description of its result.
+	 * @return
+	 * @throws Exception
+	 */
+	protected abstract String execute() throws Exception;
+
+	/**
+	 * Called once the job has finished, whether it succeeded, failed or was
+	 * cancelled; by default it does nothing.  This is called on the thread
+	 * that ran the job, or that cancelled it before it ran.
+	 */
+	protected void finished() {
+		// nothing by default...
+	}
+
+	/**
+	 * Asks the running job to stop; by default it does nothing, so the job
+	 * runs to the end.
+	 */
+	protected void stop() {
+		// nothing by default...
+	}
+
+	/**
+	 * Runs the job, unless it has been cancelled while it was queued.
+	 */
+	public final void run() {
+		synchronized (this) {
+			if (state != QUEUED) {
+				return;
+			}
+			state = RUNNING;
+			startTime = System.currentTimeMillis();
+		}
+		fireChanged();
+		try {
+			result = execute();
+			state = cancelRequested ? CANCELLED : DONE;
+		} catch (Throwable aAny) {
+			failure = aAny;
+			result = aAny.getMessage() != null ? aAny.getMessage() :
+				aAny.toString();
+			state = cancelRequested ? CANCELLED : FAILED;
+		} finally {
+			endTime = System.currentTimeMillis();
+			fireChanged();
+			finished();
+		}
+	}
+
+	/**
+	 * Cancels the job: a queued job never runs, a running one is asked to
+	 * stop.
+	 */
+	public void cancel() {
+
+		boolean queued;
+
+		synchronized (this) {
+			queued = state == QUEUED;
+			cancelRequested = true;
+			if (queued) {
+				state = CANCELLED;
+				startTime = endTime = System.currentTimeMillis();
+			}
+		}
+		if (queued) {
+			fireChanged();
+			finished();
+		} else if (state == RUNNING) {
+			stop();
+		}
+	}
+
+	/**
+	 * Records the fraction of the job that is done, from 0 to 1, or -1 if it
+	 * is not known.
+	 * @param aProgress
+	 */
+	protected void setProgress(double aProgress) {
+		progress = aProgress;
+		fireChanged();
+	}
+
+	/**
+	 * Tells the queue, if any, that the job has changed.
+	 */
+	private void fireChanged() {
+
+		JobQueue lqueue;
+
+		lqueue = queue;
+		if (lqueue != null) {
+			lqueue.fireChanged(this);
+		}
+	}
+
+	/**
+	 * Setter; called by the queue the job is submitted to
+	 * @param aQueue
+	 */
+	void setQueue(JobQueue aQueue) {
+		queue = aQueue;
+	}
+
+	/**
+	 * Returns true once the job has succeeded, failed or been cancelled
+	 * @return
+	 */
+	public boolean isFinished() {
+		return state > RUNNING;
+	}
+
+	/**
+	 * Returns true if the job has been asked to stop
+	 * @return
+	 */
+	public boolean isCancelRequested() {
+		return cancelRequested;
+	}
+
+	/**
+	 * Returns the number of milliseconds the job has run for, so far
+	 * @return
+	 */
+	public long getElapsedTime() {
+
+		long start, end;
+
+		start = startTime;
+		end = endTime;
+		if (start == 0) {
+			return 0;
+		}
+		return (end != 0 ? end : System.currentTimeMillis()) - start;
+	}
+
+	/**
+	 * Getter
+	 * @return
+	 */
+	public String getDescription() {
+		return description;
+	}
+
+	/**
+	 * Getter
+	 * @return
+	 */
+	public boolean isExclusive() {
+		return exclusive;
+	}
+
+	/**
+	 * Getter
+	 * @return
+	 */
+	public int getState() {
+		return state;
+	}
+
+	/**
+	 * Getter
+	 * @return
+	 */
+	public double getProgress() {
+		return progress;
+	}
+
+	/**
+	 * Getter
+	 * @return
+	 */
+	public String getResult() {
+		return result;
+	}
+
+	/**
+	 * Getter
+	 * @return
+	 */
+	public Throwable getFailure() {
+		return failure;
+	}
+}
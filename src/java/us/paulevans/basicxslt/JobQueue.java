@@ -0,0 +1,208 @@
+/*
+	Copyright 2006 Paul Evans
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+package us.paulevans.basicxslt;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Runs jobs in the background.  Exclusive jobs - transforms and benchmarks,
+ * which share the main frame's results - run one at a time, in the order
+ * they were submitted; other jobs run at the same time as them and each
+ * other, on a fixed pool of worker threads.  The queue remembers the jobs
+ * submitted to it until they are cleared, so they can be listed.
+ * @author pevans
+ *
+ */
+public class JobQueue implements ThreadFactory {
+
+	// most finished jobs remembered; the oldest are forgotten first...
+	private static final int MAX_FINISHED_JOBS = 100;
+
+	/**
+	 * Told whenever a job is submitted, changes state or reports progress,
+	 * on the thread the change happened on.
+	 */
+	public interface Listener {
+		void jobChanged(Job aJob);
+	}
+
+	// instance members...
+	private ExecutorService exclusive;
+	private ExecutorService pool;
+	private List<Job> jobs;
+	private List<Listener> listeners;
+
+	/**
+	 * Constructor
+	 * @param aThreads the number of worker threads running other jobs
+	 */
+	public JobQueue(int aThreads) {
+		exclusive = Executors.newSingleThreadExecutor(this);
+		pool = Executors.newFixedThreadPool(Math.max(1, aThreads), this);
+		jobs = new ArrayList<Job>();
+		listeners = new ArrayList<Listener>();
+	}
+
+	/**
+	 * Queues aJob to be run.
+	 * @param aJob
+	 */
+	public void submit(Job aJob) {
+		synchronized (this) {
+			forgetFinished(MAX_FINISHED_JOBS - 1);
+			jobs.add(aJob);
+		}
+		aJob.setQueue(this);
+		fireChanged(aJob);
+		(aJob.isExclusive() ? exclusive : pool).execute(aJob);
+	}
+
+	/**
+	 * Returns the jobs submitted, oldest first
+	 * @return
+	 */
+	public synchronized List<Job> getJobs() {
+		return new ArrayList<Job>(jobs);
+	}
+
+	/**
+	 * Returns true if an exclusive job is queued or running
+	 * @return
+	 */
+	public synchronized boolean isExclusiveJobPending() {
+
+		Iterator<Job> iter;
+		Job job;
+
+		iter = jobs.iterator();
+		while (iter.hasNext()) {
+			job = iter.next();
+			if (job.isExclusive() && !job.isFinished()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Forgets every finished job.
+	 */
+	public void clearFinished() {
+		synchronized (this) {
+			forgetFinished(0);
+		}
+		fireChanged(null);
+	}
+
+	/**
+	 * Forgets the oldest finished jobs until no more than aKeep are left.
+	 * @param aKeep
+	 */
+	private void forgetFinished(int aKeep) {
+
+		Iterator<Job> iter;
+		int finished;
+
+		finished = 0;
+		iter = jobs.iterator();
+		while (iter.hasNext()) {
+			if (iter.next().isFinished()) {
+				finished++;
+			}
+		}
+		iter = jobs.iterator();
+		while (finished > aKeep && iter.hasNext()) {
+			if (iter.next().isFinished()) {
+				iter.remove();
+				finished--;
+			}
+		}
+	}
+
+	/**
+	 * Cancels every job that is queued or running.
+	 */
+	public void cancelAll() {
+
+		Iterator<Job> iter;
+
+		iter = getJobs().iterator();
+		while (iter.hasNext()) {
+			iter.next().cancel();
+		}
+	}
+
+	/**
+	 * Cancels every job and stops the worker threads.
+	 */
+	public void shutdown() {
+		cancelAll();
+		exclusive.shutdown();
+		pool.shutdown();
+	}
+
+	/**
+	 * Adds aListener
+	 * @param aListener
+	 */
+	public synchronized void addListener(Listener aListener) {
+		listeners.add(aListener);
+	}
+
+	/**
+	 * Removes aListener
+	 * @param aListener
+	 */
+	public synchronized void removeListener(Listener aListener) {
+		listeners.remove(aListener);
+	}
+
+	/**
+	 * Tells each listener that aJob has changed; aJob is null if jobs have
+	 * been forgotten.
+	 * @param aJob
+	 */
+	void fireChanged(Job aJob) {
+
+		Listener llisteners[];
+		int loop;
+
+		synchronized (this) {
+			llisteners = listeners.toArray(new Listener[listeners.size()]);
+		}
+		for (loop = 0; loop < llisteners.length; loop++) {
+			llisteners[loop].jobChanged(aJob);
+		}
+	}
+
+	/**
+	 * ThreadFactory method; worker threads do not keep the application
+	 * running.
+	 */
+	public Thread newThread(Runnable aRunnable) {
+
+		Thread thread;
+
+		thread = new Thread(aRunnable, "JobQueue");
+		thread.setDaemon(true);
+		return thread;
+	}
+}
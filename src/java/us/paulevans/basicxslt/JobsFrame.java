@@ -0,0 +1,328 @@
+/*
+	Copyright 2006 Paul Evans
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+package us.paulevans.basicxslt;
+
+import java.awt.BorderLayout;
+import java.awt.FlowLayout;
+import java.awt.Frame;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.JButton;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.ListSelectionModel;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.event.ListSelectionEvent;
+import javax.swing.event.ListSelectionListener;
+import javax.swing.table.AbstractTableModel;
+
+import net.blueslate.commons.gui.GUIUtils;
+
+/**
+ * Defines the jobs frame, which lists the jobs of a JobQueue - those queued,
+ * running and finished - with their progress and results.  The list is kept
+ * up to date while the frame is open.
+ * @author pevans
+ *
+ */
+public class JobsFrame extends DisposableFrame implements ActionListener,
+ListSelectionListener, JobQueue.Listener, Runnable {
+
+	private static final long serialVersionUID = 1L;
+
+	// default frame width and height - these values are used if
+	// a height and width are not found in the user's preferences...
+	private static final String DEFAULT_FRAME_WIDTH = "700";
+	private static final String DEFAULT_FRAME_HEIGHT = "250";
+
+	// user-prefs property name prefix...
+	private static final String PROPERTY_NAME_PREFIX = "jobs_";
+
+	// milliseconds between refreshes of the running times...
+	private static final int REFRESH_INTERVAL = 500;
+
+	// get the i18n factory singleton instance...
+	private static final LabelStringFactory stringFactory =
+		LabelStringFactory.getInstance();
+
+	// instance members...
+	private JobQueue queue;
+	private JTable jobTable;
+	private JobTableModel jobTableModel;
+	private JButton cancelJobBtn, clearFinishedBtn, closeBtn;
+	private Timer refreshTimer;
+	private UserPreferences userPrefs;
+	private boolean refreshPending;
+
+	/**
+	 * Constructor
+	 * @param aParent
+	 * @param aQueue
+	 */
+	public JobsFrame(Frame aParent, JobQueue aQueue) {
+
+		JPanel southPanel;
+		int width, height;
+
+		queue = aQueue;
+		userPrefs = Utils.getUserPrefs();
+		addWindowListener(new WindowAdapter() {
+			public void windowClosing(WindowEvent evt) {
+				close();
+			}
+		});
+		jobTable = new JTable(jobTableModel = new JobTableModel());
+		jobTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+		jobTable.getColumnModel().getColumn(0).setPreferredWidth(300);
+		jobTable.getColumnModel().getColumn(4).setPreferredWidth(200);
+		jobTable.getSelectionModel().addListSelectionListener(this);
+		southPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
+		southPanel.add(cancelJobBtn = new JButton(stringFactory.getString(
+				LabelStringFactory.JOBS_FRAME_CANCEL_JOB_BTN)));
+		southPanel.add(clearFinishedBtn = new JButton(stringFactory.getString(
+				LabelStringFactory.JOBS_FRAME_CLEAR_FINISHED_BTN)));
+		southPanel.add(closeBtn = new JButton(stringFactory.getString(
+				LabelStringFactory.CLOSE_BUTTON)));
+		cancelJobBtn.addActionListener(this);
+		cancelJobBtn.setEnabled(false);
+		clearFinishedBtn.addActionListener(this);
+		closeBtn.addActionListener(this);
+		getContentPane().setLayout(new BorderLayout());
+		getContentPane().add(new JScrollPane(jobTable), BorderLayout.CENTER);
+		getContentPane().add(southPanel, BorderLayout.SOUTH);
+		setTitle(stringFactory.getString(LabelStringFactory.JOBS_FRAME_TITLE));
+		width = Integer.parseInt(userPrefs.getProperty(PROPERTY_NAME_PREFIX +
+				AppConstants.FRAME_WIDTH_PROP, DEFAULT_FRAME_WIDTH));
+		height = Integer.parseInt(userPrefs.getProperty(PROPERTY_NAME_PREFIX +
+				AppConstants.FRAME_HEIGHT_PROP, DEFAULT_FRAME_HEIGHT));
+		setSize(width, height);
+		refresh();
+		queue.addListener(this);
+		refreshTimer = new Timer(REFRESH_INTERVAL, this);
+		refreshTimer.start();
+		GUIUtils.center(this, aParent);
+		setVisible(true);
+	}
+
+	/**
+	 * Stops listening to the queue and closes the frame.
+	 */
+	private void close() {
+		queue.removeListener(this);
+		refreshTimer.stop();
+		dispose(userPrefs, PROPERTY_NAME_PREFIX);
+	}
+
+	/**
+	 * Refreshes the list of jobs; called on the event dispatch thread.
+	 */
+	private void refresh() {
+
+		Job selected;
+		int row;
+
+		selected = getSelectedJob();
+		jobTableModel.setJobs(queue.getJobs());
+		row = jobTableModel.indexOf(selected);
+		if (row != -1) {
+			jobTable.setRowSelectionInterval(row, row);
+		}
+		enableCancelJobBtn();
+	}
+
+	/**
+	 * Returns the job selected in the table, if any
+	 * @return
+	 */
+	private Job getSelectedJob() {
+
+		int row;
+
+		row = jobTable.getSelectedRow();
+		return row == -1 ? null : jobTableModel.getJob(row);
+	}
+
+	/**
+	 * Enables the cancel button if the selected job has not finished.
+	 */
+	private void enableCancelJobBtn() {
+
+		Job selected;
+
+		selected = getSelectedJob();
+		cancelJobBtn.setEnabled(selected != null && !selected.isFinished());
+	}
+
+	/**
+	 * Refreshes the list of jobs on the event dispatch thread; changes
+	 * reported while a refresh is pending are folded into it.
+	 * @param aJob
+	 */
+	public void jobChanged(Job aJob) {
+		synchronized (this) {
+			if (refreshPending) {
+				return;
+			}
+			refreshPending = true;
+		}
+		SwingUtilities.invokeLater(this);
+	}
+
+	/**
+	 * Runs the pending refresh.
+	 */
+	public void run() {
+		synchronized (this) {
+			refreshPending = false;
+		}
+		refresh();
+	}
+
+	/**
+	 * Enables the cancel button for the selected job.
+	 * @param aEvt
+	 */
+	public void valueChanged(ListSelectionEvent aEvt) {
+		enableCancelJobBtn();
+	}
+
+	/**
+	 * Event handler method.
+	 * @param aEvt
+	 */
+	public void actionPerformed(ActionEvent aEvt) {
+
+		Job selected;
+
+		if (aEvt.getSource() == refreshTimer) {
+			if (jobTableModel.getRowCount() > 0) {
+				jobTableModel.fireTableRowsUpdated(0,
+						jobTableModel.getRowCount() - 1);
+			}
+		} else if (aEvt.getSource() == cancelJobBtn) {
+			if ((selected = getSelectedJob()) != null) {
+				selected.cancel();
+			}
+		} else if (aEvt.getSource() == clearFinishedBtn) {
+			queue.clearFinished();
+		} else if (aEvt.getSource() == closeBtn) {
+			close();
+		}
+	}
+
+	/**
+	 * Table model over a list of jobs.
+	 */
+	static class JobTableModel extends AbstractTableModel {
+
+		private static final long serialVersionUID = 1L;
+
+		static final String COLUMNS[] = {
+			stringFactory.getString(LabelStringFactory.JOBS_FRAME_JOB_COLUMN),
+			stringFactory.getString(
+					LabelStringFactory.JOBS_FRAME_STATE_COLUMN),
+			stringFactory.getString(
+					LabelStringFactory.JOBS_FRAME_PROGRESS_COLUMN),
+			stringFactory.getString(LabelStringFactory.JOBS_FRAME_TIME_COLUMN),
+			stringFactory.getString(
+					LabelStringFactory.JOBS_FRAME_RESULT_COLUMN)
+		};
+
+		// labels of the job states...
+		static final String STATES[] = {
+			stringFactory.getString(LabelStringFactory.JOBS_FRAME_QUEUED),
+			stringFactory.getString(LabelStringFactory.JOBS_FRAME_RUNNING),
+			stringFactory.getString(LabelStringFactory.JOBS_FRAME_DONE),
+			stringFactory.getString(LabelStringFactory.JOBS_FRAME_FAILED),
+			stringFactory.getString(LabelStringFactory.JOBS_FRAME_CANCELLED)
+		};
+
+		List<Job> jobs;
+
+		/**
+		 * Constructor
+		 */
+		JobTableModel() {
+			jobs = new ArrayList<Job>();
+		}
+
+		/**
+		 * Replaces the jobs listed with aJobs
+		 * @param aJobs
+		 */
+		void setJobs(List<Job> aJobs) {
+			jobs = aJobs;
+			fireTableDataChanged();
+		}
+
+		/**
+		 * Returns the job at aRow
+		 * @param aRow
+		 * @return
+		 */
+		Job getJob(int aRow) {
+			return jobs.get(aRow);
+		}
+
+		/**
+		 * Returns the row of aJob, or -1 if it is not listed
+		 * @param aJob
+		 * @return
+		 */
+		int indexOf(Job aJob) {
+			return aJob == null ? -1 : jobs.indexOf(aJob);
+		}
+
+		public int getRowCount() {
+			return jobs.size();
+		}
+
+		public int getColumnCount() {
+			return COLUMNS.length;
+		}
+
+		public String getColumnName(int aColumn) {
+			return COLUMNS[aColumn];
+		}
+
+		public Object getValueAt(int aRow, int aColumn) {
+
+			Job job;
+
+			job = jobs.get(aRow);
+			switch (aColumn) {
+			case 0:
+				return job.getDescription();
+			case 1:
+				return STATES[job.getState()];
+			case 2:
+				return job.getProgress() < 0 ? null :
+					Math.round(job.getProgress() * 100) + "%";
+			case 3:
+				return Long.valueOf(job.getElapsedTime());
+			default:
+				return job.getResult();
+			}
+		}
+	}
+}
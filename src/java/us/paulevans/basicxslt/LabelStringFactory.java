@@ -110,6 +110,36 @@ public class LabelStringFactory {
 		"frame.main.xsltransformationerror";
 	public static final String MAIN_FRAME_TRANSFORM_RESULTS = 
 		"frame.main.transformresults";
+	public static final String MAIN_FRAME_BENCHMARK = "frame.main.benchmark";
+	public static final String MAIN_FRAME_BENCHMARK_WARMUP = 
+		"frame.main.benchmarkwarmup";
+	public static final String MAIN_FRAME_BENCHMARK_ITERATIONS = 
+		"frame.main.benchmarkiterations";
+	public static final String MAIN_FRAME_BENCHMARK_INVALID_ITERATIONS = 
+		"frame.main.benchmarkinvaliditerations";
+	public static final String MAIN_FRAME_COLLECT_ALL_ERRORS = 
+		"frame.main.collectallerrors";
+	public static final String MAIN_FRAME_ERROR_LIMIT = 
+		"frame.main.errorlimit";
+	public static final String MAIN_FRAME_INVALID_ERROR_LIMIT = 
+		"frame.main.invaliderrorlimit";
+	public static final String MAIN_FRAME_TIMEOUT = "frame.main.timeout";
+	public static final String MAIN_FRAME_RUN_TIMEOUT = 
+		"frame.main.runtimeout";
+	public static final String MAIN_FRAME_STAGE_TIMEOUT = 
+		"frame.main.stagetimeout";
+	public static final String MAIN_FRAME_INVALID_TIMEOUT = 
+		"frame.main.invalidtimeout";
+	public static final String MAIN_FRAME_TRANSFORM_CANCELLED = 
+		"frame.main.transformcancelled";
+	public static final String MAIN_FRAME_TRANSFORM_TIMED_OUT = 
+		"frame.main.transformtimedout";
+	public static final String MAIN_FRAME_PROGRESS_STAGE = 
+		"frame.main.progressstage";
+	public static final String MAIN_FRAME_PROGRESS_PIPELINE = 
+		"frame.main.progresspipeline";
+	public static final String MAIN_FRAME_PROGRESS_TIME_LEFT = 
+		"frame.main.progresstimeleft";
 	
 	// main frame file menu and associated menu items message keys...
 	public static final String MF_FILE_MENU = "frame.main.menus.file";
@@ -133,11 +163,39 @@ public class LabelStringFactory {
 		"frame.main.menus.validation.menuitems.saxerrors";
 	public static final String MF_VALIDATION_CHECK_SAX_FATAL_MI = 
 		"frame.main.menus.validation.menuitems.saxfatal";
+	public static final String MF_VALIDATION_WHILE_TRANSFORMING_MI = 
+		"frame.main.menus.validation.menuitems.whiletransforming";
+	public static final String MF_VALIDATION_COLLECT_ALL_ERRORS_MI = 
+		"frame.main.menus.validation.menuitems.collectallerrors";
+	
+	// main frame transform menu and associated menu items message keys...
+	public static final String MF_TRANSFORM_MENU = 
+		"frame.main.menus.transform";
+	public static final String MF_TRANSFORM_PIPELINE_STAGES_MI = 
+		"frame.main.menus.transform.menuitems.pipelinestages";
+	public static final String MF_TRANSFORM_CACHE_RESULTS_MI = 
+		"frame.main.menus.transform.menuitems.cacheresults";
+	public static final String MF_TRANSFORM_WATCH_FILES_MI = 
+		"frame.main.menus.transform.menuitems.watchfiles";
+	public static final String MF_TRANSFORM_ENGINE_XALAN_MI = 
+		"frame.main.menus.transform.menuitems.enginexalan";
+	public static final String MF_TRANSFORM_ENGINE_XSLTC_MI = 
+		"frame.main.menus.transform.menuitems.enginexsltc";
+	public static final String MF_TRANSFORM_BENCHMARK_MI = 
+		"frame.main.menus.transform.menuitems.benchmark";
+	public static final String MF_TRANSFORM_DISCARD_GC_ITERATIONS_MI = 
+		"frame.main.menus.transform.menuitems.discardgciterations";
+	public static final String MF_TRANSFORM_PROFILE_MI = 
+		"frame.main.menus.transform.menuitems.profile";
+	public static final String MF_TRANSFORM_TIMEOUT_MI = 
+		"frame.main.menus.transform.menuitems.timeout";
 	
 	//  main frame view menu and associated menu items message keys...
 	public static final String MF_VIEW_MENU = "frame.main.menus.view";
 	public static final String MF_VIEW_LAST_TIMINGS_MI = 
 		"frame.main.menus.view.menuitems.lasttimings";
+	public static final String MF_VIEW_JOBS_MI = 
+		"frame.main.menus.view.menuitems.jobs";
 	
 	// main frame help menu and associated menu items message keys...
 	public static final String MF_HELP_MENU = "frame.main.menus.help";
@@ -145,6 +203,26 @@ public class LabelStringFactory {
 		"frame.main.menus.help.menuitems.about";
 	
 	// tool tip message keys...
+	public static final String TOOL_TIP_PIPELINE_STAGES = 
+		"tooltips.pipelinestages";
+	public static final String TOOL_TIP_CACHE_RESULTS = 
+		"tooltips.cacheresults";
+	public static final String TOOL_TIP_WATCH_FILES = 
+		"tooltips.watchfiles";
+	public static final String TOOL_TIP_VALIDATE_WHILE_TRANSFORMING = 
+		"tooltips.validatewhiletransforming";
+	public static final String TOOL_TIP_COLLECT_ALL_ERRORS = 
+		"tooltips.collectallerrors";
+	public static final String TOOL_TIP_ENGINE_XALAN = 
+		"tooltips.enginexalan";
+	public static final String TOOL_TIP_ENGINE_XSLTC = 
+		"tooltips.enginexsltc";
+	public static final String TOOL_TIP_BENCHMARK = "tooltips.benchmark";
+	public static final String TOOL_TIP_PROFILE = "tooltips.profile";
+	public static final String TOOL_TIP_DISCARD_GC_ITERATIONS = 
+		"tooltips.discardgciterations";
+	public static final String TOOL_TIP_TIMEOUT = "tooltips.timeout";
+	public static final String TOOL_TIP_CANCEL_BTN = "tooltips.cancelbutton";
 	public static final String TOOL_TIP_TRANSFORM_TIMINGS = 
 		"tooltips.transformtimings";
 	public static final String TOOL_TIP_XML_ACTION = "tooltips.xmlaction";
@@ -195,6 +273,7 @@ public class LabelStringFactory {
 		"xmlactions.parameters";
 	public static final String XML_ACTION_CLEAR_PARAMETERS = 
 		"xmlactions.clearparameters";
+	public static final String XML_ACTION_TIMEOUT = "xmlactions.timeout";
 	
 	// tool description message keys...
 	public static final String TOOL_DESCRIPTION = "tool.description";
@@ -263,7 +342,103 @@ public class LabelStringFactory {
 		"frame.timings.transformationxsl";
 	public static final String TIMINGS_FRAME_TIME_TO_TRANSFORM = 
 		"frame.timings.timetotransform";
+	public static final String TIMINGS_FRAME_COMPILE = 
+		"frame.timings.compile";
+	public static final String TIMINGS_FRAME_PARSE = "frame.timings.parse";
+	public static final String TIMINGS_FRAME_TRANSFORM = 
+		"frame.timings.transform";
+	public static final String TIMINGS_FRAME_SERIALIZE = 
+		"frame.timings.serialize";
 	public static final String TIMINGS_FRAME_TOTAL_LBL = "frame.timings.total";
+	public static final String TIMINGS_FRAME_TEMPLATES_CACHE_LBL = 
+		"frame.timings.templatescache";
+	public static final String TIMINGS_FRAME_TEMPLATES_CACHE_STATS = 
+		"frame.timings.templatescachestats";
+	public static final String TIMINGS_FRAME_CACHED = "frame.timings.cached";
+	public static final String TIMINGS_FRAME_ABORTED = 
+		"frame.timings.aborted";
+	public static final String TIMINGS_FRAME_RESULT_CACHE_LBL = 
+		"frame.timings.resultcache";
+	public static final String TIMINGS_FRAME_TRANSLET_CACHE_LBL = 
+		"frame.timings.transletcache";
+	public static final String TIMINGS_FRAME_VALIDATION_CACHE_LBL = 
+		"frame.timings.validationcache";
+	public static final String TIMINGS_FRAME_RESOURCES_LBL = 
+		"frame.timings.resources";
+	public static final String TIMINGS_FRAME_RESOURCES_STATS = 
+		"frame.timings.resourcesstats";
+	public static final String TIMINGS_FRAME_TRANSFORMER_POOL_LBL = 
+		"frame.timings.transformerpool";
+	public static final String TIMINGS_FRAME_TRANSFORMER_POOL_STATS = 
+		"frame.timings.transformerpoolstats";
+	public static final String TIMINGS_FRAME_BENCHMARK_TIMINGS = 
+		"frame.timings.benchmarktimings";
+	public static final String TIMINGS_FRAME_MIN = "frame.timings.min";
+	public static final String TIMINGS_FRAME_MEDIAN = "frame.timings.median";
+	public static final String TIMINGS_FRAME_MEAN = "frame.timings.mean";
+	public static final String TIMINGS_FRAME_P90 = "frame.timings.p90";
+	public static final String TIMINGS_FRAME_P99 = "frame.timings.p99";
+	public static final String TIMINGS_FRAME_STDDEV = "frame.timings.stddev";
+	public static final String TIMINGS_FRAME_ITERATIONS_LBL = 
+		"frame.timings.iterations";
+	public static final String TIMINGS_FRAME_ITERATIONS_STATS = 
+		"frame.timings.iterationsstats";
+	public static final String TIMINGS_FRAME_PROFILE_BTN = 
+		"frame.timings.profilebutton";
+	
+	// profile frame message keys...
+	public static final String PROFILE_FRAME_TITLE = "frame.profile.title";
+	public static final String PROFILE_FRAME_SHOW = "frame.profile.show";
+	public static final String PROFILE_FRAME_TEMPLATES = 
+		"frame.profile.templates";
+	public static final String PROFILE_FRAME_SELECTS = "frame.profile.selects";
+	public static final String PROFILE_FRAME_LINES = "frame.profile.lines";
+	public static final String PROFILE_FRAME_STYLESHEET_COLUMN = 
+		"frame.profile.stylesheetcolumn";
+	public static final String PROFILE_FRAME_NAME_COLUMN = 
+		"frame.profile.namecolumn";
+	public static final String PROFILE_FRAME_LOCATION_COLUMN = 
+		"frame.profile.locationcolumn";
+	public static final String PROFILE_FRAME_COUNT_COLUMN = 
+		"frame.profile.countcolumn";
+	public static final String PROFILE_FRAME_INCLUSIVE_COLUMN = 
+		"frame.profile.inclusivecolumn";
+	public static final String PROFILE_FRAME_EXCLUSIVE_COLUMN = 
+		"frame.profile.exclusivecolumn";
+	public static final String PROFILE_FRAME_EXPORT_BTN = 
+		"frame.profile.exportbutton";
+	
+	// jobs frame message keys...
+	public static final String JOBS_FRAME_TITLE = "frame.jobs.title";
+	public static final String JOBS_FRAME_JOB_COLUMN = "frame.jobs.jobcolumn";
+	public static final String JOBS_FRAME_STATE_COLUMN = 
+		"frame.jobs.statecolumn";
+	public static final String JOBS_FRAME_PROGRESS_COLUMN = 
+		"frame.jobs.progresscolumn";
+	public static final String JOBS_FRAME_TIME_COLUMN = 
+		"frame.jobs.timecolumn";
+	public static final String JOBS_FRAME_RESULT_COLUMN = 
+		"frame.jobs.resultcolumn";
+	public static final String JOBS_FRAME_QUEUED = "frame.jobs.queued";
+	public static final String JOBS_FRAME_RUNNING = "frame.jobs.running";
+	public static final String JOBS_FRAME_DONE = "frame.jobs.done";
+	public static final String JOBS_FRAME_FAILED = "frame.jobs.failed";
+	public static final String JOBS_FRAME_CANCELLED = "frame.jobs.cancelled";
+	public static final String JOBS_FRAME_CANCEL_JOB_BTN = 
+		"frame.jobs.canceljobbutton";
+	public static final String JOBS_FRAME_CLEAR_FINISHED_BTN = 
+		"frame.jobs.clearfinishedbutton";
+	
+	// job description and result message keys...
+	public static final String JOB_TRANSFORM = "job.transform";
+	public static final String JOB_BENCHMARK = "job.benchmark";
+	public static final String JOB_PROFILE = "job.profile";
+	public static final String JOB_WATCH = "job.watch";
+	public static final String JOB_VALIDATE = "job.validate";
+	public static final String JOB_IDENTITY_TRANSFORM = "job.identitytransform";
+	public static final String JOB_VALID = "job.valid";
+	public static final String JOB_NOT_VALID = "job.notvalid";
+	public static final String JOB_WRITTEN = "job.written";
 	
 	// output properties frame message keys...
 	public static final String OUTPUTPROPS_FRAME_METHODS_XML = 
@@ -329,6 +504,16 @@ public class LabelStringFactory {
 	// output frame message keys...
 	public static final String OUTPUT_FRAME_SAVE_OUTPUT_BTN = 
 		"frame.output.saveoutputbutton";
+	public static final String OUTPUT_FRAME_GO_TO_LINE = 
+		"frame.output.gotoline";
+	public static final String OUTPUT_FRAME_FIND = "frame.output.find";
+	public static final String OUTPUT_FRAME_FIND_NEXT_BTN = 
+		"frame.output.findnextbutton";
+	public static final String OUTPUT_FRAME_INDEXING = 
+		"frame.output.indexing";
+	public static final String OUTPUT_FRAME_LINES = "frame.output.lines";
+	public static final String OUTPUT_FRAME_NOT_FOUND = 
+		"frame.output.notfound";
 	
 	// output frame menu and menu item message keys...
 	public static final String OF_FILE_MENU = "frame.output.menus.file";
@@ -354,12 +539,31 @@ public class LabelStringFactory {
 		"frame.validationerr.message";
 	public static final String VALIDATIONERR_FRAME_NOT_AVAILABLE = 
 		"frame.validationerr.notavailable";
+	public static final String VALIDATIONERR_FRAME_ERROR_COUNT = 
+		"frame.validationerr.errorcount";
+	public static final String VALIDATIONERR_FRAME_LIMIT_REACHED = 
+		"frame.validationerr.limitreached";
+	public static final String VALIDATIONERR_FRAME_LINE_COLUMN = 
+		"frame.validationerr.columns.line";
+	public static final String VALIDATIONERR_FRAME_COLUMN_COLUMN = 
+		"frame.validationerr.columns.column";
+	public static final String VALIDATIONERR_FRAME_MESSAGE_COLUMN = 
+		"frame.validationerr.columns.message";
 	
 	// error message keys...
 	public static final String ERRORS_MESSAGE = "errors.message";
 	public static final String ERRORS_TITLE = "errors.title";
 	public static final String ERRORS_NETWORK_CONNECT = "errors.networkconnect";
 	
+	// batch transformer message keys...
+	public static final String BATCH_USAGE = "batch.usage";
+	public static final String BATCH_UNKNOWN_CONFIGURATION = 
+		"batch.unknownconfiguration";
+	public static final String BATCH_NO_STYLESHEETS = "batch.nostylesheets";
+	public static final String BATCH_NO_INPUTS = "batch.noinputs";
+	public static final String BATCH_RESULT_NOT_XML = "batch.resultnotxml";
+	public static final String BATCH_OUTPUT_IS_INPUT = "batch.outputisinput";
+	
 	// local object...
 	private Locale locale;
 	
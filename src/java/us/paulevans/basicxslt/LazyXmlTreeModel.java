@@ -0,0 +1,218 @@
+/*
+	Copyright 2006 Paul Evans 
+
+	Licensed under the Apache License, Version 2.0 (the "License"); 
+	you may not use this file except in compliance with the License. 
+	You may obtain a copy of the License at 
+
+		http://www.apache.org/licenses/LICENSE-2.0 
+
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an "AS IS" BASIS, 
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+	See the License for the specific language governing permissions and 
+	limitations under the License.
+ */
+package us.paulevans.basicxslt;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.event.TreeModelListener;
+import javax.swing.tree.TreeModel;
+import javax.swing.tree.TreePath;
+
+/**
+ * Read-only tree model of an XML document in an XmlIndex.  Tree nodes are
+ * only created for the children of a node when it is first expanded, so the
+ * memory the tree takes grows with what has been opened rather than with
+ * the size of the document.  Like DOMTree, elements are shown as their start
+ * tags and text as its trimmed value; comments and processing instructions
+ * are left out.  The root is the document, which is not meant to be shown.
+ * @author pevans
+ *
+ */
+public class LazyXmlTreeModel implements TreeModel {
+
+	// instance members...
+	private XmlIndex index;
+	private Node root;
+	private int nodeCount;
+
+	/**
+	 * Constructor
+	 * @param aIndex
+	 */
+	public LazyXmlTreeModel(XmlIndex aIndex) {
+		index = aIndex;
+		root = new Node(-1, "");
+		root.children = new ArrayList<Node>();
+		root.children.add(newElementNode(index.getRoot()));
+	}
+
+	/**
+	 * Returns the number of tree nodes created so far
+	 * @return
+	 */
+	public int getNodeCount() {
+		return nodeCount;
+	}
+
+	/**
+	 * TreeModel method
+	 */
+	public Object getRoot() {
+		return root;
+	}
+
+	/**
+	 * TreeModel method
+	 */
+	public Object getChild(Object aParent, int aIndex) {
+		return getChildren((Node)aParent).get(aIndex);
+	}
+
+	/**
+	 * TreeModel method
+	 */
+	public int getChildCount(Object aParent) {
+		return getChildren((Node)aParent).size();
+	}
+
+	/**
+	 * TreeModel method; an element with child elements is known not to be
+	 * a leaf without reading its content.
+	 */
+	public boolean isLeaf(Object aNode) {
+
+		Node node;
+
+		node = (Node)aNode;
+		if (node.children == null && 
+				index.getFirstChild(node.element) != -1) {
+			return false;
+		}
+		return getChildren(node).isEmpty();
+	}
+
+	/**
+	 * TreeModel method
+	 */
+	public int getIndexOfChild(Object aParent, Object aChild) {
+		if (aParent == null || aChild == null) {
+			return -1;
+		}
+		return getChildren((Node)aParent).indexOf(aChild);
+	}
+
+	/**
+	 * TreeModel method; the tree is not editable.
+	 */
+	public void valueForPathChanged(TreePath aPath, Object aNewValue) {
+		// nothing to change...
+	}
+
+	/**
+	 * TreeModel method; the model never changes, so there is nothing to
+	 * tell listeners.
+	 */
+	public void addTreeModelListener(TreeModelListener aListener) {
+		// nothing to tell...
+	}
+
+	/**
+	 * TreeModel method
+	 */
+	public void removeTreeModelListener(TreeModelListener aListener) {
+		// nothing to tell...
+	}
+
+	/**
+	 * Returns the children of aNode, reading them from the document the
+	 * first time they are asked for.
+	 * @param aNode
+	 * @return
+	 */
+	private List<Node> getChildren(Node aNode) {
+
+		List<Node> children;
+		List<String> texts;
+		long offset;
+		int child, loop;
+
+		if (aNode.children != null) {
+			return aNode.children;
+		}
+		children = new ArrayList<Node>();
+		offset = index.getContentStart(aNode.element);
+		child = index.getFirstChild(aNode.element);
+		while (true) {
+			texts = index.getTexts(offset, child != -1 ? index.getStart(
+					child) : index.getContentEnd(aNode.element));
+			for (loop = 0; loop < texts.size(); loop++) {
+				children.add(newTextNode(texts.get(loop)));
+			}
+			if (child == -1) {
+				break;
+			}
+			children.add(newElementNode(child));
+			offset = index.getEnd(child);
+			child = index.getNextSibling(child);
+		}
+		aNode.children = children;
+		return children;
+	}
+
+	/**
+	 * Returns a new tree node for aElement
+	 * @param aElement
+	 * @return
+	 */
+	private Node newElementNode(int aElement) {
+		nodeCount++;
+		return new Node(aElement, index.getLabel(aElement));
+	}
+
+	/**
+	 * Returns a new tree node, with no children, for aText
+	 * @param aText
+	 * @return
+	 */
+	private Node newTextNode(String aText) {
+
+		Node node;
+
+		nodeCount++;
+		node = new Node(-1, aText);
+		node.children = new ArrayList<Node>();
+		return node;
+	}
+
+	/**
+	 * Tree node of an element or a piece of text.  The children are null
+	 * until they are read.
+	 */
+	static class Node {
+
+		int element;
+		String label;
+		List<Node> children;
+
+		/**
+		 * Constructor
+		 * @param aElement the element, or -1 for text
+		 * @param aLabel
+		 */
+		Node(int aElement, String aLabel) {
+			element = aElement;
+			label = aLabel;
+		}
+
+		/**
+		 * Returns the label shown in the tree
+		 */
+		public String toString() {
+			return label;
+		}
+	}
+}
@@ -0,0 +1,435 @@
+/*
+	Copyright 2006 Paul Evans 
+
+	Licensed under the Apache License, Version 2.0 (the "License"); 
+	you may not use this file except in compliance with the License. 
+	You may obtain a copy of the License at 
+
+		http://www.apache.org/licenses/LICENSE-2.0 
+
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an "AS IS" BASIS, 
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+	See the License for the specific language governing permissions and 
+	limitations under the License.
+ */
+package us.paulevans.basicxslt;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * A text file that is memory-mapped rather than read into memory, so a file
+ * of any size can be viewed a few rows at a time.  index() finds where each
+ * row starts; it is meant to be run on a background thread and the rows
+ * found so far may be read while it runs.  A row is a line of the file or,
+ * if the line is longer than MAX_ROW_BYTES, a part of one; a file with no
+ * line breaks at all is still shown in rows of a reasonable width.
+ * @author pevans
+ *
+ */
+public class MappedTextFile {
+
+	// number of bytes after which a line is split into another row, at the
+	// start of the next character...
+	public static final int MAX_ROW_BYTES = 256;
+
+	// number of bytes in each mapped segment of the file...
+	private static final int SEGMENT_SHIFT = 30;
+	private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+
+	// number of rows found before they are published to readers...
+	private static final int PUBLISH_ROWS = 4096;
+
+	// line feed and carriage return...
+	private static final byte LF = '\n';
+	private static final byte CR = '\r';
+
+	// instance members...
+	private File file;
+	private Charset charset;
+	private FileChannel channel;
+	private MappedByteBuffer segments[];
+	private long length;
+	private long rowOffsets[];
+	private int rowLines[];
+	private int rowCount;
+	private int lineCount;
+	private int maxRowBytes;
+	private volatile boolean indexed;
+	private volatile boolean closed;
+
+	/**
+	 * Constructor; maps aFile, whose text is encoded in aCharset.
+	 * @param aFile
+	 * @param aCharset
+	 * @throws IOException
+	 */
+	public MappedTextFile(File aFile, Charset aCharset) throws IOException {
+
+		int loop;
+		long position;
+
+		file = aFile;
+		charset = aCharset;
+		channel = new FileInputStream(aFile).getChannel();
+		length = channel.size();
+		segments = new MappedByteBuffer[(int)((length + SEGMENT_SIZE - 1) >>
+				SEGMENT_SHIFT)];
+		for (loop = 0; loop < segments.length; loop++) {
+			position = (long)loop << SEGMENT_SHIFT;
+			segments[loop] = channel.map(FileChannel.MapMode.READ_ONLY,
+					position, Math.min(SEGMENT_SIZE, length - position));
+		}
+		rowOffsets = new long[] { 0 };
+		rowLines = new int[] { 0 };
+	}
+
+	/**
+	 * Finds where each row starts.  Rows are published to readers as they
+	 * are found; the index is complete once isIndexed() returns true.
+	 * Returns early if the file is closed.
+	 */
+	public void index() {
+
+		long offsets[], offset, rowStart;
+		int lines[], count, line, rowBytes;
+		byte b;
+
+		offsets = new long[1024];
+		lines = new int[1024];
+		count = 0;
+		line = 0;
+		rowStart = 0;
+		for (offset = 0; offset < length && !closed; offset++) {
+			b = getByte(offset);
+			rowBytes = (int)(offset - rowStart);
+			if (b == LF || (rowBytes >= MAX_ROW_BYTES &&
+					(b & 0xC0) != 0x80)) {
+				// a row ends after a line feed, or before a character once
+				// it is too long...
+				if (count == offsets.length) {
+					offsets = grow(offsets);
+					lines = grow(lines);
+				}
+				if (b == LF) {
+					line++;
+					rowStart = offset + 1;
+				} else {
+					rowStart = offset;
+				}
+				offsets[count] = rowStart;
+				lines[count] = line;
+				count++;
+				if (count == PUBLISH_ROWS) {
+					publish(offsets, lines, count, line, false);
+					count = 0;
+				}
+			}
+		}
+		publish(offsets, lines, count, line, true);
+	}
+
+	/**
+	 * Appends the first aCount of aOffsets and aLines to the rows that
+	 * readers can see.
+	 * @param aOffsets
+	 * @param aLines
+	 * @param aCount
+	 * @param aLine the line the last row belongs to
+	 * @param aLast true if these are the last rows of the file
+	 */
+	private synchronized void publish(long aOffsets[], int aLines[],
+			int aCount, int aLine, boolean aLast) {
+
+		long offsets[];
+		int lines[];
+		int loop;
+
+		if (rowCount + 1 + aCount > rowOffsets.length) {
+			offsets = new long[Math.max(rowOffsets.length * 2,
+					rowCount + 1 + aCount)];
+			lines = new int[offsets.length];
+			System.arraycopy(rowOffsets, 0, offsets, 0, rowCount + 1);
+			System.arraycopy(rowLines, 0, lines, 0, rowCount + 1);
+			rowOffsets = offsets;
+			rowLines = lines;
+		}
+		for (loop = 0; loop < aCount; loop++) {
+			rowCount++;
+			rowOffsets[rowCount] = aOffsets[loop];
+			rowLines[rowCount] = aLines[loop];
+			maxRowBytes = Math.max(maxRowBytes, (int)(rowOffsets[rowCount] -
+					rowOffsets[rowCount - 1]));
+		}
+		lineCount = aLine;
+		if (aLast) {
+			// the final row runs to the end of the file...
+			if (rowOffsets[rowCount] < length) {
+				maxRowBytes = Math.max(maxRowBytes, (int)(length -
+						rowOffsets[rowCount]));
+				rowCount++;
+				lineCount++;
+				if (rowCount == rowOffsets.length) {
+					rowOffsets = grow(rowOffsets);
+					rowLines = grow(rowLines);
+				}
+				rowOffsets[rowCount] = length;
+				rowLines[rowCount] = aLine + 1;
+			}
+			indexed = true;
+		}
+	}
+
+	/**
+	 * Returns the byte at aOffset
+	 * @param aOffset
+	 * @return
+	 */
+	public byte getByte(long aOffset) {
+		return segments[(int)(aOffset >> SEGMENT_SHIFT)].get(
+				(int)(aOffset & (SEGMENT_SIZE - 1)));
+	}
+
+	/**
+	 * Returns the aLength bytes at aOffset
+	 * @param aOffset
+	 * @param aLength
+	 * @return
+	 */
+	public byte[] getBytes(long aOffset, int aLength) {
+
+		byte bytes[];
+		int loop;
+
+		bytes = new byte[aLength];
+		for (loop = 0; loop < aLength; loop++) {
+			bytes[loop] = getByte(aOffset + loop);
+		}
+		return bytes;
+	}
+
+	/**
+	 * Returns the text of the row at aRow, without its line break
+	 * @param aRow
+	 * @return
+	 */
+	public String getRow(int aRow) {
+
+		long start, end;
+
+		synchronized (this) {
+			start = rowOffsets[aRow];
+			end = rowOffsets[aRow + 1];
+		}
+		if (end > start && getByte(end - 1) == LF) {
+			end--;
+			if (end > start && getByte(end - 1) == CR) {
+				end--;
+			}
+		}
+		return new String(getBytes(start, (int)(end - start)), charset);
+	}
+
+	/**
+	 * Returns the offset of the first byte of the row at aRow
+	 * @param aRow
+	 * @return
+	 */
+	public synchronized long getRowOffset(int aRow) {
+		return rowOffsets[aRow];
+	}
+
+	/**
+	 * Returns the line, counting from 1, that the row at aRow is part of
+	 * @param aRow
+	 * @return
+	 */
+	public synchronized int getLine(int aRow) {
+		return rowLines[aRow] + 1;
+	}
+
+	/**
+	 * Returns the first row of the line aLine, counting from 1, or of the
+	 * last line indexed so far if aLine is past it.
+	 * @param aLine
+	 * @return
+	 */
+	public synchronized int getFirstRow(int aLine) {
+
+		int low, high, middle;
+
+		low = 0;
+		high = rowCount - 1;
+		while (low < high) {
+			middle = (low + high) >>> 1;
+			if (rowLines[middle] < aLine - 1) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Returns the row that the byte at aOffset is in
+	 * @param aOffset
+	 * @return
+	 */
+	public synchronized int getRowAt(long aOffset) {
+
+		int low, high, middle;
+
+		low = 0;
+		high = Math.max(0, rowCount - 1);
+		while (low < high) {
+			middle = (low + high + 1) >>> 1;
+			if (rowOffsets[middle] <= aOffset) {
+				low = middle;
+			} else {
+				high = middle - 1;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Returns the offset of the first occurrence of aText at or after
+	 * aFrom, or -1 if there is none.  The search gives up, returning -1, if
+	 * the file is closed.
+	 * @param aText
+	 * @param aFrom
+	 * @return
+	 */
+	public long find(String aText, long aFrom) {
+
+		byte pattern[];
+		long offset, last;
+		int loop;
+
+		pattern = aText.getBytes(charset);
+		if (pattern.length == 0) {
+			return -1;
+		}
+		last = length - pattern.length;
+		for (offset = Math.max(0, aFrom); offset <= last && !closed;
+				offset++) {
+			if (getByte(offset) == pattern[0]) {
+				for (loop = 1; loop < pattern.length &&
+						getByte(offset + loop) == pattern[loop]; loop++) {
+					// keep matching...
+				}
+				if (loop == pattern.length) {
+					return offset;
+				}
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the number of characters, in the row at aRow, before the byte
+	 * at aOffset
+	 * @param aRow
+	 * @param aOffset
+	 * @return
+	 */
+	public int getColumn(int aRow, long aOffset) {
+
+		long start;
+
+		start = getRowOffset(aRow);
+		return new String(getBytes(start, (int)Math.max(0, aOffset - start)),
+				charset).length();
+	}
+
+	/**
+	 * Returns the number of rows indexed so far
+	 * @return
+	 */
+	public synchronized int getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * Returns the number of lines indexed so far
+	 * @return
+	 */
+	public synchronized int getLineCount() {
+		return lineCount;
+	}
+
+	/**
+	 * Returns the number of bytes in the longest row indexed so far
+	 * @return
+	 */
+	public synchronized int getMaxRowBytes() {
+		return maxRowBytes;
+	}
+
+	/**
+	 * Returns true once every row has been indexed
+	 * @return
+	 */
+	public boolean isIndexed() {
+		return indexed;
+	}
+
+	/**
+	 * Getter
+	 * @return
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Getter
+	 * @return
+	 */
+	public long getLength() {
+		return length;
+	}
+
+	/**
+	 * Closes the file; indexing and searching stop.  The mapped segments are
+	 * released once they are garbage collected.
+	 */
+	public void close() {
+		closed = true;
+		Utils.closeQuietly(channel);
+	}
+
+	/**
+	 * Returns a copy of aArray twice as long
+	 * @param aArray
+	 * @return
+	 */
+	private static long[] grow(long aArray[]) {
+
+		long array[];
+
+		array = new long[aArray.length * 2];
+		System.arraycopy(aArray, 0, array, 0, aArray.length);
+		return array;
+	}
+
+	/**
+	 * Returns a copy of aArray twice as long
+	 * @param aArray
+	 * @return
+	 */
+	private static int[] grow(int aArray[]) {
+
+		int array[];
+
+		array = new int[aArray.length * 2];
+		System.arraycopy(aArray, 0, array, 0, aArray.length);
+		return array;
+	}
+}
@@ -23,16 +23,25 @@ import java.awt.event.ActionListener;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.text.MessageFormat;
 
 import javax.swing.JButton;
 import javax.swing.JFileChooser;
+import javax.swing.JLabel;
 import javax.swing.JMenu;
 import javax.swing.JMenuBar;
 import javax.swing.JMenuItem;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
-import javax.swing.JTextArea;
+import javax.swing.JTextField;
 import javax.swing.JTree;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 
 import net.blueslate.commons.gui.GUIUtils;
 import net.blueslate.commons.gui.domtree.DOMTree;
@@ -40,18 +49,23 @@ import net.blueslate.commons.io.IOUtils;
 import net.blueslate.commons.xml.TransformOutputProperties;
 import net.blueslate.commons.xml.XMLUtils;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.exception.ExceptionUtils;
 import org.apache.log4j.Logger;
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
 
 /**
- * Defines the output/results frame.
+ * Defines the output/results frame.  Output is written to a temporary file.
+ * Text is shown through a PagedTextView, so that output of any size opens
+ * at once; the file's lines are indexed in the background.  XML is shown as
+ * a tree whose nodes are only read as they are expanded.
  * 
  * @author pevans
  * 
  */
-public class OutputFrame extends DisposableFrame implements ActionListener {
+public class OutputFrame extends DisposableFrame implements ActionListener,
+		DocumentListener {
 
 	// get the i18n factory singleton instance...
 	private static final LabelStringFactory stringFactory = LabelStringFactory
@@ -68,15 +82,24 @@ public class OutputFrame extends DisposableFrame implements ActionListener {
     // logger object...
     private static final Logger logger = Logger.getLogger(OutputFrame.class);
 
+	// milliseconds between refreshes of the view while the text is being
+	// indexed...
+	private static final int INDEX_REFRESH_DELAY = 250;
+
 	// instance members...
-	private JButton closeBtn, saveOutputBtn;
-	private JTextArea textArea;
+	private JButton closeBtn, saveOutputBtn, findNextBtn;
+	private JTextField goToLineField, findField;
+	private JLabel statusLabel;
 	private JMenuItem close, transformTimings;
 	private Node node;
 	private UserPreferences userPrefs;
 	private XSLRow xslRows[];
 	private TransformOutputProperties lastTransformOutputProps;
-	private byte transformResult[];
+	private MappedTextFile textFile;
+	private PagedTextView textView;
+	private Timer indexTimer;
+	private long matchOffset;
+	private volatile int searches;
 
 	/**
 	 * Constructor
@@ -85,10 +108,42 @@ public class OutputFrame extends DisposableFrame implements ActionListener {
 	 * @param saTitle
 	 * @param aText
 	 * @param aXSLRows
+	 * @throws IOException if the text cannot be written to a temporary file
 	 */
 	public OutputFrame(BasicXSLTFrame aParent, String saTitle, byte aText[],
-			XSLRow aXSLRows[]) {
-		this(aParent, saTitle, null, null, aText, aXSLRows, false);
+			XSLRow aXSLRows[]) throws IOException {
+		this(aParent, saTitle, newTextFile(aText), aXSLRows);
+	}
+
+	/**
+	 * Constructor
+	 * 
+	 * @param aParent
+	 * @param saTitle
+	 * @param aText the text, from newTextFile()
+	 * @param aXSLRows
+	 */
+	public OutputFrame(BasicXSLTFrame aParent, String saTitle, 
+			MappedTextFile aText, XSLRow aXSLRows[]) {
+		this(aParent, saTitle, null, null, aText, null, aXSLRows, false);
+	}
+
+	/**
+	 * Constructor; shows the result xml as a tree whose nodes are read from
+	 * aResultXml as they are expanded.
+	 * 
+	 * @param aParent
+	 * @param saTitle
+	 * @param aResultXml the result xml, from newTextFile()
+	 * @param aIndex the index of aResultXml
+	 * @param aXSLRows
+	 * @param aIncludeSaveOutputBtn
+	 */
+	public OutputFrame(BasicXSLTFrame aParent, String saTitle,
+			MappedTextFile aResultXml, XmlIndex aIndex, XSLRow aXSLRows[], 
+			boolean aIncludeSaveOutputBtn) {
+		this(aParent, saTitle, null, null, aResultXml, aIndex, aXSLRows,
+				aIncludeSaveOutputBtn);
 	}
 
 	/**
@@ -106,7 +161,7 @@ public class OutputFrame extends DisposableFrame implements ActionListener {
 			TransformOutputProperties aLastTransformOutputProps,
 			XSLRow aXSLRows[], boolean aIncludeSaveOutputBtn) {
 		this(aParent, saTitle, aResultXml, aLastTransformOutputProps, null,
-				aXSLRows, aIncludeSaveOutputBtn);
+				null, aXSLRows, aIncludeSaveOutputBtn);
 	}
 
 	/**
@@ -116,21 +171,23 @@ public class OutputFrame extends DisposableFrame implements ActionListener {
 	 * @param saTitle
 	 * @param aResultXml
 	 * @param aLastTransformOutputProps
-	 * @param aText
+	 * @param aTextFile
+	 * @param aIndex the index of aTextFile if it is to be shown as a tree
 	 * @param aXSLRows
 	 * @param aIncludeSaveOutputBtn
 	 */
 	private OutputFrame(BasicXSLTFrame aParent, String saTitle,
 			Document aResultXml,
-			TransformOutputProperties aLastTransformOutputProps, byte aText[],
-			XSLRow aXSLRows[], boolean aIncludeSaveOutputBtn) {
+			TransformOutputProperties aLastTransformOutputProps, 
+			MappedTextFile aTextFile, XmlIndex aIndex, XSLRow aXSLRows[], 
+			boolean aIncludeSaveOutputBtn) {
 
 		JScrollPane scrollPane;
 		JTree tree;
 		JPanel southPanel;
 
 		xslRows = aXSLRows;
-		transformResult = aText;
+		textFile = aTextFile;
 		node = aResultXml;
 		lastTransformOutputProps = aLastTransformOutputProps;
 		buildMenuBar();
@@ -148,17 +205,26 @@ public class OutputFrame extends DisposableFrame implements ActionListener {
 			scrollPane = new JScrollPane(tree,
 					JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED,
 					JScrollPane.HORIZONTAL_SCROLLBAR_AS_NEEDED);
+		} else if (aIndex != null) {
+			tree = new JTree(new LazyXmlTreeModel(aIndex));
+			tree.setRootVisible(false);
+			tree.setShowsRootHandles(true);
+			tree.expandRow(0);
+			scrollPane = new JScrollPane(tree,
+					JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED,
+					JScrollPane.HORIZONTAL_SCROLLBAR_AS_NEEDED);
 		} else {
-			textArea = new JTextArea(new String(aText));
-			textArea.setEditable(false);
-			textArea.setLineWrap(true);
-			textArea.setWrapStyleWord(true);
-			scrollPane = new JScrollPane(textArea,
+			textView = new PagedTextView(textFile);
+			scrollPane = new JScrollPane(textView,
 					JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED,
 					JScrollPane.HORIZONTAL_SCROLLBAR_AS_NEEDED);
 		}
 		closeBtn.addActionListener(this);
 		getContentPane().setLayout(new BorderLayout());
+		if (textView != null) {
+			getContentPane().add(buildTextToolBar(), BorderLayout.NORTH);
+			startIndexing();
+		}
 		getContentPane().add(scrollPane, BorderLayout.CENTER);
 		getContentPane().add(southPanel, BorderLayout.SOUTH);
 		setTitle(saTitle);
@@ -177,9 +243,228 @@ public class OutputFrame extends DisposableFrame implements ActionListener {
 			public void windowClosing(WindowEvent evt) {
 				dispose(userPrefs, PROPERTY_NAME_PREFIX);
 			}
+			public void windowClosed(WindowEvent evt) {
+				closeTextFile();
+			}
+		});
+	}
+
+	/**
+	 * Writes aText to a temporary file and maps it.  The file is read in
+	 * the platform's default encoding, as the text was before.  The file is
+	 * deleted when the frame showing it closes.
+	 * @param aText
+	 * @return
+	 * @throws IOException
+	 */
+	public static MappedTextFile newTextFile(byte aText[]) 
+	throws IOException {
+
+		File file;
+		OutputStream out;
+
+		file = Utils.newTempFile();
+		file.deleteOnExit();
+		out = null;
+		try {
+			out = Utils.newOutputStream(file);
+			out.write(aText);
+			out.close();
+			out = null;
+			return new MappedTextFile(file, Charset.defaultCharset());
+		} catch (IOException aException) {
+			Utils.closeQuietly(out);
+			file.delete();
+			throw aException;
+		}
+	}
+
+	/**
+	 * Builds the tool bar above the text: go to line, find and the
+	 * indexing status.
+	 * @return
+	 */
+	private JPanel buildTextToolBar() {
+
+		JPanel toolBar;
+
+		toolBar = new JPanel(new FlowLayout(FlowLayout.LEFT));
+		toolBar.add(new JLabel(stringFactory.getString(
+				LabelStringFactory.OUTPUT_FRAME_GO_TO_LINE)));
+		toolBar.add(goToLineField = new JTextField(8));
+		goToLineField.addActionListener(this);
+		toolBar.add(new JLabel(stringFactory.getString(
+				LabelStringFactory.OUTPUT_FRAME_FIND)));
+		toolBar.add(findField = new JTextField(20));
+		findField.addActionListener(this);
+		findField.getDocument().addDocumentListener(this);
+		toolBar.add(findNextBtn = new JButton(stringFactory.getString(
+				LabelStringFactory.OUTPUT_FRAME_FIND_NEXT_BTN)));
+		findNextBtn.addActionListener(this);
+		toolBar.add(statusLabel = new JLabel());
+		matchOffset = -1;
+		return toolBar;
+	}
+
+	/**
+	 * Indexes the text on a background thread, refreshing the view as rows
+	 * are found.
+	 */
+	private void startIndexing() {
+
+		Thread indexer;
+
+		indexer = new Thread(new Runnable() {
+			public void run() {
+				textFile.index();
+			}
+		}, "output-indexer");
+		indexer.setDaemon(true);
+		indexer.start();
+		indexTimer = new Timer(INDEX_REFRESH_DELAY, new ActionListener() {
+			public void actionPerformed(ActionEvent aEvt) {
+				refreshIndex();
+			}
+		});
+		indexTimer.start();
+	}
+
+	/**
+	 * Shows the rows indexed so far, and stops refreshing once they all are.
+	 */
+	private void refreshIndex() {
+
+		boolean indexed;
+
+		indexed = textFile.isIndexed();
+		textView.refresh();
+		statusLabel.setText(MessageFormat.format(stringFactory.getString(
+				indexed ? LabelStringFactory.OUTPUT_FRAME_LINES :
+				LabelStringFactory.OUTPUT_FRAME_INDEXING), 
+				Integer.valueOf(textFile.getLineCount())));
+		if (indexed) {
+			indexTimer.stop();
+		}
+	}
+
+	/**
+	 * Stops indexing and searching, and deletes the temporary file.
+	 */
+	private void closeTextFile() {
+		if (textFile != null) {
+			if (indexTimer != null) {
+				indexTimer.stop();
+			}
+			searches++;
+			textFile.close();
+			textFile.getFile().delete();
+		}
+	}
+
+	/**
+	 * Scrolls to the line typed in the go to line field.
+	 */
+	private void goToLine() {
+		try {
+			textView.showRow(textFile.getFirstRow(Math.max(1, 
+					Integer.parseInt(goToLineField.getText().trim()))));
+		} catch (NumberFormatException aException) {
+			getToolkit().beep();
+		}
+	}
+
+	/**
+	 * Searches for the text of the find field on a background thread, 
+	 * starting at aFrom and wrapping around to the start of the text.  Only
+	 * the latest search is shown.
+	 * @param aFrom
+	 */
+	private void find(final long aFrom) {
+
+		final String text;
+		final int search;
+		Thread searcher;
+
+		text = findField.getText();
+		search = ++searches;
+		if (text.length() == 0) {
+			showMatch(text, -1);
+			return;
+		}
+		searcher = new Thread(new Runnable() {
+			public void run() {
+
+				long offset;
+
+				offset = textFile.find(text, aFrom);
+				if (offset == -1 && aFrom > 0 && search == searches) {
+					offset = textFile.find(text, 0);
+				}
+				showMatchLater(search, text, offset);
+			}
+		}, "output-search");
+		searcher.setDaemon(true);
+		searcher.start();
+	}
+
+	/**
+	 * Shows the result of search aSearch on the event dispatch thread, 
+	 * unless a later search has started since.
+	 * @param aSearch
+	 * @param aText
+	 * @param aOffset
+	 */
+	private void showMatchLater(final int aSearch, final String aText,
+			final long aOffset) {
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				if (aSearch == searches) {
+					showMatch(aText, aOffset);
+				}
+			}
 		});
 	}
 
+	/**
+	 * Highlights the match of aText at aOffset, or shows that there is
+	 * none if aOffset is -1.
+	 * @param aText
+	 * @param aOffset
+	 */
+	private void showMatch(String aText, long aOffset) {
+		matchOffset = aOffset;
+		textView.setMatch(aOffset, aText.length());
+		if (aOffset == -1 && aText.length() > 0) {
+			statusLabel.setText(MessageFormat.format(stringFactory.getString(
+					LabelStringFactory.OUTPUT_FRAME_NOT_FOUND), aText));
+		} else {
+			refreshIndex();
+		}
+	}
+
+	/**
+	 * DocumentListener method; searches again as the find text is typed,
+	 * starting at the current match.
+	 */
+	public void insertUpdate(DocumentEvent aEvt) {
+		find(matchOffset != -1 ? matchOffset : 
+			textView.getFirstVisibleOffset());
+	}
+
+	/**
+	 * DocumentListener method
+	 */
+	public void removeUpdate(DocumentEvent aEvt) {
+		insertUpdate(aEvt);
+	}
+
+	/**
+	 * DocumentListener method
+	 */
+	public void changedUpdate(DocumentEvent aEvt) {
+		// attribute changes do not affect the search...
+	}
+
 	/**
 	 * Set the size of the window
 	 * 
@@ -246,6 +531,12 @@ public class OutputFrame extends DisposableFrame implements ActionListener {
 			dispose(userPrefs, PROPERTY_NAME_PREFIX);
 		} else if (aEvt.getSource() == transformTimings) {
 			new TimingsFrame(this, xslRows);
+		} else if (aEvt.getSource() == goToLineField) {
+			goToLine();
+		} else if (aEvt.getSource() == findField || 
+				aEvt.getSource() == findNextBtn) {
+			find(matchOffset != -1 ? matchOffset + 1 : 
+				textView.getFirstVisibleOffset());
 		} else if (aEvt.getSource() == saveOutputBtn) {
 			try {
 				returnVal = Utils.getInstance().getFileChooser().showSaveDialog(
@@ -255,8 +546,8 @@ public class OutputFrame extends DisposableFrame implements ActionListener {
 						Utils.getInstance().getFileChooser().getSelectedFile();
 					BasicXSLTFrame.setLastFileChosen(
 							fileToSave.getAbsolutePath());
-					if (textArea != null) {
-						IOUtils.writeFile(fileToSave, transformResult);
+					if (textFile != null) {
+						FileUtils.copyFile(textFile.getFile(), fileToSave);
 					} else {
 						IOUtils.writeFile(fileToSave, XMLUtils.serialize(node,
 								lastTransformOutputProps));
@@ -268,5 +559,6 @@ public class OutputFrame extends DisposableFrame implements ActionListener {
 				Utils.showErrorDialog(this, aAny);
 			}
 		}
+		setCursor(new Cursor(Cursor.DEFAULT_CURSOR));
 	}
 }
\ No newline at end of file
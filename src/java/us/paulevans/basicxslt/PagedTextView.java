@@ -0,0 +1,216 @@
+/*
+	Copyright 2006 Paul Evans 
+
+	Licensed under the Apache License, Version 2.0 (the "License"); 
+	you may not use this file except in compliance with the License. 
+	You may obtain a copy of the License at 
+
+		http://www.apache.org/licenses/LICENSE-2.0 
+
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an "AS IS" BASIS, 
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+	See the License for the specific language governing permissions and 
+	limitations under the License.
+ */
+package us.paulevans.basicxslt;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Rectangle;
+
+import javax.swing.JComponent;
+import javax.swing.Scrollable;
+import javax.swing.SwingConstants;
+
+/**
+ * Read-only view of a MappedTextFile.  Only the rows inside the visible
+ * area are read and painted, so the size of the file does not matter; each
+ * line is numbered in a gutter on the left.  The text is shown in a
+ * monospaced font.
+ * @author pevans
+ *
+ */
+public class PagedTextView extends JComponent implements Scrollable {
+
+	private static final long serialVersionUID = 1L;
+
+	// number of digits the gutter has room for...
+	private static final int GUTTER_DIGITS = 9;
+
+	// colors...
+	private static final Color GUTTER_COLOR = new Color(0xEEEEEE);
+	private static final Color LINE_NUMBER_COLOR = Color.GRAY;
+	private static final Color MATCH_COLOR = Color.YELLOW;
+
+	// instance members...
+	private MappedTextFile text;
+	private int rowCount, rowHeight, charWidth, ascent, gutterWidth;
+	private long matchOffset;
+	private int matchLength;
+
+	/**
+	 * Constructor
+	 * @param aText
+	 */
+	public PagedTextView(MappedTextFile aText) {
+
+		FontMetrics metrics;
+
+		text = aText;
+		matchOffset = -1;
+		setFont(new Font("Monospaced", Font.PLAIN, 12));
+		setBackground(Color.WHITE);
+		setOpaque(true);
+		metrics = getFontMetrics(getFont());
+		rowHeight = metrics.getHeight();
+		charWidth = metrics.charWidth('m');
+		ascent = metrics.getAscent();
+		gutterWidth = (GUTTER_DIGITS + 1) * charWidth;
+	}
+
+	/**
+	 * Picks up the rows indexed since the last call.
+	 */
+	public void refresh() {
+		if (text.getRowCount() != rowCount) {
+			rowCount = text.getRowCount();
+			revalidate();
+		}
+		repaint();
+	}
+
+	/**
+	 * Scrolls the row at aRow to the top of the view.
+	 * @param aRow
+	 */
+	public void showRow(int aRow) {
+		scrollRectToVisible(new Rectangle(0, aRow * rowHeight, 1,
+				getVisibleRect().height));
+	}
+
+	/**
+	 * Highlights the aLength bytes at aOffset and scrolls them into view;
+	 * an aOffset of -1 clears the highlight.
+	 * @param aOffset
+	 * @param aLength
+	 */
+	public void setMatch(long aOffset, int aLength) {
+
+		int row, column;
+
+		matchOffset = aOffset;
+		matchLength = aLength;
+		if (aOffset != -1) {
+			row = text.getRowAt(aOffset);
+			column = text.getColumn(row, aOffset);
+			scrollRectToVisible(new Rectangle(gutterWidth + column *
+					charWidth, row * rowHeight, aLength * charWidth,
+					rowHeight));
+		}
+		repaint();
+	}
+
+	/**
+	 * Returns the offset of the first row in view
+	 * @return
+	 */
+	public long getFirstVisibleOffset() {
+		return rowCount == 0 ? 0 : text.getRowOffset(Math.min(rowCount - 1,
+				getVisibleRect().y / rowHeight));
+	}
+
+	/**
+	 * Paints the rows inside the clip.
+	 */
+	protected void paintComponent(Graphics aGraphics) {
+
+		Rectangle clip;
+		int first, last, row, y, column, end;
+		long rowOffset;
+		String line;
+
+		clip = aGraphics.getClipBounds();
+		aGraphics.setFont(getFont());
+		aGraphics.setColor(getBackground());
+		aGraphics.fillRect(clip.x, clip.y, clip.width, clip.height);
+		aGraphics.setColor(GUTTER_COLOR);
+		aGraphics.fillRect(0, clip.y, gutterWidth - charWidth / 2,
+				clip.height);
+		first = clip.y / rowHeight;
+		last = Math.min(rowCount - 1, (clip.y + clip.height) / rowHeight);
+		for (row = first; row <= last; row++) {
+			y = row * rowHeight;
+			if (row == 0 || text.getLine(row - 1) != text.getLine(row)) {
+				line = Integer.toString(text.getLine(row));
+				aGraphics.setColor(LINE_NUMBER_COLOR);
+				aGraphics.drawString(line, (GUTTER_DIGITS - line.length()) *
+						charWidth, y + ascent);
+			}
+			rowOffset = text.getRowOffset(row);
+			if (matchOffset != -1 && matchOffset + matchLength > rowOffset &&
+					matchOffset < text.getRowOffset(row + 1)) {
+				column = matchOffset < rowOffset ? 0 : text.getColumn(row,
+						matchOffset);
+				end = text.getColumn(row, matchOffset + matchLength);
+				aGraphics.setColor(MATCH_COLOR);
+				aGraphics.fillRect(gutterWidth + column * charWidth, y,
+						Math.max(1, end - column) * charWidth, rowHeight);
+			}
+			aGraphics.setColor(getForeground());
+			aGraphics.drawString(text.getRow(row).replace('\t', ' '),
+					gutterWidth, y + ascent);
+		}
+	}
+
+	/**
+	 * Returns the size of the rows indexed so far
+	 */
+	public Dimension getPreferredSize() {
+		return new Dimension(gutterWidth + (text.getMaxRowBytes() + 1) *
+				charWidth, Math.max(1, rowCount) * rowHeight);
+	}
+
+	/**
+	 * Scrollable method
+	 */
+	public Dimension getPreferredScrollableViewportSize() {
+		return new Dimension(gutterWidth + 80 * charWidth, 25 * rowHeight);
+	}
+
+	/**
+	 * Scrollable method; scrolls by one row or one character
+	 */
+	public int getScrollableUnitIncrement(Rectangle aVisibleRect,
+			int aOrientation, int aDirection) {
+		return aOrientation == SwingConstants.VERTICAL ? rowHeight :
+			charWidth;
+	}
+
+	/**
+	 * Scrollable method; scrolls by a page, keeping one row in view
+	 */
+	public int getScrollableBlockIncrement(Rectangle aVisibleRect,
+			int aOrientation, int aDirection) {
+		return aOrientation == SwingConstants.VERTICAL ?
+				Math.max(rowHeight, aVisibleRect.height - rowHeight) :
+				aVisibleRect.width;
+	}
+
+	/**
+	 * Scrollable method
+	 */
+	public boolean getScrollableTracksViewportWidth() {
+		return false;
+	}
+
+	/**
+	 * Scrollable method
+	 */
+	public boolean getScrollableTracksViewportHeight() {
+		return false;
+	}
+}
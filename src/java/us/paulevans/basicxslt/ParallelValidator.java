@@ -0,0 +1,206 @@
+/*
+	Copyright 2006 Paul Evans 
+
+	Licensed under the Apache License, Version 2.0 (the "License"); 
+	you may not use this file except in compliance with the License. 
+	You may obtain a copy of the License at 
+
+		http://www.apache.org/licenses/LICENSE-2.0 
+
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an "AS IS" BASIS, 
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+	See the License for the specific language governing permissions and 
+	limitations under the License.
+ */
+package us.paulevans.basicxslt;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.commons.vfs.FileContent;
+
+/**
+ * Validates several documents at once - the source xml and each of the
+ * stylesheets, say - on a fixed pool of worker threads.  As soon as one of
+ * them turns out not to be valid the others are abandoned.
+ * @author pevans
+ *
+ */
+public class ParallelValidator implements ThreadFactory {
+
+	// most worker threads used...
+	private static final int MAX_THREADS = 4;
+
+	// singleton instance...
+	private static final ParallelValidator instance = new ParallelValidator(
+			Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors()));
+
+	// instance members...
+	private ExecutorService executor;
+
+	/**
+	 * Constructor
+	 * @param aThreads the number of worker threads
+	 */
+	public ParallelValidator(int aThreads) {
+		executor = Executors.newFixedThreadPool(Math.max(1, aThreads), this);
+	}
+
+	/**
+	 * Returns the singleton instance
+	 * @return ParallelValidator
+	 */
+	public static ParallelValidator getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Validates each of aContents, returning once all are valid or throwing
+	 * as soon as one is not.
+	 * @param aContents
+	 * @param aCheckWarning
+	 * @param aCheckError
+	 * @param aCheckFatalError
+	 * @throws ValidationException
+	 * @throws InterruptedException
+	 */
+	public void validate(List<FileContent> aContents, boolean aCheckWarning,
+			boolean aCheckError, boolean aCheckFatalError)
+	throws ValidationException, InterruptedException {
+		validate(aContents, aCheckWarning, aCheckError, aCheckFatalError, 0);
+	}
+
+	/**
+	 * Validates each of aContents as above.  If aErrorLimit is more than 0
+	 * every error in a document, up to aErrorLimit of them, is collected
+	 * rather than stopping at its first error.
+	 * @param aContents
+	 * @param aCheckWarning
+	 * @param aCheckError
+	 * @param aCheckFatalError
+	 * @param aErrorLimit
+	 * @throws ValidationException
+	 * @throws InterruptedException
+	 */
+	public void validate(List<FileContent> aContents, boolean aCheckWarning,
+			boolean aCheckError, boolean aCheckFatalError, int aErrorLimit)
+	throws ValidationException, InterruptedException {
+
+		CompletionService<Integer> completion;
+		List<Future<Integer>> futures;
+		Iterator<Future<Integer>> iter;
+		int loop;
+
+		completion = new ExecutorCompletionService<Integer>(executor);
+		futures = new ArrayList<Future<Integer>>();
+		try {
+			for (loop = 0; loop < aContents.size(); loop++) {
+				futures.add(completion.submit(new ValidationTask(loop,
+						aContents.get(loop), aCheckWarning, aCheckError,
+						aCheckFatalError, aErrorLimit)));
+			}
+			for (loop = 0; loop < futures.size(); loop++) {
+				try {
+					completion.take().get();
+				} catch (ExecutionException aException) {
+					throw (ValidationException)aException.getCause();
+				}
+			}
+		} finally {
+			iter = futures.iterator();
+			while (iter.hasNext()) {
+				iter.next().cancel(true);
+			}
+		}
+	}
+
+	/**
+	 * Stops the worker threads
+	 */
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * ThreadFactory method; worker threads do not keep the application
+	 * running.
+	 */
+	public Thread newThread(Runnable aRunnable) {
+
+		Thread thread;
+
+		thread = new Thread(aRunnable, "ParallelValidator");
+		thread.setDaemon(true);
+		return thread;
+	}
+
+	/**
+	 * Validates one document
+	 */
+	static class ValidationTask implements Callable<Integer> {
+
+		int index;
+		FileContent content;
+		boolean checkWarning;
+		boolean checkError;
+		boolean checkFatalError;
+		int errorLimit;
+
+		/**
+		 * Constructor
+		 * @param aIndex
+		 * @param aContent
+		 * @param aCheckWarning
+		 * @param aCheckError
+		 * @param aCheckFatalError
+		 * @param aErrorLimit
+		 */
+		ValidationTask(int aIndex, FileContent aContent,
+				boolean aCheckWarning, boolean aCheckError,
+				boolean aCheckFatalError, int aErrorLimit) {
+			index = aIndex;
+			content = aContent;
+			checkWarning = aCheckWarning;
+			checkError = aCheckError;
+			checkFatalError = aCheckFatalError;
+			errorLimit = aErrorLimit;
+		}
+
+		/**
+		 * Validates the document, returning its index
+		 */
+		public Integer call() throws ValidationException {
+
+			List<Error> errors;
+
+			try {
+				if (errorLimit > 0) {
+					errors = Utils.getInstance().getValidationErrors(content,
+							checkWarning, checkError, checkFatalError,
+							errorLimit);
+					if (!errors.isEmpty()) {
+						throw new ValidationException(index, errors);
+					}
+				} else {
+					Utils.getInstance().isValidXml(content, checkWarning,
+							checkError, checkFatalError);
+				}
+				return Integer.valueOf(index);
+			} catch (ValidationException aException) {
+				throw aException;
+			} catch (Throwable aAny) {
+				throw new ValidationException(index, aAny);
+			}
+		}
+	}
+}
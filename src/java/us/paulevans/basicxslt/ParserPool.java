@@ -0,0 +1,369 @@
+/*
+	Copyright 2006 Paul Evans
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+package us.paulevans.basicxslt;
+
+import java.io.File;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.xerces.impl.xs.SchemaGrammar;
+import org.apache.xerces.parsers.SAXParser;
+import org.apache.xerces.util.SymbolTable;
+import org.apache.xerces.util.SynchronizedSymbolTable;
+import org.apache.xerces.util.XMLGrammarPoolImpl;
+import org.apache.xerces.xni.grammars.Grammar;
+import org.apache.xerces.xni.grammars.XMLGrammarDescription;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Pool of validating Xerces parsers.  Every parser shares one grammar pool,
+ * so a DTD or XML schema is only read and compiled the first time a
+ * document refers to it; after that validating a document costs only the
+ * parse.  A grammar loaded from local files is dropped from the grammar pool
+ * as soon as one of those files changes.  A parser that failed should simply
+ * not be given back.
+ * @author pevans
+ *
+ */
+public class ParserPool {
+
+	// XML parser features...
+	private static final String VALIDATION_FEATURE =
+		"http://xml.org/sax/features/validation";
+	private static final String NAMESPACES_FEATURE =
+		"http://xml.org/sax/features/namespaces";
+	private static final String SCHEMA_FEATURE =
+		"http://apache.org/xml/features/validation/schema";
+
+	// SAX property of the handler of DTD declarations...
+	private static final String LEXICAL_HANDLER_PROPERTY =
+		"http://xml.org/sax/properties/lexical-handler";
+
+	// default maximum number of idle parsers...
+	private static final int DEFAULT_MAX_IDLE = 4;
+
+	// singleton instance...
+	private static final ParserPool instance = new ParserPool(
+			DEFAULT_MAX_IDLE);
+
+	// instance members...
+	private int maxIdle;
+	private SymbolTable symbolTable;
+	private GrammarPool grammarPool;
+	private LinkedList<XMLReader> idle;
+	private AtomicLong borrows;
+	private AtomicLong creates;
+
+	/**
+	 * Constructor
+	 * @param aMaxIdle the maximum number of idle parsers held
+	 */
+	public ParserPool(int aMaxIdle) {
+		maxIdle = aMaxIdle;
+		symbolTable = new SynchronizedSymbolTable();
+		grammarPool = new GrammarPool();
+		idle = new LinkedList<XMLReader>();
+		borrows = new AtomicLong();
+		creates = new AtomicLong();
+	}
+
+	/**
+	 * Returns the singleton instance
+	 * @return ParserPool
+	 */
+	public static ParserPool getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Returns a namespace-aware parser that validates against DTDs and XML
+	 * schemas, reusing an idle one if there is one.
+	 * @return
+	 * @throws SAXException
+	 */
+	public XMLReader borrow() throws SAXException {
+
+		XMLReader reader;
+
+		borrows.incrementAndGet();
+		synchronized (idle) {
+			if (!idle.isEmpty()) {
+				return idle.removeFirst();
+			}
+		}
+		reader = new SAXParser(symbolTable, grammarPool);
+		reader.setFeature(VALIDATION_FEATURE, true);
+		reader.setFeature(NAMESPACES_FEATURE, true);
+		reader.setFeature(SCHEMA_FEATURE, true);
+		creates.incrementAndGet();
+		return reader;
+	}
+
+	/**
+	 * Gives aReader back to the pool; its handlers are cleared.
+	 * @param aReader
+	 */
+	public void giveBack(XMLReader aReader) {
+
+		DefaultHandler handler;
+
+		handler = new DefaultHandler();
+		aReader.setContentHandler(handler);
+		aReader.setDTDHandler(handler);
+		aReader.setEntityResolver(handler);
+		aReader.setErrorHandler(handler);
+		try {
+			aReader.setProperty(LEXICAL_HANDLER_PROPERTY, null);
+		} catch (SAXException aException) {
+			// not supported; nothing to clear...
+		}
+		synchronized (idle) {
+			if (idle.size() < maxIdle && !idle.contains(aReader)) {
+				idle.addFirst(aReader);
+			}
+		}
+	}
+
+	/**
+	 * Drops every grammar from the grammar pool.
+	 */
+	public void clearGrammars() {
+		grammarPool.clear();
+	}
+
+	/**
+	 * Returns the number of grammars in the grammar pool
+	 * @return
+	 */
+	public int getGrammarCount() {
+		return grammarPool.getCount();
+	}
+
+	/**
+	 * Returns the number of idle parsers
+	 * @return
+	 */
+	public int getSize() {
+		synchronized (idle) {
+			return idle.size();
+		}
+	}
+
+	/**
+	 * Returns the number of parsers borrowed
+	 * @return
+	 */
+	public long getBorrows() {
+		return borrows.get();
+	}
+
+	/**
+	 * Returns the number of parsers created because no idle one was
+	 * available
+	 * @return
+	 */
+	public long getCreates() {
+		return creates.get();
+	}
+
+	/**
+	 * Grammar pool that remembers when the local files each grammar was read
+	 * from were last modified, and drops a grammar once one of them changes.
+	 */
+	static class GrammarPool extends XMLGrammarPoolImpl {
+
+		Map<Grammar,Map<File,Long>> files =
+			new HashMap<Grammar,Map<File,Long>>();
+
+		/**
+		 * Adds aGrammar to the pool, recording its files.
+		 */
+		public void putGrammar(Grammar aGrammar) {
+			super.putGrammar(aGrammar);
+			synchronized (files) {
+				files.put(aGrammar, getFiles(aGrammar));
+			}
+		}
+
+		/**
+		 * Returns the grammars of type aGrammarType that a parser preloads
+		 * before each parse, leaving out those whose files have changed.
+		 */
+		public Grammar[] retrieveInitialGrammarSet(String aGrammarType) {
+
+			Grammar grammars[];
+			List<Grammar> current;
+			int loop;
+
+			grammars = super.retrieveInitialGrammarSet(aGrammarType);
+			current = new ArrayList<Grammar>();
+			for (loop = 0; loop < grammars.length; loop++) {
+				if (isStale(grammars[loop])) {
+					removeGrammar(grammars[loop].getGrammarDescription());
+				} else {
+					current.add(grammars[loop]);
+				}
+			}
+			return current.toArray(new Grammar[current.size()]);
+		}
+
+		/**
+		 * Returns the grammar matching aDescription, or null if there is none
+		 * or one of the files it was read from has changed.
+		 */
+		public Grammar getGrammar(XMLGrammarDescription aDescription) {
+
+			Grammar grammar;
+
+			grammar = super.getGrammar(aDescription);
+			if (grammar != null && isStale(grammar)) {
+				removeGrammar(grammar.getGrammarDescription());
+				return null;
+			}
+			return grammar;
+		}
+
+		/**
+		 * Removes the grammar matching aDescription from the pool.
+		 */
+		public Grammar removeGrammar(XMLGrammarDescription aDescription) {
+
+			Grammar grammar;
+
+			grammar = super.removeGrammar(aDescription);
+			if (grammar != null) {
+				synchronized (files) {
+					files.remove(grammar);
+				}
+			}
+			return grammar;
+		}
+
+		/**
+		 * Removes every grammar from the pool.
+		 */
+		public void clear() {
+			super.clear();
+			synchronized (files) {
+				files.clear();
+			}
+		}
+
+		/**
+		 * Returns the number of grammars in the pool
+		 * @return
+		 */
+		int getCount() {
+			synchronized (files) {
+				return files.size();
+			}
+		}
+
+		/**
+		 * Returns true if one of the files aGrammar was read from has
+		 * changed since it was read.
+		 * @param aGrammar
+		 * @return
+		 */
+		boolean isStale(Grammar aGrammar) {
+
+			Map<File,Long> lastModified;
+			Iterator<Map.Entry<File,Long>> iter;
+			Map.Entry<File,Long> entry;
+
+			synchronized (files) {
+				lastModified = files.get(aGrammar);
+			}
+			if (lastModified == null) {
+				return false;
+			}
+			iter = lastModified.entrySet().iterator();
+			while (iter.hasNext()) {
+				entry = iter.next();
+				if (entry.getKey().lastModified() !=
+						entry.getValue().longValue()) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Returns the local files aGrammar was read from, with the time each
+		 * was last modified.  An XML schema may have been read from several
+		 * documents.
+		 * @param aGrammar
+		 * @return
+		 */
+		static Map<File,Long> getFiles(Grammar aGrammar) {
+
+			Map<File,Long> lastModified;
+			File file;
+			int loop;
+
+			lastModified = new HashMap<File,Long>();
+			file = toFile(aGrammar.getGrammarDescription().
+					getExpandedSystemId());
+			if (file != null) {
+				lastModified.put(file, Long.valueOf(file.lastModified()));
+			}
+			if (aGrammar instanceof SchemaGrammar) {
+				for (loop = 0; loop < ((SchemaGrammar)aGrammar).
+						getDocumentLocations().getLength(); loop++) {
+					file = toFile(((SchemaGrammar)aGrammar).
+							getDocumentLocations().item(loop));
+					if (file != null) {
+						lastModified.put(file, Long.valueOf(
+								file.lastModified()));
+					}
+				}
+			}
+			return lastModified;
+		}
+
+		/**
+		 * Returns the local file located at aSystemId, or null if it is not
+		 * a local file.
+		 * @param aSystemId
+		 * @return
+		 */
+		static File toFile(String aSystemId) {
+
+			URI uri;
+
+			if (aSystemId == null) {
+				return null;
+			}
+			try {
+				uri = new URI(aSystemId);
+				if (!"file".equals(uri.getScheme())) {
+					return null;
+				}
+				return new File(uri).getAbsoluteFile();
+			} catch (Exception aException) {
+				return null;
+			}
+		}
+	}
+}
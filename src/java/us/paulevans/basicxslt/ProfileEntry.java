@@ -0,0 +1,149 @@
+/*
+	Copyright 2006 Paul Evans
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+package us.paulevans.basicxslt;
+
+/**
+ * The time spent in, and number of invocations of, one template, select
+ * expression or source line of a stylesheet, as measured by a
+ * TemplateProfiler.  Inclusive time counts everything done while the entry
+ * was running; exclusive time leaves out the time spent in nested entries
+ * of the same kind.  Times are in nanoseconds.
+ * @author pevans
+ *
+ */
+public class ProfileEntry {
+
+	// kinds of entry...
+	public static final int TEMPLATE = 0;
+	public static final int SELECT = 1;
+	public static final int LINE = 2;
+
+	// instance members...
+	private int kind;
+	private String name;
+	private String systemId;
+	private int line;
+	int count;
+	long inclusiveTime;
+	long exclusiveTime;
+	int active;
+
+	/**
+	 * Constructor
+	 * @param aKind
+	 * @param aName
+	 * @param aSystemId
+	 * @param aLine
+	 */
+	ProfileEntry(int aKind, String aName, String aSystemId, int aLine) {
+		kind = aKind;
+		name = aName;
+		systemId = aSystemId;
+		line = aLine;
+	}
+
+	/**
+	 * Marks the entry as entered once more.
+	 */
+	void enter() {
+		count++;
+		active++;
+	}
+
+	/**
+	 * Marks the entry as left, adding aExclusiveTime and, unless the entry
+	 * is still running further out (it was entered recursively),
+	 * aInclusiveTime.
+	 * @param aInclusiveTime
+	 * @param aExclusiveTime
+	 */
+	void leave(long aInclusiveTime, long aExclusiveTime) {
+		exclusiveTime += aExclusiveTime;
+		if (--active == 0) {
+			inclusiveTime += aInclusiveTime;
+		}
+	}
+
+	/**
+	 * Returns TEMPLATE, SELECT or LINE
+	 * @return
+	 */
+	public int getKind() {
+		return kind;
+	}
+
+	/**
+	 * Returns the match pattern or name of a template, the instruction and
+	 * expression of a select, or the instruction a line starts with
+	 * @return
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the system id of the stylesheet, or null if it is not known
+	 * @return
+	 */
+	public String getSystemId() {
+		return systemId;
+	}
+
+	/**
+	 * Getter
+	 * @return
+	 */
+	public int getLine() {
+		return line;
+	}
+
+	/**
+	 * Returns the file name of the stylesheet and the line, as file:line
+	 * @return
+	 */
+	public String getLocation() {
+
+		String file;
+
+		file = systemId == null ? "" :
+			systemId.substring(systemId.lastIndexOf('/') + 1);
+		return file + ":" + line;
+	}
+
+	/**
+	 * Returns the number of times the entry ran
+	 * @return
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * Getter
+	 * @return
+	 */
+	public long getInclusiveTime() {
+		return inclusiveTime;
+	}
+
+	/**
+	 * Getter
+	 * @return
+	 */
+	public long getExclusiveTime() {
+		return exclusiveTime;
+	}
+}
@@ -0,0 +1,341 @@
+/*
+	Copyright 2006 Paul Evans
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+package us.paulevans.basicxslt;
+
+import java.awt.BorderLayout;
+import java.awt.Cursor;
+import java.awt.FlowLayout;
+import java.awt.Frame;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.swing.JButton;
+import javax.swing.JComboBox;
+import javax.swing.JFileChooser;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+import javax.swing.table.AbstractTableModel;
+
+import net.blueslate.commons.gui.GUIUtils;
+import net.blueslate.commons.io.IOUtils;
+
+import org.apache.commons.lang.exception.ExceptionUtils;
+import org.apache.log4j.Logger;
+
+/**
+ * Defines the profile frame, which lists the templates, select expressions
+ * or source lines of the stylesheets of a profiled transform with the time
+ * spent in each.  The table can be sorted by any column and is first sorted
+ * by exclusive time, slowest first; the rows shown can be exported as a
+ * tab-separated file.
+ * @author pevans
+ *
+ */
+public class ProfileFrame extends DisposableFrame implements ActionListener {
+
+	private static final long serialVersionUID = 1L;
+
+	// default frame width and height - these values are used if
+	// a height and width are not found in the user's preferences...
+	private static final String DEFAULT_FRAME_WIDTH = "800";
+	private static final String DEFAULT_FRAME_HEIGHT = "400";
+
+	// user-prefs property name prefix...
+	private static final String PROPERTY_NAME_PREFIX = "profile_";
+
+	// column the table is first sorted by...
+	private static final int EXCLUSIVE_COLUMN = 5;
+
+	// get the i18n factory singleton instance...
+	private static final LabelStringFactory stringFactory =
+		LabelStringFactory.getInstance();
+
+	// logger object...
+	private static final Logger logger = Logger.getLogger(ProfileFrame.class);
+
+	// labels of the kinds of entry, indexed by kind...
+	private static final String KINDS[] = {
+		stringFactory.getString(LabelStringFactory.PROFILE_FRAME_TEMPLATES),
+		stringFactory.getString(LabelStringFactory.PROFILE_FRAME_SELECTS),
+		stringFactory.getString(LabelStringFactory.PROFILE_FRAME_LINES)
+	};
+
+	// instance members...
+	private XSLRow xslRows[];
+	private JComboBox<String> kind;
+	private JTable profileTable;
+	private ProfileTableModel profileTableModel;
+	private JButton exportBtn, closeBtn;
+	private UserPreferences userPrefs;
+
+	/**
+	 * Constructor - shows the profiles of the stylesheets of aXSLRows that
+	 * have one.
+	 * @param aParent
+	 * @param aXSLRows
+	 */
+	public ProfileFrame(Frame aParent, XSLRow aXSLRows[]) {
+
+		JPanel northPanel, southPanel;
+		int width, height;
+
+		xslRows = aXSLRows;
+		userPrefs = Utils.getUserPrefs();
+		addWindowListener(new WindowAdapter() {
+			public void windowClosing(WindowEvent evt) {
+				dispose(userPrefs, PROPERTY_NAME_PREFIX);
+			}
+		});
+		northPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+		northPanel.add(new JLabel(stringFactory.getString(
+				LabelStringFactory.PROFILE_FRAME_SHOW)));
+		northPanel.add(kind = new JComboBox<String>(KINDS));
+		kind.addActionListener(this);
+		profileTable = new JTable(profileTableModel = new ProfileTableModel());
+		profileTable.setAutoCreateRowSorter(true);
+		profileTable.getRowSorter().setSortKeys(Collections.singletonList(
+				new RowSorter.SortKey(EXCLUSIVE_COLUMN, SortOrder.DESCENDING)));
+		profileTable.getColumnModel().getColumn(1).setPreferredWidth(300);
+		southPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
+		southPanel.add(exportBtn = new JButton(stringFactory.getString(
+				LabelStringFactory.PROFILE_FRAME_EXPORT_BTN)));
+		southPanel.add(closeBtn = new JButton(stringFactory.getString(
+				LabelStringFactory.CLOSE_BUTTON)));
+		exportBtn.addActionListener(this);
+		closeBtn.addActionListener(this);
+		getContentPane().setLayout(new BorderLayout());
+		getContentPane().add(northPanel, BorderLayout.NORTH);
+		getContentPane().add(new JScrollPane(profileTable),
+				BorderLayout.CENTER);
+		getContentPane().add(southPanel, BorderLayout.SOUTH);
+		setTitle(stringFactory.getString(
+				LabelStringFactory.PROFILE_FRAME_TITLE));
+		width = Integer.parseInt(userPrefs.getProperty(PROPERTY_NAME_PREFIX +
+				AppConstants.FRAME_WIDTH_PROP, DEFAULT_FRAME_WIDTH));
+		height = Integer.parseInt(userPrefs.getProperty(PROPERTY_NAME_PREFIX +
+				AppConstants.FRAME_HEIGHT_PROP, DEFAULT_FRAME_HEIGHT));
+		setSize(width, height);
+		showEntries(ProfileEntry.TEMPLATE);
+		GUIUtils.center(this, aParent);
+		setVisible(true);
+	}
+
+	/**
+	 * Lists the entries of aKind of every profiled stylesheet.
+	 * @param aKind
+	 */
+	private void showEntries(int aKind) {
+
+		List<String> stylesheets;
+		List<ProfileEntry> entries;
+		Iterator<ProfileEntry> iter;
+		TemplateProfiler profiler;
+		String label;
+		int loop;
+
+		stylesheets = new ArrayList<String>();
+		entries = new ArrayList<ProfileEntry>();
+		for (loop = 0; loop < xslRows.length; loop++) {
+			if ((profiler = xslRows[loop].getTemplateProfiler()) == null) {
+				continue;
+			}
+			label = xslRows[loop].getLabel().getText();
+			iter = profiler.getEntries(aKind).iterator();
+			while (iter.hasNext()) {
+				stylesheets.add(label);
+				entries.add(iter.next());
+			}
+		}
+		profileTableModel.setEntries(stylesheets, entries);
+	}
+
+	/**
+	 * Writes the rows shown, in the order shown, to aFile as tab-separated
+	 * text with a heading row.
+	 * @param aFile
+	 * @throws IOException
+	 */
+	private void export(File aFile) throws IOException {
+
+		StringBuffer text;
+		int row, col;
+
+		text = new StringBuffer();
+		for (col = 0; col < ProfileTableModel.COLUMNS.length; col++) {
+			text.append(col == 0 ? "" : "\t").append(
+					ProfileTableModel.COLUMNS[col]);
+		}
+		text.append('\n');
+		for (row = 0; row < profileTable.getRowCount(); row++) {
+			for (col = 0; col < ProfileTableModel.COLUMNS.length; col++) {
+				text.append(col == 0 ? "" : "\t").append(
+						profileTableModel.getValueAt(
+								profileTable.convertRowIndexToModel(row),
+								col));
+			}
+			text.append('\n');
+		}
+		IOUtils.writeTextFile(aFile, text.toString());
+	}
+
+	/**
+	 * Event handler method.
+	 * @param aEvt
+	 */
+	public void actionPerformed(ActionEvent aEvt) {
+
+		int returnVal;
+		File file;
+
+		if (aEvt.getSource() == kind) {
+			showEntries(kind.getSelectedIndex());
+		} else if (aEvt.getSource() == exportBtn) {
+			try {
+				returnVal = Utils.getInstance().getFileChooser().
+					showSaveDialog(this);
+				if (returnVal == JFileChooser.APPROVE_OPTION) {
+					setCursor(new Cursor(Cursor.WAIT_CURSOR));
+					file = Utils.getInstance().getFileChooser().
+						getSelectedFile();
+					BasicXSLTFrame.setLastFileChosen(file.getAbsolutePath());
+					export(file);
+				}
+			} catch (IOException aException) {
+				logger.error(ExceptionUtils.getFullStackTrace(aException));
+				Utils.showErrorDialog(this, aException);
+			} finally {
+				setCursor(new Cursor(Cursor.DEFAULT_CURSOR));
+			}
+		} else if (aEvt.getSource() == closeBtn) {
+			dispose(userPrefs, PROPERTY_NAME_PREFIX);
+		}
+	}
+
+	/**
+	 * Table model over the profile entries of some stylesheets; times are
+	 * in milliseconds.
+	 */
+	static class ProfileTableModel extends AbstractTableModel {
+
+		private static final long serialVersionUID = 1L;
+
+		static final String COLUMNS[] = {
+			stringFactory.getString(
+					LabelStringFactory.PROFILE_FRAME_STYLESHEET_COLUMN),
+			stringFactory.getString(
+					LabelStringFactory.PROFILE_FRAME_NAME_COLUMN),
+			stringFactory.getString(
+					LabelStringFactory.PROFILE_FRAME_LOCATION_COLUMN),
+			stringFactory.getString(
+					LabelStringFactory.PROFILE_FRAME_COUNT_COLUMN),
+			stringFactory.getString(
+					LabelStringFactory.PROFILE_FRAME_INCLUSIVE_COLUMN),
+			stringFactory.getString(
+					LabelStringFactory.PROFILE_FRAME_EXCLUSIVE_COLUMN)
+		};
+
+		List<String> stylesheets;
+		List<ProfileEntry> entries;
+
+		/**
+		 * Constructor
+		 */
+		ProfileTableModel() {
+			stylesheets = new ArrayList<String>();
+			entries = new ArrayList<ProfileEntry>();
+		}
+
+		/**
+		 * Replaces the entries listed with aEntries, each from the
+		 * stylesheet at the same index of aStylesheets
+		 * @param aStylesheets
+		 * @param aEntries
+		 */
+		void setEntries(List<String> aStylesheets,
+				List<ProfileEntry> aEntries) {
+			stylesheets = aStylesheets;
+			entries = aEntries;
+			fireTableDataChanged();
+		}
+
+		public int getRowCount() {
+			return entries.size();
+		}
+
+		public int getColumnCount() {
+			return COLUMNS.length;
+		}
+
+		public String getColumnName(int aColumn) {
+			return COLUMNS[aColumn];
+		}
+
+		public Class<?> getColumnClass(int aColumn) {
+			switch (aColumn) {
+			case 3:
+				return Integer.class;
+			case 4:
+			case 5:
+				return Double.class;
+			default:
+				return String.class;
+			}
+		}
+
+		public Object getValueAt(int aRow, int aColumn) {
+
+			ProfileEntry entry;
+
+			entry = entries.get(aRow);
+			switch (aColumn) {
+			case 0:
+				return stylesheets.get(aRow);
+			case 1:
+				return entry.getName();
+			case 2:
+				return entry.getLocation();
+			case 3:
+				return Integer.valueOf(entry.getCount());
+			case 4:
+				return toMillis(entry.getInclusiveTime());
+			default:
+				return toMillis(entry.getExclusiveTime());
+			}
+		}
+
+		/**
+		 * Returns aNanos in milliseconds, to the nearest microsecond
+		 * @param aNanos
+		 * @return
+		 */
+		static Double toMillis(long aNanos) {
+			return Double.valueOf(Math.round(TransformTimings.toMillis(
+					aNanos) * 1000) / 1000.0);
+		}
+	}
+}
@@ -0,0 +1,349 @@
+/*
+	Copyright 2006 Paul Evans
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+package us.paulevans.basicxslt;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import net.blueslate.commons.xml.TransformOutputProperties;
+import net.blueslate.commons.xml.TransformParameters;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.vfs.FileContent;
+import org.apache.log4j.Logger;
+
+/**
+ * On-disk, content-addressed cache of the results of individual stages of a
+ * transform chain.  A result is keyed on the content hash of the stage's
+ * input, the content hash of its stylesheet (imports and includes
+ * included), its parameters and its output properties, so a chain only has
+ * to re-run the stages whose key has changed.  Once the results held take up
+ * more than the maximum number of bytes the least-recently used results are
+ * evicted.
+ * @author pevans
+ *
+ */
+public class ResultCache {
+
+	// extension of the cache files...
+	private static final String EXTENSION = ".result";
+
+	// prefix and extension of the file a cache file is written to before it
+	// is renamed...
+	private static final String TEMP_PREFIX = "basicxslt";
+	private static final String TEMP_EXTENSION = ".tmp";
+
+	// default maximum number of bytes of results held...
+	private static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+
+	// singleton instance...
+	private static final ResultCache instance = new ResultCache(
+			new File(System.getProperty("user.home") + "/" +
+					AppConstants.APP_PREFS_DIR, AppConstants.RESULTS_DIR),
+			DEFAULT_MAX_BYTES);
+
+	// logger object...
+	private static final Logger logger = Logger.getLogger(ResultCache.class);
+
+	// instance members...
+	private File dir;
+	private long maxBytes;
+	private Map<String,Long> sizes;
+	private long bytes;
+	private long hits;
+	private long misses;
+
+	/**
+	 * Constructor
+	 * @param aDir the directory the results are stored in
+	 * @param aMaxBytes
+	 */
+	public ResultCache(File aDir, long aMaxBytes) {
+		dir = aDir;
+		maxBytes = aMaxBytes;
+	}
+
+	/**
+	 * Returns the singleton instance
+	 * @return ResultCache
+	 */
+	public static ResultCache getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Returns the content hash of aContents
+	 * @param aContents
+	 * @return
+	 */
+	public static String hash(byte aContents[]) {
+		return DigestUtils.shaHex(aContents);
+	}
+
+	/**
+	 * Returns the content hash of aContent, reading it as a stream rather
+	 * than into memory; it is the same as the hash of its contents as a byte
+	 * array.
+	 * @param aContent
+	 * @return
+	 * @throws IOException
+	 */
+	public static String hash(FileContent aContent) throws IOException {
+		return ValidationCache.hash(aContent);
+	}
+
+	/**
+	 * Returns the key of the result of running an input whose content hash
+	 * is aInputHash through the stylesheet whose content hash is
+	 * aStylesheetHash with aParameters and aOutputProperties.
+	 * @param aInputHash
+	 * @param aStylesheetHash
+	 * @param aParameters
+	 * @param aOutputProperties
+	 * @return
+	 */
+	public static String getKey(String aInputHash, String aStylesheetHash,
+			TransformParameters aParameters,
+			TransformOutputProperties aOutputProperties) {
+
+		StringBuffer key;
+		String names[];
+		int loop;
+
+		key = new StringBuffer(aInputHash).append('\n').append(
+				aStylesheetHash).append('\n');
+		if (aParameters != null) {
+			names = aParameters.getParameterNames();
+			Arrays.sort(names);
+			for (loop = 0; loop < names.length; loop++) {
+				key.append(names[loop]).append('=').append(
+						aParameters.getParameter(names[loop])).append('\n');
+			}
+		}
+		if (aOutputProperties != null) {
+			key.append(aOutputProperties.getCDATA_SECTION_ELEMENTS()).append(
+					'\n').append(aOutputProperties.getDOCTYPE_PUBLIC()).append(
+					'\n').append(aOutputProperties.getDOCTYPE_SYSTEM()).append(
+					'\n').append(aOutputProperties.getENCODING()).append(
+					'\n').append(aOutputProperties.getINDENT()).append(
+					'\n').append(aOutputProperties.getMEDIA_TYPE()).append(
+					'\n').append(aOutputProperties.getMETHOD()).append(
+					'\n').append(aOutputProperties.getOMIT_XML_DECLARATION()).
+					append('\n').append(aOutputProperties.getSTANDALONE()).
+					append('\n').append(aOutputProperties.getVERSION());
+		}
+		return DigestUtils.shaHex(key.toString());
+	}
+
+	/**
+	 * Returns the result stored under aKey, or null.
+	 * @param aKey
+	 * @return
+	 */
+	public synchronized byte[] get(String aKey) {
+
+		File file;
+		byte result[];
+
+		load();
+		file = new File(dir, aKey + EXTENSION);
+		if (sizes.get(aKey) == null || !file.isFile()) {
+			sizes.remove(aKey);
+			misses++;
+			return null;
+		}
+		try {
+			result = FileUtils.readFileToByteArray(file);
+		} catch (IOException aException) {
+			logger.warn("unable to read result " + file + ": " +
+					aException.getMessage());
+			misses++;
+			return null;
+		}
+		file.setLastModified(System.currentTimeMillis());
+		hits++;
+		return result;
+	}
+
+	/**
+	 * Stores aResult under aKey, evicting the least-recently used results if
+	 * the cache is then over its maximum size.  A failure is logged rather
+	 * than thrown as the result can always be produced again.
+	 * @param aKey
+	 * @param aResult
+	 */
+	public synchronized void put(String aKey, byte aResult[]) {
+
+		File file, tempFile;
+		OutputStream out;
+		Long size;
+
+		load();
+		if (aResult.length > maxBytes) {
+			return;
+		}
+		file = new File(dir, aKey + EXTENSION);
+		tempFile = null;
+		out = null;
+		try {
+			dir.mkdirs();
+			tempFile = File.createTempFile(TEMP_PREFIX, TEMP_EXTENSION, dir);
+			out = new FileOutputStream(tempFile);
+			out.write(aResult);
+			out.close();
+			out = null;
+			file.delete();
+			if (!tempFile.renameTo(file)) {
+				throw new IOException("unable to rename " + tempFile);
+			}
+			size = sizes.put(aKey, Long.valueOf(aResult.length));
+			bytes += aResult.length - (size != null ? size.longValue() : 0);
+			evict();
+		} catch (IOException aException) {
+			logger.warn("unable to write result " + file + ": " +
+					aException.getMessage());
+		} finally {
+			Utils.closeQuietly(out);
+			if (tempFile != null) {
+				tempFile.delete();
+			}
+		}
+	}
+
+	/**
+	 * Deletes the least-recently used results until the cache is within its
+	 * maximum size.
+	 *
+	 */
+	private void evict() {
+
+		Iterator<Map.Entry<String,Long>> iter;
+		Map.Entry<String,Long> eldest;
+
+		iter = sizes.entrySet().iterator();
+		while (bytes > maxBytes && iter.hasNext()) {
+			eldest = iter.next();
+			new File(dir, eldest.getKey() + EXTENSION).delete();
+			bytes -= eldest.getValue().longValue();
+			iter.remove();
+		}
+	}
+
+	/**
+	 * Reads the results already on disk, least-recently used first, the
+	 * first time the cache is used.
+	 *
+	 */
+	private void load() {
+
+		File files[];
+		String name;
+		int loop;
+
+		if (sizes != null) {
+			return;
+		}
+		sizes = new LinkedHashMap<String,Long>(16, 0.75f, true);
+		bytes = 0;
+		files = dir.listFiles();
+		if (files == null) {
+			return;
+		}
+		Arrays.sort(files, new LastModifiedComparator());
+		for (loop = 0; loop < files.length; loop++) {
+			name = files[loop].getName();
+			if (name.endsWith(EXTENSION)) {
+				sizes.put(name.substring(0, name.length() -
+						EXTENSION.length()), Long.valueOf(
+								files[loop].length()));
+				bytes += files[loop].length();
+			}
+		}
+		evict();
+	}
+
+	/**
+	 * Removes every result from the cache.
+	 *
+	 */
+	public synchronized void clear() {
+
+		Iterator<String> iter;
+
+		load();
+		iter = sizes.keySet().iterator();
+		while (iter.hasNext()) {
+			new File(dir, iter.next() + EXTENSION).delete();
+		}
+		sizes.clear();
+		bytes = 0;
+	}
+
+	/**
+	 * Getter
+	 * @return
+	 */
+	public File getDir() {
+		return dir;
+	}
+
+	/**
+	 * Returns the number of bytes of results held
+	 * @return
+	 */
+	public synchronized long getSize() {
+		load();
+		return bytes;
+	}
+
+	/**
+	 * Getter
+	 * @return
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Getter
+	 * @return
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Orders files oldest-modified first.
+	 */
+	static class LastModifiedComparator implements Comparator<File> {
+
+		/**
+		 * Compares the last-modified times of aFile1 and aFile2
+		 */
+		public int compare(File aFile1, File aFile2) {
+			return aFile1.lastModified() < aFile2.lastModified() ? -1 :
+				aFile1.lastModified() == aFile2.lastModified() ? 0 : 1;
+		}
+	}
+}
@@ -0,0 +1,141 @@
+/*
+	Copyright 2006 Paul Evans
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+package us.paulevans.basicxslt;
+
+import java.util.Arrays;
+
+/**
+ * Summary statistics of a set of timings, in nanoseconds.
+ * @author pevans
+ *
+ */
+public class Statistics {
+
+	// instance members...
+	private long samples[];
+
+	/**
+	 * Constructor
+	 * @param aSamples
+	 */
+	public Statistics(long aSamples[]) {
+		samples = aSamples.clone();
+		Arrays.sort(samples);
+	}
+
+	/**
+	 * Returns the number of samples
+	 * @return
+	 */
+	public int getCount() {
+		return samples.length;
+	}
+
+	/**
+	 * Returns the smallest sample
+	 * @return
+	 */
+	public long getMin() {
+		return samples.length == 0 ? 0 : samples[0];
+	}
+
+	/**
+	 * Returns the largest sample
+	 * @return
+	 */
+	public long getMax() {
+		return samples.length == 0 ? 0 : samples[samples.length - 1];
+	}
+
+	/**
+	 * Returns the median; the mean of the two middle samples if there is an
+	 * even number of them.
+	 * @return
+	 */
+	public double getMedian() {
+
+		int middle;
+
+		if (samples.length == 0) {
+			return 0;
+		}
+		middle = samples.length / 2;
+		return samples.length % 2 == 1 ? samples[middle] :
+			(samples[middle - 1] + samples[middle]) / 2.0;
+	}
+
+	/**
+	 * Returns the aPercent percentile, using the nearest-rank method.
+	 * @param aPercent 0 to 100
+	 * @return
+	 */
+	public long getPercentile(double aPercent) {
+
+		int rank;
+
+		if (samples.length == 0) {
+			return 0;
+		}
+		rank = (int)Math.ceil(aPercent / 100.0 * samples.length);
+		return samples[Math.min(Math.max(rank, 1), samples.length) - 1];
+	}
+
+	/**
+	 * Returns the mean
+	 * @return
+	 */
+	public double getMean() {
+
+		double total;
+		int loop;
+
+		total = 0;
+		for (loop = 0; loop < samples.length; loop++) {
+			total += samples[loop];
+		}
+		return samples.length == 0 ? 0 : total / samples.length;
+	}
+
+	/**
+	 * Returns the sample standard deviation
+	 * @return
+	 */
+	public double getStandardDeviation() {
+
+		double mean, total;
+		int loop;
+
+		if (samples.length < 2) {
+			return 0;
+		}
+		mean = getMean();
+		total = 0;
+		for (loop = 0; loop < samples.length; loop++) {
+			total += (samples[loop] - mean) * (samples[loop] - mean);
+		}
+		return Math.sqrt(total / (samples.length - 1));
+	}
+
+	/**
+	 * Returns a string representation of this object
+	 */
+	public String toString() {
+		return "count=" + getCount() + ", min=" + getMin() + "ns, median=" +
+			getMedian() + "ns, mean=" + getMean() + "ns, p90=" +
+			getPercentile(90) + "ns, p99=" + getPercentile(99) +
+			"ns, stdev=" + getStandardDeviation() + "ns";
+	}
+}
@@ -0,0 +1,339 @@
+/*
+	Copyright 2006 Paul Evans
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+package us.paulevans.basicxslt;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.xalan.templates.ElemForEach;
+import org.apache.xalan.templates.ElemTemplate;
+import org.apache.xalan.templates.ElemTemplateElement;
+import org.apache.xalan.trace.EndSelectionEvent;
+import org.apache.xalan.trace.GenerateEvent;
+import org.apache.xalan.trace.SelectionEvent;
+import org.apache.xalan.trace.TraceListenerEx2;
+import org.apache.xalan.trace.TracerEvent;
+
+/**
+ * Profiles the stylesheet run by an interpretive Xalan transformer, from
+ * the trace events the transformer fires once the profiler is added to its
+ * TraceManager.  Time and invocations are added up per template, per
+ * select (or test) expression and per source line of the stylesheet.
+ * <p>
+ * Each instruction runs from its trace event to its trace end event.  An
+ * expression is evaluated between the event before it is selected and the
+ * selection itself, so that is its exclusive time; the inclusive time of
+ * the select of an xsl:for-each or xsl:apply-templates also covers the
+ * processing of the nodes it selects.  Timing every event slows the
+ * transform down, so the times are best compared with each other rather
+ * than with an unprofiled run.  A profiler is only used by one transformer
+ * at a time.
+ * @author pevans
+ *
+ */
+public class TemplateProfiler implements TraceListenerEx2 {
+
+	// instance members...
+	private Map<ElemTemplateElement, ProfileEntry> templates;
+	private Map<ElemTemplateElement, ProfileEntry> selects;
+	private Map<ElemTemplateElement, ProfileEntry> elementLines;
+	private Map<String, ProfileEntry> lines;
+	private List<Frame> frames;
+	private List<Frame> selectFrames;
+	private long lastEventTime;
+
+	/**
+	 * Constructor
+	 *
+	 */
+	public TemplateProfiler() {
+		templates = new IdentityHashMap<ElemTemplateElement, ProfileEntry>();
+		selects = new IdentityHashMap<ElemTemplateElement, ProfileEntry>();
+		elementLines =
+			new IdentityHashMap<ElemTemplateElement, ProfileEntry>();
+		lines = new HashMap<String, ProfileEntry>();
+		frames = new ArrayList<Frame>();
+		selectFrames = new ArrayList<Frame>();
+	}
+
+	/**
+	 * Returns an entry for each template, select expression and source line
+	 * that ran
+	 * @return
+	 */
+	public List<ProfileEntry> getEntries() {
+
+		List<ProfileEntry> entries;
+
+		entries = new ArrayList<ProfileEntry>(templates.values());
+		entries.addAll(selects.values());
+		entries.addAll(lines.values());
+		return entries;
+	}
+
+	/**
+	 * Returns the entries of aKind
+	 * @param aKind ProfileEntry.TEMPLATE, SELECT or LINE
+	 * @return
+	 */
+	public List<ProfileEntry> getEntries(int aKind) {
+		switch (aKind) {
+		case ProfileEntry.TEMPLATE:
+			return new ArrayList<ProfileEntry>(templates.values());
+		case ProfileEntry.SELECT:
+			return new ArrayList<ProfileEntry>(selects.values());
+		default:
+			return new ArrayList<ProfileEntry>(lines.values());
+		}
+	}
+
+	/**
+	 * Starts timing the instruction of aEvent.
+	 */
+	public void trace(TracerEvent aEvent) {
+
+		ElemTemplateElement element;
+		Frame frame, parent;
+
+		lastEventTime = System.nanoTime();
+		element = aEvent.m_styleNode;
+		parent = frames.isEmpty() ? null : frames.get(frames.size() - 1);
+		frame = new Frame(element, lastEventTime);
+		frame.line = getLineEntry(element);
+		frame.line.enter();
+		frame.template = parent == null ? null : parent.template;
+		if (element instanceof ElemTemplate) {
+			frame.entry = getTemplateEntry((ElemTemplate)element);
+			frame.entry.enter();
+			frame.outerTemplate = frame.template;
+			frame.template = frame;
+		}
+		frames.add(frame);
+	}
+
+	/**
+	 * Stops timing the instruction of aEvent.  Frames left behind by an
+	 * instruction that did not end (because the transform was stopped) are
+	 * ended with it.
+	 */
+	public void traceEnd(TracerEvent aEvent) {
+
+		long now, inclusive;
+		Frame frame, parent;
+
+		now = System.nanoTime();
+		lastEventTime = now;
+		if (indexOf(frames, aEvent.m_styleNode) == -1) {
+			return;
+		}
+		do {
+			frame = frames.remove(frames.size() - 1);
+			inclusive = now - frame.start;
+			frame.line.leave(inclusive, inclusive - frame.childTime);
+			if (frame.entry != null) {
+				frame.entry.leave(inclusive,
+						inclusive - frame.nestedTemplateTime);
+				if (frame.outerTemplate != null) {
+					frame.outerTemplate.nestedTemplateTime += inclusive;
+				}
+			}
+			if (!frames.isEmpty()) {
+				parent = frames.get(frames.size() - 1);
+				parent.childTime += inclusive;
+			}
+		} while (frame.element != aEvent.m_styleNode);
+	}
+
+	/**
+	 * Records the evaluation of the expression of aEvent; the selection of
+	 * an xsl:for-each or xsl:apply-templates goes on being timed until it
+	 * ends.
+	 */
+	public void selected(SelectionEvent aEvent) {
+
+		long now, evaluation;
+		ProfileEntry entry;
+		Frame frame;
+
+		now = System.nanoTime();
+		evaluation = now - lastEventTime;
+		lastEventTime = now;
+		entry = getSelectEntry(aEvent);
+		entry.enter();
+		if (aEvent.m_styleNode instanceof ElemForEach) {
+			frame = new Frame(aEvent.m_styleNode, now - evaluation);
+			frame.entry = entry;
+			frame.childTime = evaluation;
+			selectFrames.add(frame);
+		} else {
+			entry.leave(evaluation, evaluation);
+		}
+	}
+
+	/**
+	 * Stops timing the selection of aEvent.
+	 */
+	public void selectEnd(EndSelectionEvent aEvent) {
+
+		long now;
+		int index;
+		Frame frame;
+
+		now = System.nanoTime();
+		lastEventTime = now;
+		index = indexOf(selectFrames, aEvent.m_styleNode);
+		if (index == -1) {
+			return;
+		}
+		while (selectFrames.size() > index) {
+			frame = selectFrames.remove(selectFrames.size() - 1);
+			frame.entry.leave(now - frame.start, frame.childTime);
+		}
+	}
+
+	/**
+	 * Notes the time of a generated event, so it is not counted as the
+	 * evaluation of the next expression.
+	 */
+	public void generated(GenerateEvent aEvent) {
+		lastEventTime = System.nanoTime();
+	}
+
+	/**
+	 * Returns the index of the last frame of aFrames for aElement, or -1
+	 * @param aFrames
+	 * @param aElement
+	 * @return
+	 */
+	private static int indexOf(List<Frame> aFrames,
+			ElemTemplateElement aElement) {
+
+		int loop;
+
+		for (loop = aFrames.size() - 1; loop >= 0; loop--) {
+			if (aFrames.get(loop).element == aElement) {
+				return loop;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the entry of aTemplate, adding it if need be
+	 * @param aTemplate
+	 * @return
+	 */
+	private ProfileEntry getTemplateEntry(ElemTemplate aTemplate) {
+
+		ProfileEntry entry;
+		StringBuffer name;
+
+		if ((entry = templates.get(aTemplate)) == null) {
+			name = new StringBuffer();
+			if (aTemplate.getName() != null) {
+				name.append("name=\"" + aTemplate.getName() + "\"");
+			} else if (aTemplate.getMatch() != null) {
+				name.append("match=\"" +
+						aTemplate.getMatch().getPatternString() + "\"");
+			}
+			if (aTemplate.getMode() != null) {
+				name.append(" mode=\"" + aTemplate.getMode() + "\"");
+			}
+			entry = new ProfileEntry(ProfileEntry.TEMPLATE,
+					name.toString(), aTemplate.getSystemId(),
+					aTemplate.getLineNumber());
+			templates.put(aTemplate, entry);
+		}
+		return entry;
+	}
+
+	/**
+	 * Returns the entry of the expression of aEvent, adding it if need be
+	 * @param aEvent
+	 * @return
+	 */
+	private ProfileEntry getSelectEntry(SelectionEvent aEvent) {
+
+		ProfileEntry entry;
+		ElemTemplateElement element;
+		String name;
+
+		element = aEvent.m_styleNode;
+		if ((entry = selects.get(element)) == null) {
+			name = element.getNodeName() + " " + aEvent.m_attributeName;
+			if (aEvent.m_xpath != null &&
+					aEvent.m_xpath.getPatternString() != null) {
+				name += "=\"" + aEvent.m_xpath.getPatternString() + "\"";
+			}
+			entry = new ProfileEntry(ProfileEntry.SELECT, name,
+					element.getSystemId(), element.getLineNumber());
+			selects.put(element, entry);
+		}
+		return entry;
+	}
+
+	/**
+	 * Returns the entry of the source line of aElement, adding it if need
+	 * be; the entry is named after the first instruction seen on the line.
+	 * @param aElement
+	 * @return
+	 */
+	private ProfileEntry getLineEntry(ElemTemplateElement aElement) {
+
+		ProfileEntry entry;
+		String key;
+
+		if ((entry = elementLines.get(aElement)) == null) {
+			key = aElement.getSystemId() + ":" + aElement.getLineNumber();
+			if ((entry = lines.get(key)) == null) {
+				entry = new ProfileEntry(ProfileEntry.LINE,
+						aElement.getNodeName(), aElement.getSystemId(),
+						aElement.getLineNumber());
+				lines.put(key, entry);
+			}
+			elementLines.put(aElement, entry);
+		}
+		return entry;
+	}
+
+	/**
+	 * An instruction or selection being timed.
+	 */
+	static class Frame {
+
+		ElemTemplateElement element;
+		long start;
+		long childTime;
+		long nestedTemplateTime;
+		ProfileEntry entry;
+		ProfileEntry line;
+		Frame template;
+		Frame outerTemplate;
+
+		/**
+		 * Constructor
+		 * @param aElement
+		 * @param aStart
+		 */
+		Frame(ElemTemplateElement aElement, long aStart) {
+			element = aElement;
+			start = aStart;
+		}
+	}
+}
@@ -0,0 +1,670 @@
+/*
+	Copyright 2006 Paul Evans
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+package us.paulevans.basicxslt;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.URIResolver;
+import javax.xml.transform.stream.StreamSource;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.vfs.FileObject;
+import org.apache.commons.vfs.FileSystemException;
+import org.apache.commons.vfs.FileSystemManager;
+import org.apache.log4j.Logger;
+import org.apache.xalan.xsltc.trax.TemplatesImpl;
+
+/**
+ * Cache of compiled stylesheets.  An entry is keyed on the resolved URI of
+ * the stylesheet and its last-modified time; it is thrown away as soon as the
+ * stylesheet, or any stylesheet it pulls in through xsl:import/xsl:include,
+ * is modified.  The least-recently used entry is evicted once the cache is
+ * full.  A stylesheet is compiled outside the cache's lock, so a slow compile
+ * only holds up callers asking for that same stylesheet, which wait for it
+ * rather than compile it again.  Stylesheets may be compiled either by the interpretive Xalan
+ * processor or by XSLTC; XSLTC translets are also kept on disk by the
+ * TransletCache.
+ * @author pevans
+ *
+ */
+public class TemplatesCache {
+
+	// prefix of the keys of stylesheets compiled by XSLTC...
+	private static final String XSLTC_KEY_PREFIX = "xsltc:";
+
+	// scheme of the URIs of local files...
+	private static final String FILE_SCHEME = "file:";
+
+	// default maximum number of compiled stylesheets held...
+	private static final int DEFAULT_MAX_ENTRIES = 32;
+
+	// singleton instance...
+	private static final TemplatesCache instance =
+		new TemplatesCache(DEFAULT_MAX_ENTRIES);
+
+    // logger object...
+    private static final Logger logger = Logger.getLogger(
+    		TemplatesCache.class);
+
+	// instance members...
+	private Map<String,Entry> entries;
+	private Map<String,FutureTask<Entry>> compiling;
+	private TransletCache transletCache;
+	private long hits;
+	private long misses;
+
+	/**
+	 * Constructor
+	 * @param aMaxEntries
+	 */
+	public TemplatesCache(int aMaxEntries) {
+		this(aMaxEntries, TransletCache.getInstance());
+	}
+
+	/**
+	 * Constructor
+	 * @param aMaxEntries
+	 * @param aTransletCache where XSLTC translets are kept on disk
+	 */
+	public TemplatesCache(int aMaxEntries, TransletCache aTransletCache) {
+		entries = new LRUMap<String,Entry>(aMaxEntries);
+		compiling = new HashMap<String,FutureTask<Entry>>();
+		transletCache = aTransletCache;
+	}
+
+	/**
+	 * Returns the singleton instance
+	 * @return TemplatesCache
+	 */
+	public static TemplatesCache getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Returns the compiled form of the stylesheet located at aURI.  The
+	 * stylesheet is only compiled if it is not already cached, or if it (or
+	 * one of its imports/includes) has changed since it was compiled.
+	 * @param aFSMgr
+	 * @param aURI
+	 * @return Templates
+	 * @throws FileSystemException
+	 * @throws TransformerConfigurationException
+	 */
+	public Templates getTemplates(FileSystemManager aFSMgr, String aURI)
+	throws FileSystemException, TransformerConfigurationException {
+		return getTemplates(aFSMgr, aURI, false);
+	}
+
+	/**
+	 * Returns the compiled form of the stylesheet located at aURI, compiled
+	 * by XSLTC if aXSLTC is true and by the interpretive processor otherwise.
+	 * @param aFSMgr
+	 * @param aURI
+	 * @param aXSLTC
+	 * @return Templates
+	 * @throws FileSystemException
+	 * @throws TransformerConfigurationException
+	 */
+	public Templates getTemplates(FileSystemManager aFSMgr,
+			String aURI, boolean aXSLTC) throws FileSystemException,
+			TransformerConfigurationException {
+
+		return getEntry(aFSMgr, aFSMgr.resolveFile(aURI), aXSLTC).templates;
+	}
+
+	/**
+	 * Returns the content hash of the stylesheet located at aURI and of
+	 * every stylesheet it imports or includes, compiling the stylesheet if
+	 * it is not already cached.
+	 * @param aFSMgr
+	 * @param aURI
+	 * @param aXSLTC
+	 * @return
+	 * @throws FileSystemException
+	 * @throws TransformerConfigurationException
+	 */
+	public String getContentHash(FileSystemManager aFSMgr,
+			String aURI, boolean aXSLTC) throws FileSystemException,
+			TransformerConfigurationException {
+
+		FileObject file;
+		Entry entry;
+
+		file = aFSMgr.resolveFile(aURI);
+		entry = getEntry(aFSMgr, file, aXSLTC);
+		if (entry.contentHash == null) {
+			entry.contentHash = entry.hash(aFSMgr, file);
+		}
+		return entry.contentHash;
+	}
+
+	/**
+	 * Returns the URIs of every stylesheet imported or included, directly or
+	 * indirectly, by the stylesheet located at aURI, compiling the stylesheet
+	 * if it is not already cached.
+	 * @param aFSMgr
+	 * @param aURI
+	 * @param aXSLTC
+	 * @return
+	 * @throws FileSystemException
+	 * @throws TransformerConfigurationException
+	 */
+	public List<String> getDependencies(FileSystemManager aFSMgr,
+			String aURI, boolean aXSLTC) throws FileSystemException,
+			TransformerConfigurationException {
+		return new ArrayList<String>(getEntry(aFSMgr,
+				aFSMgr.resolveFile(aURI), aXSLTC).dependencies.keySet());
+	}
+
+	/**
+	 * Returns the current entry for aFile, compiling it if need be.  The
+	 * compile runs on the calling thread but outside the lock; a caller that
+	 * asks for a stylesheet already being compiled waits for that compile.
+	 * @param aFSMgr
+	 * @param aFile
+	 * @param aXSLTC
+	 * @return
+	 * @throws FileSystemException
+	 * @throws TransformerConfigurationException
+	 */
+	private Entry getEntry(FileSystemManager aFSMgr, FileObject aFile,
+			boolean aXSLTC) throws FileSystemException,
+			TransformerConfigurationException {
+
+		String key;
+		Entry entry;
+		FutureTask<Entry> task;
+		boolean compiler;
+
+		key = (aXSLTC ? XSLTC_KEY_PREFIX : "") + aFile.getName().getURI();
+		compiler = false;
+		synchronized (this) {
+			entry = entries.get(key);
+			if (entry != null && entry.isCurrent(aFSMgr, aFile)) {
+				hits++;
+				return entry;
+			}
+			task = compiling.get(key);
+			if (task == null) {
+				if (entry != null) {
+					logger.info("stylesheet changed, recompiling: " + key);
+					entries.remove(key);
+				}
+				misses++;
+				task = new FutureTask<Entry>(new Compilation(this, aFSMgr,
+						aFile, aXSLTC));
+				compiling.put(key, task);
+				compiler = true;
+			}
+		}
+		if (compiler) {
+			task.run();
+			compiled(key, task);
+		}
+		return await(task);
+	}
+
+	/**
+	 * Compiles the stylesheet aFile, by XSLTC if aXSLTC is true and by the
+	 * interpretive processor otherwise; called by a Compilation.
+	 * @param aFSMgr
+	 * @param aFile
+	 * @param aXSLTC
+	 * @return
+	 * @throws FileSystemException
+	 * @throws TransformerConfigurationException
+	 */
+	Entry newEntry(FileSystemManager aFSMgr, FileObject aFile, boolean aXSLTC)
+	throws FileSystemException, TransformerConfigurationException {
+		return aXSLTC ? compileTranslet(aFSMgr, aFile) : compile(aFSMgr, aFile,
+				TransformerFactory.newInstance(), toSource(aFile));
+	}
+
+	/**
+	 * Caches the entry compiled by aTask, which has run, under aKey; a
+	 * failed compile is not cached.
+	 * @param aKey
+	 * @param aTask
+	 */
+	private synchronized void compiled(String aKey, FutureTask<Entry> aTask) {
+		compiling.remove(aKey);
+		try {
+			entries.put(aKey, aTask.get());
+		} catch (ExecutionException aException) {
+			// the callers waiting on aTask are told of the failure...
+		} catch (InterruptedException aException) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Returns the entry compiled by aTask, waiting for it if need be, or
+	 * throws the exception the compile failed with.
+	 * @param aTask
+	 * @return
+	 * @throws FileSystemException
+	 * @throws TransformerConfigurationException
+	 */
+	private static Entry await(FutureTask<Entry> aTask)
+	throws FileSystemException, TransformerConfigurationException {
+
+		Throwable cause;
+
+		try {
+			return aTask.get();
+		} catch (InterruptedException aException) {
+			Thread.currentThread().interrupt();
+			throw new TransformerConfigurationException(aException);
+		} catch (ExecutionException aException) {
+			cause = aException.getCause();
+			if (cause instanceof FileSystemException) {
+				throw (FileSystemException)cause;
+			}
+			if (cause instanceof TransformerConfigurationException) {
+				throw (TransformerConfigurationException)cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException)cause;
+			}
+			if (cause instanceof java.lang.Error) {
+				throw (java.lang.Error)cause;
+			}
+			throw new TransformerConfigurationException(cause);
+		}
+	}
+
+	/**
+	 * Compiles the stylesheet aFile, read from aSource, with aFactory,
+	 * recording the last-modified time of it and of every stylesheet it
+	 * imports or includes.
+	 * @param aFSMgr
+	 * @param aFile
+	 * @param aFactory
+	 * @param aSource
+	 * @return Entry
+	 * @throws FileSystemException
+	 * @throws TransformerConfigurationException
+	 */
+	private static Entry compile(FileSystemManager aFSMgr, FileObject aFile,
+			TransformerFactory aFactory, Source aSource)
+	throws FileSystemException, TransformerConfigurationException {
+
+		Entry entry;
+		DependencyRecorder recorder;
+
+		entry = new Entry();
+		entry.lastModified = aFile.getContent().getLastModifiedTime();
+		recorder = new DependencyRecorder(aFSMgr, entry);
+		aFactory.setURIResolver(recorder);
+		try {
+			entry.templates = aFactory.newTemplates(aSource);
+		} finally {
+			// document() calls made at transform-time are not dependencies...
+			recorder.entry = null;
+		}
+		return entry;
+	}
+
+	/**
+	 * Compiles the stylesheet aFile with XSLTC, or loads the translet from
+	 * the TransletCache if the stylesheet has been compiled before.
+	 * @param aFSMgr
+	 * @param aFile
+	 * @return Entry
+	 * @throws FileSystemException
+	 * @throws TransformerConfigurationException
+	 */
+	private Entry compileTranslet(FileSystemManager aFSMgr, FileObject aFile)
+	throws FileSystemException, TransformerConfigurationException {
+
+		Entry entry;
+		InputStream in;
+		byte contents[];
+		String key, uri;
+		List<String> dependencies;
+		Templates templates;
+		FileObject file;
+		int loop;
+
+		in = aFile.getContent().getInputStream();
+		try {
+			contents = IOUtils.toByteArray(in);
+		} catch (IOException aException) {
+			throw new FileSystemException(aException);
+		} finally {
+			Utils.closeQuietly(in);
+		}
+		key = TransletCache.key(getSystemId(aFile), contents);
+		dependencies = new ArrayList<String>();
+		templates = transletCache.get(aFSMgr, key, dependencies);
+		if (templates == null) {
+			entry = compile(aFSMgr, aFile, new org.apache.xalan.xsltc.trax.
+					TransformerFactoryImpl(), new StreamSource(
+							new ByteArrayInputStream(contents),
+							getSystemId(aFile)));
+			transletCache.put(aFSMgr, key, entry.templates,
+					entry.dependencies.keySet());
+			return entry;
+		}
+		entry = new Entry();
+		entry.lastModified = aFile.getContent().getLastModifiedTime();
+		entry.templates = templates;
+		for (loop = 0; loop < dependencies.size(); loop++) {
+			uri = dependencies.get(loop);
+			file = aFSMgr.resolveFile(uri);
+			entry.dependencies.put(uri, Long.valueOf(
+					file.getContent().getLastModifiedTime()));
+		}
+		// document() calls made at transform-time go through commons-VFS...
+		if (templates instanceof TemplatesImpl) {
+			((TemplatesImpl)templates).setURIResolver(
+					new DependencyRecorder(aFSMgr, null));
+		}
+		return entry;
+	}
+
+	/**
+	 * Returns aFile as a Source object whose system-id is the URL of the file
+	 * so that relative imports/includes resolve correctly.  The file is read
+	 * in full and closed here; the Source is never closed by the processor.
+	 * @param aFile
+	 * @return Source
+	 * @throws FileSystemException
+	 */
+	static Source toSource(FileObject aFile) throws FileSystemException {
+
+		InputStream in;
+		byte contents[];
+
+		in = aFile.getContent().getInputStream();
+		try {
+			contents = IOUtils.toByteArray(in);
+		} catch (IOException aException) {
+			throw new FileSystemException(aException);
+		} finally {
+			Utils.closeQuietly(in);
+		}
+		return new StreamSource(new ByteArrayInputStream(contents),
+				getSystemId(aFile));
+	}
+
+	/**
+	 * Returns the system-id of aFile
+	 * @param aFile
+	 * @return
+	 * @throws FileSystemException
+	 */
+	private static String getSystemId(FileObject aFile)
+	throws FileSystemException {
+		try {
+			return aFile.getURL().toURI().toString();
+		} catch (java.net.URISyntaxException aException) {
+			throw new FileSystemException(aException);
+		}
+	}
+
+	/**
+	 * Removes all compiled stylesheets from the cache.
+	 *
+	 */
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	/**
+	 * Getter
+	 * @return
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Getter
+	 * @return
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Getter
+	 * @return
+	 */
+	public synchronized int getSize() {
+		return entries.size();
+	}
+
+	/**
+	 * Access-ordered map that drops its least-recently used entry once it
+	 * holds more than maxEntries entries.
+	 */
+	static class LRUMap<K,V> extends LinkedHashMap<K,V> {
+
+		private static final long serialVersionUID = 1L;
+
+		int maxEntries;
+
+		/**
+		 * Constructor
+		 * @param aMaxEntries
+		 */
+		LRUMap(int aMaxEntries) {
+			super(16, 0.75f, true);
+			maxEntries = aMaxEntries;
+		}
+
+		/**
+		 * Evicts the eldest entry when the map is full
+		 */
+		protected boolean removeEldestEntry(Map.Entry<K,V> aEldest) {
+			return size() > maxEntries;
+		}
+	}
+
+	/**
+	 * A compiled stylesheet along with the last-modified times of the files
+	 * it was compiled from.
+	 */
+	private static class Entry {
+
+		Templates templates;
+		volatile String contentHash;
+		long lastModified;
+		Map<String,Long> dependencies =
+			new LinkedHashMap<String,Long>();
+
+		/**
+		 * Returns the content hash of aFile and of each of its dependencies.
+		 * @param aFSMgr
+		 * @param aFile
+		 * @return
+		 * @throws FileSystemException
+		 */
+		String hash(FileSystemManager aFSMgr, FileObject aFile)
+		throws FileSystemException {
+
+			ByteArrayOutputStream contents;
+			Iterator<String> iter;
+			InputStream in;
+			FileObject file;
+
+			contents = new ByteArrayOutputStream();
+			file = aFile;
+			iter = dependencies.keySet().iterator();
+			while (file != null) {
+				in = file.getContent().getInputStream();
+				try {
+					IOUtils.copy(in, contents);
+				} catch (IOException aException) {
+					throw new FileSystemException(aException);
+				} finally {
+					Utils.closeQuietly(in);
+				}
+				file = iter.hasNext() ? aFSMgr.resolveFile(iter.next()) : null;
+			}
+			return ResultCache.hash(contents.toByteArray());
+		}
+
+		/**
+		 * Returns true if neither aFile nor any of its dependencies have been
+		 * modified since this entry was compiled.
+		 * @param aFSMgr
+		 * @param aFile
+		 * @return
+		 */
+		boolean isCurrent(FileSystemManager aFSMgr, FileObject aFile) {
+
+			Iterator<Map.Entry<String,Long>> iter;
+			Map.Entry<String,Long> dependency;
+			FileObject file;
+
+			try {
+				aFile.refresh();
+				if (aFile.getContent().getLastModifiedTime() != lastModified) {
+					return false;
+				}
+				iter = dependencies.entrySet().iterator();
+				while (iter.hasNext()) {
+					dependency = iter.next();
+					file = aFSMgr.resolveFile(dependency.getKey());
+					file.refresh();
+					if (!file.exists() ||
+							file.getContent().getLastModifiedTime() !=
+								dependency.getValue().longValue()) {
+						return false;
+					}
+				}
+				return true;
+			} catch (FileSystemException aException) {
+				logger.warn("unable to check stylesheet, recompiling: " +
+						aException.getMessage());
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Compiles one stylesheet for getEntry(); run by the first caller to ask
+	 * for it.
+	 */
+	static class Compilation implements Callable<Entry> {
+
+		TemplatesCache cache;
+		FileSystemManager fsMgr;
+		FileObject file;
+		boolean xsltc;
+
+		/**
+		 * Constructor
+		 * @param aCache
+		 * @param aFSMgr
+		 * @param aFile
+		 * @param aXSLTC
+		 */
+		Compilation(TemplatesCache aCache, FileSystemManager aFSMgr,
+				FileObject aFile, boolean aXSLTC) {
+			cache = aCache;
+			fsMgr = aFSMgr;
+			file = aFile;
+			xsltc = aXSLTC;
+		}
+
+		/**
+		 * Compiles the stylesheet
+		 */
+		public Entry call() throws FileSystemException,
+				TransformerConfigurationException {
+			return cache.newEntry(fsMgr, file, xsltc);
+		}
+	}
+
+	/**
+	 * URIResolver that resolves xsl:import and xsl:include hrefs through
+	 * commons-VFS and records each resolved file as a dependency of the
+	 * stylesheet being compiled.
+	 */
+	private static class DependencyRecorder implements URIResolver {
+
+		FileSystemManager fsMgr;
+		Entry entry;
+
+		/**
+		 * Constructor
+		 * @param aFSMgr
+		 * @param aEntry
+		 */
+		DependencyRecorder(FileSystemManager aFSMgr, Entry aEntry) {
+			fsMgr = aFSMgr;
+			entry = aEntry;
+		}
+
+		/**
+		 * Resolves aHref against aBase
+		 */
+		public Source resolve(String aHref, String aBase)
+		throws TransformerException {
+
+			String uri;
+			FileObject file;
+			Source source;
+
+			try {
+				source = CachingResolver.getInstance().resolve(aHref, aBase);
+				if (source != null) {
+					// only a file a catalog maps to can change...
+					if (entry != null &&
+							source.getSystemId().startsWith(FILE_SCHEME)) {
+						file = fsMgr.resolveFile(source.getSystemId());
+						entry.dependencies.put(file.getName().getURI(),
+								Long.valueOf(file.getContent().
+										getLastModifiedTime()));
+					}
+					return source;
+				}
+				uri = aBase != null ? new URI(aBase).resolve(
+						new URI(aHref)).toString() : aHref;
+				file = fsMgr.resolveFile(uri);
+				if (entry != null) {
+					entry.dependencies.put(file.getName().getURI(),
+							Long.valueOf(
+									file.getContent().getLastModifiedTime()));
+				}
+				return toSource(file);
+			} catch (Exception aException) {
+				throw new TransformerException(aException);
+			}
+		}
+	}
+}
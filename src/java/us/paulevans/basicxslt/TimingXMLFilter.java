@@ -0,0 +1,381 @@
+/*
+	Copyright 2006 Paul Evans
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+package us.paulevans.basicxslt;
+
+import java.io.IOException;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.ext.LexicalHandler;
+import org.xml.sax.helpers.XMLFilterImpl;
+
+/**
+ * SAX filter that passes every event through unchanged while keeping track
+ * of time.  When used as an XMLReader it records the elapsed time of the
+ * parse; when used as a ContentHandler it records the time spent in the
+ * downstream handlers.  If a TransformCanceller is set the filter stops the
+ * parse or transform at the next element once the canceller is stopped.
+ * If a TransformProgress is set the ContentHandler events passed on are
+ * counted and added to it in batches, so the count costs next to nothing.
+ * @author pevans
+ *
+ */
+public class TimingXMLFilter extends XMLFilterImpl implements LexicalHandler {
+
+	// events counted before they are added to the progress...
+	private static final int EVENTS_PER_UPDATE = 1024;
+
+	// instance members...
+	private LexicalHandler lexicalHandler;
+	private long elapsedTime;
+	private long downstreamTime;
+	private TransformCanceller canceller;
+	private TransformProgress progress;
+	private int events;
+
+	/**
+	 * Constructor
+	 *
+	 */
+	public TimingXMLFilter() {
+		super();
+	}
+
+	/**
+	 * Constructor
+	 * @param aParent
+	 */
+	public TimingXMLFilter(XMLReader aParent) {
+		super(aParent);
+	}
+
+	/**
+	 * Setter
+	 * @param aLexicalHandler
+	 */
+	public void setLexicalHandler(LexicalHandler aLexicalHandler) {
+		lexicalHandler = aLexicalHandler;
+	}
+
+	/**
+	 * Setter
+	 * @param aCanceller
+	 */
+	public void setCanceller(TransformCanceller aCanceller) {
+		canceller = aCanceller;
+	}
+
+	/**
+	 * Setter
+	 * @param aProgress
+	 */
+	public void setProgress(TransformProgress aProgress) {
+		progress = aProgress;
+	}
+
+	/**
+	 * Counts an event, adding a batch of events to the progress, if any,
+	 * once it is full.
+	 */
+	private void countEvent() {
+		if (++events == EVENTS_PER_UPDATE) {
+			flushEvents();
+		}
+	}
+
+	/**
+	 * Adds the events counted since the last batch to the progress, if any.
+	 */
+	private void flushEvents() {
+		if (progress != null) {
+			progress.addEvents(events);
+		}
+		events = 0;
+	}
+
+	/**
+	 * Returns the nanoseconds spent in parse()
+	 * @return
+	 */
+	public long getElapsedTime() {
+		return elapsedTime;
+	}
+
+	/**
+	 * Returns the nanoseconds spent in the downstream handlers
+	 * @return
+	 */
+	public long getDownstreamTime() {
+		return downstreamTime;
+	}
+
+	/**
+	 * Parses aInput, recording the elapsed time.
+	 */
+	public void parse(InputSource aInput) throws SAXException, IOException {
+
+		long start;
+
+		start = System.nanoTime();
+		try {
+			super.parse(aInput);
+		} finally {
+			elapsedTime += System.nanoTime() - start;
+		}
+	}
+
+	/**
+	 * ContentHandler method
+	 */
+	public void startDocument() throws SAXException {
+
+		long start;
+
+		countEvent();
+		start = System.nanoTime();
+		super.startDocument();
+		downstreamTime += System.nanoTime() - start;
+	}
+
+	/**
+	 * ContentHandler method
+	 */
+	public void endDocument() throws SAXException {
+
+		long start;
+
+		countEvent();
+		start = System.nanoTime();
+		super.endDocument();
+		downstreamTime += System.nanoTime() - start;
+		flushEvents();
+	}
+
+	/**
+	 * ContentHandler method
+	 */
+	public void startPrefixMapping(String aPrefix, String aUri)
+	throws SAXException {
+
+		long start;
+
+		countEvent();
+		start = System.nanoTime();
+		super.startPrefixMapping(aPrefix, aUri);
+		downstreamTime += System.nanoTime() - start;
+	}
+
+	/**
+	 * ContentHandler method
+	 */
+	public void endPrefixMapping(String aPrefix) throws SAXException {
+
+		long start;
+
+		countEvent();
+		start = System.nanoTime();
+		super.endPrefixMapping(aPrefix);
+		downstreamTime += System.nanoTime() - start;
+	}
+
+	/**
+	 * ContentHandler method
+	 */
+	public void startElement(String aUri, String aLocalName, String aQName,
+			Attributes aAttributes) throws SAXException {
+
+		long start;
+
+		if (canceller != null) {
+			canceller.check();
+		}
+		countEvent();
+		start = System.nanoTime();
+		super.startElement(aUri, aLocalName, aQName, aAttributes);
+		downstreamTime += System.nanoTime() - start;
+	}
+
+	/**
+	 * ContentHandler method
+	 */
+	public void endElement(String aUri, String aLocalName, String aQName)
+	throws SAXException {
+
+		long start;
+
+		countEvent();
+		start = System.nanoTime();
+		super.endElement(aUri, aLocalName, aQName);
+		downstreamTime += System.nanoTime() - start;
+	}
+
+	/**
+	 * ContentHandler method
+	 */
+	public void characters(char aChars[], int aStart, int aLength)
+	throws SAXException {
+
+		long start;
+
+		countEvent();
+		start = System.nanoTime();
+		super.characters(aChars, aStart, aLength);
+		downstreamTime += System.nanoTime() - start;
+	}
+
+	/**
+	 * ContentHandler method
+	 */
+	public void ignorableWhitespace(char aChars[], int aStart, int aLength)
+	throws SAXException {
+
+		long start;
+
+		countEvent();
+		start = System.nanoTime();
+		super.ignorableWhitespace(aChars, aStart, aLength);
+		downstreamTime += System.nanoTime() - start;
+	}
+
+	/**
+	 * ContentHandler method
+	 */
+	public void processingInstruction(String aTarget, String aData)
+	throws SAXException {
+
+		long start;
+
+		countEvent();
+		start = System.nanoTime();
+		super.processingInstruction(aTarget, aData);
+		downstreamTime += System.nanoTime() - start;
+	}
+
+	/**
+	 * ContentHandler method
+	 */
+	public void skippedEntity(String aName) throws SAXException {
+
+		long start;
+
+		countEvent();
+		start = System.nanoTime();
+		super.skippedEntity(aName);
+		downstreamTime += System.nanoTime() - start;
+	}
+
+	/**
+	 * LexicalHandler method
+	 */
+	public void startDTD(String aName, String aPublicId, String aSystemId)
+	throws SAXException {
+
+		long start;
+
+		if (lexicalHandler != null) {
+			start = System.nanoTime();
+			lexicalHandler.startDTD(aName, aPublicId, aSystemId);
+			downstreamTime += System.nanoTime() - start;
+		}
+	}
+
+	/**
+	 * LexicalHandler method
+	 */
+	public void endDTD() throws SAXException {
+
+		long start;
+
+		if (lexicalHandler != null) {
+			start = System.nanoTime();
+			lexicalHandler.endDTD();
+			downstreamTime += System.nanoTime() - start;
+		}
+	}
+
+	/**
+	 * LexicalHandler method
+	 */
+	public void startEntity(String aName) throws SAXException {
+
+		long start;
+
+		if (lexicalHandler != null) {
+			start = System.nanoTime();
+			lexicalHandler.startEntity(aName);
+			downstreamTime += System.nanoTime() - start;
+		}
+	}
+
+	/**
+	 * LexicalHandler method
+	 */
+	public void endEntity(String aName) throws SAXException {
+
+		long start;
+
+		if (lexicalHandler != null) {
+			start = System.nanoTime();
+			lexicalHandler.endEntity(aName);
+			downstreamTime += System.nanoTime() - start;
+		}
+	}
+
+	/**
+	 * LexicalHandler method
+	 */
+	public void startCDATA() throws SAXException {
+
+		long start;
+
+		if (lexicalHandler != null) {
+			start = System.nanoTime();
+			lexicalHandler.startCDATA();
+			downstreamTime += System.nanoTime() - start;
+		}
+	}
+
+	/**
+	 * LexicalHandler method
+	 */
+	public void endCDATA() throws SAXException {
+
+		long start;
+
+		if (lexicalHandler != null) {
+			start = System.nanoTime();
+			lexicalHandler.endCDATA();
+			downstreamTime += System.nanoTime() - start;
+		}
+	}
+
+	/**
+	 * LexicalHandler method
+	 */
+	public void comment(char aChars[], int aStart, int aLength)
+	throws SAXException {
+
+		long start;
+
+		if (lexicalHandler != null) {
+			start = System.nanoTime();
+			lexicalHandler.comment(aChars, aStart, aLength);
+			downstreamTime += System.nanoTime() - start;
+		}
+	}
+}
@@ -24,6 +24,8 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
+import java.text.DecimalFormat;
+import java.text.MessageFormat;
 
 import javax.swing.JButton;
 import javax.swing.JLabel;
@@ -42,7 +44,7 @@ public class TimingsFrame extends DisposableFrame implements ActionListener {
 	
 	// default frame width and height - these values are used if
 	// a height and width are not found in the user's preferences...
-	private static final String DEFAULT_FRAME_WIDTH = "400";
+	private static final String DEFAULT_FRAME_WIDTH = "700";
 	private static final String DEFAULT_FRAME_HEIGHT = "200";
 	
     // get the i18n factory singleton instance...
@@ -51,17 +53,67 @@ public class TimingsFrame extends DisposableFrame implements ActionListener {
     
     // user-prefs property name prefix... 
 	private static final String PROPERTY_NAME_PREFIX = "timings_";
+	
+	// column headings - one per phase, followed by the total...
+	private static final String HEADINGS[] = {
+		LabelStringFactory.TIMINGS_FRAME_COMPILE,
+		LabelStringFactory.TIMINGS_FRAME_PARSE,
+		LabelStringFactory.TIMINGS_FRAME_TRANSFORM,
+		LabelStringFactory.TIMINGS_FRAME_SERIALIZE,
+		LabelStringFactory.TIMINGS_FRAME_TIME_TO_TRANSFORM };
+	
+	// benchmark column headings - the one-off compile time, followed by the
+	// statistics of the measured iterations...
+	private static final String BENCHMARK_HEADINGS[] = {
+		LabelStringFactory.TIMINGS_FRAME_COMPILE,
+		LabelStringFactory.TIMINGS_FRAME_MIN,
+		LabelStringFactory.TIMINGS_FRAME_MEDIAN,
+		LabelStringFactory.TIMINGS_FRAME_MEAN,
+		LabelStringFactory.TIMINGS_FRAME_P90,
+		LabelStringFactory.TIMINGS_FRAME_P99,
+		LabelStringFactory.TIMINGS_FRAME_STDDEV };
+	
+	// format of the millisecond values...
+	private static final DecimalFormat MILLIS_FORMAT = 
+		new DecimalFormat("0.000");
 
 	// instance members...
-	private JButton closeBtn;
+	private JButton closeBtn, profileBtn;
 	private UserPreferences userPrefs;
+	private XSLRow xslRows[];
 
 	/**
-	 * Constructor
+	 * Constructor - if the stylesheets of aXSLRows were profiled the frame
+	 * links to their profile.
 	 * @param aParent
 	 * @param aXSLRows
 	 */
 	public TimingsFrame(Frame aParent, XSLRow aXSLRows[]) {
+		xslRows = aXSLRows;
+		init(aParent, buildMainPanel(aXSLRows), 
+				LabelStringFactory.TIMINGS_FRAME_XSL_TRANSFORMATION_TIMINGS);
+	}
+	
+	/**
+	 * Constructor - shows the statistics of aBenchmark, whose stages are the
+	 * stylesheets of aXSLRows.
+	 * @param aParent
+	 * @param aXSLRows
+	 * @param aBenchmark
+	 */
+	public TimingsFrame(Frame aParent, XSLRow aXSLRows[], 
+			BenchmarkRun aBenchmark) {
+		init(aParent, buildBenchmarkPanel(aXSLRows, aBenchmark), 
+				LabelStringFactory.TIMINGS_FRAME_BENCHMARK_TIMINGS);
+	}
+	
+	/**
+	 * Lays out and shows the frame around aMainPanel.
+	 * @param aParent
+	 * @param aMainPanel
+	 * @param aTitleKey
+	 */
+	private void init(Frame aParent, JPanel aMainPanel, String aTitleKey) {
 		
 		JPanel southPanel, mainPanel;
 		int width, height;
@@ -73,16 +125,20 @@ public class TimingsFrame extends DisposableFrame implements ActionListener {
 			}
 		});		
 		mainPanel = new JPanel(new BorderLayout());
-		mainPanel.add(buildMainPanel(aXSLRows), BorderLayout.CENTER);		
+		mainPanel.add(aMainPanel, BorderLayout.CENTER);		
 		southPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
+		if (isProfiled()) {
+			southPanel.add(profileBtn = new JButton(stringFactory.getString(
+					LabelStringFactory.TIMINGS_FRAME_PROFILE_BTN)));
+			profileBtn.addActionListener(this);
+		}
 		southPanel.add(closeBtn = new JButton(stringFactory.getString(
 				LabelStringFactory.CLOSE_BUTTON)));
 		closeBtn.addActionListener(this);		
 		getContentPane().setLayout(new BorderLayout());
 		getContentPane().add(southPanel, BorderLayout.SOUTH);
 		getContentPane().add(new JScrollPane(mainPanel), BorderLayout.CENTER);		
-		setTitle(stringFactory.getString(
-				LabelStringFactory.TIMINGS_FRAME_XSL_TRANSFORMATION_TIMINGS));
+		setTitle(stringFactory.getString(aTitleKey));
 		width = Integer.parseInt(userPrefs.getProperty(PROPERTY_NAME_PREFIX + 
 				AppConstants.FRAME_WIDTH_PROP, DEFAULT_FRAME_WIDTH));
 		height = Integer.parseInt(userPrefs.getProperty(PROPERTY_NAME_PREFIX + 
@@ -92,6 +148,25 @@ public class TimingsFrame extends DisposableFrame implements ActionListener {
 		setVisible(true);
 	}
 	
+	/**
+	 * Returns true if any of the stylesheets shown has a profile
+	 * @return
+	 */
+	private boolean isProfiled() {
+		
+		int loop;
+		
+		if (xslRows == null) {
+			return false;
+		}
+		for (loop = 0; loop < xslRows.length; loop++) {
+			if (xslRows[loop].getTemplateProfiler() != null) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
 	/**
 	 * Builds the main panel
 	 * @param aXSLRows
@@ -103,52 +178,277 @@ public class TimingsFrame extends DisposableFrame implements ActionListener {
 		GridBagLayout layout;
 		GridBagConstraints constraints;
 		JPanel main;	
-		JLabel xslHeading, timingHeading;
-		long totalTransformTime;
+		TransformTimings totalTimings, timings;
+		TemplatesCache templatesCache;
+		TransletCache transletCache;
+		ValidationCache validationCache;
+		CachingResolver resolver;
+		ResultCache resultCache;
+		TransformerPool transformerPool;
 		
 		layout = new GridBagLayout();
 		constraints = new GridBagConstraints();
 		main = new JPanel(layout);
-		totalTransformTime = 0;
+		totalTimings = new TransformTimings();
 		row = 0;
 		col = 0;
-		xslHeading = new JLabel(stringFactory.getString(
-				LabelStringFactory.TIMINGS_FRAME_TRANSFORMATION_XSL));
-		timingHeading = new JLabel(" | " + stringFactory.getString(
-				LabelStringFactory.TIMINGS_FRAME_TIME_TO_TRANSFORM));		
-		GUIUtils.add(main, xslHeading, layout, constraints, row, col++, 1, 1,
+		GUIUtils.add(main, new JLabel(stringFactory.getString(
+				LabelStringFactory.TIMINGS_FRAME_TRANSFORMATION_XSL)), layout, 
+			constraints, row, col++, 1, 1, GridBagConstraints.WEST, 
+			GridBagConstraints.NONE, GUIUtils.SMALL_INSETS);
+		for (loop = 0; loop < HEADINGS.length; loop++) {
+			GUIUtils.add(main, new JLabel(" | " + stringFactory.getString(
+					HEADINGS[loop])), layout, constraints, row, col++, 1, 1, 
+				GridBagConstraints.WEST, GridBagConstraints.NONE, 
+				GUIUtils.SMALL_INSETS);
+		}
+		row++;
+		GUIUtils.add(main, new JSeparator(), layout, constraints, row++, col=0, 
+			1, HEADINGS.length + 1);
+		for (loop = 0; loop < aXSLRows.length; loop++) {
+			timings = aXSLRows[loop].getTransformTimings();
+			if (timings == null) {
+				timings = new TransformTimings();
+			}
+			totalTimings.add(timings);
+			addTimingsRow(main, layout, constraints, row++, 
+					getLabel(aXSLRows[loop], timings), timings);
+		}
+		GUIUtils.add(main, new JSeparator(), layout, constraints, row++, col=0, 
+					1, HEADINGS.length + 1);
+		addTimingsRow(main, layout, constraints, row++, 
+				stringFactory.getString(LabelStringFactory.
+						TIMINGS_FRAME_TOTAL_LBL), totalTimings);
+		templatesCache = TemplatesCache.getInstance();
+		GUIUtils.add(main, new JLabel(stringFactory.getString(
+				LabelStringFactory.TIMINGS_FRAME_TEMPLATES_CACHE_LBL)),
+			layout, constraints, row, col=0, 1, 1, GridBagConstraints.WEST, 
+			GridBagConstraints.NONE, GUIUtils.SMALL_INSETS);
+		GUIUtils.add(main, new JLabel(" | " + MessageFormat.format(
+				stringFactory.getString(
+						LabelStringFactory.TIMINGS_FRAME_TEMPLATES_CACHE_STATS),
+				templatesCache.getHits(), templatesCache.getMisses())), 
+			layout, constraints, row++, ++col, 1, HEADINGS.length, 
+			GridBagConstraints.WEST, GridBagConstraints.NONE, 
+			GUIUtils.SMALL_INSETS);
+		resultCache = ResultCache.getInstance();
+		GUIUtils.add(main, new JLabel(stringFactory.getString(
+				LabelStringFactory.TIMINGS_FRAME_RESULT_CACHE_LBL)),
+			layout, constraints, row, col=0, 1, 1, GridBagConstraints.WEST, 
+			GridBagConstraints.NONE, GUIUtils.SMALL_INSETS);
+		GUIUtils.add(main, new JLabel(" | " + MessageFormat.format(
+				stringFactory.getString(
+						LabelStringFactory.TIMINGS_FRAME_TEMPLATES_CACHE_STATS),
+				resultCache.getHits(), resultCache.getMisses())), 
+			layout, constraints, row++, ++col, 1, HEADINGS.length, 
+			GridBagConstraints.WEST, GridBagConstraints.NONE, 
+			GUIUtils.SMALL_INSETS);
+		transletCache = TransletCache.getInstance();
+		GUIUtils.add(main, new JLabel(stringFactory.getString(
+				LabelStringFactory.TIMINGS_FRAME_TRANSLET_CACHE_LBL)),
+			layout, constraints, row, col=0, 1, 1, GridBagConstraints.WEST, 
+			GridBagConstraints.NONE, GUIUtils.SMALL_INSETS);
+		GUIUtils.add(main, new JLabel(" | " + MessageFormat.format(
+				stringFactory.getString(
+						LabelStringFactory.TIMINGS_FRAME_TEMPLATES_CACHE_STATS),
+				transletCache.getHits(), transletCache.getMisses())), 
+			layout, constraints, row++, ++col, 1, HEADINGS.length, 
+			GridBagConstraints.WEST, GridBagConstraints.NONE, 
+			GUIUtils.SMALL_INSETS);
+		validationCache = ValidationCache.getInstance();
+		GUIUtils.add(main, new JLabel(stringFactory.getString(
+				LabelStringFactory.TIMINGS_FRAME_VALIDATION_CACHE_LBL)),
+			layout, constraints, row, col=0, 1, 1, GridBagConstraints.WEST, 
+			GridBagConstraints.NONE, GUIUtils.SMALL_INSETS);
+		GUIUtils.add(main, new JLabel(" | " + MessageFormat.format(
+				stringFactory.getString(
+						LabelStringFactory.TIMINGS_FRAME_TEMPLATES_CACHE_STATS),
+				validationCache.getHits(), validationCache.getMisses())), 
+			layout, constraints, row++, ++col, 1, HEADINGS.length, 
+			GridBagConstraints.WEST, GridBagConstraints.NONE, 
+			GUIUtils.SMALL_INSETS);
+		resolver = CachingResolver.getInstance();
+		GUIUtils.add(main, new JLabel(stringFactory.getString(
+				LabelStringFactory.TIMINGS_FRAME_RESOURCES_LBL)),
+			layout, constraints, row, col=0, 1, 1, GridBagConstraints.WEST, 
+			GridBagConstraints.NONE, GUIUtils.SMALL_INSETS);
+		GUIUtils.add(main, new JLabel(" | " + MessageFormat.format(
+				stringFactory.getString(
+						LabelStringFactory.TIMINGS_FRAME_RESOURCES_STATS),
+				resolver.getCatalogHits(), resolver.getCacheHits(), 
+				resolver.getRemoteFetches())), 
+			layout, constraints, row++, ++col, 1, HEADINGS.length, 
 			GridBagConstraints.WEST, GridBagConstraints.NONE, 
 			GUIUtils.SMALL_INSETS);
-		GUIUtils.add(main, timingHeading, layout, constraints, row++, col++, 1, 
-			1, GridBagConstraints.WEST, GridBagConstraints.NONE, 
+		transformerPool = TransformerPool.getInstance();
+		GUIUtils.add(main, new JLabel(stringFactory.getString(
+				LabelStringFactory.TIMINGS_FRAME_TRANSFORMER_POOL_LBL)),
+			layout, constraints, row, col=0, 1, 1, GridBagConstraints.WEST, 
+			GridBagConstraints.NONE, GUIUtils.SMALL_INSETS);
+		GUIUtils.add(main, new JLabel(" | " + MessageFormat.format(
+				stringFactory.getString(LabelStringFactory.
+						TIMINGS_FRAME_TRANSFORMER_POOL_STATS),
+				transformerPool.getSize(), transformerPool.getBorrows(),
+				transformerPool.getReuseRatio(), TransformTimings.toMillis(
+						transformerPool.getAverageBorrowTime()))), 
+			layout, constraints, row++, ++col, 1, HEADINGS.length, 
+			GridBagConstraints.WEST, GridBagConstraints.NONE, 
 			GUIUtils.SMALL_INSETS);
+		return main;
+	}
+	
+	/**
+	 * Returns the label of the row of aXSLRow, noting if its timings,
+	 * aTimings, were taken from the cache or are of a transform that was
+	 * stopped part way through.
+	 * @param aXSLRow
+	 * @param aTimings
+	 * @return
+	 */
+	private static String getLabel(XSLRow aXSLRow, TransformTimings aTimings) {
+		
+		String label;
+		
+		label = aXSLRow.getLabel().getText();
+		if (aTimings.isCached()) {
+			label += " " + stringFactory.getString(
+					LabelStringFactory.TIMINGS_FRAME_CACHED);
+		}
+		if (aTimings.isAborted()) {
+			label += " " + MessageFormat.format(stringFactory.getString(
+					LabelStringFactory.TIMINGS_FRAME_ABORTED), 
+					aTimings.getBytesRead(), aTimings.getBytesWritten());
+		}
+		return label;
+	}
+	
+	/**
+	 * Builds the benchmark panel
+	 * @param aXSLRows
+	 * @param aBenchmark
+	 * @return
+	 */
+	private JPanel buildBenchmarkPanel(XSLRow aXSLRows[], 
+			BenchmarkRun aBenchmark) {
+		
+		int row, col, loop;
+		GridBagLayout layout;
+		GridBagConstraints constraints;
+		JPanel main;
+		long compileTime;
+		
+		layout = new GridBagLayout();
+		constraints = new GridBagConstraints();
+		main = new JPanel(layout);
+		compileTime = 0;
+		row = 0;
+		col = 0;
+		GUIUtils.add(main, new JLabel(stringFactory.getString(
+				LabelStringFactory.TIMINGS_FRAME_TRANSFORMATION_XSL)), layout, 
+			constraints, row, col++, 1, 1, GridBagConstraints.WEST, 
+			GridBagConstraints.NONE, GUIUtils.SMALL_INSETS);
+		for (loop = 0; loop < BENCHMARK_HEADINGS.length; loop++) {
+			GUIUtils.add(main, new JLabel(" | " + stringFactory.getString(
+					BENCHMARK_HEADINGS[loop])), layout, constraints, row, 
+				col++, 1, 1, GridBagConstraints.WEST, GridBagConstraints.NONE, 
+				GUIUtils.SMALL_INSETS);
+		}
+		row++;
 		GUIUtils.add(main, new JSeparator(), layout, constraints, row++, col=0, 
-			1, 2);
+			1, BENCHMARK_HEADINGS.length + 1);
 		for (loop = 0; loop < aXSLRows.length; loop++) {
-			totalTransformTime += aXSLRows[loop].getTimeToTransform();
-			col = 0;
-			GUIUtils.add(main, new JLabel(aXSLRows[loop].getLabel().getText()),
-					layout, constraints, row, col++, 1, 1, 
-					GridBagConstraints.WEST, GridBagConstraints.NONE, 
-					GUIUtils.SMALL_INSETS);
-			GUIUtils.add(main, new JLabel(" | " + 
-					aXSLRows[loop].getTimeToTransform()), layout, constraints, 
-					row++, col, 1, 1, GridBagConstraints.WEST, 
-					GridBagConstraints.NONE, GUIUtils.SMALL_INSETS);
+			compileTime += aBenchmark.getCompileTimings(loop).getCompileTime();
+			addStatisticsRow(main, layout, constraints, row++, 
+					aXSLRows[loop].getLabel().getText(), 
+					aBenchmark.getCompileTimings(loop).getCompileTime(), 
+					aBenchmark.getStageStatistics(loop));
 		}
 		GUIUtils.add(main, new JSeparator(), layout, constraints, row++, col=0, 
-					1, 2);
+			1, BENCHMARK_HEADINGS.length + 1);
+		addStatisticsRow(main, layout, constraints, row++, 
+				stringFactory.getString(LabelStringFactory.
+						TIMINGS_FRAME_TOTAL_LBL), compileTime, 
+				aBenchmark.getTotalStatistics());
 		GUIUtils.add(main, new JLabel(stringFactory.getString(
-				LabelStringFactory.TIMINGS_FRAME_TOTAL_LBL)),
-			layout, constraints, row, col++, 1, 1, GridBagConstraints.WEST, 
-			GridBagConstraints.NONE, GUIUtils.SMALL_INSETS);
-		GUIUtils.add(main, new JLabel(" | " + 
-			totalTransformTime), layout, constraints, 
-			row++, col, 1, 1, GridBagConstraints.WEST, 
+				LabelStringFactory.TIMINGS_FRAME_ITERATIONS_LBL)),
+			layout, constraints, row, col=0, 1, 1, GridBagConstraints.WEST, 
 			GridBagConstraints.NONE, GUIUtils.SMALL_INSETS);
+		GUIUtils.add(main, new JLabel(" | " + MessageFormat.format(
+				stringFactory.getString(
+						LabelStringFactory.TIMINGS_FRAME_ITERATIONS_STATS),
+				aBenchmark.getWarmupIterations(), 
+				aBenchmark.getMeasuredIterations(), 
+				aBenchmark.getDiscardedIterations())), 
+			layout, constraints, row++, ++col, 1, BENCHMARK_HEADINGS.length, 
+			GridBagConstraints.WEST, GridBagConstraints.NONE, 
+			GUIUtils.SMALL_INSETS);
 		return main;
 	}
 	
+	/**
+	 * Adds a row of statistics (in milliseconds) to aMain.
+	 * @param aMain
+	 * @param aLayout
+	 * @param aConstraints
+	 * @param aRow
+	 * @param aLabel
+	 * @param aCompileTime
+	 * @param aStatistics
+	 */
+	private void addStatisticsRow(JPanel aMain, GridBagLayout aLayout, 
+			GridBagConstraints aConstraints, int aRow, String aLabel, 
+			long aCompileTime, Statistics aStatistics) {
+		
+		double values[];
+		int col, loop;
+		
+		values = new double[] { aCompileTime, aStatistics.getMin(), 
+				aStatistics.getMedian(), aStatistics.getMean(), 
+				aStatistics.getPercentile(90), aStatistics.getPercentile(99), 
+				aStatistics.getStandardDeviation() };
+		col = 0;
+		GUIUtils.add(aMain, new JLabel(aLabel), aLayout, aConstraints, aRow, 
+				col++, 1, 1, GridBagConstraints.WEST, GridBagConstraints.NONE, 
+				GUIUtils.SMALL_INSETS);
+		for (loop = 0; loop < values.length; loop++) {
+			GUIUtils.add(aMain, new JLabel(" | " + MILLIS_FORMAT.format(
+					TransformTimings.toMillis(values[loop]))), aLayout, 
+				aConstraints, aRow, col++, 1, 1, GridBagConstraints.WEST, 
+				GridBagConstraints.NONE, GUIUtils.SMALL_INSETS);
+		}
+	}
+	
+	/**
+	 * Adds a row of timings (in milliseconds) to aMain.
+	 * @param aMain
+	 * @param aLayout
+	 * @param aConstraints
+	 * @param aRow
+	 * @param aLabel
+	 * @param aTimings
+	 */
+	private void addTimingsRow(JPanel aMain, GridBagLayout aLayout, 
+			GridBagConstraints aConstraints, int aRow, String aLabel, 
+			TransformTimings aTimings) {
+		
+		long values[];
+		int col, loop;
+		
+		values = new long[] { aTimings.getCompileTime(), 
+				aTimings.getParseTime(), aTimings.getTransformTime(), 
+				aTimings.getSerializeTime(), aTimings.getTotalTime() };
+		col = 0;
+		GUIUtils.add(aMain, new JLabel(aLabel), aLayout, aConstraints, aRow, 
+				col++, 1, 1, GridBagConstraints.WEST, GridBagConstraints.NONE, 
+				GUIUtils.SMALL_INSETS);
+		for (loop = 0; loop < values.length; loop++) {
+			GUIUtils.add(aMain, new JLabel(" | " + MILLIS_FORMAT.format(
+					TransformTimings.toMillis(values[loop]))), aLayout, 
+				aConstraints, aRow, col++, 1, 1, GridBagConstraints.WEST, 
+				GridBagConstraints.NONE, GUIUtils.SMALL_INSETS);
+		}
+	}
+	
 	/**
 	 * Event handler
 	 */
@@ -159,6 +459,8 @@ public class TimingsFrame extends DisposableFrame implements ActionListener {
 		eventSource = aEvent.getSource();
 		if (eventSource == closeBtn) {
 			dispose(userPrefs, PROPERTY_NAME_PREFIX);
+		} else if (eventSource == profileBtn) {
+			new ProfileFrame(this, xslRows);
 		}
 	}
 }
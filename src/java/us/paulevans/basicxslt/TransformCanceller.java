@@ -0,0 +1,492 @@
+/*
+	Copyright 2006 Paul Evans
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+package us.paulevans.basicxslt;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TooManyListenersException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+
+import org.apache.log4j.Logger;
+import org.apache.xalan.trace.GenerateEvent;
+import org.apache.xalan.trace.SelectionEvent;
+import org.apache.xalan.trace.TraceListener;
+import org.apache.xalan.trace.TracerEvent;
+import org.apache.xalan.transformer.TransformerImpl;
+import org.apache.xml.utils.WrappedRuntimeException;
+import org.xml.sax.SAXException;
+
+/**
+ * Stops a running transform, either when asked to or once a wall-clock
+ * timeout runs out.  Xalan's own stopTransformation() does nothing, so an
+ * interpretive Xalan transformer is stopped by a TraceListener, added only
+ * once the transform is to stop, that fails the next template or select it
+ * sees.  Any transformer is also stopped the next time it reads its input or
+ * writes its result through the streams returned by wrap(), or passes an
+ * element through a TimingXMLFilter; an XSLTC translet that neither reads
+ * nor writes cannot be stopped.  Adding the listener turns on Xalan's
+ * JVM-wide tracing flag; it is turned off again once the listener has been
+ * removed from every transformer it was added to (see
+ * Utils.addTraceListener()).  A canceller may be shared by the stages of a
+ * run but only by one run at a time.
+ * @author pevans
+ *
+ */
+public class TransformCanceller implements Runnable {
+
+	// logger object...
+	private static final Logger logger = Logger.getLogger(
+			TransformCanceller.class);
+
+	// fires the timeouts of every canceller...
+	private static final ScheduledExecutorService watchdog =
+		Executors.newSingleThreadScheduledExecutor(new Watchdog());
+
+	// instance members...
+	private volatile boolean cancelled;
+	private volatile boolean timedOut;
+	private long runDeadline;
+	private ScheduledFuture<?> timeout;
+	private List<Transformer> transformers;
+	private List<Transformer> listening;
+	private StopListener stopListener;
+	private volatile TransformProgress progress;
+
+	/**
+	 * Constructor
+	 *
+	 */
+	public TransformCanceller() {
+		transformers = new ArrayList<Transformer>();
+		listening = new ArrayList<Transformer>();
+	}
+
+	/**
+	 * Starts a run that is stopped after aTimeout milliseconds, or never if
+	 * aTimeout is 0.  A timeout left over from the last run is forgotten;
+	 * a cancel is not.
+	 * @param aTimeout
+	 */
+	public synchronized void startRun(long aTimeout) {
+		endStage();
+		timedOut = false;
+		runDeadline = aTimeout > 0 ? System.nanoTime() +
+				TimeUnit.MILLISECONDS.toNanos(aTimeout) : 0;
+		if (runDeadline != 0) {
+			timeout = watchdog.schedule(this, aTimeout,
+					TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Starts a stage that is stopped after aTimeout milliseconds, or when the
+	 * run times out if that is sooner; 0 means the stage has no timeout of
+	 * its own.
+	 * @param aTimeout
+	 */
+	public synchronized void startStage(long aTimeout) {
+
+		long delay;
+
+		endStage();
+		delay = aTimeout > 0 ? TimeUnit.MILLISECONDS.toNanos(aTimeout) :
+			Long.MAX_VALUE;
+		if (runDeadline != 0) {
+			delay = Math.min(delay, runDeadline - System.nanoTime());
+		}
+		if (delay != Long.MAX_VALUE) {
+			timeout = watchdog.schedule(this, Math.max(0, delay),
+					TimeUnit.NANOSECONDS);
+		}
+	}
+
+	/**
+	 * Ends the current stage; its timeout, and the run's, no longer fire
+	 * until the next stage starts.
+	 */
+	public synchronized void endStage() {
+		if (timeout != null) {
+			timeout.cancel(false);
+			timeout = null;
+		}
+	}
+
+	/**
+	 * Stops the transform because it has run out of time; called on the
+	 * watchdog thread.
+	 */
+	public synchronized void run() {
+		if (timeout == null || isStopped()) {
+			// the stage ended as the timeout fired, or the transform has
+			// already been stopped...
+			return;
+		}
+		logger.warn("transform timed out");
+		timedOut = true;
+		stopTransformers();
+	}
+
+	/**
+	 * Asks the transform to stop; this and every later run of this
+	 * canceller fail.
+	 */
+	public synchronized void cancel() {
+
+		boolean stopped;
+
+		stopped = isStopped();
+		cancelled = true;
+		if (!stopped) {
+			stopTransformers();
+		}
+	}
+
+	/**
+	 * Setter
+	 * @param aProgress the progress told about the streams returned by
+	 * wrap(), or null
+	 */
+	public void setProgress(TransformProgress aProgress) {
+		progress = aProgress;
+	}
+
+	/**
+	 * Getter
+	 * @return
+	 */
+	public TransformProgress getProgress() {
+		return progress;
+	}
+
+	/**
+	 * Returns true if cancel() has been called
+	 * @return
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Returns true if the current (or last) run ran out of time
+	 * @return
+	 */
+	public boolean isTimedOut() {
+		return timedOut;
+	}
+
+	/**
+	 * Returns true if the transform has been asked to stop
+	 * @return
+	 */
+	public boolean isStopped() {
+		return cancelled || timedOut;
+	}
+
+	/**
+	 * Returns the message of the exception thrown to stop the transform
+	 * @return
+	 */
+	public String getMessage() {
+		return timedOut && !cancelled ? "transform timed out" :
+			"transform cancelled";
+	}
+
+	/**
+	 * Throws a SAXException if the transform has been asked to stop.
+	 * @throws SAXException
+	 */
+	public void check() throws SAXException {
+		if (isStopped()) {
+			throw new SAXException(getMessage());
+		}
+	}
+
+	/**
+	 * Registers aTransformer as running; if the transform has already been
+	 * asked to stop it is stopped straight away.
+	 * @param aTransformer
+	 */
+	public synchronized void addTransformer(Transformer aTransformer) {
+		transformers.add(aTransformer);
+		if (isStopped()) {
+			stop(aTransformer);
+		}
+	}
+
+	/**
+	 * Unregisters aTransformer, removing the listener that stops it, if
+	 * any; this must be done before the transformer is reused.
+	 * @param aTransformer
+	 */
+	public synchronized void removeTransformer(Transformer aTransformer) {
+		transformers.remove(aTransformer);
+		if (listening.remove(aTransformer)) {
+			Utils.removeTraceListener((TransformerImpl)aTransformer,
+					stopListener);
+		}
+	}
+
+	/**
+	 * Stops every registered transformer.
+	 */
+	private synchronized void stopTransformers() {
+
+		Iterator<Transformer> iter;
+
+		iter = transformers.iterator();
+		while (iter.hasNext()) {
+			stop(iter.next());
+		}
+	}
+
+	/**
+	 * Makes aTransformer fail the next template or select it runs, if it is
+	 * an interpretive Xalan transformer.
+	 * @param aTransformer
+	 */
+	private void stop(Transformer aTransformer) {
+		if (!(aTransformer instanceof TransformerImpl) ||
+				listening.contains(aTransformer)) {
+			return;
+		}
+		if (stopListener == null) {
+			stopListener = new StopListener(this);
+		}
+		try {
+			Utils.addTraceListener((TransformerImpl)aTransformer,
+					stopListener);
+			listening.add(aTransformer);
+		} catch (TooManyListenersException aException) {
+			logger.warn("could not stop transformer: " + aException);
+		}
+	}
+
+	/**
+	 * Returns a stream that reads from aIn until the transform is asked to
+	 * stop, and counts the bytes read; the progress, if any, is told the
+	 * running stage now reads its input from it.
+	 * @param aIn
+	 * @return
+	 */
+	public CountingInputStream wrap(InputStream aIn) {
+
+		CountingInputStream in;
+		TransformProgress lprogress;
+
+		in = new CountingInputStream(aIn, this);
+		if ((lprogress = progress) != null) {
+			lprogress.setInput(in);
+		}
+		return in;
+	}
+
+	/**
+	 * Returns a stream that writes to aOut until the transform is asked to
+	 * stop, and counts the bytes written.
+	 * @param aOut
+	 * @return
+	 */
+	public CountingOutputStream wrap(OutputStream aOut) {
+		return new CountingOutputStream(aOut, this);
+	}
+
+	/**
+	 * Throws an InterruptedIOException if the transform has been asked to
+	 * stop.
+	 * @throws InterruptedIOException
+	 */
+	void checkIO() throws InterruptedIOException {
+		if (isStopped()) {
+			throw new InterruptedIOException(getMessage());
+		}
+	}
+
+	/**
+	 * Input stream that stops reading once its canceller is stopped.
+	 */
+	public static class CountingInputStream extends FilterInputStream {
+
+		TransformCanceller canceller;
+		volatile long count;
+
+		/**
+		 * Constructor
+		 * @param aIn
+		 * @param aCanceller
+		 */
+		CountingInputStream(InputStream aIn, TransformCanceller aCanceller) {
+			super(aIn);
+			canceller = aCanceller;
+		}
+
+		/**
+		 * Reads a byte
+		 */
+		public int read() throws IOException {
+
+			int b;
+
+			canceller.checkIO();
+			if ((b = super.read()) != -1) {
+				count++;
+			}
+			return b;
+		}
+
+		/**
+		 * Reads up to aLength bytes into aBuffer
+		 */
+		public int read(byte aBuffer[], int aOffset, int aLength)
+		throws IOException {
+
+			int read;
+
+			canceller.checkIO();
+			if ((read = super.read(aBuffer, aOffset, aLength)) > 0) {
+				count += read;
+			}
+			return read;
+		}
+
+		/**
+		 * Returns the number of bytes read
+		 * @return
+		 */
+		public long getCount() {
+			return count;
+		}
+	}
+
+	/**
+	 * Output stream that stops writing once its canceller is stopped.
+	 */
+	public static class CountingOutputStream extends FilterOutputStream {
+
+		TransformCanceller canceller;
+		long count;
+
+		/**
+		 * Constructor
+		 * @param aOut
+		 * @param aCanceller
+		 */
+		CountingOutputStream(OutputStream aOut,
+				TransformCanceller aCanceller) {
+			super(aOut);
+			canceller = aCanceller;
+		}
+
+		/**
+		 * Writes a byte
+		 */
+		public void write(int aByte) throws IOException {
+			canceller.checkIO();
+			out.write(aByte);
+			count++;
+		}
+
+		/**
+		 * Writes aLength bytes of aBuffer
+		 */
+		public void write(byte aBuffer[], int aOffset, int aLength)
+		throws IOException {
+			canceller.checkIO();
+			out.write(aBuffer, aOffset, aLength);
+			count += aLength;
+		}
+
+		/**
+		 * Returns the number of bytes written
+		 * @return
+		 */
+		public long getCount() {
+			return count;
+		}
+	}
+
+	/**
+	 * TraceListener that fails the transform it is added to.
+	 */
+	static class StopListener implements TraceListener {
+
+		TransformCanceller canceller;
+
+		/**
+		 * Constructor
+		 * @param aCanceller
+		 */
+		StopListener(TransformCanceller aCanceller) {
+			canceller = aCanceller;
+		}
+
+		/**
+		 * Fails the template about to run
+		 */
+		public void trace(TracerEvent aEvent) {
+			throw new WrappedRuntimeException(new TransformerException(
+					canceller.getMessage()));
+		}
+
+		/**
+		 * Fails the select that just ran
+		 */
+		public void selected(SelectionEvent aEvent)
+		throws TransformerException {
+			throw new TransformerException(canceller.getMessage());
+		}
+
+		/**
+		 * Fails the output just generated
+		 */
+		public void generated(GenerateEvent aEvent) {
+			throw new WrappedRuntimeException(new TransformerException(
+					canceller.getMessage()));
+		}
+	}
+
+	/**
+	 * ThreadFactory of the watchdog; its thread does not keep the
+	 * application running.
+	 */
+	static class Watchdog implements ThreadFactory {
+
+		/**
+		 * Returns the watchdog thread
+		 */
+		public Thread newThread(Runnable aRunnable) {
+
+			Thread thread;
+
+			thread = new Thread(aRunnable, "TransformWatchdog");
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
@@ -0,0 +1,880 @@
+/*
+	Copyright 2006 Paul Evans
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+package us.paulevans.basicxslt;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerException;
+
+import net.blueslate.commons.xml.XMLUtils;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.vfs.FileContent;
+import org.apache.commons.vfs.FileSystemException;
+import org.apache.commons.vfs.FileSystemManager;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.XMLReader;
+
+/**
+ * Runs an XML document through a chain of stylesheets.  The stages are either
+ * pipelined (see TransformPipeline) or run one after another with each
+ * result serialized and handed to the next stage.  The stylesheets are
+ * compiled either by the interpretive Xalan processor or by XSLTC.  If a
+ * ResultCache is set the result of each stage is cached, and a stage whose
+ * input, stylesheet, parameters and output properties are unchanged is not
+ * run again; as this needs the intermediate results the stages are then
+ * always run one after another.  If a result stream is set the final stage
+ * serializes its result straight to it, rather than into memory.  A run may
+ * be cancelled from another thread, and is stopped once it runs for longer
+ * than its timeout or a stage runs for longer than the stage's own timeout;
+ * pipelined stages run together, so they share the sum of the stage
+ * timeouts.  A chain may also profile each stage's stylesheet (see
+ * TemplateProfiler).
+ * This class has no GUI dependencies; it is used by both the main frame and
+ * the batch runner.
+ * @author pevans
+ *
+ */
+public class TransformChain {
+
+	// returned in place of a result that was written to the result stream...
+	private static final byte WRITTEN_RESULT[] = new byte[0];
+
+	// instance members...
+	private List<TransformStage> stages;
+	private boolean pipelined;
+	private boolean xsltc;
+	private ResultCache resultCache;
+	private boolean keepInputs;
+	private boolean profiling;
+	private TemplateProfiler profilers[];
+	private TransformCanceller canceller;
+	private TransformProgress progress;
+	private long timeout;
+	private OutputStream resultStream;
+	private byte inputs[][];
+	private String stylesheetHashes[];
+	private TransformTimings timings[];
+	private int failedStage;
+	private int nonXmlStage;
+	private SAXParseException sourceError;
+
+	/**
+	 * Constructor
+	 * @param aStages
+	 * @param aPipelined
+	 */
+	public TransformChain(List<TransformStage> aStages, boolean aPipelined) {
+		this(aStages, aPipelined, false);
+	}
+
+	/**
+	 * Constructor
+	 * @param aStages
+	 * @param aPipelined
+	 * @param aXSLTC true to compile the stylesheets with XSLTC
+	 */
+	public TransformChain(List<TransformStage> aStages, boolean aPipelined,
+			boolean aXSLTC) {
+		stages = new ArrayList<TransformStage>(aStages);
+		pipelined = aPipelined;
+		xsltc = aXSLTC;
+		timings = new TransformTimings[0];
+		stylesheetHashes = new String[0];
+		inputs = new byte[0][];
+		profilers = new TemplateProfiler[0];
+		failedStage = -1;
+		nonXmlStage = -1;
+		canceller = new TransformCanceller();
+		progress = new TransformProgress();
+		canceller.setProgress(progress);
+	}
+
+	/**
+	 * Transforms aXmlContents using each stage in turn and returns the result
+	 * of the final stage.  If the result of a stage is not xml, and so cannot
+	 * be passed on to the next stage, null is returned and getNonXmlStage()
+	 * reports the offending stage.  If the transform fails getFailedStage()
+	 * reports the stage that failed.
+	 * @param aFSMgr
+	 * @param aXmlContents
+	 * @return
+	 * @throws TransformerException
+	 * @throws FileSystemException
+	 */
+	public byte[] transform(FileSystemManager aFSMgr, byte aXmlContents[])
+	throws TransformerException, FileSystemException {
+		return run(compile(aFSMgr), aXmlContents);
+	}
+
+	/**
+	 * Transforms aXmlContents using stylesheets already returned by
+	 * compile().  The compiled stylesheets are not changed by a transform, so
+	 * the same array may be shared by chains running on other threads; a
+	 * TransformChain itself must only be used by one thread at a time.
+	 * @param aTemplates
+	 * @param aXmlContents
+	 * @return
+	 * @throws TransformerException
+	 */
+	public byte[] transform(Templates aTemplates[], byte aXmlContents[])
+	throws TransformerException {
+
+		int loop;
+
+		canceller.startRun(timeout);
+		progress.startRun(stages.size());
+		failedStage = -1;
+		nonXmlStage = -1;
+		timings = new TransformTimings[stages.size()];
+		for (loop = 0; loop < timings.length; loop++) {
+			timings[loop] = new TransformTimings();
+		}
+		profilers = newProfilers();
+		return run(aTemplates, aXmlContents);
+	}
+
+	/**
+	 * Transforms the document read from aInput using stylesheets already
+	 * returned by compile(), as above.  The document is streamed into the
+	 * first stage rather than loaded into memory first; the input of the
+	 * first stage is neither kept nor looked up in the ResultCache.
+	 * @param aTemplates
+	 * @param aInput
+	 * @return
+	 * @throws TransformerException
+	 */
+	public byte[] transform(Templates aTemplates[], InputSource aInput)
+	throws TransformerException {
+
+		int loop;
+
+		canceller.startRun(timeout);
+		progress.startRun(stages.size());
+		failedStage = -1;
+		nonXmlStage = -1;
+		timings = new TransformTimings[stages.size()];
+		for (loop = 0; loop < timings.length; loop++) {
+			timings[loop] = new TransformTimings();
+		}
+		profilers = newProfilers();
+		if (aTemplates.length == 0) {
+			try {
+				return toResult(IOUtils.toByteArray(aInput.getByteStream()));
+			} catch (IOException aException) {
+				throw new TransformerException(aException);
+			}
+		}
+		return runStreaming(aTemplates, Utils.newXMLReader(), aInput, -1,
+				null);
+	}
+
+	/**
+	 * Transforms the document aSource, streaming it into the first stage
+	 * rather than loading it into memory first, and returns the result of
+	 * the final stage as above.  A chain that keeps its inputs reads the
+	 * document into memory, since it has to keep it.
+	 * @param aFSMgr
+	 * @param aSource
+	 * @return
+	 * @throws TransformerException
+	 * @throws FileSystemException
+	 */
+	public byte[] transform(FileSystemManager aFSMgr, FileContent aSource)
+	throws TransformerException, FileSystemException {
+
+		Templates templates[];
+		InputSource input;
+		String inputHash;
+
+		templates = compile(aFSMgr);
+		input = null;
+		try {
+			if (keepInputs || templates.length == 0) {
+				return run(templates, IOUtils.toByteArray(
+						aSource.getInputStream()));
+			}
+			inputHash = null;
+			if (resultCache != null) {
+				inputHash = ResultCache.hash(aSource);
+			}
+			input = Utils.getXMLInput(aSource);
+			return runStreaming(templates, Utils.newXMLReader(), input,
+					getSize(aSource), inputHash);
+		} catch (IOException aException) {
+			throw new TransformerException(aException);
+		} finally {
+			if (input != null) {
+				IOUtils.closeQuietly(input.getByteStream());
+			}
+		}
+	}
+
+	/**
+	 * Transforms the document aSource, validating it as it is read by the
+	 * first stage, and returns the result of the final stage.  The document
+	 * is read and parsed just once, rather than being validated first and
+	 * then parsed again by the transform.  If the transform fails because
+	 * the document is not valid getSourceError() reports why.  The input of
+	 * the first stage is neither kept nor looked up in the ResultCache.
+	 * @param aFSMgr
+	 * @param aSource
+	 * @param aCheckWarning
+	 * @param aCheckError
+	 * @param aCheckFatalError
+	 * @return
+	 * @throws TransformerException
+	 * @throws FileSystemException
+	 */
+	public byte[] transform(FileSystemManager aFSMgr, FileContent aSource,
+			boolean aCheckWarning, boolean aCheckError,
+			boolean aCheckFatalError) throws TransformerException,
+			FileSystemException {
+
+		Templates templates[];
+		XMLReader reader;
+		Utils.ErrorChecker checker;
+		InputSource input;
+		byte result[];
+		boolean parsed;
+
+		templates = compile(aFSMgr);
+		sourceError = null;
+		try {
+			reader = ParserPool.getInstance().borrow();
+		} catch (SAXException aException) {
+			throw new TransformerException(aException);
+		}
+		parsed = false;
+		try {
+			checker = new Utils.ErrorChecker(aCheckWarning, aCheckError,
+					aCheckFatalError);
+			checker.setParent(reader);
+			try {
+				input = Utils.getXMLInput(aSource);
+			} catch (IOException aException) {
+				throw new TransformerException(aException);
+			}
+			try {
+				result = runValidating(templates, checker, input,
+						getSize(aSource));
+				parsed = true;
+			} catch (TransformerException aException) {
+				sourceError = checker.exception;
+				throw aException;
+			} finally {
+				IOUtils.closeQuietly(input.getByteStream());
+			}
+		} finally {
+			// a parser that failed part way through a document is dropped
+			// rather than given back...
+			if (parsed) {
+				ParserPool.getInstance().giveBack(reader);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Runs the document read from aInput by aChecker through aTemplates,
+	 * either pipelined or stage by stage.
+	 * @param aTemplates
+	 * @param aChecker
+	 * @param aInput
+	 * @param aInputLength the length of the document in bytes, or -1
+	 * @return
+	 * @throws TransformerException
+	 */
+	private byte[] runValidating(Templates aTemplates[],
+			Utils.ErrorChecker aChecker, InputSource aInput, long aInputLength)
+	throws TransformerException {
+
+		byte result[];
+
+		try {
+			if (aTemplates.length == 0) {
+				result = IOUtils.toByteArray(aInput.getByteStream());
+				aChecker.parse(new InputSource(new ByteArrayInputStream(
+						result)));
+				return toResult(result);
+			}
+		} catch (IOException aException) {
+			throw new TransformerException(aException);
+		} catch (SAXException aException) {
+			throw new TransformerException(aException);
+		}
+		return runStreaming(aTemplates, aChecker, aInput, aInputLength, null);
+	}
+
+	/**
+	 * Runs the document read from aInput by aReader through aTemplates,
+	 * either pipelined or stage by stage; in either case the first stage
+	 * reads the document as a stream.  If aInputHash, the content hash of
+	 * the document, is not null the result of the first stage is looked up
+	 * in and added to the ResultCache.
+	 * @param aTemplates
+	 * @param aReader
+	 * @param aInput
+	 * @param aInputLength the length of the document in bytes, or -1
+	 * @param aInputHash
+	 * @return
+	 * @throws TransformerException
+	 */
+	private byte[] runStreaming(Templates aTemplates[], XMLReader aReader,
+			InputSource aInput, long aInputLength, String aInputHash)
+	throws TransformerException {
+
+		byte result[];
+
+		if (pipelined && resultCache == null && !keepInputs && !profiling) {
+			return transformPipelined(aTemplates, aReader, aInput,
+					aInputLength);
+		}
+		inputs = new byte[aTemplates.length][];
+		result = runStage(aTemplates, 0, aReader, aInput, aInputLength,
+				aInputHash);
+		if (aTemplates.length > 1 && !XMLUtils.isXml(result)) {
+			nonXmlStage = 0;
+			return null;
+		}
+		return transformStageByStage(aTemplates, 1, result);
+	}
+
+	/**
+	 * Transforms starting at stage aFirstStage rather than at the first stage.
+	 * The input of that stage, and of each stage before it, is taken from
+	 * aPrevious: a chain with the same stylesheets that kept its inputs and
+	 * last ran at least as far as aFirstStage.  The stages that are skipped
+	 * are not run and their timings are marked as cached.
+	 * @param aFSMgr
+	 * @param aPrevious
+	 * @param aFirstStage
+	 * @return
+	 * @throws TransformerException
+	 * @throws FileSystemException
+	 */
+	public byte[] transform(FileSystemManager aFSMgr, TransformChain aPrevious,
+			int aFirstStage) throws TransformerException, FileSystemException {
+
+		Templates templates[];
+		int loop;
+
+		templates = compile(aFSMgr);
+		inputs = new byte[stages.size()][];
+		for (loop = 0; loop <= aFirstStage; loop++) {
+			inputs[loop] = aPrevious.getInput(loop);
+		}
+		for (loop = 0; loop < aFirstStage; loop++) {
+			timings[loop].setCached(true);
+		}
+		return transformStageByStage(templates, aFirstStage,
+				inputs[aFirstStage]);
+	}
+
+	/**
+	 * Compiles (or fetches from the TemplatesCache) the stylesheet of each
+	 * stage, recording the compile time.  The run, and its timeout, starts
+	 * here.
+	 * @param aFSMgr
+	 * @return
+	 * @throws TransformerException
+	 * @throws FileSystemException
+	 */
+	public Templates[] compile(FileSystemManager aFSMgr)
+	throws TransformerException, FileSystemException {
+
+		Templates templates[];
+		long start;
+		int loop;
+
+		canceller.startRun(timeout);
+		progress.startRun(stages.size());
+		failedStage = -1;
+		nonXmlStage = -1;
+		timings = new TransformTimings[stages.size()];
+		templates = new Templates[stages.size()];
+		stylesheetHashes = new String[stages.size()];
+		profilers = newProfilers();
+		for (loop = 0; loop < templates.length; loop++) {
+			timings[loop] = new TransformTimings();
+			failedStage = loop;
+			start = System.nanoTime();
+			templates[loop] = TemplatesCache.getInstance().getTemplates(
+					aFSMgr, stages.get(loop).getStylesheet(), xsltc);
+			timings[loop].setCompileTime(System.nanoTime() - start);
+			if (resultCache != null) {
+				stylesheetHashes[loop] = TemplatesCache.getInstance().
+					getContentHash(aFSMgr, stages.get(loop).getStylesheet(),
+							xsltc);
+			}
+		}
+		failedStage = -1;
+		return templates;
+	}
+
+	/**
+	 * Runs aXmlContents through aTemplates, either pipelined or stage by
+	 * stage.
+	 * @param aTemplates
+	 * @param aXmlContents
+	 * @return
+	 * @throws TransformerException
+	 */
+	private byte[] run(Templates aTemplates[], byte aXmlContents[])
+	throws TransformerException {
+		if (aTemplates.length == 0) {
+			return toResult(aXmlContents);
+		}
+		if (pipelined && resultCache == null && !keepInputs && !profiling) {
+			return transformPipelined(aTemplates, Utils.newXMLReader(),
+					new InputSource(new ByteArrayInputStream(aXmlContents)),
+					aXmlContents.length);
+		}
+		inputs = new byte[aTemplates.length][];
+		return transformStageByStage(aTemplates, 0, aXmlContents);
+	}
+
+	/**
+	 * Runs the stages one after another; the result of each stage is
+	 * serialized and then re-parsed by the next stage.  A stage whose result
+	 * is in the ResultCache is not run and its timings are marked as cached.
+	 * Between stages the chain checks whether it has been stopped.
+	 * @param aTemplates
+	 * @param aFirstStage
+	 * @param aXmlContents the input of stage aFirstStage
+	 * @return
+	 * @throws TransformerException
+	 */
+	private byte[] transformStageByStage(Templates aTemplates[],
+			int aFirstStage, byte aXmlContents[]) throws TransformerException {
+
+		byte result[];
+		int loop;
+
+		result = aXmlContents;
+		for (loop = aFirstStage; loop < aTemplates.length; loop++) {
+			if (canceller.isStopped()) {
+				inputs = new byte[0][];
+				failedStage = loop;
+				throw new TransformerException(canceller.getMessage());
+			}
+			if (keepInputs) {
+				inputs[loop] = result;
+			}
+			result = runStage(aTemplates, loop, Utils.newXMLReader(),
+					new InputSource(new ByteArrayInputStream(result)),
+					result.length,
+					resultCache != null ? ResultCache.hash(result) : null);
+			if (loop < aTemplates.length - 1 && !XMLUtils.isXml(result)) {
+				nonXmlStage = loop;
+				return null;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Runs stage aStage on the document read from aInput by aReader and
+	 * returns its result.  If aInputHash, the content hash of the document,
+	 * is not null the result is looked up in and added to the ResultCache.
+	 * The result of the final stage is written to the result stream, if
+	 * there is one; unless it is to be cached it is serialized straight to
+	 * the stream without being held in memory.  If the stage is stopped the
+	 * inputs kept so far are released.
+	 * @param aTemplates
+	 * @param aStage
+	 * @param aReader
+	 * @param aInput
+	 * @param aInputLength the length of the document in bytes, or -1
+	 * @param aInputHash
+	 * @return
+	 * @throws TransformerException
+	 */
+	private byte[] runStage(Templates aTemplates[], int aStage,
+			XMLReader aReader, InputSource aInput, long aInputLength,
+			String aInputHash) throws TransformerException {
+
+		TransformStage stage;
+		String key;
+		ByteArrayOutputStream out;
+		byte result[];
+
+		progress.startStage(aStage, aInputLength);
+		stage = stages.get(aStage);
+		key = null;
+		result = null;
+		if (resultCache != null && aInputHash != null &&
+				aStage < stylesheetHashes.length &&
+				stylesheetHashes[aStage] != null) {
+			key = ResultCache.getKey(aInputHash, stylesheetHashes[aStage],
+					stage.getParameters(), stage.getOutputProperties());
+			result = resultCache.get(key);
+		}
+		if (result != null) {
+			timings[aStage].setCached(true);
+		} else if (key == null && resultStream != null &&
+				aStage == aTemplates.length - 1) {
+			failedStage = aStage;
+			runStage(aTemplates[aStage], stage, aReader, aInput,
+					timings[aStage], getProfiler(aStage), resultStream);
+			failedStage = -1;
+			return WRITTEN_RESULT;
+		} else {
+			failedStage = aStage;
+			out = new ByteArrayOutputStream();
+			runStage(aTemplates[aStage], stage, aReader, aInput,
+					timings[aStage], getProfiler(aStage), out);
+			result = out.toByteArray();
+			failedStage = -1;
+			if (key != null) {
+				resultCache.put(key, result);
+			}
+		}
+		return aStage == aTemplates.length - 1 ? toResult(result) : result;
+	}
+
+	/**
+	 * Runs aStage, compiled as aTemplates, on the document read from aInput
+	 * by aReader and serializes its result to aOut, stopping it once it runs
+	 * out of time.  If aProfiler is not null it profiles the stage.
+	 * @param aTemplates
+	 * @param aStage
+	 * @param aReader
+	 * @param aInput
+	 * @param aTimings
+	 * @param aProfiler
+	 * @param aOut
+	 * @throws TransformerException
+	 */
+	private void runStage(Templates aTemplates, TransformStage aStage,
+			XMLReader aReader, InputSource aInput, TransformTimings aTimings,
+			TemplateProfiler aProfiler, OutputStream aOut)
+	throws TransformerException {
+		canceller.startStage(aStage.getTimeout());
+		try {
+			Utils.transform(aReader, aInput, aTemplates,
+					aStage.getOutputProperties(), aStage.getParameters(),
+					aTimings, aOut, canceller, aProfiler);
+		} catch (TransformerException aException) {
+			if (canceller.isStopped()) {
+				inputs = new byte[0][];
+			}
+			throw aException;
+		} finally {
+			canceller.endStage();
+		}
+	}
+
+	/**
+	 * Writes aResult, the result of the final stage, to the result stream
+	 * and returns an empty array in its place; if there is no result stream
+	 * aResult itself is returned.
+	 * @param aResult
+	 * @return
+	 * @throws TransformerException
+	 */
+	private byte[] toResult(byte aResult[]) throws TransformerException {
+		if (resultStream == null) {
+			return aResult;
+		}
+		try {
+			resultStream.write(aResult);
+		} catch (IOException aException) {
+			throw new TransformerException(aException);
+		}
+		return WRITTEN_RESULT;
+	}
+
+	/**
+	 * Runs the stages as a SAX pipeline, fed by aReader reading aInput; only
+	 * the final result is serialized.  The stages run together, so the
+	 * pipeline is given the sum of the timeouts of the stages that have one.
+	 * @param aTemplates
+	 * @param aReader
+	 * @param aInput
+	 * @param aInputLength the length of the document in bytes, or -1
+	 * @return
+	 * @throws TransformerException
+	 */
+	private byte[] transformPipelined(Templates aTemplates[],
+			XMLReader aReader, InputSource aInput, long aInputLength)
+	throws TransformerException {
+
+		TransformPipeline pipeline;
+		TransformStage stage;
+		long stageTimeouts;
+		int loop;
+
+		pipeline = new TransformPipeline();
+		pipeline.setCanceller(canceller);
+		stageTimeouts = 0;
+		for (loop = 0; loop < aTemplates.length; loop++) {
+			stage = stages.get(loop);
+			pipeline.addStage(aTemplates[loop], stage.getOutputProperties(),
+					stage.getParameters(), timings[loop]);
+			stageTimeouts += stage.getTimeout();
+		}
+		if ((nonXmlStage = pipeline.getNonXmlStage()) != -1) {
+			return null;
+		}
+		canceller.startStage(stageTimeouts);
+		progress.startPipeline(aInputLength);
+		try {
+			if (resultStream != null) {
+				pipeline.transform(aReader, aInput, resultStream);
+				return WRITTEN_RESULT;
+			}
+			return pipeline.transform(aReader, aInput);
+		} finally {
+			canceller.endStage();
+			failedStage = pipeline.getFailedStage();
+		}
+	}
+
+	/**
+	 * Returns a profiler for each stage if the chain is profiling, otherwise
+	 * none
+	 * @return
+	 */
+	private TemplateProfiler[] newProfilers() {
+
+		TemplateProfiler lprofilers[];
+		int loop;
+
+		lprofilers = new TemplateProfiler[profiling ? stages.size() : 0];
+		for (loop = 0; loop < lprofilers.length; loop++) {
+			lprofilers[loop] = new TemplateProfiler();
+		}
+		return lprofilers;
+	}
+
+	/**
+	 * Returns the profile of stage aStage from the last call to transform(),
+	 * or null if the chain was not profiling.  A stage whose stylesheet was
+	 * compiled with XSLTC, or whose result came from the ResultCache, has an
+	 * empty profile.
+	 * @param aStage
+	 * @return
+	 */
+	public TemplateProfiler getProfiler(int aStage) {
+		return aStage < profilers.length ? profilers[aStage] : null;
+	}
+
+	/**
+	 * Returns the length of aSource in bytes, or -1 if it is not known
+	 * @param aSource
+	 * @return
+	 */
+	private static long getSize(FileContent aSource) {
+		try {
+			return aSource.getSize();
+		} catch (FileSystemException aException) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Getter
+	 * @return
+	 */
+	public boolean isPipelined() {
+		return pipelined;
+	}
+
+	/**
+	 * Setter
+	 * @param aProfiling true to profile the templates, select expressions
+	 * and source lines of each stage (see TemplateProfiler).  A chain that
+	 * is profiling runs its stages one after another even if it is
+	 * pipelined, since the time of a pipelined stage takes in the stages
+	 * downstream of it.
+	 */
+	public void setProfiling(boolean aProfiling) {
+		profiling = aProfiling;
+	}
+
+	/**
+	 * Getter
+	 * @return
+	 */
+	public boolean isProfiling() {
+		return profiling;
+	}
+
+	/**
+	 * Setter
+	 * @param aResultCache the cache of stage results, or null to run every
+	 * stage
+	 */
+	public void setResultCache(ResultCache aResultCache) {
+		resultCache = aResultCache;
+	}
+
+	/**
+	 * Setter
+	 * @param aResultStream the stream the result of the final stage is
+	 * written to, or null to return it from transform().  While it is set
+	 * transform() returns an empty array in place of the result, or null if
+	 * the result of a stage other than the last is not xml; the stream is
+	 * neither flushed nor closed.
+	 */
+	public void setResultStream(OutputStream aResultStream) {
+		resultStream = aResultStream;
+	}
+
+	/**
+	 * Setter; a chain that keeps the input of each stage always runs the
+	 * stages one after another, and can be resumed part way through by
+	 * another chain.
+	 * @param aKeepInputs
+	 */
+	public void setKeepInputs(boolean aKeepInputs) {
+		keepInputs = aKeepInputs;
+	}
+
+	/**
+	 * Returns the input of the stage at aIndex from the last call to
+	 * transform(), or null if the inputs were not kept or the stage did not
+	 * run.
+	 * @param aIndex
+	 * @return
+	 */
+	public byte[] getInput(int aIndex) {
+		return aIndex < inputs.length ? inputs[aIndex] : null;
+	}
+
+	/**
+	 * Setter
+	 * @param aTimeout milliseconds a run, including compiling the
+	 * stylesheets, may take, or 0 for no limit
+	 */
+	public void setTimeout(long aTimeout) {
+		timeout = aTimeout;
+	}
+
+	/**
+	 * Getter
+	 * @return
+	 */
+	public long getTimeout() {
+		return timeout;
+	}
+
+	/**
+	 * Asks a transform running on another thread to stop; the transform
+	 * stops, throwing a TransformerException, at the next point its
+	 * transformer can be stopped (see TransformCanceller) and the inputs it
+	 * kept are released.
+	 */
+	public void cancel() {
+		canceller.cancel();
+	}
+
+	/**
+	 * Returns true if cancel() has been called
+	 * @return
+	 */
+	public boolean isCancelled() {
+		return canceller.isCancelled();
+	}
+
+	/**
+	 * Returns true if the last call to transform() ran out of time
+	 * @return
+	 */
+	public boolean isTimedOut() {
+		return canceller.isTimedOut();
+	}
+
+	/**
+	 * Returns the progress of the running (or last) call to transform(); it
+	 * may be read from any thread.
+	 * @return
+	 */
+	public TransformProgress getProgress() {
+		return progress;
+	}
+
+	/**
+	 * Getter
+	 * @return
+	 */
+	public boolean isXSLTC() {
+		return xsltc;
+	}
+
+	/**
+	 * Returns the number of stages
+	 * @return
+	 */
+	public int getSize() {
+		return stages.size();
+	}
+
+	/**
+	 * Returns the stage at aIndex
+	 * @param aIndex
+	 * @return
+	 */
+	public TransformStage getStage(int aIndex) {
+		return stages.get(aIndex);
+	}
+
+	/**
+	 * Returns the timings of the stage at aIndex from the last call to
+	 * transform(); the timings of stages that did not run are null.
+	 * @param aIndex
+	 * @return
+	 */
+	public TransformTimings getTimings(int aIndex) {
+		return timings[aIndex];
+	}
+
+	/**
+	 * Returns the error that made the document invalid if the last call to
+	 * transform() that validated its document failed because of it, or null
+	 * @return
+	 */
+	public SAXParseException getSourceError() {
+		return sourceError;
+	}
+
+	/**
+	 * Returns the index of the stage that failed during the last call to
+	 * transform(), or -1
+	 * @return
+	 */
+	public int getFailedStage() {
+		return failedStage;
+	}
+
+	/**
+	 * Returns the index of the stage whose result was not xml during the last
+	 * call to transform(), or -1
+	 * @return
+	 */
+	public int getNonXmlStage() {
+		return nonXmlStage;
+	}
+}
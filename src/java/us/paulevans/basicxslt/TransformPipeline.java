@@ -0,0 +1,512 @@
+/*
+	Copyright 2006 Paul Evans
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+package us.paulevans.basicxslt;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.transform.ErrorListener;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Templates;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.sax.SAXTransformerFactory;
+import javax.xml.transform.sax.TransformerHandler;
+import javax.xml.transform.stream.StreamResult;
+
+import net.blueslate.commons.xml.TransformOutputProperties;
+import net.blueslate.commons.xml.TransformParameters;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+import org.apache.xalan.transformer.TransformerHandlerImpl;
+import org.apache.xalan.transformer.TransformerImpl;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+/**
+ * Chains a series of compiled stylesheets together as SAX TransformerHandlers
+ * so that the result of each stage is handed to the next stage as SAX events
+ * rather than being serialized and re-parsed.  Only the final stage is
+ * serialized.  If a TransformCanceller is set the pipeline stops once the
+ * canceller is stopped.
+ * @author pevans
+ *
+ */
+public class TransformPipeline {
+
+	// SAX property used to register a lexical handler...
+	private static final String LEXICAL_HANDLER_PROPERTY =
+		"http://xml.org/sax/properties/lexical-handler";
+
+	// output method that does not produce xml...
+	private static final String TEXT_METHOD = "text";
+
+	// instance members...
+	private List<Stage> stages;
+	private int failedStage;
+	private TransformCanceller canceller;
+
+	/**
+	 * Constructor
+	 *
+	 */
+	public TransformPipeline() {
+		stages = new ArrayList<Stage>();
+		failedStage = -1;
+	}
+
+	/**
+	 * Appends a stage to the end of the pipeline.
+	 * @param aTemplates
+	 * @param aOutputProperties
+	 * @param aParameters
+	 * @param aTimings receives the timings of the stage
+	 */
+	public void addStage(Templates aTemplates,
+			TransformOutputProperties aOutputProperties,
+			TransformParameters aParameters, TransformTimings aTimings) {
+		stages.add(new Stage(aTemplates, aOutputProperties, aParameters,
+				aTimings));
+	}
+
+	/**
+	 * Setter
+	 * @param aCanceller stops the pipeline, or null
+	 */
+	public void setCanceller(TransformCanceller aCanceller) {
+		canceller = aCanceller;
+	}
+
+	/**
+	 * Returns the number of stages
+	 * @return
+	 */
+	public int getSize() {
+		return stages.size();
+	}
+
+	/**
+	 * Returns the index of the stage that was running when the last call to
+	 * transform() failed, or -1.
+	 * @return
+	 */
+	public int getFailedStage() {
+		return failedStage;
+	}
+
+	/**
+	 * Returns the index of the first stage, other than the final stage, whose
+	 * output method is text (and so cannot be fed to the next stage), or -1.
+	 * @return
+	 */
+	public int getNonXmlStage() {
+
+		int loop;
+		Stage stage;
+		String method;
+
+		for (loop = 0; loop < stages.size() - 1; loop++) {
+			stage = stages.get(loop);
+			method = stage.outputProperties != null ?
+					stage.outputProperties.getMETHOD() : null;
+			if (StringUtils.isBlank(method)) {
+				method = stage.templates.getOutputProperties().getProperty(
+						OutputKeys.METHOD);
+			}
+			if (TEXT_METHOD.equals(method)) {
+				return loop;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Runs aXmlContents through every stage of the pipeline and returns the
+	 * serialized result of the final stage.  The parse time is recorded
+	 * against the first stage and the serialize time against the last; each
+	 * stage is charged with the time spent in its own handler.
+	 * @param aXmlContents
+	 * @return
+	 * @throws TransformerException
+	 */
+	public byte[] transform(byte aXmlContents[]) throws TransformerException {
+		return transform(Utils.newXMLReader(), new InputSource(
+				new ByteArrayInputStream(aXmlContents)));
+	}
+
+	/**
+	 * Runs the document read from aInput by aReader through every stage of
+	 * the pipeline and returns the serialized result of the final stage.
+	 * @param aReader
+	 * @param aInput
+	 * @return
+	 * @throws TransformerException
+	 */
+	public byte[] transform(XMLReader aReader, InputSource aInput)
+	throws TransformerException {
+
+		ByteArrayOutputStream out;
+
+		out = new ByteArrayOutputStream();
+		transform(aReader, aInput, out);
+		return out.toByteArray();
+	}
+
+	/**
+	 * Runs the document read from aInput by aReader through every stage of
+	 * the pipeline, serializing the result of the final stage to aOut.  If
+	 * the pipeline is stopped by its canceller the timings of the stage that
+	 * was running are marked as aborted.
+	 * @param aReader
+	 * @param aInput
+	 * @param aOut
+	 * @throws TransformerException
+	 */
+	public void transform(XMLReader aReader, InputSource aInput,
+			OutputStream aOut) throws TransformerException {
+
+		int loop, size;
+		TransformerHandler handlers[];
+		TimingXMLFilter filters[];
+		TransformCanceller.CountingInputStream in;
+		TransformCanceller.CountingOutputStream out;
+		long start, elapsed;
+
+		size = stages.size();
+		failedStage = -1;
+		handlers = newTransformerHandlers();
+		filters = new TimingXMLFilter[size + 1];
+		for (loop = 0; loop <= size; loop++) {
+			filters[loop] = new TimingXMLFilter();
+			filters[loop].setCanceller(canceller);
+		}
+		in = null;
+		out = null;
+		if (canceller != null) {
+			if (aInput.getByteStream() != null) {
+				aInput.setByteStream(in = canceller.wrap(
+						aInput.getByteStream()));
+			}
+			aOut = out = canceller.wrap(aOut);
+			filters[0].setProgress(canceller.getProgress());
+			for (loop = 0; loop < size; loop++) {
+				canceller.addTransformer(handlers[loop].getTransformer());
+			}
+		}
+		connect(filters[0], handlers[0]);
+		for (loop = 0; loop < size; loop++) {
+			if (loop < size - 1) {
+				connect(filters[loop + 1], handlers[loop + 1]);
+				handlers[loop].setResult(newResult(filters[loop + 1]));
+			} else {
+				handlers[loop].setResult(Utils.newTimedResult(
+						handlers[loop].getTransformer(), filters[loop + 1],
+						new StreamResult(aOut)));
+			}
+		}
+		aReader.setContentHandler(filters[0]);
+		aReader.setDTDHandler(handlers[0]);
+		start = System.nanoTime();
+		try {
+			aReader.setProperty(LEXICAL_HANDLER_PROPERTY, filters[0]);
+			aReader.parse(aInput);
+		} catch (SAXException aException) {
+			throw getFailure(handlers, aException, in, out);
+		} catch (IOException aException) {
+			throw getFailure(handlers, aException, in, out);
+		} catch (RuntimeException aException) {
+			throw getFailure(handlers, aException, in, out);
+		} finally {
+			elapsed = System.nanoTime() - start;
+			if (canceller != null) {
+				for (loop = 0; loop < size; loop++) {
+					canceller.removeTransformer(
+							handlers[loop].getTransformer());
+				}
+			}
+			setTimings(filters, elapsed);
+		}
+		giveBack(handlers);
+	}
+
+	/**
+	 * Records the timings of each stage from the time spent downstream of
+	 * each of aFilters and aElapsed, the time spent in the whole pipeline.
+	 * @param aFilters
+	 * @param aElapsed
+	 */
+	private void setTimings(TimingXMLFilter aFilters[], long aElapsed) {
+
+		int loop, size;
+		Stage stage;
+
+		size = stages.size();
+		for (loop = 0; loop < size; loop++) {
+			stage = stages.get(loop);
+			stage.timings.setParseTime(loop == 0 ?
+					aElapsed - aFilters[0].getDownstreamTime() : 0);
+			stage.timings.setTransformTime(aFilters[loop].getDownstreamTime() -
+					aFilters[loop + 1].getDownstreamTime());
+			stage.timings.setSerializeTime(loop == size - 1 ?
+					aFilters[size].getDownstreamTime() : 0);
+		}
+	}
+
+	/**
+	 * Builds a TransformerHandler for each stage, with the stage's output
+	 * properties and parameters applied.  Xalan and XSLTC transformers are
+	 * borrowed from the TransformerPool and wrapped in a new handler;
+	 * otherwise the handler is built by the SAXTransformerFactory.
+	 * @return
+	 * @throws TransformerConfigurationException
+	 */
+	private TransformerHandler[] newTransformerHandlers()
+	throws TransformerConfigurationException {
+
+		SAXTransformerFactory factory;
+		TransformerHandler handlers[];
+		Transformer transformer;
+		Stage stage;
+		int loop;
+
+		factory = null;
+		handlers = new TransformerHandler[stages.size()];
+		for (loop = 0; loop < handlers.length; loop++) {
+			stage = stages.get(loop);
+			transformer = TransformerPool.getInstance().borrow(
+					stage.templates, stage.outputProperties, stage.parameters);
+			if (transformer instanceof TransformerImpl) {
+				handlers[loop] = new TransformerHandlerImpl(
+						(TransformerImpl)transformer, true, null);
+			} else if (transformer instanceof
+					org.apache.xalan.xsltc.trax.TransformerImpl) {
+				handlers[loop] = new org.apache.xalan.xsltc.trax.
+					TransformerHandlerImpl((org.apache.xalan.xsltc.trax.
+							TransformerImpl)transformer);
+			} else {
+				TransformerPool.getInstance().giveBack(stage.templates,
+						transformer);
+				if (factory == null) {
+					factory = newSAXTransformerFactory();
+				}
+				handlers[loop] = factory.newTransformerHandler(
+						stage.templates);
+				if (stage.outputProperties != null) {
+					Utils.setOutputProperties(handlers[loop].getTransformer(),
+							stage.outputProperties);
+				}
+				if (stage.parameters != null) {
+					Utils.setParameters(handlers[loop].getTransformer(),
+							stage.parameters);
+				}
+			}
+			handlers[loop].getTransformer().setErrorListener(
+					new StageErrorListener());
+		}
+		return handlers;
+	}
+
+	/**
+	 * Returns the SAXTransformerFactory
+	 * @return
+	 * @throws TransformerConfigurationException
+	 */
+	private static SAXTransformerFactory newSAXTransformerFactory()
+	throws TransformerConfigurationException {
+
+		TransformerFactory factory;
+
+		factory = TransformerFactory.newInstance();
+		if (!factory.getFeature(SAXTransformerFactory.FEATURE)) {
+			throw new TransformerConfigurationException(
+					"SAXTransformerFactory is not supported by " +
+					factory.getClass().getName());
+		}
+		return (SAXTransformerFactory)factory;
+	}
+
+	/**
+	 * Gives the pooled transformers of aHandlers back to the
+	 * TransformerPool.
+	 * @param aHandlers
+	 */
+	private void giveBack(TransformerHandler aHandlers[]) {
+
+		int loop;
+
+		for (loop = 0; loop < aHandlers.length; loop++) {
+			TransformerPool.getInstance().giveBack(stages.get(loop).templates,
+					aHandlers[loop].getTransformer());
+		}
+	}
+
+	/**
+	 * Sends the events received by aFilter on to aHandler.
+	 * @param aFilter
+	 * @param aHandler
+	 */
+	private static void connect(TimingXMLFilter aFilter,
+			TransformerHandler aHandler) {
+		aFilter.setContentHandler(aHandler);
+		aFilter.setLexicalHandler(aHandler);
+	}
+
+	/**
+	 * Returns a SAXResult that sends its content and lexical events to
+	 * aFilter.
+	 * @param aFilter
+	 * @return
+	 */
+	private static SAXResult newResult(TimingXMLFilter aFilter) {
+
+		SAXResult result;
+
+		result = new SAXResult(aFilter);
+		result.setLexicalHandler(aFilter);
+		return result;
+	}
+
+	/**
+	 * Determines which stage failed and returns the exception to report.
+	 * Xalan's TransformerHandler does not pass the original exception up
+	 * through the SAX calls, so the exception recorded by the stage's error
+	 * listener is preferred.  An error in a stage also fails every stage
+	 * ahead of it, so the last stage with a recorded error is the one that
+	 * failed; if no stage recorded an error the source itself could not be
+	 * parsed.  If the pipeline was stopped by its canceller the stage that
+	 * failed is marked as aborted, with the bytes read from aIn and written
+	 * to aOut.
+	 * @param aHandlers
+	 * @param aException
+	 * @param aIn
+	 * @param aOut
+	 * @return
+	 */
+	private TransformerException getFailure(TransformerHandler aHandlers[],
+			Exception aException, TransformCanceller.CountingInputStream aIn,
+			TransformCanceller.CountingOutputStream aOut) {
+
+		int loop;
+		StageErrorListener listener;
+		TransformerException exception;
+		TransformTimings timings;
+
+		exception = null;
+		for (loop = aHandlers.length - 1; loop >= 0 && exception == null;
+				loop--) {
+			listener = (StageErrorListener)aHandlers[loop].getTransformer().
+				getErrorListener();
+			if (listener.exception != null) {
+				failedStage = loop;
+				exception = listener.exception;
+			}
+		}
+		if (exception == null) {
+			failedStage = 0;
+			if (aException instanceof SAXException &&
+					((SAXException)aException).getException() instanceof
+					TransformerException) {
+				exception = (TransformerException)
+					((SAXException)aException).getException();
+			} else {
+				exception = new TransformerException(aException);
+			}
+		}
+		if (canceller != null && canceller.isStopped()) {
+			timings = stages.get(failedStage).timings;
+			timings.setAborted(true);
+			timings.setBytesRead(aIn != null ? aIn.getCount() : 0);
+			timings.setBytesWritten(aOut.getCount());
+			return new TransformerException(canceller.getMessage(),
+					exception);
+		}
+		return exception;
+	}
+
+	/**
+	 * ErrorListener that remembers the first error raised by a stage.
+	 */
+	static class StageErrorListener implements ErrorListener {
+
+		// logger object...
+		private static final Logger logger = Logger.getLogger(
+				TransformPipeline.class);
+
+		TransformerException exception;
+
+		/**
+		 * Logs aException
+		 */
+		public void warning(TransformerException aException) {
+			logger.warn(aException.getMessageAndLocation());
+		}
+
+		/**
+		 * Records and rethrows aException
+		 */
+		public void error(TransformerException aException)
+		throws TransformerException {
+			if (exception == null) {
+				exception = aException;
+			}
+			throw aException;
+		}
+
+		/**
+		 * Records and rethrows aException
+		 */
+		public void fatalError(TransformerException aException)
+		throws TransformerException {
+			error(aException);
+		}
+	}
+
+	/**
+	 * A single stage of the pipeline
+	 */
+	static class Stage {
+
+		Templates templates;
+		TransformOutputProperties outputProperties;
+		TransformParameters parameters;
+		TransformTimings timings;
+
+		/**
+		 * Constructor
+		 * @param aTemplates
+		 * @param aOutputProperties
+		 * @param aParameters
+		 * @param aTimings
+		 */
+		Stage(Templates aTemplates,
+				TransformOutputProperties aOutputProperties,
+				TransformParameters aParameters, TransformTimings aTimings) {
+			templates = aTemplates;
+			outputProperties = aOutputProperties;
+			parameters = aParameters;
+			timings = aTimings;
+		}
+	}
+}
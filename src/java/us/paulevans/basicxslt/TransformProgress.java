@@ -0,0 +1,218 @@
+/*
+	Copyright 2006 Paul Evans
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+package us.paulevans.basicxslt;
+
+/**
+ * How far a TransformChain has got: the stage it is running, the bytes of
+ * that stage's input read so far and the SAX events it has passed on.  The
+ * transforming thread only updates a few counters, and the SAX events are
+ * published in batches, so a progress display can poll this as often as it
+ * likes from another thread without slowing the transform down.  A
+ * pipelined run is reported as a single stage.  How much of a stage is
+ * done is judged by how much of its input has been read, so once the input
+ * is read the stage is reported as done though the stylesheet may still be
+ * running.
+ * @author pevans
+ *
+ */
+public class TransformProgress {
+
+	// instance members...
+	private volatile int stageCount;
+	private volatile int stage;
+	private volatile boolean pipelined;
+	private volatile long inputLength;
+	private volatile TransformCanceller.CountingInputStream input;
+	private volatile long events;
+	private volatile long stageStartTime;
+
+	/**
+	 * Constructor
+	 *
+	 */
+	public TransformProgress() {
+		stage = -1;
+		inputLength = -1;
+	}
+
+	/**
+	 * Starts a run of aStageCount stages; no stage is running until the
+	 * first is started.
+	 * @param aStageCount
+	 */
+	public void startRun(int aStageCount) {
+		stageCount = aStageCount;
+		stage = -1;
+		pipelined = false;
+		resetStage(-1);
+	}
+
+	/**
+	 * Starts the stage at aStage, whose input is aInputLength bytes long or
+	 * -1 if its length is not known.
+	 * @param aStage
+	 * @param aInputLength
+	 */
+	public void startStage(int aStage, long aInputLength) {
+		resetStage(aInputLength);
+		stage = aStage;
+	}
+
+	/**
+	 * Starts running every stage at once, as a pipeline fed an input of
+	 * aInputLength bytes, or -1 if its length is not known.
+	 * @param aInputLength
+	 */
+	public void startPipeline(long aInputLength) {
+		resetStage(aInputLength);
+		pipelined = true;
+		stage = 0;
+	}
+
+	/**
+	 * Forgets the counts of the last stage.
+	 * @param aInputLength
+	 */
+	private void resetStage(long aInputLength) {
+		input = null;
+		events = 0;
+		inputLength = aInputLength;
+		stageStartTime = System.currentTimeMillis();
+	}
+
+	/**
+	 * Setter; the stream the running stage reads its input through
+	 * @param aInput
+	 */
+	void setInput(TransformCanceller.CountingInputStream aInput) {
+		input = aInput;
+	}
+
+	/**
+	 * Adds aEvents to the SAX events passed on by the running stage; only
+	 * called on the transforming thread.
+	 * @param aEvents
+	 */
+	void addEvents(long aEvents) {
+		events += aEvents;
+	}
+
+	/**
+	 * Returns the index of the running stage, or -1 if none has started
+	 * @return
+	 */
+	public int getStage() {
+		return stage;
+	}
+
+	/**
+	 * Getter
+	 * @return
+	 */
+	public int getStageCount() {
+		return stageCount;
+	}
+
+	/**
+	 * Returns true if every stage is running at once
+	 * @return
+	 */
+	public boolean isPipelined() {
+		return pipelined;
+	}
+
+	/**
+	 * Returns the number of SAX events, to the nearest batch, passed on by
+	 * the running stage
+	 * @return
+	 */
+	public long getEvents() {
+		return events;
+	}
+
+	/**
+	 * Returns the number of bytes of its input the running stage has read
+	 * @return
+	 */
+	public long getBytesRead() {
+
+		TransformCanceller.CountingInputStream in;
+
+		in = input;
+		return in == null ? 0 : in.getCount();
+	}
+
+	/**
+	 * Returns the fraction, from 0 to 1, of its input the running stage has
+	 * read, or -1 if the length of the input is not known
+	 * @return
+	 */
+	public double getStageFraction() {
+
+		long length;
+
+		length = inputLength;
+		if (length < 0 || stage < 0) {
+			return -1;
+		}
+		if (length == 0) {
+			return 1;
+		}
+		return Math.min(1, getBytesRead() / (double)length);
+	}
+
+	/**
+	 * Returns the fraction, from 0 to 1, of the run that is done, counting
+	 * each stage as an equal share; a stage whose input length is not known
+	 * counts as not started.
+	 * @return
+	 */
+	public double getFraction() {
+
+		double stageFraction;
+		int lstage, count;
+
+		lstage = stage;
+		count = stageCount;
+		if (lstage < 0 || count == 0) {
+			return 0;
+		}
+		stageFraction = Math.max(0, getStageFraction());
+		if (pipelined) {
+			return stageFraction;
+		}
+		return (lstage + stageFraction) / count;
+	}
+
+	/**
+	 * Returns an estimate of the milliseconds until the running stage has
+	 * read all of its input, from the rate it has read it so far, or -1 if
+	 * there is no estimate.
+	 * @return
+	 */
+	public long getStageTimeLeft() {
+
+		double fraction;
+		long elapsed;
+
+		fraction = getStageFraction();
+		if (fraction <= 0 || fraction >= 1) {
+			return -1;
+		}
+		elapsed = System.currentTimeMillis() - stageStartTime;
+		return Math.round(elapsed * (1 - fraction) / fraction);
+	}
+}
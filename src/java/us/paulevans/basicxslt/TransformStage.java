@@ -0,0 +1,119 @@
+/*
+	Copyright 2006 Paul Evans
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+package us.paulevans.basicxslt;
+
+import net.blueslate.commons.xml.TransformOutputProperties;
+import net.blueslate.commons.xml.TransformParameters;
+
+/**
+ * Describes one stylesheet of a transform chain: the location of the
+ * stylesheet along with the output properties and parameters to apply to it
+ * and the number of milliseconds it may run for.
+ * Unlike XSLRow this class has no GUI components, so it can be used where
+ * there is no display.
+ * @author pevans
+ *
+ */
+public class TransformStage {
+
+	// instance members...
+	private final String stylesheet;
+	private final TransformOutputProperties outputProperties;
+	private final TransformParameters parameters;
+	private final long timeout;
+
+	/**
+	 * Constructor
+	 * @param aStylesheet
+	 * @param aOutputProperties
+	 * @param aParameters
+	 */
+	public TransformStage(String aStylesheet,
+			TransformOutputProperties aOutputProperties,
+			TransformParameters aParameters) {
+		this(aStylesheet, aOutputProperties, aParameters, 0);
+	}
+
+	/**
+	 * Constructor
+	 * @param aStylesheet
+	 * @param aOutputProperties
+	 * @param aParameters
+	 * @param aTimeout milliseconds the stage may run for, or 0 for no limit
+	 */
+	public TransformStage(String aStylesheet,
+			TransformOutputProperties aOutputProperties,
+			TransformParameters aParameters, long aTimeout) {
+		stylesheet = aStylesheet;
+		outputProperties = aOutputProperties;
+		parameters = aParameters;
+		timeout = aTimeout;
+	}
+
+	/**
+	 * Returns a stage for the stylesheet of aXSLRow, with copies of its
+	 * output properties and parameters, so that editing the row does not
+	 * change the stage
+	 * @param aXSLRow
+	 * @return
+	 */
+	public static TransformStage valueOf(XSLRow aXSLRow) {
+		return new TransformStage(aXSLRow.getTextField().getText(),
+				Utils.copyOutputProperties(
+						aXSLRow.getTransformOutputProperties()),
+				Utils.copyParameters(aXSLRow.getTransformParameters()),
+				aXSLRow.getTimeout());
+	}
+
+	/**
+	 * Getter
+	 * @return
+	 */
+	public String getStylesheet() {
+		return stylesheet;
+	}
+
+	/**
+	 * Getter
+	 * @return
+	 */
+	public TransformOutputProperties getOutputProperties() {
+		return outputProperties;
+	}
+
+	/**
+	 * Getter
+	 * @return
+	 */
+	public TransformParameters getParameters() {
+		return parameters;
+	}
+
+	/**
+	 * Returns the milliseconds the stage may run for, or 0 for no limit
+	 * @return
+	 */
+	public long getTimeout() {
+		return timeout;
+	}
+
+	/**
+	 * Returns a string representation of this object
+	 */
+	public String toString() {
+		return stylesheet;
+	}
+}
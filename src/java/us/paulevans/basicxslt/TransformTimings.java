@@ -0,0 +1,210 @@
+/*
+	Copyright 2006 Paul Evans
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+package us.paulevans.basicxslt;
+
+/**
+ * Holds the timings, in nanoseconds, of the phases of a single transform:
+ * compiling the stylesheet, parsing the source, transforming and serializing
+ * the result.
+ * @author pevans
+ *
+ */
+public class TransformTimings {
+
+	// number of nanoseconds in a millisecond...
+	private static final double NANOS_PER_MILLI = 1000000.0;
+
+	// instance members...
+	private long compileTime;
+	private long parseTime;
+	private long transformTime;
+	private long serializeTime;
+	private boolean cached;
+	private boolean aborted;
+	private long bytesRead;
+	private long bytesWritten;
+
+	/**
+	 * Adds the timings of aTimings to this object.
+	 * @param aTimings
+	 */
+	public void add(TransformTimings aTimings) {
+		compileTime += aTimings.compileTime;
+		parseTime += aTimings.parseTime;
+		transformTime += aTimings.transformTime;
+		serializeTime += aTimings.serializeTime;
+	}
+
+	/**
+	 * Returns the sum of all phases, in nanoseconds
+	 * @return
+	 */
+	public long getTotalTime() {
+		return compileTime + parseTime + transformTime + serializeTime;
+	}
+
+	/**
+	 * Converts aNanos to (fractional) milliseconds.
+	 * @param aNanos
+	 * @return
+	 */
+	public static double toMillis(double aNanos) {
+		return aNanos / NANOS_PER_MILLI;
+	}
+
+	/**
+	 * Getter
+	 * @return
+	 */
+	public long getCompileTime() {
+		return compileTime;
+	}
+
+	/**
+	 * Setter
+	 * @param aCompileTime
+	 */
+	public void setCompileTime(long aCompileTime) {
+		compileTime = aCompileTime;
+	}
+
+	/**
+	 * Getter
+	 * @return
+	 */
+	public long getParseTime() {
+		return parseTime;
+	}
+
+	/**
+	 * Setter
+	 * @param aParseTime
+	 */
+	public void setParseTime(long aParseTime) {
+		parseTime = aParseTime;
+	}
+
+	/**
+	 * Getter
+	 * @return
+	 */
+	public long getTransformTime() {
+		return transformTime;
+	}
+
+	/**
+	 * Setter
+	 * @param aTransformTime
+	 */
+	public void setTransformTime(long aTransformTime) {
+		transformTime = aTransformTime;
+	}
+
+	/**
+	 * Getter
+	 * @return
+	 */
+	public long getSerializeTime() {
+		return serializeTime;
+	}
+
+	/**
+	 * Setter
+	 * @param aSerializeTime
+	 */
+	public void setSerializeTime(long aSerializeTime) {
+		serializeTime = aSerializeTime;
+	}
+
+	/**
+	 * Returns true if the result of the transform was taken from the
+	 * ResultCache rather than produced
+	 * @return
+	 */
+	public boolean isCached() {
+		return cached;
+	}
+
+	/**
+	 * Setter
+	 * @param aCached
+	 */
+	public void setCached(boolean aCached) {
+		cached = aCached;
+	}
+
+	/**
+	 * Returns true if the transform was cancelled or timed out before it
+	 * finished; the timings then cover only the part that ran
+	 * @return
+	 */
+	public boolean isAborted() {
+		return aborted;
+	}
+
+	/**
+	 * Setter
+	 * @param aAborted
+	 */
+	public void setAborted(boolean aAborted) {
+		aborted = aAborted;
+	}
+
+	/**
+	 * Returns the number of bytes of the source read by an aborted
+	 * transform
+	 * @return
+	 */
+	public long getBytesRead() {
+		return bytesRead;
+	}
+
+	/**
+	 * Setter
+	 * @param aBytesRead
+	 */
+	public void setBytesRead(long aBytesRead) {
+		bytesRead = aBytesRead;
+	}
+
+	/**
+	 * Returns the number of bytes of the result written by an aborted
+	 * transform
+	 * @return
+	 */
+	public long getBytesWritten() {
+		return bytesWritten;
+	}
+
+	/**
+	 * Setter
+	 * @param aBytesWritten
+	 */
+	public void setBytesWritten(long aBytesWritten) {
+		bytesWritten = aBytesWritten;
+	}
+
+	/**
+	 * Returns a string representation of this object
+	 */
+	public String toString() {
+		return "compile=" + compileTime + "ns, parse=" + parseTime +
+			"ns, transform=" + transformTime + "ns, serialize=" +
+			serializeTime + "ns" + (cached ? " (cached)" : "") +
+			(aborted ? " (aborted after reading " + bytesRead +
+					" bytes, writing " + bytesWritten + " bytes)" : "");
+	}
+}
@@ -0,0 +1,357 @@
+/*
+	Copyright 2006 Paul Evans
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+package us.paulevans.basicxslt;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.transform.ErrorListener;
+import javax.xml.transform.Templates;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.URIResolver;
+
+import net.blueslate.commons.xml.TransformOutputProperties;
+import net.blueslate.commons.xml.TransformParameters;
+
+/**
+ * Pool of Transformer objects.  Each thread has its own pool, keyed on the
+ * compiled stylesheet, so a Transformer is only ever used by the thread
+ * that created it and borrowing one needs no locking.  A Transformer that is
+ * given back has its parameters cleared and its output properties reset to
+ * those of the stylesheet before it is reused.  A Transformer that failed
+ * should simply not be given back.
+ * @author pevans
+ *
+ */
+public class TransformerPool {
+
+	// default maximum number of idle transformers per stylesheet per thread...
+	private static final int DEFAULT_MAX_IDLE = 4;
+
+	// maximum number of stylesheets each thread holds transformers for...
+	private static final int MAX_STYLESHEETS = 32;
+
+	// singleton instance...
+	private static final TransformerPool instance =
+		new TransformerPool(DEFAULT_MAX_IDLE);
+
+	// instance members...
+	private int maxIdle;
+	private ThreadLocal<ThreadPool> pools;
+	private List<ThreadPool> threadPools;
+	private AtomicLong borrows;
+	private AtomicLong creates;
+	private AtomicLong borrowTime;
+
+	/**
+	 * Constructor
+	 * @param aMaxIdle the maximum number of idle transformers held for each
+	 * stylesheet by each thread
+	 */
+	public TransformerPool(int aMaxIdle) {
+		maxIdle = aMaxIdle;
+		pools = new ThreadLocal<ThreadPool>();
+		threadPools = new ArrayList<ThreadPool>();
+		borrows = new AtomicLong();
+		creates = new AtomicLong();
+		borrowTime = new AtomicLong();
+	}
+
+	/**
+	 * Returns the singleton instance
+	 * @return TransformerPool
+	 */
+	public static TransformerPool getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Returns a Transformer for aTemplates, reusing an idle one if the
+	 * calling thread has one, with aOutputProperties and aParameters
+	 * applied.
+	 * @param aTemplates
+	 * @param aOutputProperties
+	 * @param aParameters
+	 * @return
+	 * @throws TransformerConfigurationException
+	 */
+	public Transformer borrow(Templates aTemplates,
+			TransformOutputProperties aOutputProperties,
+			TransformParameters aParameters)
+	throws TransformerConfigurationException {
+
+		ThreadPool pool;
+		LinkedList<Transformer> idle;
+		Transformer transformer;
+		long start;
+
+		start = System.nanoTime();
+		pool = getPool();
+		idle = pool.idle.get(aTemplates);
+		if (idle != null && !idle.isEmpty()) {
+			transformer = idle.removeFirst();
+			pool.size.decrementAndGet();
+		} else {
+			transformer = aTemplates.newTransformer();
+			if (transformer.getURIResolver() == null) {
+				transformer.setURIResolver(CachingResolver.getInstance());
+			}
+			pool.defaults.put(transformer, new Defaults(transformer));
+			creates.incrementAndGet();
+		}
+		if (aOutputProperties != null) {
+			Utils.setOutputProperties(transformer, aOutputProperties);
+		}
+		if (aParameters != null) {
+			Utils.setParameters(transformer, aParameters);
+		}
+		borrowTime.addAndGet(System.nanoTime() - start);
+		borrows.incrementAndGet();
+		return transformer;
+	}
+
+	/**
+	 * Gives aTransformer, borrowed for aTemplates, back to the calling
+	 * thread's pool.  Its parameters are cleared and its output properties,
+	 * error listener and URI resolver are put back the way they were when
+	 * it was created.
+	 * @param aTemplates
+	 * @param aTransformer
+	 */
+	public void giveBack(Templates aTemplates, Transformer aTransformer) {
+
+		ThreadPool pool;
+		LinkedList<Transformer> idle;
+		Defaults defaults;
+
+		pool = getPool();
+		defaults = pool.defaults.get(aTransformer);
+		if (defaults == null) {
+			// not borrowed from this thread's pool...
+			return;
+		}
+		idle = pool.idle.get(aTemplates);
+		if (idle == null) {
+			idle = new LinkedList<Transformer>();
+			pool.idle.put(aTemplates, idle);
+		}
+		if (idle.size() >= maxIdle || idle.contains(aTransformer)) {
+			return;
+		}
+		aTransformer.clearParameters();
+		aTransformer.setOutputProperties(null);
+		if (defaults.errorListener != null) {
+			aTransformer.setErrorListener(defaults.errorListener);
+		}
+		aTransformer.setURIResolver(defaults.uriResolver);
+		idle.addFirst(aTransformer);
+		pool.size.incrementAndGet();
+	}
+
+	/**
+	 * Returns the calling thread's pool.
+	 * @return
+	 */
+	private ThreadPool getPool() {
+
+		ThreadPool pool;
+
+		pool = pools.get();
+		if (pool == null) {
+			pool = new ThreadPool(MAX_STYLESHEETS);
+			pools.set(pool);
+			synchronized (threadPools) {
+				removeEndedThreads();
+				threadPools.add(pool);
+			}
+		}
+		return pool;
+	}
+
+	/**
+	 * Returns the number of idle transformers held by all live threads
+	 * @return
+	 */
+	public int getSize() {
+
+		int loop, size;
+
+		size = 0;
+		synchronized (threadPools) {
+			removeEndedThreads();
+			for (loop = 0; loop < threadPools.size(); loop++) {
+				size += threadPools.get(loop).size.get();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Drops the pools of threads that have ended, along with their idle
+	 * transformers.  The caller must hold the threadPools lock.
+	 *
+	 */
+	private void removeEndedThreads() {
+
+		Iterator<ThreadPool> iter;
+		Thread thread;
+
+		iter = threadPools.iterator();
+		while (iter.hasNext()) {
+			thread = iter.next().thread.get();
+			if (thread == null || !thread.isAlive()) {
+				iter.remove();
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of transformers borrowed
+	 * @return
+	 */
+	public long getBorrows() {
+		return borrows.get();
+	}
+
+	/**
+	 * Returns the number of transformers created because no idle one was
+	 * available
+	 * @return
+	 */
+	public long getCreates() {
+		return creates.get();
+	}
+
+	/**
+	 * Returns the fraction of borrows that reused an idle transformer
+	 * @return
+	 */
+	public double getReuseRatio() {
+
+		long total;
+
+		total = borrows.get();
+		return total == 0 ? 0 : (total - creates.get()) / (double)total;
+	}
+
+	/**
+	 * Returns the average time, in nanoseconds, taken to borrow a
+	 * transformer (including creating it and applying its settings)
+	 * @return
+	 */
+	public long getAverageBorrowTime() {
+
+		long total;
+
+		total = borrows.get();
+		return total == 0 ? 0 : borrowTime.get() / total;
+	}
+
+	/**
+	 * Returns a string representation of this object
+	 */
+	public String toString() {
+		return "size=" + getSize() + ", borrows=" + getBorrows() +
+			", creates=" + getCreates() + ", reuseRatio=" + getReuseRatio() +
+			", averageBorrowTime=" + getAverageBorrowTime() + "ns";
+	}
+
+	/**
+	 * The transformers of a single thread.  Only the most recently used
+	 * stylesheets keep their idle transformers, and transformers are
+	 * otherwise held weakly, so that a stylesheet dropped from the
+	 * TemplatesCache, or a transformer that was never given back, can be
+	 * garbage collected.
+	 */
+	static class ThreadPool {
+
+		WeakReference<Thread> thread;
+		AtomicInteger size;
+		Map<Templates,LinkedList<Transformer>> idle;
+		Map<Transformer,Defaults> defaults;
+
+		/**
+		 * Constructor
+		 * @param aMaxStylesheets
+		 */
+		ThreadPool(int aMaxStylesheets) {
+			thread = new WeakReference<Thread>(Thread.currentThread());
+			size = new AtomicInteger();
+			idle = new IdleMap(aMaxStylesheets, size);
+			defaults = new WeakHashMap<Transformer,Defaults>();
+		}
+	}
+
+	/**
+	 * Map of stylesheet to idle transformers that drops the least-recently
+	 * used stylesheet once it is full.
+	 */
+	static class IdleMap extends
+			TemplatesCache.LRUMap<Templates,LinkedList<Transformer>> {
+
+		private static final long serialVersionUID = 1L;
+
+		AtomicInteger size;
+
+		/**
+		 * Constructor
+		 * @param aMaxEntries
+		 * @param aSize the count of idle transformers of the thread
+		 */
+		IdleMap(int aMaxEntries, AtomicInteger aSize) {
+			super(aMaxEntries);
+			size = aSize;
+		}
+
+		/**
+		 * Evicts the eldest entry when the map is full
+		 */
+		protected boolean removeEldestEntry(
+				Map.Entry<Templates,LinkedList<Transformer>> aEldest) {
+			if (super.removeEldestEntry(aEldest)) {
+				size.addAndGet(-aEldest.getValue().size());
+				return true;
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * The settings of a transformer when it was created
+	 */
+	static class Defaults {
+
+		ErrorListener errorListener;
+		URIResolver uriResolver;
+
+		/**
+		 * Constructor
+		 * @param aTransformer
+		 */
+		Defaults(Transformer aTransformer) {
+			errorListener = aTransformer.getErrorListener();
+			uriResolver = aTransformer.getURIResolver();
+		}
+	}
+}
@@ -0,0 +1,380 @@
+/*
+	Copyright 2006 Paul Evans
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+package us.paulevans.basicxslt;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.transform.Templates;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.ObjectUtils;
+import org.apache.commons.vfs.FileObject;
+import org.apache.commons.vfs.FileSystemManager;
+import org.apache.log4j.Logger;
+
+/**
+ * On-disk cache of stylesheets compiled by XSLTC.  A compiled stylesheet (a
+ * translet) is stored under the location and content hash of its
+ * stylesheet, along with the URI and content hash of every stylesheet it
+ * imports or includes, so that restarting the tool or running a batch loads
+ * the compiled bytecode instead of compiling the stylesheet again.  An entry
+ * is only used if none of its imports/includes have changed.  Once the
+ * translets held take up more than the maximum number of bytes the
+ * least-recently used translets are evicted.
+ * @author pevans
+ *
+ */
+public class TransletCache {
+
+	// extension of the cache files...
+	private static final String EXTENSION = ".translet";
+
+	// prefix and extension of the file a cache file is written to before it
+	// is renamed...
+	private static final String TEMP_PREFIX = "basicxslt";
+	private static final String TEMP_EXTENSION = ".tmp";
+
+	// default maximum number of bytes of translets held...
+	private static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+	// singleton instance...
+	private static final TransletCache instance = new TransletCache(
+			new File(System.getProperty("user.home") + "/" +
+					AppConstants.APP_PREFS_DIR, AppConstants.TRANSLETS_DIR),
+			DEFAULT_MAX_BYTES);
+
+	// logger object...
+	private static final Logger logger = Logger.getLogger(TransletCache.class);
+
+	// instance members...
+	private File dir;
+	private long maxBytes;
+	private Map<String,Long> sizes;
+	private long bytes;
+	private long hits;
+	private long misses;
+
+	/**
+	 * Constructor
+	 * @param aDir the directory the translets are stored in
+	 */
+	public TransletCache(File aDir) {
+		this(aDir, DEFAULT_MAX_BYTES);
+	}
+
+	/**
+	 * Constructor
+	 * @param aDir the directory the translets are stored in
+	 * @param aMaxBytes
+	 */
+	public TransletCache(File aDir, long aMaxBytes) {
+		dir = aDir;
+		maxBytes = aMaxBytes;
+	}
+
+	/**
+	 * Returns the singleton instance
+	 * @return TransletCache
+	 */
+	public static TransletCache getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Returns the content hash of aContents
+	 * @param aContents
+	 * @return
+	 */
+	public static String hash(byte aContents[]) {
+		return DigestUtils.shaHex(aContents);
+	}
+
+	/**
+	 * Returns the key of the stylesheet located at aSystemId whose contents
+	 * are aContents.  The location is part of the key as the stylesheet's
+	 * relative imports and includes resolve against it.
+	 * @param aSystemId
+	 * @param aContents
+	 * @return
+	 */
+	public static String key(String aSystemId, byte aContents[]) {
+		return DigestUtils.shaHex(aSystemId + "\n" + hash(aContents));
+	}
+
+	/**
+	 * Returns the translet stored under aKey, or null if there is none or
+	 * one of the stylesheets it imports or includes has changed.  On success
+	 * the URIs of those stylesheets are added to aDependencies.
+	 * @param aFSMgr
+	 * @param aKey the key of the stylesheet, as returned by key()
+	 * @param aDependencies
+	 * @return
+	 */
+	public synchronized Templates get(FileSystemManager aFSMgr, String aKey,
+			Collection<String> aDependencies) {
+
+		File file;
+		ObjectInputStream in;
+		String uris[], hashes[];
+		Templates templates;
+		int loop;
+
+		load();
+		file = new File(dir, aKey + EXTENSION);
+		if (sizes.get(aKey) == null || !file.isFile()) {
+			sizes.remove(aKey);
+			misses++;
+			return null;
+		}
+		in = null;
+		try {
+			in = new ObjectInputStream(new FileInputStream(file));
+			uris = (String[])in.readObject();
+			hashes = (String[])in.readObject();
+			for (loop = 0; loop < uris.length; loop++) {
+				if (!ObjectUtils.equals(hashes[loop],
+						hash(aFSMgr, uris[loop]))) {
+					logger.info("import/include changed, recompiling: " +
+							uris[loop]);
+					misses++;
+					return null;
+				}
+			}
+			templates = (Templates)in.readObject();
+		} catch (IOException aException) {
+			logger.warn("unable to read translet " + file + ": " +
+					aException.getMessage());
+			misses++;
+			return null;
+		} catch (ClassNotFoundException aException) {
+			logger.warn("unable to read translet " + file + ": " +
+					aException.getMessage());
+			misses++;
+			return null;
+		} finally {
+			Utils.closeQuietly(in);
+		}
+		for (loop = 0; loop < uris.length; loop++) {
+			aDependencies.add(uris[loop]);
+		}
+		file.setLastModified(System.currentTimeMillis());
+		hits++;
+		return templates;
+	}
+
+	/**
+	 * Stores aTemplates under aKey along with the content hash of each of
+	 * aDependencies, evicting the least-recently used translets if the cache
+	 * is then over its maximum size.  The translet is written to a temporary
+	 * file and then renamed, so that another process never reads half a
+	 * translet.  A failure is logged rather than thrown as the translet can
+	 * always be compiled again.
+	 * @param aFSMgr
+	 * @param aKey the key of the stylesheet, as returned by key()
+	 * @param aTemplates
+	 * @param aDependencies the URIs of the stylesheets aTemplates imports or
+	 * includes
+	 */
+	public synchronized void put(FileSystemManager aFSMgr, String aKey,
+			Templates aTemplates, Collection<String> aDependencies) {
+
+		File file, tempFile;
+		ObjectOutputStream out;
+		List<String> hashes;
+		Iterator<String> iter;
+		Long size;
+
+		load();
+		file = new File(dir, aKey + EXTENSION);
+		tempFile = null;
+		out = null;
+		try {
+			hashes = new ArrayList<String>();
+			iter = aDependencies.iterator();
+			while (iter.hasNext()) {
+				hashes.add(hash(aFSMgr, iter.next()));
+			}
+			dir.mkdirs();
+			tempFile = File.createTempFile(TEMP_PREFIX, TEMP_EXTENSION, dir);
+			out = new ObjectOutputStream(new FileOutputStream(tempFile));
+			out.writeObject(aDependencies.toArray(
+					new String[aDependencies.size()]));
+			out.writeObject(hashes.toArray(new String[hashes.size()]));
+			out.writeObject(aTemplates);
+			out.close();
+			out = null;
+			file.delete();
+			if (!tempFile.renameTo(file)) {
+				throw new IOException("unable to rename " + tempFile);
+			}
+			size = sizes.put(aKey, Long.valueOf(file.length()));
+			bytes += file.length() - (size != null ? size.longValue() : 0);
+			evict();
+		} catch (IOException aException) {
+			logger.warn("unable to write translet " + file + ": " +
+					aException.getMessage());
+		} finally {
+			Utils.closeQuietly(out);
+			if (tempFile != null) {
+				tempFile.delete();
+			}
+		}
+	}
+
+	/**
+	 * Returns the content hash of the file at aURI, or null if it does not
+	 * exist.
+	 * @param aFSMgr
+	 * @param aURI
+	 * @return
+	 * @throws IOException
+	 */
+	private static String hash(FileSystemManager aFSMgr, String aURI)
+	throws IOException {
+
+		FileObject file;
+		InputStream in;
+
+		file = aFSMgr.resolveFile(aURI);
+		file.refresh();
+		if (!file.exists()) {
+			return null;
+		}
+		in = file.getContent().getInputStream();
+		try {
+			return hash(IOUtils.toByteArray(in));
+		} finally {
+			Utils.closeQuietly(in);
+		}
+	}
+
+	/**
+	 * Deletes the least-recently used translets until the cache is within
+	 * its maximum size.
+	 *
+	 */
+	private void evict() {
+
+		Iterator<Map.Entry<String,Long>> iter;
+		Map.Entry<String,Long> eldest;
+
+		iter = sizes.entrySet().iterator();
+		while (bytes > maxBytes && iter.hasNext()) {
+			eldest = iter.next();
+			new File(dir, eldest.getKey() + EXTENSION).delete();
+			bytes -= eldest.getValue().longValue();
+			iter.remove();
+		}
+	}
+
+	/**
+	 * Reads the translets already on disk, least-recently used first, the
+	 * first time the cache is used.
+	 *
+	 */
+	private void load() {
+
+		File files[];
+		String name;
+		int loop;
+
+		if (sizes != null) {
+			return;
+		}
+		sizes = new LinkedHashMap<String,Long>(16, 0.75f, true);
+		bytes = 0;
+		files = dir.listFiles();
+		if (files == null) {
+			return;
+		}
+		Arrays.sort(files, new ResultCache.LastModifiedComparator());
+		for (loop = 0; loop < files.length; loop++) {
+			name = files[loop].getName();
+			if (name.endsWith(EXTENSION)) {
+				sizes.put(name.substring(0, name.length() -
+						EXTENSION.length()), Long.valueOf(
+								files[loop].length()));
+				bytes += files[loop].length();
+			}
+		}
+		evict();
+	}
+
+	/**
+	 * Removes every translet from the cache.
+	 *
+	 */
+	public synchronized void clear() {
+
+		File files[];
+		int loop;
+
+		files = dir.listFiles();
+		for (loop = 0; files != null && loop < files.length; loop++) {
+			if (files[loop].getName().endsWith(EXTENSION)) {
+				files[loop].delete();
+			}
+		}
+		sizes = null;
+	}
+
+	/**
+	 * Getter
+	 * @return
+	 */
+	public File getDir() {
+		return dir;
+	}
+
+	/**
+	 * Returns the number of bytes of translets held
+	 * @return
+	 */
+	public synchronized long getSize() {
+		load();
+		return bytes;
+	}
+
+	/**
+	 * Getter
+	 * @return
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Getter
+	 * @return
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+}
@@ -17,13 +17,20 @@ package us.paulevans.basicxslt;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 
+import net.blueslate.commons.xml.TransformOutputProperties;
+import net.blueslate.commons.xml.TransformParameters;
+
+import org.apache.commons.lang.BooleanUtils;
 import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.math.NumberUtils;
 import org.apache.commons.lang.exception.ExceptionUtils;
 import org.apache.log4j.Logger;
 
@@ -179,6 +186,113 @@ public class UserPreferences extends Properties {
 		}
 	}
 
+	/**
+	 * Loads the parameters of the stylesheet at aXslIndex in the current 
+	 * configuration into aParameters.
+	 * @param aParameters
+	 * @param aXslIndex
+	 */
+	public void loadParameters(TransformParameters aParameters, 
+			int aXslIndex) {
+    	
+    	Enumeration propertyNames;
+    	String propName, propValue, prefix;
+    	int index;
+    	
+    	propertyNames = propertyNames();
+    	prefix = currentConfiguration + ".xsl_" + aXslIndex + "_params_";
+    	while (propertyNames.hasMoreElements()) {
+    		propName = (String)propertyNames.nextElement();
+    		if (propName.startsWith(prefix)) {
+    			propValue = getPropertyNoPrefix(propName);
+    			index = propName.indexOf('{');
+    			if (index != -1) {
+    				propName = propName.substring(index);
+    			} else {
+    				index = propName.indexOf("_", prefix.length());
+    				propName = propName.substring(index + 1);
+    			}    	
+    			aParameters.setParameter(
+					TransformParameters.getNamespaceURI(propName),
+    				TransformParameters.getParameterName(propName),
+    				propValue);
+    		}
+    	}
+	}
+    
+    /**
+     * Load the output properties on the aOutputProperties object from the 
+     * current configuration.
+     * @param aOutputProperties
+     * @param aPropertyNamePrefix
+     */
+    public void loadOutputProperties(
+    		TransformOutputProperties aOutputProperties, 
+    		String aPropertyNamePrefix) {
+    		
+		aOutputProperties.setCDATA_SECTION_ELEMENTS(
+			StringUtils.defaultString(getProperty(
+				aPropertyNamePrefix + AppConstants.CDATA_SECTION_ELEMENTS)));
+		aOutputProperties.setDOCTYPE_PUBLIC(
+			StringUtils.defaultString(getProperty(
+				aPropertyNamePrefix + AppConstants.DOCTYPE_PUBLIC)));
+		aOutputProperties.setDOCTYPE_SYSTEM(
+			StringUtils.defaultString(getProperty(
+				aPropertyNamePrefix + AppConstants.DOCTYPE_SYSTEM)));
+		aOutputProperties.setENCODING(
+			StringUtils.defaultString(getProperty(
+				aPropertyNamePrefix + AppConstants.ENCODING)));
+		aOutputProperties.setINDENT(BooleanUtils.toBoolean(
+				getProperty(aPropertyNamePrefix + AppConstants.INDENT)));
+		aOutputProperties.setMEDIA_TYPE(
+			StringUtils.defaultString(getProperty(
+				aPropertyNamePrefix + AppConstants.MEDIA_TYPE)));
+		aOutputProperties.setMETHOD(
+			StringUtils.defaultString(getProperty(
+				aPropertyNamePrefix + AppConstants.METHOD)));
+		aOutputProperties.setOMIT_XML_DECLARATION(
+			BooleanUtils.toBoolean(getProperty(
+				aPropertyNamePrefix + AppConstants.OMIT_XML_DECLARATION)));
+		aOutputProperties.setSTANDALONE(
+			BooleanUtils.toBoolean(getProperty(
+				aPropertyNamePrefix + AppConstants.STANDALONE)));		
+		aOutputProperties.setVERSION(
+			StringUtils.defaultString(getProperty(
+				aPropertyNamePrefix + AppConstants.VERSION)));    	
+    }
+    
+    /**
+     * Returns the stylesheets of the current configuration that are toggled
+     * on, in order, along with their parameters, output properties and
+     * timeouts.
+     * @return
+     */
+    public List<TransformStage> getTransformStages() {
+    	
+    	List<TransformStage> stages;
+    	TransformOutputProperties outputProperties;
+    	TransformParameters parameters;
+    	String file;
+    	int loop;
+    	
+    	stages = new ArrayList<TransformStage>();
+    	for (loop = 0; (file = getProperty("xsl_" + loop + "_file")) != null;
+    			loop++) {
+    		if (StringUtils.isNotBlank(file) && BooleanUtils.toBoolean(
+    				getProperty("xsl_" + loop + "_onoff"))) {
+    			outputProperties = new TransformOutputProperties();
+    			parameters = new TransformParameters();
+    			loadOutputProperties(outputProperties, 
+    					"xsl_" + loop + "_outputproperties_");
+    			loadParameters(parameters, loop);
+    			stages.add(new TransformStage(file, outputProperties, 
+    					parameters, NumberUtils.stringToInt(getProperty(
+    							"xsl_" + loop + "_timeout"), 0)));
+    		}
+    	}
+    	return stages;
+    }
+	
 	/**
 	 * Persists userPrefs to its properties file on disk.
 	 */
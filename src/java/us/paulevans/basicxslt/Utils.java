@@ -18,49 +18,82 @@ package us.paulevans.basicxslt;
 import java.awt.Component;
 import java.awt.Cursor;
 import java.awt.Frame;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.net.URI;
 import java.net.SocketException;
 import java.net.UnknownHostException;
+import java.nio.channels.Channels;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.TooManyListenersException;
 
 import javax.swing.JFileChooser;
 import javax.swing.JOptionPane;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Result;
 import javax.xml.transform.Source;
 import javax.xml.transform.SourceLocator;
+import javax.xml.transform.Templates;
+import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerException;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.sax.SAXSource;
+import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
 
+import net.blueslate.commons.xml.TransformOutputProperties;
+import net.blueslate.commons.xml.TransformParameters;
+
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
-import org.apache.commons.lang.SystemUtils;
 import org.apache.commons.lang.exception.ExceptionUtils;
 import org.apache.commons.vfs.FileContent;
 import org.apache.commons.vfs.FileObject;
 import org.apache.commons.vfs.FileSystemManager;
 import org.apache.log4j.Logger;
+import org.apache.xalan.trace.TraceListener;
+import org.apache.xalan.transformer.TransformerImpl;
+import org.apache.xml.serializer.SerializationHandler;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.Locator;
 import org.xml.sax.SAXException;
 import org.xml.sax.SAXNotRecognizedException;
 import org.xml.sax.SAXNotSupportedException;
 import org.xml.sax.SAXParseException;
-import org.xml.sax.helpers.DefaultHandler;
+import org.xml.sax.XMLReader;
+import org.xml.sax.ext.LexicalHandler;
+import org.xml.sax.helpers.XMLFilterImpl;
 
 /**
- * Contains many helper activities and also serves as an event-handler for 
- * SAX events (for XML validation).
+ * Contains many helper activities, including XML validation.  It holds no
+ * per-call state, so documents may be validated on several threads at once.
  * @author pevans
  *
  */
-public class Utils extends DefaultHandler {
+public class Utils {
 	
 	// XML parser features...
 	private static final String VALIDATION_FEATURE = 
@@ -68,8 +101,34 @@ public class Utils extends DefaultHandler {
     private static final String SCHEMA_FEATURE = 
     	"http://apache.org/xml/features/validation/schema";
     
-	// static constant...
-    private static final JFileChooser FILE_CHOOSER = new JFileChooser();
+    // SAX property of the handler of DTD declarations...
+    private static final String LEXICAL_HANDLER_PROPERTY = 
+    	"http://xml.org/sax/properties/lexical-handler";
+    
+    // namespace of the attributes locating XML schemas...
+    private static final String SCHEMA_INSTANCE_NS = 
+    	"http://www.w3.org/2001/XMLSchema-instance";
+    
+    // size of the buffer the source xml is read through...
+    private static final int INPUT_BUFFER_SIZE = 64 * 1024;
+    
+    // size of the buffer a transform result is written through...
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+    
+    // prefix and extension of the file a result is written to before it
+    // is renamed...
+    private static final String TEMP_PREFIX = "basicxslt";
+    private static final String TEMP_EXTENSION = ".tmp";
+    
+    // prefix of the name of a stylesheet parameter in no namespace...
+    private static final String NO_NAMESPACE = "{}";
+    
+    // value of a yes/no output property that is on...
+    private static final String YES = "yes";
+    
+	// file chooser - created on first use so that merely loading this class 
+    // (from the batch runner, for example) does not initialize AWT...
+    private static JFileChooser fileChooser;
     
     // singleton instance...
     private static final Utils instance = new Utils();
@@ -81,19 +140,22 @@ public class Utils extends DefaultHandler {
     // static user preferences object...
     private static UserPreferences userPrefs;
     
+    // trace listeners added through addTraceListener() and not yet removed,
+    // and the value of TransformerImpl.S_DEBUG before the first was added...
+    private static int traceListeners;
+    private static boolean savedTraceDebug;
+    
     // logger object...
     private static final Logger logger = Logger.getLogger(Utils.class);
     
     // instance members...
-    private boolean checkWarning;
-    private boolean checkError;
-    private boolean checkFatalError;
+    private volatile ValidationCache validationCache;
 
     /**
      * private class constructor
      */
     private Utils() {
-    	// does nothing...
+    	validationCache = ValidationCache.getInstance();
     }
     
     /**
@@ -128,6 +190,52 @@ public class Utils extends DefaultHandler {
     	return IOUtils.toByteArray(content.getInputStream());
     }
     
+    /**
+     * Returns an InputSource that streams the contents of aContent rather
+     * than loading them into memory, so the size of the document does not
+     * dictate the heap needed to transform or validate it.  A local file is
+     * read through an NIO file channel; any other file through the VFS 
+     * stream.  The caller closes the byte stream.
+     * @param aContent
+     * @return
+     * @throws IOException
+     */
+    public static InputSource getXMLInput(FileContent aContent) 
+    throws IOException {
+    	
+    	File file;
+    	InputStream in;
+    	InputSource input;
+    	
+    	file = ParserPool.GrammarPool.toFile(
+    			aContent.getFile().getName().getURI());
+    	if (file != null) {
+    		return getXMLInput(file);
+    	}
+    	in = aContent.getInputStream();
+    	input = new InputSource(new BufferedInputStream(in, 
+    			INPUT_BUFFER_SIZE));
+    	input.setSystemId(aContent.getFile().getName().getURI());
+    	return input;
+    }
+    
+    /**
+     * Returns an InputSource that streams the contents of the local file
+     * aFile through an NIO file channel.  The caller closes the byte stream.
+     * @param aFile
+     * @return
+     * @throws IOException
+     */
+    public static InputSource getXMLInput(File aFile) throws IOException {
+    	
+    	InputSource input;
+    	
+    	input = new InputSource(new BufferedInputStream(Channels.newInputStream(
+    			new FileInputStream(aFile).getChannel()), INPUT_BUFFER_SIZE));
+    	input.setSystemId(aFile.toURI().toString());
+    	return input;
+    }
+    
     /**
      * Returns the contents of the input XSL file as a Source object.  Uses
      * Apache Jakarta commons-VFS to resolve the location.
@@ -150,6 +258,491 @@ public class Utils extends DefaultHandler {
     	} 
     }
     
+    /**
+     * Transforms aXmlContents using the compiled stylesheet aTemplates and
+     * returns the result.  The Transformer is borrowed from the 
+     * TransformerPool.
+     * @param aXmlContents
+     * @param aTemplates
+     * @param aOutputProperties
+     * @param aParameters
+     * @return
+     * @throws TransformerException
+     */
+    public static final byte[] transform(byte aXmlContents[], 
+    		Templates aTemplates, TransformOutputProperties aOutputProperties,
+    		TransformParameters aParameters) throws TransformerException {
+    	
+    	ByteArrayOutputStream out;
+    	Transformer transformer;
+    	
+    	out = new ByteArrayOutputStream();
+    	transformer = TransformerPool.getInstance().borrow(aTemplates, 
+    			aOutputProperties, aParameters);
+    	transformer.transform(new StreamSource(new ByteArrayInputStream(
+    			aXmlContents)), new StreamResult(out));
+    	TransformerPool.getInstance().giveBack(aTemplates, transformer);
+    	return out.toByteArray();
+    }
+    
+    /**
+     * Transforms aXmlContents using the compiled stylesheet aTemplates and
+     * returns the result.  The source parse, transform and serialization of
+     * the result are timed as they happen and recorded in aTimings, so the
+     * transform only has to be run once.
+     * @param aXmlContents
+     * @param aTemplates
+     * @param aOutputProperties
+     * @param aParameters
+     * @param aTimings
+     * @return
+     * @throws TransformerException
+     */
+    public static final byte[] transform(byte aXmlContents[], 
+    		Templates aTemplates, TransformOutputProperties aOutputProperties,
+    		TransformParameters aParameters, TransformTimings aTimings) 
+    throws TransformerException {
+    	return transform(newXMLReader(), new InputSource(
+    			new ByteArrayInputStream(aXmlContents)), aTemplates, 
+    			aOutputProperties, aParameters, aTimings);
+    }
+    
+    /**
+     * Transforms the document read from aInput by aReader using the compiled
+     * stylesheet aTemplates and returns the result, recording the timings in
+     * aTimings as above.
+     * @param aReader
+     * @param aInput
+     * @param aTemplates
+     * @param aOutputProperties
+     * @param aParameters
+     * @param aTimings
+     * @return
+     * @throws TransformerException
+     */
+    static byte[] transform(XMLReader aReader, InputSource aInput, 
+    		Templates aTemplates, TransformOutputProperties aOutputProperties,
+    		TransformParameters aParameters, TransformTimings aTimings) 
+    throws TransformerException {
+    	
+    	ByteArrayOutputStream out;
+    	
+    	out = new ByteArrayOutputStream();
+    	transform(aReader, aInput, aTemplates, aOutputProperties, aParameters,
+    			aTimings, out);
+    	return out.toByteArray();
+    }
+    
+    /**
+     * Transforms the document read from aInput by aReader as above, but
+     * serializes the result to aOut rather than returning it.
+     * @param aReader
+     * @param aInput
+     * @param aTemplates
+     * @param aOutputProperties
+     * @param aParameters
+     * @param aTimings
+     * @param aOut
+     * @throws TransformerException
+     */
+    static void transform(XMLReader aReader, InputSource aInput, 
+    		Templates aTemplates, TransformOutputProperties aOutputProperties,
+    		TransformParameters aParameters, TransformTimings aTimings, 
+    		OutputStream aOut) throws TransformerException {
+    	transform(aReader, aInput, aTemplates, aOutputProperties, aParameters,
+    			aTimings, aOut, null);
+    }
+    
+    /**
+     * Transforms the document read from aInput by aReader as above, stopping
+     * when aCanceller (if not null) is stopped.  A transform that is stopped
+     * throws a TransformerException and its timings are marked as aborted,
+     * with the time spent and the bytes read and written so far.
+     * @param aReader
+     * @param aInput
+     * @param aTemplates
+     * @param aOutputProperties
+     * @param aParameters
+     * @param aTimings
+     * @param aOut
+     * @param aCanceller
+     * @throws TransformerException
+     */
+    static void transform(XMLReader aReader, InputSource aInput, 
+    		Templates aTemplates, TransformOutputProperties aOutputProperties,
+    		TransformParameters aParameters, TransformTimings aTimings, 
+    		OutputStream aOut, TransformCanceller aCanceller) 
+    throws TransformerException {
+    	transform(aReader, aInput, aTemplates, aOutputProperties, aParameters,
+    			aTimings, aOut, aCanceller, null);
+    }
+    
+    /**
+     * Transforms the document read from aInput by aReader as above, with 
+     * aTraceListener (if not null) added to the transformer while it runs.
+     * Only an interpretive Xalan transformer fires trace events; any other
+     * transformer runs without the listener.  Xalan's tracing is turned back
+     * off once the listener is removed, so later transforms are not traced.
+     * @param aReader
+     * @param aInput
+     * @param aTemplates
+     * @param aOutputProperties
+     * @param aParameters
+     * @param aTimings
+     * @param aOut
+     * @param aCanceller
+     * @param aTraceListener
+     * @throws TransformerException
+     */
+    static void transform(XMLReader aReader, InputSource aInput, 
+    		Templates aTemplates, TransformOutputProperties aOutputProperties,
+    		TransformParameters aParameters, TransformTimings aTimings, 
+    		OutputStream aOut, TransformCanceller aCanceller, 
+    		TraceListener aTraceListener) throws TransformerException {
+    	
+    	Transformer transformer;
+    	TimingXMLFilter parseFilter, serializeFilter;
+    	TransformCanceller.CountingInputStream in;
+    	TransformCanceller.CountingOutputStream out;
+    	Result result;
+    	long start, elapsed;
+    	
+    	transformer = TransformerPool.getInstance().borrow(aTemplates, 
+    			aOutputProperties, aParameters);
+    	parseFilter = new TimingXMLFilter(aReader);
+    	serializeFilter = new TimingXMLFilter();
+    	in = null;
+    	out = null;
+    	if (aCanceller != null) {
+    		if (aInput.getByteStream() != null) {
+    			aInput.setByteStream(in = aCanceller.wrap(
+    					aInput.getByteStream()));
+    		}
+    		aOut = out = aCanceller.wrap(aOut);
+    		parseFilter.setCanceller(aCanceller);
+    		parseFilter.setProgress(aCanceller.getProgress());
+    		serializeFilter.setCanceller(aCanceller);
+    		aCanceller.addTransformer(transformer);
+    	}
+    	if (aTraceListener != null && transformer instanceof TransformerImpl) {
+    		try {
+    			addTraceListener((TransformerImpl)transformer, aTraceListener);
+    		} catch (TooManyListenersException aException) {
+    			throw new TransformerException(aException);
+    		}
+    	}
+    	result = newTimedResult(transformer, serializeFilter, 
+    			new StreamResult(aOut));
+    	start = System.nanoTime();
+    	try {
+    		transformer.transform(new SAXSource(parseFilter, aInput), result);
+    	} catch (TransformerException aException) {
+    		if (aCanceller == null || !aCanceller.isStopped()) {
+    			throw aException;
+    		}
+    		aTimings.setAborted(true);
+    		aTimings.setBytesRead(in != null ? in.getCount() : 0);
+    		aTimings.setBytesWritten(out.getCount());
+    		throw new TransformerException(aCanceller.getMessage(), 
+    				aException);
+    	} finally {
+    		elapsed = System.nanoTime() - start;
+    		if (aCanceller != null) {
+    			aCanceller.removeTransformer(transformer);
+    		}
+    		if (aTraceListener != null && 
+    				transformer instanceof TransformerImpl) {
+    			removeTraceListener((TransformerImpl)transformer, 
+    					aTraceListener);
+    		}
+    		aTimings.setParseTime(parseFilter.getElapsedTime());
+    		aTimings.setSerializeTime(serializeFilter.getDownstreamTime());
+    		aTimings.setTransformTime(elapsed - aTimings.getParseTime() - 
+    				aTimings.getSerializeTime());
+    	}
+    	TransformerPool.getInstance().giveBack(aTemplates, transformer);
+    }
+    
+    /**
+     * Adds aListener to the TraceManager of aTransformer.  Xalan turns on 
+     * tracing (TransformerImpl.S_DEBUG) for every transformer in the JVM when
+     * a trace listener is added and never turns it off again.  The output of
+     * later transforms is unchanged, but each of them then fires trace 
+     * events for every template and select it runs, which slows it down; so
+     * the value it had is saved here and restored once every listener added
+     * this way has been removed.
+     * @param aTransformer
+     * @param aListener
+     * @throws TooManyListenersException
+     */
+    static synchronized void addTraceListener(TransformerImpl aTransformer, 
+    		TraceListener aListener) throws TooManyListenersException {
+    	if (traceListeners == 0) {
+    		savedTraceDebug = TransformerImpl.S_DEBUG;
+    	}
+    	try {
+    		aTransformer.getTraceManager().addTraceListener(aListener);
+    	} catch (TooManyListenersException aException) {
+    		if (traceListeners == 0) {
+    			TransformerImpl.S_DEBUG = savedTraceDebug;
+    		}
+    		throw aException;
+    	}
+    	traceListeners++;
+    }
+    
+    /**
+     * Removes aListener, added by addTraceListener(), from the TraceManager
+     * of aTransformer; tracing is turned back off once the last such 
+     * listener is removed, unless it was on to begin with.
+     * @param aTransformer
+     * @param aListener
+     */
+    static synchronized void removeTraceListener(TransformerImpl aTransformer,
+    		TraceListener aListener) {
+    	aTransformer.getTraceManager().removeTraceListener(aListener);
+    	if (--traceListeners == 0) {
+    		TransformerImpl.S_DEBUG = savedTraceDebug;
+    	}
+    }
+    
+    /**
+     * Returns a namespace-aware XMLReader that resolves external entities
+     * with the CachingResolver.
+     * @return
+     * @throws TransformerException
+     */
+    static XMLReader newXMLReader() throws TransformerException {
+    	
+    	SAXParserFactory factory;
+    	XMLReader reader;
+    	
+    	factory = SAXParserFactory.newInstance();
+    	factory.setNamespaceAware(true);
+    	try {
+    		reader = factory.newSAXParser().getXMLReader();
+    		reader.setEntityResolver(CachingResolver.getInstance());
+    		return reader;
+    	} catch (ParserConfigurationException aException) {
+    		throw new TransformerException(aException);
+    	} catch (SAXException aException) {
+    		throw new TransformerException(aException);
+    	}
+    }
+    
+    /**
+     * Returns the Result that aTransformer should write to so that the time
+     * spent serializing to aStreamResult is recorded by aFilter.  The
+     * serializer is built by the transformer itself, so the output properties
+     * (including the implicit html output method) behave exactly as they do
+     * for a plain StreamResult.  If the transformer is not a Xalan transformer
+     * aStreamResult is returned and the serialization time is counted as part
+     * of the transform.
+     * @param aTransformer
+     * @param aFilter
+     * @param aStreamResult
+     * @return
+     * @throws TransformerException
+     */
+    static Result newTimedResult(Transformer aTransformer, 
+    		TimingXMLFilter aFilter, StreamResult aStreamResult) 
+    throws TransformerException {
+    	
+    	SerializationHandler serializer;
+    	SAXResult result;
+    	
+    	if (!(aTransformer instanceof TransformerImpl)) {
+    		return aStreamResult;
+    	}
+    	serializer = ((TransformerImpl)aTransformer).createSerializationHandler(
+    			aStreamResult);
+    	aFilter.setContentHandler(serializer);
+    	aFilter.setLexicalHandler(serializer);
+    	result = new SAXResult(aFilter);
+    	result.setLexicalHandler(aFilter);
+    	return result;
+    }
+    
+    /**
+     * Returns a new Transformer for aTemplates with the output properties and
+     * parameters applied.
+     * @param aTemplates
+     * @param aOutputProperties
+     * @param aParameters
+     * @return
+     * @throws TransformerConfigurationException
+     */
+    public static final Transformer newTransformer(Templates aTemplates,
+    		TransformOutputProperties aOutputProperties, 
+    		TransformParameters aParameters) 
+    throws TransformerConfigurationException {
+    	
+    	Transformer transformer;
+    	
+    	transformer = aTemplates.newTransformer();
+    	if (aOutputProperties != null) {
+    		setOutputProperties(transformer, aOutputProperties);
+    	}
+    	if (aParameters != null) {
+    		setParameters(transformer, aParameters);
+    	}
+    	return transformer;
+    }
+    
+    /**
+     * Applies the non-blank values of aOutputProperties to aTransformer.
+     * @param aTransformer
+     * @param aOutputProperties
+     */
+    public static final void setOutputProperties(Transformer aTransformer, 
+    		TransformOutputProperties aOutputProperties) {
+    	setOutputProperty(aTransformer, OutputKeys.CDATA_SECTION_ELEMENTS,
+    			aOutputProperties.getCDATA_SECTION_ELEMENTS());
+    	setOutputProperty(aTransformer, OutputKeys.DOCTYPE_PUBLIC,
+    			aOutputProperties.getDOCTYPE_PUBLIC());
+    	setOutputProperty(aTransformer, OutputKeys.DOCTYPE_SYSTEM,
+    			aOutputProperties.getDOCTYPE_SYSTEM());
+    	setOutputProperty(aTransformer, OutputKeys.ENCODING,
+    			aOutputProperties.getENCODING());
+    	setOutputProperty(aTransformer, OutputKeys.INDENT,
+    			aOutputProperties.getINDENT());
+    	setOutputProperty(aTransformer, OutputKeys.MEDIA_TYPE,
+    			aOutputProperties.getMEDIA_TYPE());
+    	setOutputProperty(aTransformer, OutputKeys.METHOD,
+    			aOutputProperties.getMETHOD());
+    	setOutputProperty(aTransformer, OutputKeys.OMIT_XML_DECLARATION,
+    			aOutputProperties.getOMIT_XML_DECLARATION());
+    	setOutputProperty(aTransformer, OutputKeys.STANDALONE,
+    			aOutputProperties.getSTANDALONE());
+    	setOutputProperty(aTransformer, OutputKeys.VERSION,
+    			aOutputProperties.getVERSION());
+    }
+    
+    /**
+     * Returns a copy of aOutputProperties, so a job can keep the properties
+     * as they were when it was queued.
+     * @param aOutputProperties
+     * @return
+     */
+    public static TransformOutputProperties copyOutputProperties(
+    		TransformOutputProperties aOutputProperties) {
+
+    	TransformOutputProperties copy;
+
+    	copy = new TransformOutputProperties();
+    	copy.setCDATA_SECTION_ELEMENTS(
+    			aOutputProperties.getCDATA_SECTION_ELEMENTS());
+    	copy.setDOCTYPE_PUBLIC(aOutputProperties.getDOCTYPE_PUBLIC());
+    	copy.setDOCTYPE_SYSTEM(aOutputProperties.getDOCTYPE_SYSTEM());
+    	copy.setENCODING(aOutputProperties.getENCODING());
+    	copy.setMEDIA_TYPE(aOutputProperties.getMEDIA_TYPE());
+    	copy.setMETHOD(aOutputProperties.getMETHOD());
+    	copy.setVERSION(aOutputProperties.getVERSION());
+    	if (aOutputProperties.getINDENT() != null) {
+    		copy.setINDENT(YES.equals(aOutputProperties.getINDENT()));
+    	}
+    	if (aOutputProperties.getOMIT_XML_DECLARATION() != null) {
+    		copy.setOMIT_XML_DECLARATION(YES.equals(
+    				aOutputProperties.getOMIT_XML_DECLARATION()));
+    	}
+    	if (aOutputProperties.getSTANDALONE() != null) {
+    		copy.setSTANDALONE(YES.equals(aOutputProperties.getSTANDALONE()));
+    	}
+    	return copy;
+    }
+
+    /**
+     * Sets the output property aName on aTransformer if aValue is not blank.
+     * @param aTransformer
+     * @param aName
+     * @param aValue
+     */
+    private static void setOutputProperty(Transformer aTransformer, 
+    		String aName, String aValue) {
+    	if (StringUtils.isNotBlank(aValue)) {
+    		aTransformer.setOutputProperty(aName, aValue);
+    	}
+    }
+    
+    /**
+     * Returns a copy of aParameters, so a job can keep the parameters as 
+     * they were when it was queued.
+     * @param aParameters
+     * @return
+     */
+    public static TransformParameters copyParameters(
+    		TransformParameters aParameters) {
+    	
+    	TransformParameters copy;
+    	String names[];
+    	int loop;
+    	
+    	copy = new TransformParameters();
+    	names = aParameters.getParameterNames();
+    	for (loop = 0; loop < names.length; loop++) {
+    		copy.setParameter(TransformParameters.getNamespaceURI(names[loop]),
+    				TransformParameters.getParameterName(names[loop]), 
+    				aParameters.getParameter(names[loop]));
+    	}
+    	return copy;
+    }
+    
+    /**
+     * Sets each of aParameters on aTransformer.  A parameter in no namespace
+     * ("{}name") is set by its local name, as XSLTC does not understand the
+     * empty braces.
+     * @param aTransformer
+     * @param aParameters
+     */
+    public static final void setParameters(Transformer aTransformer, 
+    		TransformParameters aParameters) {
+    	
+    	String names[];
+    	int loop;
+    	
+    	names = aParameters.getParameterNames();
+    	for (loop = 0; loop < names.length; loop++) {
+    		aTransformer.setParameter(names[loop].startsWith(NO_NAMESPACE) ? 
+    				names[loop].substring(NO_NAMESPACE.length()) : names[loop], 
+    				aParameters.getParameter(names[loop]));
+    	}
+    }
+    
+    /**
+     * Returns aValue as a quoted JSON string.
+     * @param aValue
+     * @return
+     */
+    public static String quoteJSON(String aValue) {
+
+    	StringBuffer buffer;
+    	char c;
+    	int loop;
+
+    	if (aValue == null) {
+    		return "null";
+    	}
+    	buffer = new StringBuffer("\"");
+    	for (loop = 0; loop < aValue.length(); loop++) {
+    		c = aValue.charAt(loop);
+    		if (c == '"' || c == '\\') {
+    			buffer.append('\\').append(c);
+    		} else if (c == '\n') {
+    			buffer.append("\\n");
+    		} else if (c == '\r') {
+    			buffer.append("\\r");
+    		} else if (c == '\t') {
+    			buffer.append("\\t");
+    		} else if (c < ' ') {
+    			buffer.append("\\u").append(
+    					Integer.toHexString(0x10000 | c).substring(1));
+    		} else {
+    			buffer.append(c);
+    		}
+    	}
+    	return buffer.append('"').toString();
+    }
+
     /**
      * Builds and returns a JFileChooser - the current directory of the 
      * JFileChooser is determined from the user-prefs properties file.
@@ -165,8 +758,11 @@ public class Utils extends DefaultHandler {
         if (StringUtils.isBlank(file)) {
             file = "/"; 
         }
-        FILE_CHOOSER.setCurrentDirectory(new File(file));
-        return FILE_CHOOSER;
+        if (fileChooser == null) {
+        	fileChooser = new JFileChooser();
+        }
+        fileChooser.setCurrentDirectory(new File(file));
+        return fileChooser;
     }
     
     /**
@@ -224,7 +820,7 @@ public class Utils extends DefaultHandler {
 			userPrefs = new UserPreferences();
 			in = null;
 			try {
-				appPrefsDir = new File(SystemUtils.USER_HOME + "/" + 
+				appPrefsDir = new File(System.getProperty("user.home") + "/" + 
 					AppConstants.APP_PREFS_DIR);
 				appPrefsDir.mkdir();
 				appPrefsFile = new File(appPrefsDir, 
@@ -255,6 +851,85 @@ public class Utils extends DefaultHandler {
     	}
     }
 
+    /**
+     * Returns a new, empty temp file in the default temporary directory
+     * @return
+     * @throws IOException
+     */
+    public static File newTempFile() throws IOException {
+    	return File.createTempFile(TEMP_PREFIX, TEMP_EXTENSION);
+    }
+    
+    /**
+     * Returns a new, empty temp file in the directory of aFile, to be written
+     * and then moved over aFile with replaceFile().
+     * @param aFile
+     * @return
+     * @throws IOException
+     */
+    public static File newTempFile(File aFile) throws IOException {
+    	return File.createTempFile(TEMP_PREFIX, TEMP_EXTENSION, 
+    			aFile.getAbsoluteFile().getParentFile());
+    }
+    
+    /**
+     * Returns a buffered stream that writes to aFile through an NIO file
+     * channel.
+     * @param aFile
+     * @return
+     * @throws IOException
+     */
+    public static OutputStream newOutputStream(File aFile) 
+    throws IOException {
+    	return new BufferedOutputStream(Channels.newOutputStream(
+    			new FileOutputStream(aFile).getChannel()), OUTPUT_BUFFER_SIZE);
+    }
+    
+    /**
+     * Moves aTempFile over aFile, atomically where the file system allows,
+     * so aFile is never seen half written.
+     * @param aTempFile
+     * @param aFile
+     * @throws IOException
+     */
+    public static void replaceFile(File aTempFile, File aFile) 
+    throws IOException {
+    	try {
+    		Files.move(aTempFile.toPath(), aFile.toPath(), 
+    				StandardCopyOption.REPLACE_EXISTING, 
+    				StandardCopyOption.ATOMIC_MOVE);
+    	} catch (AtomicMoveNotSupportedException aException) {
+    		Files.move(aTempFile.toPath(), aFile.toPath(), 
+    				StandardCopyOption.REPLACE_EXISTING);
+    	}
+    }
+    
+    /**
+     * Writes aContents to aFile by way of a temp file, as above.
+     * @param aFile
+     * @param aContents
+     * @throws IOException
+     */
+    public static void writeFile(File aFile, byte aContents[]) 
+    throws IOException {
+    	
+    	File tempFile;
+    	OutputStream out;
+    	
+    	tempFile = newTempFile(aFile);
+    	out = null;
+    	try {
+    		out = newOutputStream(tempFile);
+    		out.write(aContents);
+    		out.close();
+    		out = null;
+    		replaceFile(tempFile, aFile);
+    	} finally {
+    		closeQuietly(out);
+    		tempFile.delete();
+    	}
+    }
+
     /**
      * Returns an output stream from the user prefs properties file.
      * @return OutputStream
@@ -265,7 +940,7 @@ public class Utils extends DefaultHandler {
         File appPrefsDir;
         
         try {
-        	appPrefsDir = new File(SystemUtils.USER_HOME + "/" + 
+        	appPrefsDir = new File(System.getProperty("user.home") + "/" + 
         			AppConstants.APP_PREFS_DIR);
         	appPrefsDir.mkdir();
         	return new FileOutputStream(new File(appPrefsDir, 
@@ -318,6 +993,24 @@ public class Utils extends DefaultHandler {
 				aFileName, null); 
     }
     
+    /**
+     * Error handler - lists each of aErrors in a ValidationErrorFrame.
+     * @param aTitle
+     * @param aHeaderLabel
+     * @param aHeader
+     * @param aFileName
+     * @param aParent
+     * @param aErrors
+     * @param aLimit the maximum number of errors that were collected
+     */
+    public static void handleXMLErrors(String aTitle, String aHeaderLabel, 
+    		String aHeader, String aFileName, BasicXSLTFrame aParent, 
+    		List<Error> aErrors, int aLimit) {
+    	logger.info("XML errors: " + aErrors.size());
+        new ValidationErrorFrame(aParent, aTitle, aHeaderLabel, aHeader, 
+        		aErrors, aLimit, aFileName); 
+    }
+    
     /**
      * Error handler
      * @param aTitle
@@ -388,6 +1081,24 @@ public class Utils extends DefaultHandler {
     
     
 
+    /**
+     * Setter
+     * @param aValidationCache the cache isValidXml() and 
+     * getValidationErrors() look documents up in and record them in; 
+     * ValidationCache.getInstance() unless set
+     */
+    public void setValidationCache(ValidationCache aValidationCache) {
+    	validationCache = aValidationCache;
+    }
+    
+    /**
+     * Getter
+     * @return
+     */
+    public ValidationCache getValidationCache() {
+    	return validationCache;
+    }
+    
     /**
      * Method to determine if inputted xml file is valid and well-formed.
      * @param saXmlFile
@@ -400,20 +1111,86 @@ public class Utils extends DefaultHandler {
 								  SAXNotRecognizedException, 
 								  ParserConfigurationException, SAXException, 
 								  IOException {
+    	validate(faXmlFile, new ErrorChecker(aCheckWarning, aCheckError, 
+    			aCheckFatalError));
+    }
+    
+    /**
+     * Validates the inputted xml file in a single parse and returns every
+     * error found, up to aLimit errors, with its line and column; the list is
+     * empty if the file is valid.
+     * @param faXmlFile
+     * @param aCheckWarning
+     * @param aCheckError
+     * @param aCheckFatalError
+     * @param aLimit
+     * @return
+     * @throws SAXException
+     * @throws IOException
+     */
+    public List<Error> getValidationErrors(FileContent faXmlFile, 
+    		boolean aCheckWarning, boolean aCheckError, 
+    		boolean aCheckFatalError, int aLimit) throws SAXException, 
+    		IOException {
     	
-    	SAXParserFactory factory;
+    	ErrorChecker checker;
     	
-        checkWarning = aCheckWarning;
-        checkError = aCheckError;
-        checkFatalError = aCheckFatalError;
-        factory = SAXParserFactory.newInstance();
-        factory.setValidating(true);
-        factory.setNamespaceAware(true); 
+    	checker = new ErrorChecker(aCheckWarning, aCheckError, 
+    			aCheckFatalError);
+    	checker.errors = new ArrayList<Error>();
+    	checker.limit = aLimit;
+    	try {
+    		validate(faXmlFile, checker);
+    	} catch (SAXException aException) {
+    		// the parse stopped at a fatal error or at the limit...
+    		if (checker.errors.isEmpty()) {
+    			throw aException;
+    		}
+    	}
+    	return checker.errors;
+    }
+    
+    /**
+     * Parses the inputted xml file with a validating parser, reporting the
+     * SAX events to aChecker, unless the ValidationCache shows it to be
+     * valid already.
+     * @param faXmlFile
+     * @param aChecker
+     * @throws SAXException
+     * @throws IOException
+     */
+    private void validate(FileContent faXmlFile, ErrorChecker aChecker) 
+    throws SAXException, IOException {
+    	
+    	XMLReader reader;
+    	InputSource source;
+    	MessageDigest digest;
+    	
+    	if (validationCache.isValid(faXmlFile, 
+    			aChecker.checkWarning, aChecker.checkError, 
+    			aChecker.checkFatalError)) {
+    		return;
+    	}
+    	digest = ValidationCache.newDigest();
+        source = null;
         try {
-        	factory.setFeature(VALIDATION_FEATURE, true);
-        	factory.setFeature(SCHEMA_FEATURE, true);       	
-        	SAXParser parser = factory.newSAXParser();    
-        	parser.parse(faXmlFile.getInputStream(), this);
+        	source = getXMLInput(faXmlFile);
+        	source.setByteStream(new DigestInputStream(
+        			source.getByteStream(), digest));
+        	reader = ParserPool.getInstance().borrow();
+        	reader.setContentHandler(aChecker);
+        	reader.setDTDHandler(aChecker);
+        	reader.setEntityResolver(CachingResolver.getInstance());
+        	reader.setErrorHandler(aChecker);
+        	reader.setProperty(LEXICAL_HANDLER_PROPERTY, aChecker);
+        	reader.parse(source);
+        	ParserPool.getInstance().giveBack(reader);
+        	if (aChecker.errors == null || aChecker.errors.isEmpty()) {
+        		validationCache.put(faXmlFile, 
+        				aChecker.checkWarning, aChecker.checkError, 
+        				aChecker.checkFatalError, 
+        				ValidationCache.toHex(digest), aChecker.grammars);
+        	}
         } catch (UnknownHostException aException) {
         	// log and re-throw runtime exception...
         	logger.error(ExceptionUtils.getFullStackTrace(aException));
@@ -432,10 +1209,6 @@ public class Utils extends DefaultHandler {
         	// log and re-throw...
         	logger.error(ExceptionUtils.getFullStackTrace(aException));
         	throw aException;
-        } catch (ParserConfigurationException aException) {
-        	// log and re-throw...
-        	logger.error(ExceptionUtils.getFullStackTrace(aException));
-        	throw aException;
         } catch (SAXException aException) {
         	// log and re-throw...
         	logger.error(ExceptionUtils.getFullStackTrace(aException));
@@ -444,39 +1217,253 @@ public class Utils extends DefaultHandler {
         	// log and re-throw...
         	logger.error(ExceptionUtils.getFullStackTrace(aException));
         	throw aException;
+        } finally {
+        	if (source != null) {
+        		IOUtils.closeQuietly(source.getByteStream());
+        	}
         }
     }
 
     /**
-     * Throws exception if 'checkWarning' is true when this method is called.
-     * @param aException
-     * @throws SAXException
+     * Handles the SAX events of one validation: a warning, error or fatal
+     * error is thrown if it is to be checked - or, if errors is set, added
+     * to errors until there are limit of them - and the parse is abandoned if
+     * the validating thread is interrupted.  The URIs of the DTD and the
+     * schemas the document refers to are collected.  Placed between a
+     * validating parser and a transformer it passes the document on, so the
+     * document is validated as it is transformed.
      */
-    public void warning(SAXParseException aException) throws SAXException {
-        if (checkWarning) {
-            throw aException;
+    static class ErrorChecker extends XMLFilterImpl 
+    	implements LexicalHandler {
+    	
+    	boolean checkWarning;
+    	boolean checkError;
+    	boolean checkFatalError;
+    	Locator locator;
+    	Set<String> grammars = new LinkedHashSet<String>();
+    	SAXParseException exception;
+    	List<Error> errors;
+    	int limit;
+    	
+    	/**
+    	 * Constructor
+    	 * @param aCheckWarning
+    	 * @param aCheckError
+    	 * @param aCheckFatalError
+    	 */
+    	ErrorChecker(boolean aCheckWarning, boolean aCheckError, 
+    			boolean aCheckFatalError) {
+    		checkWarning = aCheckWarning;
+    		checkError = aCheckError;
+    		checkFatalError = aCheckFatalError;
+    	}
+    	
+    	/**
+    	 * Keeps aLocator so relative URIs can be resolved
+    	 */
+    	public void setDocumentLocator(Locator aLocator) {
+    		locator = aLocator;
+    		super.setDocumentLocator(aLocator);
+    	}
+    	
+    	/**
+    	 * Resolves external entities with the CachingResolver
+    	 */
+    	public InputSource resolveEntity(String aPublicId, String aSystemId) 
+    	throws SAXException, IOException {
+    		return CachingResolver.getInstance().resolveEntity(aPublicId, 
+    				aSystemId);
+    	}
+    	
+    	/**
+    	 * Throws exception if the validating thread has been interrupted;
+    	 * otherwise collects the schemas located by the element.
+    	 */
+    	public void startElement(String aUri, String aLocalName, 
+    			String aQName, Attributes aAttributes) throws SAXException {
+    		
+    		String locations[];
+    		int loop;
+    		
+    		if (Thread.currentThread().isInterrupted()) {
+    			throw new SAXException("validation cancelled");
+    		}
+    		locations = StringUtils.split(aAttributes.getValue(
+    				SCHEMA_INSTANCE_NS, "schemaLocation"));
+    		// pairs of namespace and location...
+    		for (loop = 1; locations != null && loop < locations.length; 
+    				loop += 2) {
+    			addGrammar(locations[loop]);
+    		}
+    		addGrammar(aAttributes.getValue(SCHEMA_INSTANCE_NS, 
+    				"noNamespaceSchemaLocation"));
+    		super.startElement(aUri, aLocalName, aQName, aAttributes);
+    	}
+    	
+    	/**
+    	 * Collects the DTD of the document
+    	 */
+    	public void startDTD(String aName, String aPublicId, 
+    			String aSystemId) {
+    		addGrammar(aSystemId);
+    	}
+    	
+    	/**
+    	 * Adds aLocation, resolved against the document, to the grammars.
+    	 * @param aLocation
+    	 */
+    	void addGrammar(String aLocation) {
+    		if (aLocation != null) {
+    			try {
+    				grammars.add(locator != null && 
+    						locator.getSystemId() != null ? new URI(
+    								locator.getSystemId()).resolve(
+    										aLocation).toString() : aLocation);
+    			} catch (Exception aException) {
+    				logger.warn("ignoring grammar " + aLocation);
+    			}
+    		}
+    	}
+    	
+    	/**
+    	 * LexicalHandler method
+    	 */
+    	public void endDTD() {
+    		// does nothing...
+    	}
+    	
+    	/**
+    	 * LexicalHandler method
+    	 */
+    	public void startEntity(String aName) {
+    		// does nothing...
+    	}
+    	
+    	/**
+    	 * LexicalHandler method
+    	 */
+    	public void endEntity(String aName) {
+    		// does nothing...
+    	}
+    	
+    	/**
+    	 * LexicalHandler method
+    	 */
+    	public void startCDATA() {
+    		// does nothing...
+    	}
+    	
+    	/**
+    	 * LexicalHandler method
+    	 */
+    	public void endCDATA() {
+    		// does nothing...
+    	}
+    	
+    	/**
+    	 * LexicalHandler method
+    	 */
+    	public void comment(char aChars[], int aStart, int aLength) {
+    		// does nothing...
+    	}
+
+        /**
+         * Throws exception if 'checkWarning' is true.
+         * @param aException
+         * @throws SAXException
+         */
+        public void warning(SAXParseException aException) throws SAXException {
+            if (checkWarning) {
+            	report(aException);
+            }
         }
-    }
 
-    /**
-     * Throws exception if 'checkError' is true when this method is called.
-     * @param aException
-     * @throws SAXException
-     */
-    public void error(SAXParseException aException) throws SAXException {
-        if (checkError) {
-            throw aException;
+        /**
+         * Throws exception if 'checkError' is true.
+         * @param aException
+         * @throws SAXException
+         */
+        public void error(SAXParseException aException) throws SAXException {
+            if (checkError) {
+            	report(aException);
+            }
+        }
+
+        /**
+         * Throws exception if 'checkFatalError' is true.  The parser stops
+         * after a fatal error in any case.
+         * @param aException
+         * @throws SAXException
+         */
+        public void fatalError(SAXParseException aException) 
+        throws SAXException {
+        	if (errors != null) {
+        		errors.add(getErrorDetail(aException));
+        	}
+        	exception = aException;
+            if (checkFatalError) {
+                throw aException;
+            }
+        }
+        
+        /**
+         * Throws aException, or adds it to errors if they are being
+         * collected; once there are limit errors the parse is stopped.
+         * @param aException
+         * @throws SAXException
+         */
+        void report(SAXParseException aException) throws SAXException {
+        	if (errors != null) {
+        		errors.add(getErrorDetail(aException));
+        		if (errors.size() < limit) {
+        			return;
+        		}
+        	}
+        	exception = aException;
+        	throw aException;
         }
     }
 
     /**
-     * Throws exception if 'checkFatalError' is true when this method is called.
-     * @param aException
-     * @throws SAXException
+     * Output stream that writes everything written to it to a second stream
+     * as well.
      */
-    public void fatalError(SAXParseException aException) throws SAXException {
-        if (checkFatalError) {
-            throw aException;
-        }
-    } 
-}
\ No newline at end of file
+    static class TeeOutputStream extends FilterOutputStream {
+    	
+    	OutputStream branch;
+    	
+    	/**
+    	 * Constructor
+    	 * @param aOut
+    	 * @param aBranch
+    	 */
+    	TeeOutputStream(OutputStream aOut, OutputStream aBranch) {
+    		super(aOut);
+    		branch = aBranch;
+    	}
+    	
+    	public void write(int aByte) throws IOException {
+    		out.write(aByte);
+    		branch.write(aByte);
+    	}
+    	
+    	public void write(byte aBytes[], int aOffset, int aLength) 
+    	throws IOException {
+    		out.write(aBytes, aOffset, aLength);
+    		branch.write(aBytes, aOffset, aLength);
+    	}
+    	
+    	public void flush() throws IOException {
+    		out.flush();
+    		branch.flush();
+    	}
+    	
+    	public void close() throws IOException {
+    		try {
+    			out.close();
+    		} finally {
+    			branch.close();
+    		}
+    	}
+    }
+}
@@ -0,0 +1,520 @@
+/*
+	Copyright 2006 Paul Evans 
+
+	Licensed under the Apache License, Version 2.0 (the "License"); 
+	you may not use this file except in compliance with the License. 
+	You may obtain a copy of the License at 
+
+		http://www.apache.org/licenses/LICENSE-2.0 
+
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an "AS IS" BASIS, 
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+	See the License for the specific language governing permissions and 
+	limitations under the License.
+ */
+package us.paulevans.basicxslt;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.vfs.FileContent;
+import org.apache.commons.vfs.FileSystemException;
+import org.apache.log4j.Logger;
+
+/**
+ * Persistent record of the documents that validated successfully, so that an
+ * unchanged document is not parsed again.  An entry is keyed on the URI of
+ * the document and the warning/error/fatal error settings it was validated
+ * with; it holds the last-modified time and content hash of the document,
+ * and the last-modified time of each local DTD or schema it referred to.  A
+ * document whose last-modified time has changed is hashed again; it is only
+ * re-validated if its content, or one of its DTDs or schemas, has changed.
+ * The least-recently used entry is dropped once the cache is full.  The
+ * entries are kept in a properties file alongside the user preferences;
+ * changes are written out shortly after they are made, by a background
+ * thread, rather than on every change, and flush() writes out any change
+ * not yet written.
+ * @author pevans
+ *
+ */
+public class ValidationCache {
+
+	// digest algorithm of the content hash...
+	private static final String DIGEST_ALGORITHM = "SHA-1";
+
+	// prefix and extension of the file the cache is written to before it is
+	// renamed...
+	private static final String TEMP_PREFIX = "basicxslt";
+	private static final String TEMP_EXTENSION = ".tmp";
+
+	// default maximum number of documents held...
+	private static final int DEFAULT_MAX_ENTRIES = 10000;
+
+	// milliseconds between a change and the cache being written out...
+	private static final long SAVE_DELAY = 2000;
+
+	// writes out the changes of every cache...
+	private static final ScheduledExecutorService saver =
+		Executors.newSingleThreadScheduledExecutor(new SaverThreads());
+
+	// singleton instance...
+	private static final ValidationCache instance = new ValidationCache(
+			new File(System.getProperty("user.home") + "/" +
+					AppConstants.APP_PREFS_DIR,
+					AppConstants.VALIDATION_CACHE_FILE));
+
+	// logger object...
+	private static final Logger logger = Logger.getLogger(
+			ValidationCache.class);
+
+	// instance members...
+	private File file;
+	private Map<String,String> entries;
+	private boolean dirty;
+	private ScheduledFuture<?> pendingSave;
+	private Object saveLock;
+	private volatile boolean enabled;
+	private AtomicLong hits;
+	private AtomicLong misses;
+
+	/**
+	 * Constructor
+	 * @param aFile the file the cache is kept in
+	 */
+	public ValidationCache(File aFile) {
+		this(aFile, DEFAULT_MAX_ENTRIES);
+	}
+
+	/**
+	 * Constructor
+	 * @param aFile the file the cache is kept in
+	 * @param aMaxEntries the maximum number of documents held
+	 */
+	public ValidationCache(File aFile, int aMaxEntries) {
+
+		InputStream in;
+		Properties saved;
+		Iterator<String> iter;
+		String key;
+
+		file = aFile;
+		entries = new TemplatesCache.LRUMap<String,String>(aMaxEntries);
+		saveLock = new Object();
+		hits = new AtomicLong();
+		misses = new AtomicLong();
+		enabled = true;
+		if (file.isFile()) {
+			in = null;
+			saved = new Properties();
+			try {
+				in = new FileInputStream(file);
+				saved.load(in);
+			} catch (IOException aException) {
+				logger.warn("unable to read validation cache " + file + ": " +
+						aException.getMessage());
+			} finally {
+				IOUtils.closeQuietly(in);
+			}
+			// the order the entries were last used in is not kept...
+			iter = saved.stringPropertyNames().iterator();
+			while (iter.hasNext()) {
+				key = iter.next();
+				entries.put(key, saved.getProperty(key));
+			}
+		}
+	}
+
+	/**
+	 * Returns the singleton instance
+	 * @return ValidationCache
+	 */
+	public static ValidationCache getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Returns a new digest for computing content hashes
+	 * @return
+	 */
+	public static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance(DIGEST_ALGORITHM);
+		} catch (NoSuchAlgorithmException aException) {
+			throw new IllegalStateException(aException.getMessage());
+		}
+	}
+
+	/**
+	 * Returns true if aContent validated successfully with the same
+	 * settings and neither it nor its DTDs or schemas have changed since.
+	 * @param aContent
+	 * @param aCheckWarning
+	 * @param aCheckError
+	 * @param aCheckFatalError
+	 * @return
+	 */
+	public boolean isValid(FileContent aContent,
+			boolean aCheckWarning, boolean aCheckError,
+			boolean aCheckFatalError) {
+
+		String key, value, entry[];
+		long lastModified;
+		int loop;
+
+		if (!enabled) {
+			return false;
+		}
+		try {
+			key = getKey(aContent, aCheckWarning, aCheckError,
+					aCheckFatalError);
+			synchronized (this) {
+				value = entries.get(key);
+			}
+			if (value == null) {
+				misses.incrementAndGet();
+				return false;
+			}
+			entry = StringUtils.split(value);
+			for (loop = 2; loop + 1 < entry.length; loop += 2) {
+				if (getLastModified(entry[loop]) !=
+						Long.parseLong(entry[loop + 1])) {
+					remove(key);
+					misses.incrementAndGet();
+					return false;
+				}
+			}
+			lastModified = aContent.getLastModifiedTime();
+			if (lastModified != Long.parseLong(entry[0])) {
+				if (!entry[1].equals(hash(aContent))) {
+					remove(key);
+					misses.incrementAndGet();
+					return false;
+				}
+				// touched but not changed...
+				entry[0] = String.valueOf(lastModified);
+				store(key, StringUtils.join(entry, ' '));
+			}
+			hits.incrementAndGet();
+			return true;
+		} catch (IOException aException) {
+			logger.warn("unable to check validation cache: " +
+					aException.getMessage());
+			misses.incrementAndGet();
+			return false;
+		} catch (RuntimeException aException) {
+			// a malformed entry...
+			logger.warn("unable to check validation cache: " + aException);
+			misses.incrementAndGet();
+			return false;
+		}
+	}
+
+	/**
+	 * Records that aContent, whose content hash is aHash, validated
+	 * successfully with the given settings.
+	 * @param aContent
+	 * @param aCheckWarning
+	 * @param aCheckError
+	 * @param aCheckFatalError
+	 * @param aHash
+	 * @param aGrammars the URIs of the DTDs and schemas aContent refers to
+	 */
+	public void put(FileContent aContent, boolean aCheckWarning,
+			boolean aCheckError, boolean aCheckFatalError, String aHash,
+			Collection<String> aGrammars) {
+
+		StringBuffer entry;
+		Iterator<String> iter;
+		String uri;
+
+		if (!enabled) {
+			return;
+		}
+		try {
+			entry = new StringBuffer();
+			entry.append(aContent.getLastModifiedTime()).append(' ');
+			entry.append(aHash);
+			iter = aGrammars.iterator();
+			while (iter.hasNext()) {
+				uri = iter.next();
+				// only local files can change...
+				if (ParserPool.GrammarPool.toFile(uri) != null) {
+					entry.append(' ').append(uri).append(' ');
+					entry.append(getLastModified(uri));
+				}
+			}
+			store(getKey(aContent, aCheckWarning, aCheckError,
+					aCheckFatalError), entry.toString());
+		} catch (FileSystemException aException) {
+			logger.warn("unable to update validation cache: " +
+					aException.getMessage());
+		}
+	}
+
+	/**
+	 * Sets the entry stored under aKey to aValue, and has the cache written
+	 * out shortly.
+	 * @param aKey
+	 * @param aValue
+	 */
+	private synchronized void store(String aKey, String aValue) {
+		entries.put(aKey, aValue);
+		changed();
+	}
+
+	/**
+	 * Removes the entry stored under aKey, and has the cache written out
+	 * shortly.
+	 * @param aKey
+	 */
+	private synchronized void remove(String aKey) {
+		if (entries.remove(aKey) != null) {
+			changed();
+		}
+	}
+
+	/**
+	 * Marks the cache as changed and, unless it already is, schedules it to
+	 * be written out after SAVE_DELAY milliseconds; the changes made in the
+	 * meantime are written out together.
+	 */
+	private synchronized void changed() {
+		dirty = true;
+		if (pendingSave == null) {
+			pendingSave = saver.schedule(new Saver(this), SAVE_DELAY,
+					TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Writes out any change not yet written.  The cache is written to a
+	 * temporary file and then renamed, so that another process never reads
+	 * half of it.  A failure is logged rather than thrown as the documents
+	 * can always be validated again.
+	 */
+	public void flush() {
+
+		Properties snapshot;
+		File tempFile;
+		OutputStream out;
+
+		synchronized (saveLock) {
+			synchronized (this) {
+				if (pendingSave != null) {
+					pendingSave.cancel(false);
+					pendingSave = null;
+				}
+				if (!dirty) {
+					return;
+				}
+				dirty = false;
+				snapshot = new Properties();
+				snapshot.putAll(entries);
+			}
+			tempFile = null;
+			out = null;
+			try {
+				file.getParentFile().mkdirs();
+				tempFile = File.createTempFile(TEMP_PREFIX, TEMP_EXTENSION,
+						file.getParentFile());
+				out = new FileOutputStream(tempFile);
+				snapshot.store(out, null);
+				out.close();
+				out = null;
+				file.delete();
+				if (!tempFile.renameTo(file)) {
+					throw new IOException("unable to rename " + tempFile);
+				}
+			} catch (IOException aException) {
+				logger.warn("unable to write validation cache " + file +
+						": " + aException.getMessage());
+			} finally {
+				IOUtils.closeQuietly(out);
+				if (tempFile != null) {
+					tempFile.delete();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the key of the entry for aContent validated with the given
+	 * settings
+	 * @param aContent
+	 * @param aCheckWarning
+	 * @param aCheckError
+	 * @param aCheckFatalError
+	 * @return
+	 */
+	private static String getKey(FileContent aContent, boolean aCheckWarning,
+			boolean aCheckError, boolean aCheckFatalError) {
+		return (aCheckWarning ? "w" : "-") + (aCheckError ? "e" : "-") +
+			(aCheckFatalError ? "f" : "-") + " " +
+			aContent.getFile().getName().getURI();
+	}
+
+	/**
+	 * Returns the content hash of aContent
+	 * @param aContent
+	 * @return
+	 * @throws IOException
+	 */
+	static String hash(FileContent aContent) throws IOException {
+
+		MessageDigest digest;
+		InputStream in;
+		byte buffer[];
+		int read;
+
+		digest = newDigest();
+		buffer = new byte[8192];
+		in = aContent.getInputStream();
+		try {
+			while ((read = in.read(buffer)) != -1) {
+				digest.update(buffer, 0, read);
+			}
+		} finally {
+			IOUtils.closeQuietly(in);
+		}
+		return toHex(digest);
+	}
+
+	/**
+	 * Returns the hash computed by aDigest as a hex string
+	 * @param aDigest
+	 * @return
+	 */
+	public static String toHex(MessageDigest aDigest) {
+		return new String(Hex.encodeHex(aDigest.digest()));
+	}
+
+	/**
+	 * Returns the last-modified time of the local file at aURI, or 0 if it
+	 * does not exist.
+	 * @param aURI
+	 * @return
+	 */
+	private static long getLastModified(String aURI) {
+
+		File grammar;
+
+		grammar = ParserPool.GrammarPool.toFile(aURI);
+		return grammar != null ? grammar.lastModified() : 0;
+	}
+
+	/**
+	 * Turns the cache on or off; while it is off every document is
+	 * validated.
+	 * @param aEnabled
+	 */
+	public void setEnabled(boolean aEnabled) {
+		enabled = aEnabled;
+	}
+
+	/**
+	 * Getter
+	 * @return
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Forgets every document
+	 */
+	public void clear() {
+		synchronized (saveLock) {
+			synchronized (this) {
+				entries.clear();
+				dirty = false;
+			}
+			file.delete();
+		}
+	}
+
+	/**
+	 * Returns the number of documents held
+	 * @return
+	 */
+	public synchronized int getSize() {
+		return entries.size();
+	}
+
+	/**
+	 * Returns the number of documents that were not validated again
+	 * @return
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * Returns the number of documents that had to be validated
+	 * @return
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * Writes out the changes of a cache; run on the saver thread.
+	 */
+	static class Saver implements Runnable {
+
+		ValidationCache cache;
+
+		/**
+		 * Constructor
+		 * @param aCache
+		 */
+		Saver(ValidationCache aCache) {
+			cache = aCache;
+		}
+
+		/**
+		 * Writes out the changes
+		 */
+		public void run() {
+			cache.flush();
+		}
+	}
+
+	/**
+	 * ThreadFactory of the saver; its thread does not keep the application
+	 * running.
+	 */
+	static class SaverThreads implements ThreadFactory {
+
+		/**
+		 * Returns the saver thread
+		 */
+		public Thread newThread(Runnable aRunnable) {
+
+			Thread thread;
+
+			thread = new Thread(aRunnable, "ValidationCacheSaver");
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
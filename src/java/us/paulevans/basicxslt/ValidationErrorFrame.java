@@ -26,6 +26,8 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
+import java.text.MessageFormat;
+import java.util.List;
 
 import javax.swing.BorderFactory;
 import javax.swing.JButton;
@@ -36,7 +38,13 @@ import javax.swing.JMenuItem;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JSeparator;
+import javax.swing.JSplitPane;
+import javax.swing.JTable;
 import javax.swing.JTextArea;
+import javax.swing.ListSelectionModel;
+import javax.swing.event.ListSelectionEvent;
+import javax.swing.event.ListSelectionListener;
+import javax.swing.table.AbstractTableModel;
 
 import net.blueslate.commons.gui.GUIUtils;
 
@@ -46,7 +54,7 @@ import net.blueslate.commons.gui.GUIUtils;
  *
  */
 public class ValidationErrorFrame extends DisposableFrame 
-implements ActionListener {
+implements ActionListener, ListSelectionListener {
 	
 	// default frame width and height - these values are used if
 	// a height and width are not found in the user's preferences...
@@ -65,6 +73,9 @@ implements ActionListener {
     private JMenuItem close;
     private UserPreferences userPrefs;
 	private String propertyNamePrefix;
+	private JTable errorTable;
+	private JTextArea errorText;
+	private List<Error> errors;
     
     /**
      * Constructor
@@ -81,17 +92,44 @@ implements ActionListener {
     public ValidationErrorFrame(BasicXSLTFrame aParent, String aTitle, 
     	String aHeaderLabel, String aErrHeader, int aErrColumn, int aErrLine, 
     	String aErrText, String aFileName, XSLRow aXSLRows[]) {
-    	
-        Component panel;
-        
+    	init(aParent, aTitle, buildMainPanel(aHeaderLabel, aErrHeader, 
+    			aErrColumn, aErrLine, aErrText, aFileName));
+    }
+    
+    /**
+     * Constructor - lists every error found in a document.  The errors are
+     * shown in a table that can be sorted by line, column or message; only
+     * the rows in view are drawn, so a long list stays responsive.
+     * @param aParent
+     * @param aTitle
+     * @param aHeaderLabel
+     * @param aErrHeader
+     * @param aErrors
+     * @param aLimit the maximum number of errors that were collected
+     * @param aFileName
+     */
+    public ValidationErrorFrame(BasicXSLTFrame aParent, String aTitle, 
+    	String aHeaderLabel, String aErrHeader, List<Error> aErrors, 
+    	int aLimit, String aFileName) {
+    	errors = aErrors;
+    	init(aParent, aTitle, buildErrorsPanel(aHeaderLabel, aErrHeader, 
+    			aLimit, aFileName));
+    }
+    
+    /**
+     * Lays out the frame around aPanel and shows it
+     * @param aParent
+     * @param aTitle
+     * @param aPanel
+     */
+    private void init(BasicXSLTFrame aParent, String aTitle, 
+    		Component aPanel) {
         buildMenuBar();
         JPanel southPanel = new JPanel(new FlowLayout());
         southPanel.add(closeBtn = new JButton("Close"));
-		panel = buildMainPanel(aHeaderLabel, aErrHeader, aErrColumn, 
-			aErrLine, aErrText, aFileName);
 		closeBtn.addActionListener(this);
         getContentPane().setLayout(new BorderLayout());
-        getContentPane().add(panel, BorderLayout.CENTER);
+        getContentPane().add(aPanel, BorderLayout.CENTER);
         getContentPane().add(southPanel, BorderLayout.SOUTH);
         setTitle(aTitle);
 		setWindowCloseListener();
@@ -224,6 +262,79 @@ implements ActionListener {
     	return scrollPane;
     }    
 
+    /**
+     * Builds the panel listing every error
+     * @param aHeaderLabel
+     * @param aErrHeader
+     * @param aLimit
+     * @param aFileName
+     * @return
+     */
+    private JPanel buildErrorsPanel(String aHeaderLabel, String aErrHeader, 
+    		int aLimit, String aFileName) {
+    	
+    	GridBagLayout layout;
+    	GridBagConstraints constraints;
+    	JPanel panel, headerPanel;
+		int row;
+		JLabel headerLabel;
+		JLabel fileLabel;
+		JLabel countLabel;
+		JSplitPane splitPane;
+		
+		layout = new GridBagLayout();
+    	constraints = new GridBagConstraints();
+    	headerPanel = new JPanel(layout);
+		row = 0;
+		headerLabel = new JLabel("!" + aErrHeader + " (" + aHeaderLabel + ")");
+		headerLabel.setForeground(Color.RED);
+		headerLabel.setFont(new Font("arial", Font.PLAIN, 18));
+		fileLabel = new JLabel(stringFactory.getString(
+				LabelStringFactory.VALIDATIONERR_FRAME_FILE) + aFileName);
+		fileLabel.setFont(new Font("arial", Font.PLAIN, 12));
+		countLabel = new JLabel(MessageFormat.format(stringFactory.getString(
+				errors.size() >= aLimit ? 
+						LabelStringFactory.VALIDATIONERR_FRAME_LIMIT_REACHED : 
+						LabelStringFactory.VALIDATIONERR_FRAME_ERROR_COUNT), 
+				Integer.toString(errors.size()), Integer.toString(aLimit)));
+		GUIUtils.add(headerPanel, headerLabel, layout, constraints, row++, 0, 
+			1, 1, 1, 1, GridBagConstraints.NORTHEAST, GridBagConstraints.BOTH,
+			GUIUtils.MED_LARGE_INSETS);
+		GUIUtils.add(headerPanel, new JSeparator(), layout, constraints, 
+			row++, 0, 1, 1, 1, 1, GridBagConstraints.NORTHEAST, 
+			GridBagConstraints.BOTH, GUIUtils.MED_LARGE_INSETS);
+		GUIUtils.add(headerPanel, fileLabel, layout, constraints, row++, 0, 
+			1, 1, 1, 1, GridBagConstraints.NORTHEAST, GridBagConstraints.BOTH,
+			GUIUtils.MED_LARGE_INSETS);
+		GUIUtils.add(headerPanel, countLabel, layout, constraints, row++, 0, 
+			1, 1, 1, 1, GridBagConstraints.NORTHEAST, GridBagConstraints.BOTH,
+			GUIUtils.MED_LARGE_INSETS);
+		errorTable = new JTable(new ErrorTableModel(errors));
+		errorTable.setAutoCreateRowSorter(true);
+		errorTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+		errorTable.getColumnModel().getColumn(0).setPreferredWidth(60);
+		errorTable.getColumnModel().getColumn(1).setPreferredWidth(60);
+		errorTable.getColumnModel().getColumn(2).setPreferredWidth(450);
+		errorTable.getSelectionModel().addListSelectionListener(this);
+		errorText = new JTextArea(4, 30);
+		errorText.setBorder(BorderFactory.createLoweredBevelBorder());
+		errorText.setEditable(false);
+		errorText.setLineWrap(true);
+		errorText.setWrapStyleWord(true);
+		splitPane = new JSplitPane(JSplitPane.VERTICAL_SPLIT, 
+				new JScrollPane(errorTable), new JScrollPane(errorText, 
+						JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED,
+						JScrollPane.HORIZONTAL_SCROLLBAR_NEVER));
+		splitPane.setResizeWeight(0.75);
+		panel = new JPanel(new BorderLayout());
+		panel.add(headerPanel, BorderLayout.NORTH);
+		panel.add(splitPane, BorderLayout.CENTER);
+		if (!errors.isEmpty()) {
+			errorTable.setRowSelectionInterval(0, 0);
+		}
+		return panel;
+    }
+
     /**
      * Builds the GUI menu bar.
      */
@@ -247,6 +358,20 @@ implements ActionListener {
         setJMenuBar(menuBar);
     }
 
+    /**
+     * Shows the full message of the selected error.
+     * @param aEvt
+     */
+    public void valueChanged(ListSelectionEvent aEvt) {
+    	
+    	int row;
+    	
+    	row = errorTable.getSelectedRow();
+    	errorText.setText(row == -1 ? "" : errors.get(
+    			errorTable.convertRowIndexToModel(row)).getMessage());
+    	errorText.setCaretPosition(0);
+    }
+
     /**
      * Event handler method.
      * @param aEvt
@@ -256,4 +381,65 @@ implements ActionListener {
         	dispose(userPrefs, PROPERTY_NAME_PREFIX);
         } 
     }
-}
\ No newline at end of file
+
+    /**
+     * Table model over a list of errors; a line or column number that is
+     * not available is left blank.
+     */
+    static class ErrorTableModel extends AbstractTableModel {
+    	
+    	private static final long serialVersionUID = 1L;
+    	
+    	static final String COLUMNS[] = {
+    		stringFactory.getString(
+    				LabelStringFactory.VALIDATIONERR_FRAME_LINE_COLUMN),
+    		stringFactory.getString(
+    				LabelStringFactory.VALIDATIONERR_FRAME_COLUMN_COLUMN),
+    		stringFactory.getString(
+    				LabelStringFactory.VALIDATIONERR_FRAME_MESSAGE_COLUMN)
+    	};
+    	
+    	List<Error> errors;
+    	
+    	/**
+    	 * Constructor
+    	 * @param aErrors
+    	 */
+    	ErrorTableModel(List<Error> aErrors) {
+    		errors = aErrors;
+    	}
+    	
+    	public int getRowCount() {
+    		return errors.size();
+    	}
+    	
+    	public int getColumnCount() {
+    		return COLUMNS.length;
+    	}
+    	
+    	public String getColumnName(int aColumn) {
+    		return COLUMNS[aColumn];
+    	}
+    	
+    	public Class<?> getColumnClass(int aColumn) {
+    		return aColumn == 2 ? String.class : Integer.class;
+    	}
+    	
+    	public Object getValueAt(int aRow, int aColumn) {
+    		
+    		Error error;
+    		
+    		error = errors.get(aRow);
+    		switch (aColumn) {
+    		case 0:
+    			return error.getLine() == -1 ? null : 
+    				Integer.valueOf(error.getLine());
+    		case 1:
+    			return error.getColumn() == -1 ? null : 
+    				Integer.valueOf(error.getColumn());
+    		default:
+    			return error.getMessage();
+    		}
+    	}
+    }
+}
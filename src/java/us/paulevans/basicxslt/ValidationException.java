@@ -0,0 +1,71 @@
+/*
+	Copyright 2006 Paul Evans 
+
+	Licensed under the Apache License, Version 2.0 (the "License"); 
+	you may not use this file except in compliance with the License. 
+	You may obtain a copy of the License at 
+
+		http://www.apache.org/licenses/LICENSE-2.0 
+
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an "AS IS" BASIS, 
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+	See the License for the specific language governing permissions and 
+	limitations under the License.
+ */
+package us.paulevans.basicxslt;
+
+import java.util.List;
+
+/**
+ * Thrown when one of a list of documents being validated together is not
+ * valid; the cause is the error it failed with or, if every error was
+ * collected, the errors are available from getErrors().
+ * @author pevans
+ *
+ */
+public class ValidationException extends Exception {
+
+	private static final long serialVersionUID = 1L;
+
+	// instance members...
+	private int index;
+	private List<Error> errors;
+
+	/**
+	 * Constructor
+	 * @param aIndex the index of the document that failed
+	 * @param aCause
+	 */
+	public ValidationException(int aIndex, Throwable aCause) {
+		super(aCause);
+		index = aIndex;
+	}
+
+	/**
+	 * Constructor
+	 * @param aIndex the index of the document that failed
+	 * @param aErrors every error found in the document
+	 */
+	public ValidationException(int aIndex, List<Error> aErrors) {
+		index = aIndex;
+		errors = aErrors;
+	}
+
+	/**
+	 * Returns the index of the document that failed
+	 * @return
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	/**
+	 * Returns every error found in the document, or null if the document
+	 * failed at its first error
+	 * @return
+	 */
+	public List<Error> getErrors() {
+		return errors;
+	}
+}
@@ -52,6 +52,7 @@ public class XSLRow {
 	public static final int VIEW_EDIT_PARAMETERS_INDEX = 5;
 	public static final int CLEAR_ALL_PARAMETERS_INDEX = 6;
 	public static final int PERFORM_IDENTITY_TRANSFORM_INDEX = 7;
+	public static final int SET_TIMEOUT_INDEX = 8;
 	public static final String ON_OFF_ITEM_PREFIX = stringFactory.getString(
 			LabelStringFactory.XML_ACTION_TURNONOFF_PREFIX);
 	
@@ -66,7 +67,8 @@ public class XSLRow {
 				LabelStringFactory.XML_ACTION_CLEAR_OUTPUT_PROPERTIES),
 		stringFactory.getString(LabelStringFactory.XML_ACTION_PARAMETERS),
 		stringFactory.getString(LabelStringFactory.XML_ACTION_CLEAR_PARAMETERS),
-		stringFactory.getString(LabelStringFactory.XML_ACTION_PERFORM_IT)
+		stringFactory.getString(LabelStringFactory.XML_ACTION_PERFORM_IT),
+		stringFactory.getString(LabelStringFactory.XML_ACTION_TIMEOUT)
 	};
 	
 	// instance members...
@@ -77,6 +79,9 @@ public class XSLRow {
 	private JLabel label, indicatorLabel;
 	private boolean onOffButtonValue;
 	private long timeToTransform;
+	private long timeout;
+	private TransformTimings transformTimings;
+	private TemplateProfiler templateProfiler;
 	private TransformOutputProperties transformOutputProperties;
 	private TransformParameters transformParameters;
 	private JComboBox action;
@@ -322,6 +327,56 @@ public class XSLRow {
 		return timeToTransform;
 	}
 	
+	/**
+	 * Setter
+	 * @param aTimeout milliseconds the stylesheet may run for, or 0 for no
+	 * limit
+	 */
+	public void setTimeout(long aTimeout) {
+		timeout = aTimeout;
+	}
+	
+	/**
+	 * Getter
+	 * @return
+	 */
+	public long getTimeout() {
+		return timeout;
+	}
+	
+	/**
+	 * Setter
+	 * @param aTransformTimings
+	 */
+	public void setTransformTimings(TransformTimings aTransformTimings) {
+		transformTimings = aTransformTimings;
+	}
+	
+	/**
+	 * Getter
+	 * @return
+	 */
+	public TransformTimings getTransformTimings() {
+		return transformTimings;
+	}
+	
+	/**
+	 * Setter
+	 * @param aTemplateProfiler the profile of the last transform, or null if
+	 * it was not profiled
+	 */
+	public void setTemplateProfiler(TemplateProfiler aTemplateProfiler) {
+		templateProfiler = aTemplateProfiler;
+	}
+	
+	/**
+	 * Getter
+	 * @return
+	 */
+	public TemplateProfiler getTemplateProfiler() {
+		return templateProfiler;
+	}
+	
 	/**
 	 * Returns true if this xsl row is toggled-on and the contents of the
 	 * text-field is not blank
@@ -0,0 +1,672 @@
+/*
+	Copyright 2006 Paul Evans 
+
+	Licensed under the Apache License, Version 2.0 (the "License"); 
+	you may not use this file except in compliance with the License. 
+	You may obtain a copy of the License at 
+
+		http://www.apache.org/licenses/LICENSE-2.0 
+
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an "AS IS" BASIS, 
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+	See the License for the specific language governing permissions and 
+	limitations under the License.
+ */
+package us.paulevans.basicxslt;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.xml.sax.SAXException;
+
+/**
+ * Index of the elements of an XML document held in a MappedTextFile.  One
+ * pass over the bytes records where each element starts and ends, its first
+ * child element and its next sibling; that is all that is kept in memory.
+ * Names, attributes and text are read back from the file only when they are
+ * asked for.  The pass checks that tags are balanced and properly nested,
+ * and throws a SAXException if they are not.  Only encodings in which markup
+ * is plain ASCII, such as UTF-8 and the ISO-8859 family, can be indexed.
+ * @author pevans
+ *
+ */
+public class XmlIndex {
+
+	// maximum number of characters of text in a label...
+	public static final int MAX_LABEL_CHARS = 1024;
+
+	// encoding of a document with no encoding declaration...
+	private static final String DEFAULT_ENCODING = "UTF-8";
+
+	// maximum number of bytes read looking for an encoding declaration...
+	private static final int MAX_DECLARATION_BYTES = 512;
+
+	// encoding pseudo-attribute of the XML declaration...
+	private static final Pattern ENCODING_PATTERN = Pattern.compile(
+			"encoding\\s*=\\s*[\"']([^\"']+)[\"']");
+
+	// markup that must encode the same in any encoding that is indexed...
+	private static final String MARKUP = "<?!/>=\"' \t\r\n[]-";
+
+	// character and predefined entity references...
+	private static final String ENTITIES[][] = { { "&lt;", "<" },
+		{ "&gt;", ">" }, { "&quot;", "\"" }, { "&apos;", "'" },
+		{ "&amp;", "&" } };
+
+	// instance members...
+	private MappedTextFile file;
+	private Charset charset;
+	private long starts[], ends[];
+	private int firstChildren[], nextSiblings[];
+	private int count, root;
+
+	/**
+	 * Constructor; indexes the elements of aFile.
+	 * @param aFile
+	 * @throws SAXException if aFile is not well-formed XML or its encoding
+	 * cannot be indexed
+	 */
+	public XmlIndex(MappedTextFile aFile) throws SAXException {
+		file = aFile;
+		starts = new long[1024];
+		ends = new long[1024];
+		firstChildren = new int[1024];
+		nextSiblings = new int[1024];
+		root = -1;
+		index(readEncoding());
+	}
+
+	/**
+	 * Returns the number of elements in the document
+	 * @return
+	 */
+	public int getElementCount() {
+		return count;
+	}
+
+	/**
+	 * Returns the document element
+	 * @return
+	 */
+	public int getRoot() {
+		return root;
+	}
+
+	/**
+	 * Returns the first child element of aElement, or -1 if it has none
+	 * @param aElement
+	 * @return
+	 */
+	public int getFirstChild(int aElement) {
+		return firstChildren[aElement];
+	}
+
+	/**
+	 * Returns the element after aElement with the same parent, or -1 if
+	 * there is none
+	 * @param aElement
+	 * @return
+	 */
+	public int getNextSibling(int aElement) {
+		return nextSiblings[aElement];
+	}
+
+	/**
+	 * Returns the offset of the start tag of aElement
+	 * @param aElement
+	 * @return
+	 */
+	public long getStart(int aElement) {
+		return starts[aElement];
+	}
+
+	/**
+	 * Returns the offset just past the end tag of aElement
+	 * @param aElement
+	 * @return
+	 */
+	public long getEnd(int aElement) {
+		return ends[aElement];
+	}
+
+	/**
+	 * Returns the offset just past the start tag of aElement
+	 * @param aElement
+	 * @return
+	 */
+	public long getContentStart(int aElement) {
+		return skipTag(starts[aElement]);
+	}
+
+	/**
+	 * Returns the offset of the end tag of aElement; this is the same as
+	 * getContentStart() for an empty-element tag.
+	 * @param aElement
+	 * @return
+	 */
+	public long getContentEnd(int aElement) {
+
+		long offset;
+
+		if (file.getByte(ends[aElement] - 2) == '/') {
+			return ends[aElement];
+		}
+		for (offset = ends[aElement] - 1; file.getByte(offset) != '<';
+				offset--) {
+			// the end tag holds no other '<'...
+		}
+		return offset;
+	}
+
+	/**
+	 * Returns the start tag of aElement with its attributes, as in 
+	 * &lt;name attribute="value"&gt;
+	 * @param aElement
+	 * @return
+	 */
+	public String getLabel(int aElement) {
+
+		String tag;
+		StringBuffer label;
+		int loop, end;
+		char quote;
+
+		tag = decode(starts[aElement], (int)(getContentStart(aElement) -
+				starts[aElement]));
+		label = new StringBuffer();
+		for (loop = 0; loop < tag.length(); loop++) {
+			if (tag.charAt(loop) == '"' || tag.charAt(loop) == '\'') {
+				// copy the attribute value, quoted with '"'...
+				quote = tag.charAt(loop);
+				end = tag.indexOf(quote, loop + 1);
+				label.append('"').append(replaceEntities(tag.substring(
+						loop + 1, end))).append('"');
+				loop = end;
+			} else if (Character.isWhitespace(tag.charAt(loop))) {
+				if (label.charAt(label.length() - 1) != ' ' &&
+						label.charAt(label.length() - 1) != '=') {
+					label.append(' ');
+				}
+			} else if (tag.charAt(loop) != '/') {
+				if (tag.charAt(loop) == '=' || tag.charAt(loop) == '>') {
+					// no space before '=' or the end of the tag...
+					if (label.charAt(label.length() - 1) == ' ') {
+						label.setLength(label.length() - 1);
+					}
+				}
+				label.append(tag.charAt(loop));
+			}
+		}
+		return label.toString();
+	}
+
+	/**
+	 * Returns the labels of the text and CDATA sections between aFrom and
+	 * aTo, which hold no elements.  Text that is only whitespace is left
+	 * out, as are comments and processing instructions.
+	 * @param aFrom
+	 * @param aTo
+	 * @return
+	 */
+	public List<String> getTexts(long aFrom, long aTo) {
+
+		List<String> texts;
+		long offset, end;
+		String text;
+
+		texts = new ArrayList<String>();
+		offset = aFrom;
+		while (offset < aTo) {
+			if (startsWith(offset, "<![CDATA[")) {
+				end = find(offset, "]]>") + 3;
+				texts.add("<![CDATA[" + truncate(offset + 9, end - 3) + 
+						"]]>");
+			} else if (startsWith(offset, "<!--")) {
+				end = find(offset, "-->") + 3;
+			} else if (startsWith(offset, "<?")) {
+				end = find(offset, "?>") + 2;
+			} else {
+				end = find(offset, "<");
+				if (end == -1 || end > aTo) {
+					end = aTo;
+				}
+				text = replaceEntities(truncate(offset, end)).trim();
+				if (text.length() > 0) {
+					texts.add(text);
+				}
+			}
+			offset = end;
+		}
+		return texts;
+	}
+
+	/**
+	 * Finds the encoding declared by the document, and where its content
+	 * starts.
+	 * @return the offset after any byte order mark
+	 * @throws SAXException
+	 */
+	private long readEncoding() throws SAXException {
+
+		long offset;
+		String declaration;
+		Matcher matcher;
+
+		offset = 0;
+		if (startsWithBytes(0, new byte[] { (byte)0xFE, (byte)0xFF }) ||
+				startsWithBytes(0, new byte[] { (byte)0xFF, (byte)0xFE }) ||
+				startsWithBytes(0, new byte[] { 0, '<' }) ||
+				startsWithBytes(0, new byte[] { '<', 0 })) {
+			throw new SAXException("unable to index a UTF-16 document");
+		}
+		if (startsWithBytes(0, new byte[] { (byte)0xEF, (byte)0xBB,
+				(byte)0xBF })) {
+			offset = 3;
+		}
+		charset = Charset.forName(DEFAULT_ENCODING);
+		if (startsWith(offset, "<?xml")) {
+			declaration = new String(file.getBytes(offset, (int)Math.min(
+					MAX_DECLARATION_BYTES, file.getLength() - offset)), 
+					charset);
+			if (declaration.indexOf("?>") != -1) {
+				matcher = ENCODING_PATTERN.matcher(declaration.substring(0,
+						declaration.indexOf("?>")));
+				if (matcher.find()) {
+					try {
+						charset = Charset.forName(matcher.group(1));
+					} catch (IllegalArgumentException aException) {
+						throw new SAXException("unsupported encoding " +
+								matcher.group(1));
+					}
+				}
+			}
+		}
+		if (!Arrays.equals(MARKUP.getBytes(charset), MARKUP.getBytes(
+				Charset.forName(DEFAULT_ENCODING)))) {
+			throw new SAXException("unable to index a document encoded in " +
+					charset.name());
+		}
+		return offset;
+	}
+
+	/**
+	 * Records the start, end, first child and next sibling of every element,
+	 * starting at aOffset.
+	 * @param aOffset
+	 * @throws SAXException
+	 */
+	private void index(long aOffset) throws SAXException {
+
+		int open[], lastChildren[], depth, element;
+		long offset, end;
+		byte b;
+
+		open = new int[64];
+		lastChildren = new int[64];
+		lastChildren[0] = -1;
+		depth = 0;
+		offset = aOffset;
+		while (offset < file.getLength()) {
+			b = file.getByte(offset);
+			if (b != '<') {
+				if (depth == 0 && !isWhitespace(b)) {
+					throw newException("text outside the document element",
+							offset);
+				}
+				offset++;
+			} else if (startsWith(offset, "</")) {
+				if (depth == 0) {
+					throw newException("unexpected end tag", offset);
+				}
+				end = skipTag(offset);
+				if (end == -1) {
+					throw newException("unclosed end tag", offset);
+				}
+				depth--;
+				if (!isEndTagOf(offset, open[depth])) {
+					throw newException("mismatched end tag", offset);
+				}
+				ends[open[depth]] = end;
+				offset = end;
+			} else if (startsWith(offset, "<?")) {
+				offset = findEnd(offset, "?>");
+			} else if (startsWith(offset, "<!--")) {
+				offset = findEnd(offset, "-->");
+			} else if (startsWith(offset, "<![CDATA[")) {
+				if (depth == 0) {
+					throw newException("CDATA outside the document element",
+							offset);
+				}
+				offset = findEnd(offset, "]]>");
+			} else if (startsWith(offset, "<!DOCTYPE")) {
+				if (root != -1) {
+					throw newException("misplaced DOCTYPE", offset);
+				}
+				offset = skipDoctype(offset);
+			} else {
+				if (depth == 0 && root != -1) {
+					throw newException("more than one document element",
+							offset);
+				}
+				if (offset + 1 >= file.getLength() ||
+						!isNameStart(file.getByte(offset + 1))) {
+					throw newException("invalid markup", offset);
+				}
+				element = add(offset);
+				end = skipTag(offset);
+				if (end == -1) {
+					throw newException("unclosed start tag", offset);
+				}
+				if (depth == 0) {
+					root = element;
+				} else if (lastChildren[depth] == -1) {
+					firstChildren[open[depth - 1]] = element;
+				} else {
+					nextSiblings[lastChildren[depth]] = element;
+				}
+				lastChildren[depth] = element;
+				if (file.getByte(end - 2) == '/') {
+					ends[element] = end;
+				} else {
+					if (depth + 1 == open.length) {
+						open = Arrays.copyOf(open, open.length * 2);
+						lastChildren = Arrays.copyOf(lastChildren,
+								lastChildren.length * 2);
+					}
+					open[depth++] = element;
+					lastChildren[depth] = -1;
+				}
+				offset = end;
+			}
+		}
+		if (depth > 0) {
+			throw newException("unclosed element", starts[open[depth - 1]]);
+		}
+		if (root == -1) {
+			throw newException("no document element", offset);
+		}
+	}
+
+	/**
+	 * Adds an element starting at aOffset and returns it
+	 * @param aOffset
+	 * @return
+	 */
+	private int add(long aOffset) {
+		if (count == starts.length) {
+			starts = Arrays.copyOf(starts, count * 2);
+			ends = Arrays.copyOf(ends, count * 2);
+			firstChildren = Arrays.copyOf(firstChildren, count * 2);
+			nextSiblings = Arrays.copyOf(nextSiblings, count * 2);
+		}
+		starts[count] = aOffset;
+		firstChildren[count] = -1;
+		nextSiblings[count] = -1;
+		return count++;
+	}
+
+	/**
+	 * Returns true if the end tag at aOffset closes aElement
+	 * @param aOffset
+	 * @param aElement
+	 * @return
+	 */
+	private boolean isEndTagOf(long aOffset, int aElement) {
+
+		long start, end;
+
+		start = starts[aElement] + 1;
+		for (end = aOffset + 2; isNameByte(file.getByte(end)) &&
+				file.getByte(end) == file.getByte(start); end++, start++) {
+			// compare the names...
+		}
+		return !isNameByte(file.getByte(end)) &&
+			!isNameByte(file.getByte(start));
+	}
+
+	/**
+	 * Returns the offset just past the tag at aOffset, skipping '>' within
+	 * quoted attribute values, or -1 if the tag is not closed
+	 * @param aOffset
+	 * @return
+	 */
+	private long skipTag(long aOffset) {
+
+		long offset;
+		byte b, quote;
+
+		quote = 0;
+		for (offset = aOffset + 1; offset < file.getLength(); offset++) {
+			b = file.getByte(offset);
+			if (quote != 0) {
+				if (b == quote) {
+					quote = 0;
+				}
+			} else if (b == '"' || b == '\'') {
+				quote = b;
+			} else if (b == '>') {
+				return offset + 1;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the offset just past the DOCTYPE declaration at aOffset,
+	 * skipping its internal subset
+	 * @param aOffset
+	 * @return
+	 */
+	private long skipDoctype(long aOffset) {
+
+		long offset;
+		byte b, quote;
+		int brackets;
+
+		quote = 0;
+		brackets = 0;
+		for (offset = aOffset + 1; offset < file.getLength(); offset++) {
+			b = file.getByte(offset);
+			if (quote != 0) {
+				if (b == quote) {
+					quote = 0;
+				}
+			} else if (b == '"' || b == '\'') {
+				quote = b;
+			} else if (b == '[') {
+				brackets++;
+			} else if (b == ']') {
+				brackets--;
+			} else if (b == '>' && brackets == 0) {
+				return offset + 1;
+			}
+		}
+		return file.getLength();
+	}
+
+	/**
+	 * Returns the offset just past the first aEnd after aOffset
+	 * @param aOffset
+	 * @param aEnd
+	 * @return
+	 * @throws SAXException if there is none
+	 */
+	private long findEnd(long aOffset, String aEnd) throws SAXException {
+
+		long offset;
+
+		offset = find(aOffset + 1, aEnd);
+		if (offset == -1) {
+			throw newException("missing " + aEnd, aOffset);
+		}
+		return offset + aEnd.length();
+	}
+
+	/**
+	 * Returns the offset of the first aText at or after aOffset, or -1
+	 * @param aOffset
+	 * @param aText
+	 * @return
+	 */
+	private long find(long aOffset, String aText) {
+		return file.find(aText, aOffset);
+	}
+
+	/**
+	 * Returns true if aText, which is ASCII, is at aOffset
+	 * @param aOffset
+	 * @param aText
+	 * @return
+	 */
+	private boolean startsWith(long aOffset, String aText) {
+
+		int loop;
+
+		if (aOffset + aText.length() > file.getLength()) {
+			return false;
+		}
+		for (loop = 0; loop < aText.length(); loop++) {
+			if (file.getByte(aOffset + loop) != aText.charAt(loop)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns true if aBytes are at aOffset
+	 * @param aOffset
+	 * @param aBytes
+	 * @return
+	 */
+	private boolean startsWithBytes(long aOffset, byte aBytes[]) {
+		return aOffset + aBytes.length <= file.getLength() &&
+			Arrays.equals(file.getBytes(aOffset, aBytes.length), aBytes);
+	}
+
+	/**
+	 * Returns the text from aFrom to aTo, cut off after MAX_LABEL_CHARS
+	 * characters
+	 * @param aFrom
+	 * @param aTo
+	 * @return
+	 */
+	private String truncate(long aFrom, long aTo) {
+
+		String text;
+
+		text = decode(aFrom, (int)Math.min(aTo - aFrom, 
+				MAX_LABEL_CHARS * 4));
+		if (text.length() > MAX_LABEL_CHARS || aTo - aFrom > 
+				MAX_LABEL_CHARS * 4) {
+			return text.substring(0, Math.min(text.length(), 
+					MAX_LABEL_CHARS)) + "...";
+		}
+		return text;
+	}
+
+	/**
+	 * Returns the aLength bytes at aOffset as text
+	 * @param aOffset
+	 * @param aLength
+	 * @return
+	 */
+	private String decode(long aOffset, int aLength) {
+		return new String(file.getBytes(aOffset, aLength), charset);
+	}
+
+	/**
+	 * Returns aText with its character and predefined entity references 
+	 * replaced
+	 * @param aText
+	 * @return
+	 */
+	static String replaceEntities(String aText) {
+
+		StringBuffer text;
+		int start, end, loop;
+		String reference;
+
+		if (aText.indexOf('&') == -1) {
+			return aText;
+		}
+		text = new StringBuffer();
+		start = 0;
+		while ((end = aText.indexOf('&', start)) != -1) {
+			text.append(aText.substring(start, end));
+			start = aText.indexOf(';', end) + 1;
+			if (start == 0) {
+				start = end;
+				break;
+			}
+			reference = aText.substring(end, start);
+			for (loop = 0; loop < ENTITIES.length &&
+					!ENTITIES[loop][0].equals(reference); loop++) {
+				// look up the entity...
+			}
+			if (loop < ENTITIES.length) {
+				text.append(ENTITIES[loop][1]);
+			} else if (reference.startsWith("&#")) {
+				try {
+					text.appendCodePoint(reference.startsWith("&#x") ?
+							Integer.parseInt(reference.substring(3, 
+									reference.length() - 1), 16) :
+							Integer.parseInt(reference.substring(2, 
+									reference.length() - 1)));
+				} catch (IllegalArgumentException aException) {
+					text.append(reference);
+				}
+			} else {
+				text.append(reference);
+			}
+		}
+		text.append(aText.substring(start));
+		return text.toString();
+	}
+
+	/**
+	 * Returns a SAXException describing aProblem at aOffset
+	 * @param aProblem
+	 * @param aOffset
+	 * @return
+	 */
+	private static SAXException newException(String aProblem, long aOffset) {
+		return new SAXException(aProblem + " at offset " + aOffset);
+	}
+
+	/**
+	 * Returns true if aByte is XML whitespace
+	 * @param aByte
+	 * @return
+	 */
+	private static boolean isWhitespace(byte aByte) {
+		return aByte == ' ' || aByte == '\t' || aByte == '\r' || 
+			aByte == '\n';
+	}
+
+	/**
+	 * Returns true if aByte may start a name; bytes past ASCII are part of
+	 * a character that may.
+	 * @param aByte
+	 * @return
+	 */
+	private static boolean isNameStart(byte aByte) {
+		return (aByte >= 'a' && aByte <= 'z') || (aByte >= 'A' && 
+				aByte <= 'Z') || aByte == '_' || aByte == ':' || aByte < 0;
+	}
+
+	/**
+	 * Returns true if aByte may be part of a name
+	 * @param aByte
+	 * @return
+	 */
+	private static boolean isNameByte(byte aByte) {
+		return isNameStart(aByte) || (aByte >= '0' && aByte <= '9') ||
+			aByte == '-' || aByte == '.';
+	}
+}
@@ -0,0 +1,72 @@
+package us.paulevans.basicxslt.test;
+
+import java.io.File;
+import java.io.IOException;
+
+import net.blueslate.commons.io.IOUtils;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Stylesheets and temp directories shared by the test cases
+ * @author pevans
+ *
+ */
+public class Fixtures {
+
+	// stylesheet that wraps the document in an element named by a param...
+	public static final String WRAP_XSL =
+		"<xsl:stylesheet version=\"1.0\" " +
+		"xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">" +
+		"<xsl:output omit-xml-declaration=\"yes\"/>" +
+		"<xsl:param name=\"name\" select=\"'wrap'\"/>" +
+		"<xsl:template match=\"/\"><xsl:element name=\"{$name}\">" +
+		"<xsl:copy-of select=\"/\"/></xsl:element></xsl:template>" +
+		"</xsl:stylesheet>";
+
+	/**
+	 * Private constructor to prevent instantiation
+	 */
+	private Fixtures() {
+		// does nothing...
+	}
+
+	/**
+	 * Returns a new, empty temp directory whose name starts with aPrefix
+	 * @param aPrefix
+	 * @return
+	 * @throws IOException
+	 */
+	public static File newTempDir(String aPrefix) throws IOException {
+
+		File dir;
+
+		dir = File.createTempFile(aPrefix, "");
+		dir.delete();
+		dir.mkdirs();
+		return dir;
+	}
+
+	/**
+	 * Writes WRAP_XSL to wrap.xsl in aDir and returns the file
+	 * @param aDir
+	 * @return
+	 * @throws IOException
+	 */
+	public static File writeWrapXsl(File aDir) throws IOException {
+
+		File file;
+
+		IOUtils.writeTextFile(file = new File(aDir, "wrap.xsl"), WRAP_XSL);
+		return file;
+	}
+
+	/**
+	 * Deletes aDir and everything in it
+	 * @param aDir
+	 * @throws IOException
+	 */
+	public static void deleteTempDir(File aDir) throws IOException {
+		FileUtils.deleteDirectory(aDir);
+	}
+}
@@ -0,0 +1,131 @@
+package us.paulevans.basicxslt.test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import net.blueslate.commons.io.IOUtils;
+import net.blueslate.commons.xml.TransformOutputProperties;
+import net.blueslate.commons.xml.TransformParameters;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.vfs.VFS;
+
+import us.paulevans.basicxslt.BatchEngine;
+import us.paulevans.basicxslt.BatchResult;
+import us.paulevans.basicxslt.TransformStage;
+
+/**
+ * Test case for BatchEngine class
+ * @author pevans
+ *
+ */
+public class TestBatchEngine extends TestCase {
+
+	// number of input documents...
+	private static final int DOCUMENTS = 20;
+
+	// instance members...
+	private File dir, inputDir, outputDir, xsl;
+
+	/**
+	 * Test fixture setup
+	 */
+	protected void setUp() throws Exception {
+		dir = Fixtures.newTempDir("batchengine");
+		inputDir = new File(dir, "in");
+		outputDir = new File(dir, "out");
+		inputDir.mkdirs();
+		outputDir.mkdirs();
+		xsl = Fixtures.writeWrapXsl(dir);
+	}
+
+	/**
+	 * Test fixture teardown
+	 */
+	protected void tearDown() throws Exception {
+		Fixtures.deleteTempDir(dir);
+	}
+
+	/**
+	 * Returns a single-stage chain of the wrap stylesheet.
+	 * @return
+	 */
+	private List<TransformStage> newStages() {
+
+		List<TransformStage> stages;
+
+		stages = new ArrayList<TransformStage>();
+		stages.add(new TransformStage(xsl.getAbsolutePath(),
+				new TransformOutputProperties(), new TransformParameters()));
+		return stages;
+	}
+
+	/**
+	 * Asserts every document is transformed, the results come back in input
+	 * order and a malformed document fails on its own.
+	 * @throws Exception
+	 */
+	public void testTransform() throws Exception {
+
+		List<File> inputs;
+		List<BatchResult> results;
+		BatchEngine engine;
+		File input;
+		int loop;
+
+		inputs = new ArrayList<File>();
+		for (loop = 0; loop < DOCUMENTS; loop++) {
+			input = new File(inputDir, loop + ".xml");
+			IOUtils.writeTextFile(input, loop == 5 ? "<a>" :
+				"<a>" + loop + "</a>");
+			inputs.add(input);
+		}
+		// load every class on one thread first; the coverage instrumentation
+		// does not cope with classes first used by several threads at once...
+		new BatchEngine(newStages(), true, false, 1).transform(VFS.getManager(),
+				inputs.subList(0, 1), outputDir);
+		engine = new BatchEngine(newStages(), true, false, 4);
+		results = engine.transform(VFS.getManager(), inputs, outputDir);
+		assertEquals(DOCUMENTS, results.size());
+		assertEquals(DOCUMENTS - 1, engine.getSucceeded());
+		assertEquals(1, engine.getFailed());
+		for (loop = 0; loop < DOCUMENTS; loop++) {
+			assertEquals(inputs.get(loop), results.get(loop).getInput());
+			if (loop == 5) {
+				assertFalse(results.get(loop).isSucceeded());
+				assertNotNull(results.get(loop).getError());
+			} else {
+				assertTrue(results.get(loop).isSucceeded());
+				assertEquals("<wrap><a>" + loop + "</a></wrap>",
+						FileUtils.readFileToString(results.get(loop).getOutput(),
+								"UTF-8"));
+			}
+		}
+		assertTrue(engine.getBytes() > 0);
+		assertTrue(engine.getDocumentsPerSecond() > 0);
+		assertTrue(engine.getMegabytesPerSecond() > 0);
+	}
+
+	/**
+	 * Asserts every document fails when the stylesheet cannot be compiled.
+	 * @throws Exception
+	 */
+	public void testCompileFailure() throws Exception {
+
+		List<File> inputs;
+		List<BatchResult> results;
+		BatchEngine engine;
+
+		IOUtils.writeTextFile(xsl, "<xsl:stylesheet");
+		inputs = new ArrayList<File>();
+		inputs.add(new File(inputDir, "a.xml"));
+		inputs.add(new File(inputDir, "b.xml"));
+		engine = new BatchEngine(newStages(), false, false, 2);
+		results = engine.transform(VFS.getManager(), inputs, outputDir);
+		assertEquals(2, engine.getFailed());
+		assertEquals(0, results.get(0).getFailedStage());
+		assertEquals(0, results.get(1).getFailedStage());
+	}
+}
@@ -0,0 +1,68 @@
+package us.paulevans.basicxslt.test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import net.blueslate.commons.xml.TransformOutputProperties;
+import net.blueslate.commons.xml.TransformParameters;
+
+import org.apache.commons.vfs.VFS;
+
+import us.paulevans.basicxslt.BenchmarkRun;
+import us.paulevans.basicxslt.TransformChain;
+import us.paulevans.basicxslt.TransformStage;
+
+/**
+ * Test case for BenchmarkRun class
+ * @author pevans
+ *
+ */
+public class TestBenchmarkRun extends TestCase {
+
+	// instance members...
+	private File dir, wrapXsl;
+
+	/**
+	 * Test fixture setup
+	 */
+	protected void setUp() throws Exception {
+		dir = Fixtures.newTempDir("benchmarkrun");
+		wrapXsl = Fixtures.writeWrapXsl(dir);
+	}
+
+	/**
+	 * Test fixture teardown
+	 */
+	protected void tearDown() throws Exception {
+		Fixtures.deleteTempDir(dir);
+	}
+
+	/**
+	 * Asserts every stage gets statistics over the measured iterations.
+	 * @throws Exception
+	 */
+	public void testRun() throws Exception {
+
+		List<TransformStage> stages;
+		BenchmarkRun run;
+		byte result[];
+
+		stages = new ArrayList<TransformStage>();
+		stages.add(new TransformStage(wrapXsl.getAbsolutePath(),
+				new TransformOutputProperties(), new TransformParameters()));
+		stages.add(new TransformStage(wrapXsl.getAbsolutePath(),
+				new TransformOutputProperties(), new TransformParameters()));
+		run = new BenchmarkRun(new TransformChain(stages, true), 2, 10, true);
+		result = run.run(VFS.getManager(), "<a/>".getBytes());
+		assertTrue(new String(result).indexOf("<wrap><wrap><a/>") != -1);
+		assertEquals(10, run.getStageStatistics(0).getCount());
+		assertEquals(10, run.getStageStatistics(1).getCount());
+		assertEquals(10, run.getTotalStatistics().getCount());
+		assertTrue(run.getTotalStatistics().getMin() >=
+				run.getStageStatistics(0).getMin());
+		assertTrue(run.getCompileTimings(0).getCompileTime() >= 0);
+		assertTrue(run.getDiscardedIterations() >= 0);
+	}
+}
@@ -0,0 +1,155 @@
+package us.paulevans.basicxslt.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.transform.stream.StreamSource;
+
+import junit.framework.TestCase;
+import net.blueslate.commons.io.IOUtils;
+
+import org.apache.commons.io.FileUtils;
+import org.xml.sax.InputSource;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import us.paulevans.basicxslt.CachingResolver;
+
+/**
+ * Test case for CachingResolver class
+ * @author pevans
+ *
+ */
+public class TestCachingResolver extends TestCase implements HttpHandler {
+
+	// DTD served over http...
+	private static final String NOTE_DTD = "<!ELEMENT note (#PCDATA)>";
+
+	// catalog mapping a system id and a stylesheet URI to local files...
+	private static final String CATALOG =
+		"<catalog xmlns=\"urn:oasis:names:tc:entity:xmlns:xml:catalog\">" +
+		"<system systemId=\"http://example.com/note.dtd\" uri=\"note.dtd\"/>" +
+		"<uri name=\"http://example.com/style.xsl\" uri=\"style.xsl\"/>" +
+		"</catalog>";
+
+	// instance members...
+	private File dir, cacheDir;
+	private HttpServer server;
+	private int requests;
+
+	/**
+	 * Test fixture setup
+	 */
+	protected void setUp() throws Exception {
+		dir = File.createTempFile("cachingresolver", "");
+		dir.delete();
+		dir.mkdirs();
+		cacheDir = new File(dir, "cache");
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/", this);
+		server.start();
+	}
+
+	/**
+	 * Test fixture teardown
+	 */
+	protected void tearDown() throws Exception {
+		server.stop(0);
+		FileUtils.deleteDirectory(dir);
+	}
+
+	/**
+	 * Asserts a remote DTD is fetched once and then served from the cache,
+	 * even by a new resolver.
+	 * @throws Exception
+	 */
+	public void testCache() throws Exception {
+
+		CachingResolver resolver;
+		String systemId;
+
+		systemId = "http://localhost:" + server.getAddress().getPort() +
+			"/note.dtd";
+		resolver = new CachingResolver(new ArrayList<URI>(), cacheDir);
+		assertEquals(NOTE_DTD, read(resolver.resolveEntity(null, systemId)));
+		assertEquals(NOTE_DTD, read(resolver.resolveEntity(null, systemId)));
+		assertEquals(1, requests);
+		assertEquals(1, resolver.getRemoteFetches());
+		assertEquals(1, resolver.getCacheHits());
+
+		resolver = new CachingResolver(new ArrayList<URI>(), cacheDir);
+		assertEquals(NOTE_DTD, read(resolver.resolveEntity(null, systemId)));
+		assertEquals(1, requests);
+		assertEquals(0, resolver.getRemoteFetches());
+
+		assertNull(resolver.resolveEntity(null, new File(dir,
+				"local.dtd").toURI().toString()));
+	}
+
+	/**
+	 * Asserts references mapped by a catalog resolve to the local files.
+	 * @throws Exception
+	 */
+	public void testCatalog() throws Exception {
+
+		CachingResolver resolver;
+		List<URI> catalogs;
+		File catalog;
+		StreamSource source;
+
+		IOUtils.writeTextFile(catalog = new File(dir, "catalog.xml"), CATALOG);
+		IOUtils.writeTextFile(new File(dir, "note.dtd"), NOTE_DTD);
+		IOUtils.writeTextFile(new File(dir, "style.xsl"), "<style/>");
+		catalogs = new ArrayList<URI>();
+		catalogs.add(catalog.toURI());
+		resolver = new CachingResolver(catalogs, cacheDir);
+		assertEquals(NOTE_DTD, read(resolver.resolveEntity(null,
+				"http://example.com/note.dtd")));
+		source = (StreamSource)resolver.resolve("style.xsl",
+				"http://example.com/main.xsl");
+		assertTrue(source.getSystemId().startsWith("file:"));
+		assertEquals("<style/>", new String(
+				org.apache.commons.io.IOUtils.toByteArray(
+						source.getInputStream())));
+		source.getInputStream().close();
+		assertEquals(2, resolver.getCatalogHits());
+		assertEquals(0, resolver.getRemoteFetches());
+		assertEquals(0, requests);
+	}
+
+	/**
+	 * Returns the content of aSource
+	 * @param aSource
+	 * @return
+	 * @throws IOException
+	 */
+	private static String read(InputSource aSource) throws IOException {
+		try {
+			return new String(org.apache.commons.io.IOUtils.toByteArray(
+					aSource.getByteStream()));
+		} finally {
+			aSource.getByteStream().close();
+		}
+	}
+
+	/**
+	 * HttpHandler method; serves the DTD
+	 */
+	public void handle(HttpExchange aExchange) throws IOException {
+
+		OutputStream out;
+
+		requests++;
+		aExchange.sendResponseHeaders(200, NOTE_DTD.length());
+		out = aExchange.getResponseBody();
+		out.write(NOTE_DTD.getBytes());
+		out.close();
+	}
+}
@@ -0,0 +1,169 @@
+package us.paulevans.basicxslt.test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+import net.blueslate.commons.io.IOUtils;
+
+import org.apache.commons.vfs.FileSystemManager;
+import org.apache.commons.vfs.VFS;
+
+import us.paulevans.basicxslt.ChainWatcher;
+import us.paulevans.basicxslt.JobQueue;
+import us.paulevans.basicxslt.TransformChain;
+import us.paulevans.basicxslt.TransformStage;
+
+/**
+ * Test case for ChainWatcher class
+ * @author pevans
+ *
+ */
+public class TestChainWatcher extends TestCase
+	implements ChainWatcher.Client {
+
+	// stylesheet that includes another stylesheet...
+	private static final String MAIN_XSL =
+		"<xsl:stylesheet version=\"1.0\" " +
+		"xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">" +
+		"<xsl:include href=\"included.xsl\"/></xsl:stylesheet>";
+
+	// included stylesheet, with the name of the element to wrap in left
+	// to be filled in...
+	private static final String INCLUDED_XSL =
+		"<xsl:stylesheet version=\"1.0\" " +
+		"xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">" +
+		"<xsl:template match=\"/\"><{0}><xsl:copy-of select=\"/\"/></{0}>" +
+		"</xsl:template></xsl:stylesheet>";
+
+	// milliseconds to wait for a run...
+	private static final long TIMEOUT = 20000;
+
+	// instance members...
+	private File dir, xml, wrapXsl, mainXsl, includedXsl;
+	private FileSystemManager fsManager;
+	private List<TransformStage> stages;
+	private BlockingQueue<Object> runs;
+	private String result;
+
+	/**
+	 * Test fixture setup
+	 */
+	protected void setUp() throws Exception {
+		dir = Fixtures.newTempDir("chainwatcher");
+		IOUtils.writeTextFile(xml = new File(dir, "source.xml"), "<a/>");
+		wrapXsl = Fixtures.writeWrapXsl(dir);
+		IOUtils.writeTextFile(mainXsl = new File(dir, "main.xsl"), MAIN_XSL);
+		IOUtils.writeTextFile(includedXsl = new File(dir, "included.xsl"),
+				INCLUDED_XSL.replaceAll("\\{0\\}", "one"));
+		fsManager = VFS.getManager();
+		stages = new ArrayList<TransformStage>();
+		stages.add(new TransformStage(wrapXsl.getAbsolutePath(), null, null));
+		stages.add(new TransformStage(mainXsl.getAbsolutePath(), null, null));
+		runs = new LinkedBlockingQueue<Object>();
+	}
+
+	/**
+	 * Test fixture teardown
+	 */
+	protected void tearDown() throws Exception {
+		Fixtures.deleteTempDir(dir);
+	}
+
+	/**
+	 * Asserts a change to an included stylesheet re-runs the chain from the
+	 * stage that includes it, and a change to the source xml re-runs the
+	 * whole chain.
+	 * @throws Exception
+	 */
+	public void testWatch() throws Exception {
+
+		ChainWatcher watcher;
+		TransformChain chain;
+		JobQueue jobQueue;
+
+		// run once on this thread first...
+		assertNotNull(newTransformChain().transform(fsManager,
+				"<a/>".getBytes()));
+		jobQueue = new JobQueue(1);
+		watcher = new ChainWatcher(this, fsManager, jobQueue, "watch", 100);
+		try {
+			watcher.start();
+			chain = take();
+			assertTrue(result.indexOf("<one><wrap><a/></wrap></one>")
+					>= 0);
+			assertFalse(chain.getTimings(0).isCached());
+			assertTrue(watcher.getFiles().contains(
+					includedXsl.getAbsoluteFile()));
+
+			IOUtils.writeTextFile(includedXsl,
+					INCLUDED_XSL.replaceAll("\\{0\\}", "two"));
+			includedXsl.setLastModified(includedXsl.lastModified() + 2000);
+			chain = take();
+			assertTrue(result.indexOf("<two><wrap><a/></wrap></two>")
+					>= 0);
+			assertTrue(chain.getTimings(0).isCached());
+			assertFalse(chain.getTimings(1).isCached());
+
+			IOUtils.writeTextFile(xml, "<b/>");
+			chain = take();
+			assertTrue(result.indexOf("<two><wrap><b/></wrap></two>")
+					>= 0);
+			assertFalse(chain.getTimings(0).isCached());
+			assertTrue(jobQueue.getJobs().size() >= 3);
+		} finally {
+			watcher.stop();
+			jobQueue.shutdown();
+		}
+	}
+
+	/**
+	 * Returns the chain of the next completed run
+	 * @return
+	 * @throws Exception
+	 */
+	private TransformChain take() throws Exception {
+
+		Object run;
+
+		run = runs.poll(TIMEOUT, TimeUnit.MILLISECONDS);
+		if (run instanceof Exception) {
+			throw (Exception)run;
+		}
+		assertNotNull(run);
+		return (TransformChain)run;
+	}
+
+	/**
+	 * ChainWatcher.Client method
+	 */
+	public TransformChain newTransformChain() {
+		return new TransformChain(stages, false);
+	}
+
+	/**
+	 * ChainWatcher.Client method
+	 */
+	public String getSourceXml() {
+		return xml.getAbsolutePath();
+	}
+
+	/**
+	 * ChainWatcher.Client method
+	 */
+	public void transformed(TransformChain aChain, byte aResult[]) {
+		result = new String(aResult);
+		runs.add(aChain);
+	}
+
+	/**
+	 * ChainWatcher.Client method
+	 */
+	public void transformFailed(TransformChain aChain, Exception aException) {
+		runs.add(aException);
+	}
+}
@@ -0,0 +1,172 @@
+package us.paulevans.basicxslt.test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+import us.paulevans.basicxslt.Job;
+import us.paulevans.basicxslt.JobQueue;
+
+/**
+ * Test case for JobQueue class
+ * @author pevans
+ *
+ */
+public class TestJobQueue extends TestCase {
+
+	// seconds to wait for a job to start or finish...
+	private static final long WAIT = 10;
+
+	// instance members...
+	private JobQueue queue;
+
+	/**
+	 * Test fixture setup
+	 */
+	protected void setUp() {
+		queue = new JobQueue(2);
+	}
+
+	/**
+	 * Test fixture teardown
+	 */
+	protected void tearDown() {
+		queue.shutdown();
+	}
+
+	/**
+	 * Asserts exclusive jobs run one at a time, in order, while other jobs
+	 * run alongside them.
+	 * @throws Exception
+	 */
+	public void testExclusive() throws Exception {
+
+		BlockingJob first, second, other;
+
+		queue.submit(first = new BlockingJob("first", true));
+		queue.submit(second = new BlockingJob("second", true));
+		queue.submit(other = new BlockingJob("other", false));
+		assertTrue(first.started.await(WAIT, TimeUnit.SECONDS));
+		assertTrue(other.started.await(WAIT, TimeUnit.SECONDS));
+		assertEquals(Job.QUEUED, second.getState());
+		assertTrue(queue.isExclusiveJobPending());
+
+		first.release.countDown();
+		assertTrue(second.started.await(WAIT, TimeUnit.SECONDS));
+		second.release.countDown();
+		other.release.countDown();
+		assertFinished(first, Job.DONE);
+		assertFinished(second, Job.DONE);
+		assertFinished(other, Job.DONE);
+		assertEquals("second", second.getResult());
+		assertFalse(queue.isExclusiveJobPending());
+		assertEquals(3, queue.getJobs().size());
+	}
+
+	/**
+	 * Asserts a queued job that is cancelled never runs, and a running job
+	 * that is cancelled is asked to stop.
+	 * @throws Exception
+	 */
+	public void testCancel() throws Exception {
+
+		BlockingJob running, queued;
+
+		queue.submit(running = new BlockingJob("running", true));
+		queue.submit(queued = new BlockingJob("queued", true));
+		assertTrue(running.started.await(WAIT, TimeUnit.SECONDS));
+		queued.cancel();
+		assertEquals(Job.CANCELLED, queued.getState());
+		assertTrue(queued.finished.await(WAIT, TimeUnit.SECONDS));
+
+		running.cancel();
+		assertFinished(running, Job.CANCELLED);
+		assertEquals(1, queued.started.getCount());
+	}
+
+	/**
+	 * Asserts a job that throws is recorded as failed, with its exception.
+	 * @throws Exception
+	 */
+	public void testFailure() throws Exception {
+
+		BlockingJob job;
+
+		job = new BlockingJob(null, false);
+		job.release.countDown();
+		queue.submit(job);
+		assertFinished(job, Job.FAILED);
+		assertTrue(job.getFailure() instanceof IllegalStateException);
+		assertEquals("no result", job.getResult());
+	}
+
+	/**
+	 * Asserts only finished jobs are cleared.
+	 * @throws Exception
+	 */
+	public void testClearFinished() throws Exception {
+
+		BlockingJob done, running;
+
+		done = new BlockingJob("done", false);
+		done.release.countDown();
+		queue.submit(done);
+		queue.submit(running = new BlockingJob("running", true));
+		assertFinished(done, Job.DONE);
+		queue.clearFinished();
+		assertEquals(1, queue.getJobs().size());
+		assertSame(running, queue.getJobs().get(0));
+		running.release.countDown();
+	}
+
+	/**
+	 * Asserts aJob finishes in state aState
+	 * @param aJob
+	 * @param aState
+	 * @throws Exception
+	 */
+	private void assertFinished(BlockingJob aJob, int aState)
+	throws Exception {
+		assertTrue(aJob.finished.await(WAIT, TimeUnit.SECONDS));
+		assertEquals(aState, aJob.getState());
+		assertTrue(aJob.isFinished());
+	}
+}
+
+/**
+ * Job that runs until it is released, then returns its description or,
+ * if it has none, fails.
+ */
+class BlockingJob extends Job {
+
+	CountDownLatch started, release, finished;
+
+	/**
+	 * Constructor
+	 * @param aDescription
+	 * @param aExclusive
+	 */
+	BlockingJob(String aDescription, boolean aExclusive) {
+		super(aDescription, aExclusive);
+		started = new CountDownLatch(1);
+		release = new CountDownLatch(1);
+		finished = new CountDownLatch(1);
+	}
+
+	protected String execute() throws Exception {
+		started.countDown();
+		release.await();
+		if (getDescription() == null) {
+			throw new IllegalStateException("no result");
+		}
+		return getDescription();
+	}
+
+	protected void stop() {
+		release.countDown();
+	}
+
+	protected void finished() {
+		finished.countDown();
+	}
+}
@@ -0,0 +1,121 @@
+package us.paulevans.basicxslt.test;
+
+import java.io.File;
+import java.nio.charset.Charset;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.io.FileUtils;
+
+import us.paulevans.basicxslt.MappedTextFile;
+
+/**
+ * Test case for MappedTextFile class
+ * @author pevans
+ *
+ */
+public class TestMappedTextFile extends TestCase {
+
+	// instance members...
+	private File file;
+	private MappedTextFile text;
+
+	/**
+	 * Test fixture setup
+	 */
+	protected void setUp() throws Exception {
+		file = File.createTempFile("mappedtextfile", ".txt");
+	}
+
+	/**
+	 * Test fixture teardown
+	 */
+	protected void tearDown() {
+		if (text != null) {
+			text.close();
+		}
+		file.delete();
+	}
+
+	/**
+	 * Asserts each line is a row, with its line break left out.
+	 * @throws Exception
+	 */
+	public void testLines() throws Exception {
+
+		open("first\r\nsecond\n\nlast");
+		assertEquals(4, text.getRowCount());
+		assertEquals(4, text.getLineCount());
+		assertEquals("first", text.getRow(0));
+		assertEquals("second", text.getRow(1));
+		assertEquals("", text.getRow(2));
+		assertEquals("last", text.getRow(3));
+		assertEquals(3, text.getLine(2));
+		assertEquals(2, text.getFirstRow(3));
+		assertEquals(7, text.getRowOffset(1));
+		assertEquals(1, text.getRowAt(10));
+
+		open("one\ntwo\n");
+		assertEquals(2, text.getRowCount());
+		assertEquals("two", text.getRow(1));
+	}
+
+	/**
+	 * Asserts a long line is split into rows, but never inside a character.
+	 * @throws Exception
+	 */
+	public void testLongLine() throws Exception {
+
+		StringBuffer line;
+		int loop;
+
+		line = new StringBuffer("a");
+		for (loop = 0; loop < 300; loop++) {
+			line.append('\u00e9');
+		}
+		open(line + "\nnext");
+		assertEquals(4, text.getRowCount());
+		assertEquals(2, text.getLineCount());
+		assertEquals(line.toString(), text.getRow(0) + text.getRow(1) +
+				text.getRow(2));
+		assertEquals(1, text.getLine(2));
+		assertEquals(3, text.getFirstRow(2));
+		assertEquals(MappedTextFile.MAX_ROW_BYTES + 1,
+				text.getMaxRowBytes());
+	}
+
+	/**
+	 * Asserts text is found from a given offset, and its column counts
+	 * characters rather than bytes.
+	 * @throws Exception
+	 */
+	public void testFind() throws Exception {
+
+		long offset;
+
+		open("caf\u00e9 one\ncaf\u00e9 two");
+		offset = text.find("\u00e9 t", 0);
+		assertEquals(13, offset);
+		assertEquals(1, text.getRowAt(offset));
+		assertEquals(3, text.getColumn(1, offset));
+		assertEquals(3, text.find("\u00e9", 0));
+		assertEquals(13, text.find("\u00e9", 4));
+		assertEquals(-1, text.find("three", 0));
+		assertEquals(-1, text.find("", 0));
+	}
+
+	/**
+	 * Writes aText to the file and indexes it.
+	 * @param aText
+	 * @throws Exception
+	 */
+	private void open(String aText) throws Exception {
+		if (text != null) {
+			text.close();
+		}
+		FileUtils.writeStringToFile(file, aText, "UTF-8");
+		text = new MappedTextFile(file, Charset.forName("UTF-8"));
+		text.index();
+		assertTrue(text.isIndexed());
+	}
+}
@@ -0,0 +1,180 @@
+package us.paulevans.basicxslt.test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import net.blueslate.commons.io.IOUtils;
+
+import org.apache.commons.vfs.FileContent;
+import org.apache.commons.vfs.FileSystemManager;
+import org.apache.commons.vfs.VFS;
+import org.xml.sax.SAXParseException;
+
+import us.paulevans.basicxslt.Error;
+import us.paulevans.basicxslt.ParallelValidator;
+import us.paulevans.basicxslt.Utils;
+import us.paulevans.basicxslt.ValidationCache;
+import us.paulevans.basicxslt.ValidationException;
+
+/**
+ * Test case for ParallelValidator class
+ * @author pevans
+ *
+ */
+public class TestParallelValidator extends TestCase {
+
+	// DTD for a note element with a to element...
+	private static final String NOTE_DTD =
+		"<!ELEMENT note (to)><!ELEMENT to (#PCDATA)>";
+
+	// valid document...
+	private static final String VALID_XML =
+		"<!DOCTYPE note SYSTEM \"note.dtd\"><note><to>a</to></note>";
+
+	// well-formed document that is not valid against the DTD...
+	private static final String INVALID_XML =
+		"<!DOCTYPE note SYSTEM \"note.dtd\"><note><from>a</from></note>";
+
+	// document with an error on each of several lines...
+	private static final String MANY_ERRORS_XML =
+		"<!DOCTYPE note SYSTEM \"note.dtd\">\n<note>\n<from>a</from>\n" +
+		"<cc>b</cc>\n<bcc>c</bcc>\n</note>";
+
+	// number of times each list of documents is validated...
+	private static final int RUNS = 20;
+
+	// instance members...
+	private File dir, noteDtd, validXml, invalidXml, brokenXml,
+		manyErrorsXml;
+	private FileSystemManager fsManager;
+
+	/**
+	 * Test fixture setup
+	 */
+	protected void setUp() throws Exception {
+		dir = File.createTempFile("parallelvalidator", "");
+		dir.delete();
+		dir.mkdirs();
+		IOUtils.writeTextFile(noteDtd = new File(dir, "note.dtd"), NOTE_DTD);
+		IOUtils.writeTextFile(validXml = new File(dir, "valid.xml"),
+				VALID_XML);
+		IOUtils.writeTextFile(invalidXml = new File(dir, "invalid.xml"),
+				INVALID_XML);
+		IOUtils.writeTextFile(brokenXml = new File(dir, "broken.xml"),
+				"<note>");
+		IOUtils.writeTextFile(manyErrorsXml = new File(dir, "manyerrors.xml"),
+				MANY_ERRORS_XML);
+		fsManager = VFS.getManager();
+		ValidationCache.getInstance().setEnabled(false);
+	}
+
+	/**
+	 * Test fixture teardown
+	 */
+	protected void tearDown() {
+		ValidationCache.getInstance().setEnabled(true);
+		noteDtd.delete();
+		validXml.delete();
+		invalidXml.delete();
+		brokenXml.delete();
+		manyErrorsXml.delete();
+		dir.delete();
+	}
+
+	/**
+	 * Asserts the document that is not valid is the one reported.
+	 * @throws Exception
+	 */
+	public void testValidate() throws Exception {
+
+		List<FileContent> contents;
+
+		contents = new ArrayList<FileContent>();
+		contents.add(getContent(validXml));
+		contents.add(getContent(validXml));
+		ParallelValidator.getInstance().validate(contents, true, true, true);
+		contents.add(getContent(brokenXml));
+		contents.add(getContent(validXml));
+		try {
+			ParallelValidator.getInstance().validate(contents, true, true,
+					true);
+			fail("broken document not reported");
+		} catch (ValidationException aException) {
+			assertEquals(2, aException.getIndex());
+			assertTrue(aException.getCause() instanceof SAXParseException);
+		}
+	}
+
+	/**
+	 * Asserts validations with different settings running at the same time
+	 * do not affect one another.
+	 * @throws Exception
+	 */
+	public void testSettingsNotShared() throws Exception {
+
+		List<FileContent> contents;
+		int loop;
+
+		contents = new ArrayList<FileContent>();
+		for (loop = 0; loop < RUNS; loop++) {
+			contents.add(getContent(invalidXml));
+		}
+		for (loop = 0; loop < RUNS; loop++) {
+			ParallelValidator.getInstance().validate(contents, false, false,
+					true);
+			try {
+				ParallelValidator.getInstance().validate(contents, false,
+						true, true);
+				fail("invalid document not reported");
+			} catch (ValidationException aException) {
+				// expected...
+			}
+		}
+	}
+
+	/**
+	 * Asserts every error in a document is collected in one pass, with its
+	 * line, and collecting stops at the limit.
+	 * @throws Exception
+	 */
+	public void testCollectErrors() throws Exception {
+
+		List<Error> errors;
+		List<FileContent> contents;
+
+		errors = Utils.getInstance().getValidationErrors(
+				getContent(manyErrorsXml), true, true, true, 100);
+		assertTrue(errors.size() >= 3);
+		assertEquals(3, errors.get(0).getLine());
+		assertEquals(4, errors.get(1).getLine());
+		assertEquals(5, errors.get(2).getLine());
+		assertEquals(2, Utils.getInstance().getValidationErrors(
+				getContent(manyErrorsXml), true, true, true, 2).size());
+		assertTrue(Utils.getInstance().getValidationErrors(
+				getContent(validXml), true, true, true, 100).isEmpty());
+
+		contents = new ArrayList<FileContent>();
+		contents.add(getContent(validXml));
+		contents.add(getContent(manyErrorsXml));
+		try {
+			ParallelValidator.getInstance().validate(contents, true, true,
+					true, 100);
+			fail("invalid document not reported");
+		} catch (ValidationException aException) {
+			assertEquals(1, aException.getIndex());
+			assertEquals(errors.size(), aException.getErrors().size());
+		}
+	}
+
+	/**
+	 * Returns the content of aFile
+	 * @param aFile
+	 * @return
+	 * @throws Exception
+	 */
+	private FileContent getContent(File aFile) throws Exception {
+		return fsManager.resolveFile(aFile.getAbsolutePath()).getContent();
+	}
+}
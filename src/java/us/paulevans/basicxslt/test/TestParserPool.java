@@ -0,0 +1,136 @@
+package us.paulevans.basicxslt.test;
+
+import java.io.File;
+
+import junit.framework.TestCase;
+import net.blueslate.commons.io.IOUtils;
+
+import org.apache.commons.vfs.FileSystemManager;
+import org.apache.commons.vfs.VFS;
+import org.xml.sax.SAXException;
+
+import us.paulevans.basicxslt.ParserPool;
+import us.paulevans.basicxslt.Utils;
+import us.paulevans.basicxslt.ValidationCache;
+
+/**
+ * Test case for ParserPool class
+ * @author pevans
+ *
+ */
+public class TestParserPool extends TestCase {
+
+	// schema that requires a note element with a to element, with the name
+	// of the child element left to be filled in...
+	private static final String NOTE_XSD =
+		"<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\">" +
+		"<xs:element name=\"note\"><xs:complexType><xs:sequence>" +
+		"<xs:element name=\"{0}\" type=\"xs:string\"/>" +
+		"</xs:sequence></xs:complexType></xs:element></xs:schema>";
+
+	// document validated against the schema...
+	private static final String SCHEMA_XML =
+		"<note xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" " +
+		"xsi:noNamespaceSchemaLocation=\"note.xsd\"><to>a</to></note>";
+
+	// DTD for a note element with a child element left to be filled in...
+	private static final String NOTE_DTD =
+		"<!ELEMENT note ({0})><!ELEMENT {0} (#PCDATA)>";
+
+	// document validated against the DTD...
+	private static final String DTD_XML =
+		"<!DOCTYPE note SYSTEM \"note.dtd\"><note><to>a</to></note>";
+
+	// instance members...
+	private File dir, noteXsd, schemaXml, noteDtd, dtdXml;
+	private FileSystemManager fsManager;
+
+	/**
+	 * Test fixture setup
+	 */
+	protected void setUp() throws Exception {
+		dir = File.createTempFile("parserpool", "");
+		dir.delete();
+		dir.mkdirs();
+		IOUtils.writeTextFile(noteXsd = new File(dir, "note.xsd"),
+				NOTE_XSD.replaceAll("\\{0\\}", "to"));
+		IOUtils.writeTextFile(schemaXml = new File(dir, "schema.xml"),
+				SCHEMA_XML);
+		IOUtils.writeTextFile(noteDtd = new File(dir, "note.dtd"),
+				NOTE_DTD.replaceAll("\\{0\\}", "to"));
+		IOUtils.writeTextFile(dtdXml = new File(dir, "dtd.xml"), DTD_XML);
+		fsManager = VFS.getManager();
+		ParserPool.getInstance().clearGrammars();
+		ValidationCache.getInstance().setEnabled(false);
+	}
+
+	/**
+	 * Test fixture teardown
+	 */
+	protected void tearDown() {
+		ValidationCache.getInstance().setEnabled(true);
+		noteXsd.delete();
+		schemaXml.delete();
+		noteDtd.delete();
+		dtdXml.delete();
+		dir.delete();
+	}
+
+	/**
+	 * Asserts repeated validations reuse the parser and the grammar.
+	 * @throws Exception
+	 */
+	public void testReuse() throws Exception {
+
+		ParserPool pool;
+		long borrows, creates;
+
+		pool = ParserPool.getInstance();
+		validate(schemaXml);
+		assertEquals(1, pool.getGrammarCount());
+		borrows = pool.getBorrows();
+		creates = pool.getCreates();
+		validate(schemaXml);
+		validate(schemaXml);
+		assertEquals(borrows + 2, pool.getBorrows());
+		assertEquals(creates, pool.getCreates());
+		assertEquals(1, pool.getGrammarCount());
+		validate(dtdXml);
+		assertEquals(2, pool.getGrammarCount());
+	}
+
+	/**
+	 * Asserts a grammar is read again once its file changes.
+	 * @throws Exception
+	 */
+	public void testGrammarChanged() throws Exception {
+		validate(schemaXml);
+		validate(dtdXml);
+		IOUtils.writeTextFile(noteXsd, NOTE_XSD.replaceAll("\\{0\\}", "from"));
+		noteXsd.setLastModified(noteXsd.lastModified() + 2000);
+		try {
+			validate(schemaXml);
+			fail("schema change not seen");
+		} catch (SAXException aException) {
+			// expected...
+		}
+		IOUtils.writeTextFile(noteDtd, NOTE_DTD.replaceAll("\\{0\\}", "from"));
+		noteDtd.setLastModified(noteDtd.lastModified() + 2000);
+		try {
+			validate(dtdXml);
+			fail("DTD change not seen");
+		} catch (SAXException aException) {
+			// expected...
+		}
+	}
+
+	/**
+	 * Validates aFile, failing on errors
+	 * @param aFile
+	 * @throws Exception
+	 */
+	private void validate(File aFile) throws Exception {
+		Utils.getInstance().isValidXml(fsManager.resolveFile(
+				aFile.getAbsolutePath()).getContent(), false, true, true);
+	}
+}
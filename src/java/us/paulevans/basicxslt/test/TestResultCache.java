@@ -0,0 +1,120 @@
+package us.paulevans.basicxslt.test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import net.blueslate.commons.xml.TransformOutputProperties;
+import net.blueslate.commons.xml.TransformParameters;
+
+import org.apache.commons.vfs.FileSystemManager;
+import org.apache.commons.vfs.VFS;
+
+import us.paulevans.basicxslt.ResultCache;
+import us.paulevans.basicxslt.TransformChain;
+import us.paulevans.basicxslt.TransformStage;
+
+/**
+ * Test case for ResultCache class
+ * @author pevans
+ *
+ */
+public class TestResultCache extends TestCase {
+
+	// source document...
+	private static final String XML = "<a/>";
+
+	// instance members...
+	private File dir, resultDir, wrapXsl;
+	private FileSystemManager fsManager;
+
+	/**
+	 * Test fixture setup
+	 */
+	protected void setUp() throws Exception {
+		dir = Fixtures.newTempDir("resultcache");
+		resultDir = new File(dir, "results");
+		wrapXsl = Fixtures.writeWrapXsl(dir);
+		fsManager = VFS.getManager();
+	}
+
+	/**
+	 * Test fixture teardown
+	 */
+	protected void tearDown() throws Exception {
+		Fixtures.deleteTempDir(dir);
+	}
+
+	/**
+	 * Asserts the least-recently used results are evicted.
+	 */
+	public void testEviction() {
+
+		ResultCache cache;
+
+		cache = new ResultCache(resultDir, 10);
+		cache.put("a", "1234".getBytes());
+		cache.put("b", "1234".getBytes());
+		assertNotNull(cache.get("a"));
+		cache.put("c", "1234".getBytes());
+		assertNull(cache.get("b"));
+		assertEquals("1234", new String(cache.get("a")));
+		assertEquals(8, cache.getSize());
+		cache.put("d", "12345678901".getBytes());
+		assertNull(cache.get("d"));
+		cache = new ResultCache(resultDir, 10);
+		assertEquals(8, cache.getSize());
+		assertNotNull(cache.get("c"));
+	}
+
+	/**
+	 * Asserts a chain only re-runs the stages whose key changed.
+	 * @throws Exception
+	 */
+	public void testTransform() throws Exception {
+
+		ResultCache cache;
+		TransformParameters parameters;
+		List<TransformStage> stages;
+		TransformChain chain;
+		byte result[];
+
+		cache = new ResultCache(resultDir, 1024 * 1024);
+		parameters = new TransformParameters();
+		parameters.setParameter("", "name", "outer");
+		stages = new ArrayList<TransformStage>();
+		stages.add(newStage(new TransformParameters()));
+		stages.add(newStage(new TransformParameters()));
+		stages.add(newStage(parameters));
+		chain = new TransformChain(stages, true);
+		chain.setResultCache(cache);
+		result = chain.transform(fsManager, XML.getBytes());
+		assertFalse(chain.getTimings(0).isCached());
+		assertEquals(3, cache.getMisses());
+		assertTrue(new String(chain.transform(fsManager,
+				XML.getBytes())).equals(new String(result)));
+		assertTrue(chain.getTimings(0).isCached());
+		assertTrue(chain.getTimings(2).isCached());
+		parameters = new TransformParameters();
+		parameters.setParameter("", "name", "changed");
+		stages.set(2, newStage(parameters));
+		chain = new TransformChain(stages, false);
+		chain.setResultCache(cache);
+		result = chain.transform(fsManager, XML.getBytes());
+		assertTrue(new String(result).endsWith(
+				"<changed><wrap><wrap><a/></wrap></wrap></changed>"));
+		assertTrue(chain.getTimings(1).isCached());
+		assertFalse(chain.getTimings(2).isCached());
+	}
+
+	/**
+	 * Returns a stage for the wrap stylesheet with aParameters
+	 * @param aParameters
+	 * @return
+	 */
+	private TransformStage newStage(TransformParameters aParameters) {
+		return new TransformStage(wrapXsl.getAbsolutePath(),
+				new TransformOutputProperties(), aParameters);
+	}
+}
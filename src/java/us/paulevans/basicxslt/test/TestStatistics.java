@@ -0,0 +1,55 @@
+package us.paulevans.basicxslt.test;
+
+import junit.framework.TestCase;
+import us.paulevans.basicxslt.Statistics;
+
+/**
+ * Test case for Statistics class
+ * @author pevans
+ *
+ */
+public class TestStatistics extends TestCase {
+
+	/**
+	 * Test fixture for the order statistics
+	 */
+	public void testPercentiles() {
+
+		Statistics statistics;
+		long samples[];
+		int loop;
+
+		samples = new long[100];
+		for (loop = 0; loop < samples.length; loop++) {
+			samples[loop] = samples.length - loop;
+		}
+		statistics = new Statistics(samples);
+		assertEquals(100, statistics.getCount());
+		assertEquals(1, statistics.getMin());
+		assertEquals(100, statistics.getMax());
+		assertEquals(50.5, statistics.getMedian(), 0);
+		assertEquals(90, statistics.getPercentile(90));
+		assertEquals(99, statistics.getPercentile(99));
+		assertEquals(100, statistics.getPercentile(100));
+		assertEquals(1, statistics.getPercentile(0));
+		assertEquals(100, samples[0]);
+	}
+
+	/**
+	 * Test fixture for the mean and standard deviation
+	 */
+	public void testMoments() {
+
+		Statistics statistics;
+
+		statistics = new Statistics(new long[] { 2, 4, 4, 4, 5, 5, 7, 9 });
+		assertEquals(5, statistics.getMean(), 0);
+		assertEquals(4.5, statistics.getMedian(), 0);
+		assertEquals(Math.sqrt(32 / 7.0), statistics.getStandardDeviation(),
+				1e-9);
+		statistics = new Statistics(new long[0]);
+		assertEquals(0, statistics.getCount());
+		assertEquals(0, statistics.getMean(), 0);
+		assertEquals(0, statistics.getStandardDeviation(), 0);
+	}
+}
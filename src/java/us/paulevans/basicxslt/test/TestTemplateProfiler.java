@@ -0,0 +1,194 @@
+package us.paulevans.basicxslt.test;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamSource;
+
+import junit.framework.TestCase;
+import net.blueslate.commons.xml.TransformOutputProperties;
+import net.blueslate.commons.xml.TransformParameters;
+
+import org.apache.xalan.transformer.TransformerImpl;
+
+import us.paulevans.basicxslt.ProfileEntry;
+import us.paulevans.basicxslt.TemplateProfiler;
+import us.paulevans.basicxslt.TransformChain;
+import us.paulevans.basicxslt.TransformStage;
+
+/**
+ * Test case for TemplateProfiler class
+ * @author pevans
+ *
+ */
+public class TestTemplateProfiler extends TestCase {
+
+	// stylesheet that calls a named template for each b, one instruction
+	// per line...
+	private static final String XSL =
+		"<xsl:stylesheet version=\"1.0\" " +
+		"xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">\n" +
+		"<xsl:template match=\"/\"><r>\n" +
+		"<xsl:for-each select=\"a/b\">\n" +
+		"<xsl:call-template name=\"n\"/>\n" +
+		"</xsl:for-each><xsl:for-each select=\"a/none\"/></r>" +
+		"</xsl:template>\n" +
+		"<xsl:template name=\"n\"><xsl:value-of select=\"name()\"/>" +
+		"</xsl:template>\n" +
+		"</xsl:stylesheet>";
+
+	// source document...
+	private static final String XML = "<a><b/><b/><b/></a>";
+
+	/**
+	 * Asserts a profiled chain counts each template, select expression and
+	 * line, with exclusive time never more than inclusive time, even if the
+	 * chain is pipelined.
+	 * @throws Exception
+	 */
+	public void testProfile() throws Exception {
+
+		TransformChain chain;
+		TemplateProfiler profiler;
+		ProfileEntry root, named, entry;
+		Iterator<ProfileEntry> iter;
+
+		chain = newChain(true);
+		chain.setProfiling(true);
+		assertEquals("<r>bbb</r>", new String(chain.transform(
+				new Templates[] { compile() }, XML.getBytes())).replaceAll(
+						"<\\?.*\\?>", ""));
+		profiler = chain.getProfiler(0);
+		assertEquals(2, profiler.getEntries(ProfileEntry.TEMPLATE).size());
+		root = find(profiler, ProfileEntry.TEMPLATE, "match=\"/\"");
+		named = find(profiler, ProfileEntry.TEMPLATE, "name=\"n\"");
+		assertEquals(1, root.getCount());
+		assertEquals(3, named.getCount());
+		assertEquals(2, root.getLine());
+		assertTrue(root.getLocation().endsWith(":2"));
+		assertEquals(root.getInclusiveTime() - named.getInclusiveTime(),
+				root.getExclusiveTime());
+
+		assertEquals(1, find(profiler, ProfileEntry.SELECT,
+				"for-each select=\"a/b\"").getCount());
+		assertEquals(1, find(profiler, ProfileEntry.SELECT,
+				"for-each select=\"a/none\"").getCount());
+		assertEquals(3, find(profiler, ProfileEntry.SELECT,
+				"value-of select=\"name()\"").getCount());
+		assertEquals(3, findLine(profiler, 4).getCount());
+		assertEquals(6, findLine(profiler, 6).getCount());
+
+		iter = profiler.getEntries().iterator();
+		while (iter.hasNext()) {
+			entry = iter.next();
+			assertTrue(entry.getExclusiveTime() >= 0);
+			assertTrue(entry.getInclusiveTime() >= entry.getExclusiveTime());
+		}
+	}
+
+	/**
+	 * Asserts a chain that is not profiling has no profiles.
+	 * @throws Exception
+	 */
+	public void testNotProfiling() throws Exception {
+
+		TransformChain chain;
+
+		chain = newChain(false);
+		chain.transform(new Templates[] { compile() }, XML.getBytes());
+		assertNull(chain.getProfiler(0));
+	}
+
+	/**
+	 * Asserts profiling leaves Xalan's tracing off once the chain has run,
+	 * and a later unprofiled transform produces the same output as one run
+	 * before it.
+	 * @throws Exception
+	 */
+	public void testUnprofiledAfterProfiling() throws Exception {
+
+		TransformChain chain;
+		Templates templates;
+		byte before[];
+
+		templates = compile();
+		before = newChain(false).transform(new Templates[] { templates },
+				XML.getBytes());
+		chain = newChain(false);
+		chain.setProfiling(true);
+		chain.transform(new Templates[] { templates }, XML.getBytes());
+		assertNotNull(chain.getProfiler(0));
+		assertFalse(TransformerImpl.S_DEBUG);
+		assertEquals(new String(before), new String(newChain(false).transform(
+				new Templates[] { templates }, XML.getBytes())));
+	}
+
+	/**
+	 * Returns a chain of one stage
+	 * @param aPipelined
+	 * @return
+	 */
+	private TransformChain newChain(boolean aPipelined) {
+		return new TransformChain(Arrays.asList(new TransformStage(
+				"profile.xsl", new TransformOutputProperties(),
+				new TransformParameters())), aPipelined);
+	}
+
+	/**
+	 * Compiles the stylesheet with the interpretive Xalan processor
+	 * @return
+	 * @throws Exception
+	 */
+	private Templates compile() throws Exception {
+		return TransformerFactory.newInstance().newTemplates(
+				new StreamSource(new StringReader(XSL), "file:/profile.xsl"));
+	}
+
+	/**
+	 * Returns the entry of aProfiler of aKind named aName
+	 * @param aProfiler
+	 * @param aKind
+	 * @param aName
+	 * @return
+	 */
+	private ProfileEntry find(TemplateProfiler aProfiler, int aKind,
+			String aName) {
+
+		Iterator<ProfileEntry> iter;
+		ProfileEntry entry;
+
+		iter = aProfiler.getEntries(aKind).iterator();
+		while (iter.hasNext()) {
+			if ((entry = iter.next()).getName().equals(aName)) {
+				return entry;
+			}
+		}
+		fail("no entry " + aName);
+		return null;
+	}
+
+	/**
+	 * Returns the entry of aProfiler for line aLine
+	 * @param aProfiler
+	 * @param aLine
+	 * @return
+	 */
+	private ProfileEntry findLine(TemplateProfiler aProfiler, int aLine) {
+
+		List<ProfileEntry> entries;
+		int loop;
+
+		entries = aProfiler.getEntries(ProfileEntry.LINE);
+		for (loop = 0; loop < entries.size(); loop++) {
+			if (entries.get(loop).getLine() == aLine) {
+				return entries.get(loop);
+			}
+		}
+		fail("no line " + aLine);
+		return null;
+	}
+}
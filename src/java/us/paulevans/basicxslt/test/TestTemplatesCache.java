@@ -0,0 +1,195 @@
+package us.paulevans.basicxslt.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+
+import javax.xml.transform.Templates;
+
+import junit.framework.TestCase;
+import net.blueslate.commons.io.IOUtils;
+
+import org.apache.commons.vfs.FileSystemManager;
+import org.apache.commons.vfs.VFS;
+
+import us.paulevans.basicxslt.TemplatesCache;
+
+/**
+ * Test case for TemplatesCache class
+ * @author pevans
+ *
+ */
+public class TestTemplatesCache extends TestCase {
+
+	// stylesheet that imports another stylesheet...
+	private static final String MAIN_XSL =
+		"<xsl:stylesheet version=\"1.0\" " +
+		"xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">" +
+		"<xsl:import href=\"imported.xsl\"/></xsl:stylesheet>";
+
+	// stylesheet with a single template...
+	private static final String IMPORTED_XSL =
+		"<xsl:stylesheet version=\"1.0\" " +
+		"xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">" +
+		"<xsl:template match=\"/\"><out/></xsl:template></xsl:stylesheet>";
+
+	// instance members...
+	private File dir, mainXsl, importedXsl;
+	private FileSystemManager fsManager;
+	private TemplatesCache cache;
+
+	/**
+	 * Test fixture setup
+	 */
+	protected void setUp() throws Exception {
+		dir = File.createTempFile("templatescache", "");
+		dir.delete();
+		dir.mkdirs();
+		mainXsl = writeFile("main.xsl", MAIN_XSL);
+		importedXsl = writeFile("imported.xsl", IMPORTED_XSL);
+		fsManager = VFS.getManager();
+		cache = new TemplatesCache(2);
+	}
+
+	/**
+	 * Test fixture teardown
+	 */
+	protected void tearDown() {
+		File files[];
+		int loop;
+
+		files = dir.listFiles();
+		for (loop = 0; loop < files.length; loop++) {
+			files[loop].delete();
+		}
+		dir.delete();
+	}
+
+	/**
+	 * Writes aContents to a file named aName in the temp folder.
+	 * @param aName
+	 * @param aContents
+	 * @return
+	 * @throws IOException
+	 */
+	private File writeFile(String aName, String aContents)
+	throws IOException {
+
+		File file;
+
+		IOUtils.writeTextFile(file = new File(dir, aName), aContents);
+		return file;
+	}
+
+	/**
+	 * Test fixture for getTemplates(FileSystemManager,String)
+	 * @throws Exception
+	 */
+	public void testGetTemplates() throws Exception {
+		assertNotNull(cache.getTemplates(fsManager,
+				mainXsl.getAbsolutePath()));
+		assertSame(cache.getTemplates(fsManager, mainXsl.getAbsolutePath()),
+				cache.getTemplates(fsManager, mainXsl.getAbsolutePath()));
+		assertEquals(1, cache.getMisses());
+		assertEquals(2, cache.getHits());
+	}
+
+	/**
+	 * Test fixture that asserts a changed import invalidates the importing
+	 * stylesheet.
+	 * @throws Exception
+	 */
+	public void testImportChangeInvalidates() throws Exception {
+		cache.getTemplates(fsManager, mainXsl.getAbsolutePath());
+		importedXsl.setLastModified(importedXsl.lastModified() + 2000);
+		cache.getTemplates(fsManager, mainXsl.getAbsolutePath());
+		assertEquals(2, cache.getMisses());
+		assertEquals(0, cache.getHits());
+	}
+
+	/**
+	 * Test fixture that asserts the least-recently used entry is evicted.
+	 * @throws Exception
+	 */
+	public void testEviction() throws Exception {
+
+		File another;
+
+		another = writeFile("another.xsl", IMPORTED_XSL);
+		cache.getTemplates(fsManager, mainXsl.getAbsolutePath());
+		cache.getTemplates(fsManager, importedXsl.getAbsolutePath());
+		cache.getTemplates(fsManager, another.getAbsolutePath());
+		assertEquals(2, cache.getSize());
+		cache.getTemplates(fsManager, mainXsl.getAbsolutePath());
+		assertEquals(4, cache.getMisses());
+	}
+
+	/**
+	 * Test fixture that asserts callers asking for the same stylesheet at
+	 * the same time share a single compile.
+	 * @throws Exception
+	 */
+	public void testConcurrentCompile() throws Exception {
+
+		Lookup lookups[];
+		CountDownLatch start;
+		int loop;
+
+		start = new CountDownLatch(1);
+		lookups = new Lookup[4];
+		for (loop = 0; loop < lookups.length; loop++) {
+			lookups[loop] = new Lookup(cache, fsManager,
+					mainXsl.getAbsolutePath(), start);
+			lookups[loop].start();
+		}
+		start.countDown();
+		for (loop = 0; loop < lookups.length; loop++) {
+			lookups[loop].join();
+			if (lookups[loop].exception != null) {
+				throw lookups[loop].exception;
+			}
+			assertSame(lookups[0].templates, lookups[loop].templates);
+		}
+		assertEquals(1, cache.getMisses());
+	}
+
+	/**
+	 * Thread that looks up one stylesheet once it is told to start
+	 */
+	static class Lookup extends Thread {
+
+		TemplatesCache cache;
+		FileSystemManager fsManager;
+		String uri;
+		CountDownLatch start;
+		Templates templates;
+		Exception exception;
+
+		/**
+		 * Constructor
+		 * @param aCache
+		 * @param aFSManager
+		 * @param aURI
+		 * @param aStart
+		 */
+		Lookup(TemplatesCache aCache, FileSystemManager aFSManager,
+				String aURI, CountDownLatch aStart) {
+			cache = aCache;
+			fsManager = aFSManager;
+			uri = aURI;
+			start = aStart;
+		}
+
+		/**
+		 * Looks up the stylesheet
+		 */
+		public void run() {
+			try {
+				start.await();
+				templates = cache.getTemplates(fsManager, uri);
+			} catch (Exception aException) {
+				exception = aException;
+			}
+		}
+	}
+}
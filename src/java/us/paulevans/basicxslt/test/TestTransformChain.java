@@ -0,0 +1,464 @@
+package us.paulevans.basicxslt.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.xml.transform.TransformerException;
+
+import junit.framework.TestCase;
+import net.blueslate.commons.io.IOUtils;
+import net.blueslate.commons.xml.TransformOutputProperties;
+import net.blueslate.commons.xml.TransformParameters;
+
+import org.apache.commons.vfs.FileContent;
+import org.apache.commons.vfs.FileObject;
+import org.apache.commons.vfs.FileSystemManager;
+import org.apache.commons.vfs.VFS;
+import org.apache.xalan.transformer.TransformerImpl;
+
+import us.paulevans.basicxslt.ParserPool;
+import us.paulevans.basicxslt.ResultCache;
+import us.paulevans.basicxslt.TransformChain;
+import us.paulevans.basicxslt.TransformProgress;
+import us.paulevans.basicxslt.TransformStage;
+
+/**
+ * Test case for TransformChain class
+ * @author pevans
+ *
+ */
+public class TestTransformChain extends TestCase {
+
+	// stylesheet that outputs text...
+	private static final String TEXT_XSL =
+		"<xsl:stylesheet version=\"1.0\" " +
+		"xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">" +
+		"<xsl:output method=\"text\"/><xsl:template match=\"/\">" +
+		"<xsl:value-of select=\"name(/*)\"/></xsl:template>" +
+		"</xsl:stylesheet>";
+
+	// stylesheet that calls a template 2^40 times, without output...
+	private static final String SPIN_XSL =
+		"<xsl:stylesheet version=\"1.0\" " +
+		"xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">" +
+		"<xsl:template match=\"/\"><xsl:call-template name=\"spin\">" +
+		"<xsl:with-param name=\"n\" select=\"40\"/></xsl:call-template>" +
+		"</xsl:template><xsl:template name=\"spin\"><xsl:param name=\"n\"/>" +
+		"<xsl:if test=\"$n &gt; 0\"><xsl:call-template name=\"spin\">" +
+		"<xsl:with-param name=\"n\" select=\"$n - 1\"/></xsl:call-template>" +
+		"<xsl:call-template name=\"spin\">" +
+		"<xsl:with-param name=\"n\" select=\"$n - 1\"/></xsl:call-template>" +
+		"</xsl:if></xsl:template></xsl:stylesheet>";
+
+	// stylesheet that relies on the implicit html output method...
+	private static final String HTML_XSL =
+		"<xsl:stylesheet version=\"1.0\" " +
+		"xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">" +
+		"<xsl:template match=\"/\"><html><body><br/></body></html>" +
+		"</xsl:template></xsl:stylesheet>";
+
+	// source document...
+	private static final String XML = "<a/>";
+
+	// DTD of the source document...
+	private static final String DTD = "<!ELEMENT a EMPTY>";
+
+	// source document that is valid against the DTD, and one that is not...
+	private static final String VALID_XML =
+		"<!DOCTYPE a SYSTEM \"a.dtd\"><a/>";
+	private static final String INVALID_XML =
+		"<!DOCTYPE a SYSTEM \"a.dtd\">\n<a><b/></a>";
+
+	// instance members...
+	private File dir, wrapXsl, textXsl, spinXsl, htmlXsl, dtd, xml;
+	private FileSystemManager fsManager;
+
+	/**
+	 * Test fixture setup
+	 */
+	protected void setUp() throws Exception {
+		dir = Fixtures.newTempDir("transformchain");
+		wrapXsl = Fixtures.writeWrapXsl(dir);
+		IOUtils.writeTextFile(textXsl = new File(dir, "text.xsl"), TEXT_XSL);
+		IOUtils.writeTextFile(spinXsl = new File(dir, "spin.xsl"), SPIN_XSL);
+		IOUtils.writeTextFile(htmlXsl = new File(dir, "html.xsl"), HTML_XSL);
+		IOUtils.writeTextFile(dtd = new File(dir, "a.dtd"), DTD);
+		xml = new File(dir, "source.xml");
+		fsManager = VFS.getManager();
+	}
+
+	/**
+	 * Test fixture teardown
+	 */
+	protected void tearDown() throws Exception {
+		Fixtures.deleteTempDir(dir);
+	}
+
+	/**
+	 * Returns a stage for aFile with the "name" parameter set to aName
+	 * @param aFile
+	 * @param aName
+	 * @return
+	 */
+	private TransformStage newStage(File aFile, String aName) {
+
+		TransformParameters parameters;
+
+		parameters = new TransformParameters();
+		if (aName != null) {
+			parameters.setParameter("", "name", aName);
+		}
+		return new TransformStage(aFile.getAbsolutePath(),
+				new TransformOutputProperties(), parameters);
+	}
+
+	/**
+	 * Test fixture that asserts both modes produce the same result.
+	 * @throws Exception
+	 */
+	public void testTransform() throws Exception {
+
+		List<TransformStage> stages;
+		TransformChain stageByStage, pipelined;
+		byte expected[];
+
+		stages = new ArrayList<TransformStage>();
+		stages.add(newStage(wrapXsl, "inner"));
+		stages.add(newStage(wrapXsl, "outer"));
+		stages.add(newStage(textXsl, null));
+		stageByStage = new TransformChain(stages, false);
+		pipelined = new TransformChain(stages, true);
+		expected = stageByStage.transform(fsManager, XML.getBytes());
+		assertEquals("outer", new String(expected));
+		assertTrue(Arrays.equals(expected, pipelined.transform(fsManager,
+				XML.getBytes())));
+		assertEquals(3, pipelined.getSize());
+		assertNotNull(pipelined.getTimings(2));
+	}
+
+	/**
+	 * Test fixture for getNonXmlStage()
+	 * @throws Exception
+	 */
+	public void testGetNonXmlStage() throws Exception {
+
+		List<TransformStage> stages;
+		TransformChain chain;
+
+		stages = new ArrayList<TransformStage>();
+		stages.add(newStage(textXsl, null));
+		stages.add(newStage(wrapXsl, null));
+		chain = new TransformChain(stages, false);
+		assertNull(chain.transform(fsManager, XML.getBytes()));
+		assertEquals(0, chain.getNonXmlStage());
+	}
+
+	/**
+	 * Asserts the failing stage is reported when a stylesheet is missing.
+	 * @throws IOException
+	 */
+	public void testGetFailedStage() throws IOException {
+
+		List<TransformStage> stages;
+		TransformChain chain;
+
+		stages = new ArrayList<TransformStage>();
+		stages.add(newStage(wrapXsl, null));
+		stages.add(newStage(new File(dir, "missing.xsl"), null));
+		chain = new TransformChain(stages, true);
+		try {
+			chain.transform(fsManager, XML.getBytes());
+			fail("expected an exception");
+		} catch (Exception aException) {
+			assertEquals(1, chain.getFailedStage());
+		}
+	}
+
+	/**
+	 * Asserts a document validated while it is transformed gives the same
+	 * result in both modes, and a document that is not valid is reported.
+	 * @throws Exception
+	 */
+	public void testTransformValidating() throws Exception {
+
+		List<TransformStage> stages;
+		TransformChain stageByStage, pipelined;
+		ParserPool parserPool;
+		int idle;
+
+		parserPool = ParserPool.getInstance();
+		stages = new ArrayList<TransformStage>();
+		stages.add(newStage(wrapXsl, "inner"));
+		stages.add(newStage(textXsl, null));
+		stageByStage = new TransformChain(stages, false);
+		pipelined = new TransformChain(stages, true);
+		IOUtils.writeTextFile(xml, VALID_XML);
+		assertEquals("inner", new String(stageByStage.transform(fsManager,
+				getContent(), true, true, true)));
+		assertEquals("inner", new String(pipelined.transform(fsManager,
+				getContent(), true, true, true)));
+
+		IOUtils.writeTextFile(xml, INVALID_XML);
+		assertEquals("inner", new String(stageByStage.transform(fsManager,
+				getContent(), false, false, true)));
+		assertNull(stageByStage.getSourceError());
+		idle = parserPool.getSize();
+		assertTrue(idle > 0);
+		try {
+			stageByStage.transform(fsManager, getContent(), false, true,
+					true);
+			fail("invalid document not reported");
+		} catch (TransformerException aException) {
+			assertEquals(2, stageByStage.getSourceError().getLineNumber());
+		}
+		// the parser of the failed run is not given back...
+		assertEquals(idle - 1, parserPool.getSize());
+		try {
+			pipelined.transform(fsManager, getContent(), false, true, true);
+			fail("invalid document not reported");
+		} catch (TransformerException aException) {
+			assertEquals(2, pipelined.getSourceError().getLineNumber());
+		}
+	}
+
+	/**
+	 * Asserts a document streamed from a file gives the same result as one
+	 * read into memory, and the result of its first stage is cached.
+	 * @throws Exception
+	 */
+	public void testTransformStreaming() throws Exception {
+
+		List<TransformStage> stages;
+		TransformChain stageByStage, pipelined;
+		File resultDir;
+
+		stages = new ArrayList<TransformStage>();
+		stages.add(newStage(wrapXsl, "inner"));
+		stages.add(newStage(textXsl, null));
+		stageByStage = new TransformChain(stages, false);
+		pipelined = new TransformChain(stages, true);
+		IOUtils.writeTextFile(xml, VALID_XML);
+		assertEquals("inner", new String(stageByStage.transform(fsManager,
+				getContent())));
+		assertEquals("inner", new String(pipelined.transform(fsManager,
+				getContent())));
+
+		resultDir = new File(dir, "results");
+		stageByStage.setResultCache(new ResultCache(resultDir, 1024 * 1024));
+		stageByStage.transform(fsManager, getContent());
+		assertFalse(stageByStage.getTimings(0).isCached());
+		assertEquals("inner", new String(stageByStage.transform(fsManager,
+				getContent())));
+		assertTrue(stageByStage.getTimings(0).isCached());
+		new ResultCache(resultDir, 0).clear();
+		resultDir.delete();
+	}
+
+	/**
+	 * Asserts the progress of a run reports the last stage as having read
+	 * all of its input, with its events counted, in both modes.
+	 * @throws Exception
+	 */
+	public void testProgress() throws Exception {
+
+		List<TransformStage> stages;
+		TransformChain stageByStage, pipelined;
+		TransformProgress progress;
+		StringBuffer source;
+		int loop;
+
+		source = new StringBuffer("<a>");
+		for (loop = 0; loop < 2000; loop++) {
+			source.append("<b/>");
+		}
+		IOUtils.writeTextFile(xml, source.append("</a>").toString());
+		stages = new ArrayList<TransformStage>();
+		stages.add(newStage(wrapXsl, "inner"));
+		stages.add(newStage(wrapXsl, "outer"));
+		stageByStage = new TransformChain(stages, false);
+		pipelined = new TransformChain(stages, true);
+		assertEquals(-1, stageByStage.getProgress().getStage());
+
+		stageByStage.transform(fsManager, getContent());
+		progress = stageByStage.getProgress();
+		assertEquals(1, progress.getStage());
+		assertEquals(2, progress.getStageCount());
+		assertFalse(progress.isPipelined());
+		assertEquals(1.0, progress.getStageFraction(), 0);
+		assertEquals(1.0, progress.getFraction(), 0);
+		assertEquals(-1, progress.getStageTimeLeft());
+		assertTrue(progress.getEvents() >= 4000);
+
+		pipelined.transform(fsManager, getContent());
+		progress = pipelined.getProgress();
+		assertTrue(progress.isPipelined());
+		assertEquals(xml.length(), progress.getBytesRead());
+		assertEquals(1.0, progress.getFraction(), 0);
+		assertTrue(progress.getEvents() >= 4000);
+	}
+
+	/**
+	 * Asserts the result written to a result stream is the same as the
+	 * result returned, in both modes and from the ResultCache.
+	 * @throws Exception
+	 */
+	public void testResultStream() throws Exception {
+
+		List<TransformStage> stages;
+		TransformChain stageByStage, pipelined;
+		ByteArrayOutputStream out;
+		File resultDir;
+		byte expected[];
+
+		stages = new ArrayList<TransformStage>();
+		stages.add(newStage(wrapXsl, "inner"));
+		stages.add(newStage(wrapXsl, "outer"));
+		stageByStage = new TransformChain(stages, false);
+		pipelined = new TransformChain(stages, true);
+		IOUtils.writeTextFile(xml, XML);
+		expected = stageByStage.transform(fsManager, getContent());
+
+		out = new ByteArrayOutputStream();
+		stageByStage.setResultStream(out);
+		assertEquals(0, stageByStage.transform(fsManager,
+				getContent()).length);
+		assertTrue(Arrays.equals(expected, out.toByteArray()));
+
+		out = new ByteArrayOutputStream();
+		pipelined.setResultStream(out);
+		assertEquals(0, pipelined.transform(fsManager, getContent()).length);
+		assertTrue(Arrays.equals(expected, out.toByteArray()));
+
+		resultDir = new File(dir, "results");
+		stageByStage.setResultCache(new ResultCache(resultDir, 1024 * 1024));
+		stageByStage.transform(fsManager, getContent());
+		out = new ByteArrayOutputStream();
+		stageByStage.setResultStream(out);
+		stageByStage.transform(fsManager, getContent());
+		assertTrue(stageByStage.getTimings(1).isCached());
+		assertTrue(Arrays.equals(expected, out.toByteArray()));
+		new ResultCache(resultDir, 0).clear();
+		resultDir.delete();
+	}
+
+	/**
+	 * Asserts a stage that runs for longer than its timeout is stopped and
+	 * its timings marked as aborted, in both modes, and that the chain can
+	 * run again.
+	 * @throws Exception
+	 */
+	public void testStageTimeout() throws Exception {
+
+		List<TransformStage> stages;
+		TransformChain stageByStage, pipelined;
+
+		stages = new ArrayList<TransformStage>();
+		stages.add(newStage(wrapXsl, null));
+		stages.add(new TransformStage(spinXsl.getAbsolutePath(),
+				new TransformOutputProperties(), new TransformParameters(),
+				200));
+		stageByStage = new TransformChain(stages, false);
+		pipelined = new TransformChain(stages, true);
+		assertTimedOut(stageByStage, 1);
+		assertFalse(stageByStage.getTimings(0).isAborted());
+		assertTimedOut(stageByStage, 1);
+		assertTimedOut(pipelined, 1);
+	}
+
+	/**
+	 * Asserts a timed out run leaves Xalan's tracing off, and a later plain
+	 * html transform still runs normally.
+	 * @throws Exception
+	 */
+	public void testTimeoutLeavesTracingOff() throws Exception {
+
+		List<TransformStage> stages;
+		TransformChain chain;
+		String result;
+
+		stages = new ArrayList<TransformStage>();
+		stages.add(newStage(spinXsl, null));
+		chain = new TransformChain(stages, false);
+		chain.setTimeout(200);
+		assertTimedOut(chain, 0);
+		assertFalse(TransformerImpl.S_DEBUG);
+
+		stages = new ArrayList<TransformStage>();
+		stages.add(newStage(htmlXsl, null));
+		result = new String(new TransformChain(stages, false).transform(
+				fsManager, XML.getBytes()));
+		assertFalse(result, result.startsWith("<?xml"));
+		assertTrue(result, result.indexOf("<br>") >= 0);
+	}
+
+	/**
+	 * Asserts a run that takes longer than the chain's timeout is stopped,
+	 * and a cancelled chain does not run.
+	 * @throws Exception
+	 */
+	public void testRunTimeout() throws Exception {
+
+		List<TransformStage> stages;
+		TransformChain chain;
+
+		stages = new ArrayList<TransformStage>();
+		stages.add(newStage(spinXsl, null));
+		chain = new TransformChain(stages, false);
+		chain.setTimeout(200);
+		assertTimedOut(chain, 0);
+
+		chain = new TransformChain(stages, false);
+		chain.cancel();
+		try {
+			chain.transform(fsManager, XML.getBytes());
+			fail("cancelled chain ran");
+		} catch (TransformerException aException) {
+			assertTrue(chain.isCancelled());
+			assertFalse(chain.isTimedOut());
+		}
+	}
+
+	/**
+	 * Asserts aChain times out in stage aStage well before the stage would
+	 * finish.
+	 * @param aChain
+	 * @param aStage
+	 * @throws Exception
+	 */
+	private void assertTimedOut(TransformChain aChain, int aStage)
+	throws Exception {
+
+		long start;
+
+		start = System.currentTimeMillis();
+		try {
+			aChain.transform(fsManager, XML.getBytes());
+			fail("expected a timeout");
+		} catch (TransformerException aException) {
+			assertTrue(aChain.isTimedOut());
+			assertFalse(aChain.isCancelled());
+			assertEquals(aStage, aChain.getFailedStage());
+			assertTrue(aChain.getTimings(aStage).isAborted());
+			assertNull(aChain.getInput(0));
+		}
+		assertTrue(System.currentTimeMillis() - start < 10000);
+	}
+
+	/**
+	 * Returns the content of the source document
+	 * @return
+	 * @throws Exception
+	 */
+	private FileContent getContent() throws Exception {
+
+		FileObject file;
+
+		file = fsManager.resolveFile(xml.getAbsolutePath());
+		file.refresh();
+		return file.getContent();
+	}
+}
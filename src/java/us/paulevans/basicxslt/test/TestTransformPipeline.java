@@ -0,0 +1,127 @@
+package us.paulevans.basicxslt.test;
+
+import java.io.StringReader;
+import java.util.Arrays;
+
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamSource;
+
+import junit.framework.TestCase;
+import net.blueslate.commons.xml.TransformParameters;
+import us.paulevans.basicxslt.TransformPipeline;
+import us.paulevans.basicxslt.TransformTimings;
+import us.paulevans.basicxslt.Utils;
+
+/**
+ * Test case for TransformPipeline class
+ * @author pevans
+ *
+ */
+public class TestTransformPipeline extends TestCase {
+
+	// stylesheet that outputs text...
+	private static final String TEXT_XSL =
+		"<xsl:stylesheet version=\"1.0\" " +
+		"xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">" +
+		"<xsl:output method=\"text\"/><xsl:template match=\"/\">" +
+		"<xsl:value-of select=\"count(//*)\"/></xsl:template>" +
+		"</xsl:stylesheet>";
+
+	// stylesheet that fails at transform-time...
+	private static final String FAILING_XSL =
+		"<xsl:stylesheet version=\"1.0\" " +
+		"xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">" +
+		"<xsl:template match=\"/\"><xsl:message terminate=\"yes\">" +
+		"failed</xsl:message></xsl:template></xsl:stylesheet>";
+
+	// source document...
+	private static final String XML = "<a><b/></a>";
+
+	/**
+	 * Compiles aXsl
+	 * @param aXsl
+	 * @return
+	 * @throws Exception
+	 */
+	private Templates compile(String aXsl) throws Exception {
+		return TransformerFactory.newInstance().newTemplates(
+				new StreamSource(new StringReader(aXsl)));
+	}
+
+	/**
+	 * Test fixture that asserts a pipeline produces the same result as
+	 * running the stages one after another.
+	 * @throws Exception
+	 */
+	public void testTransform() throws Exception {
+
+		Templates wrap, text;
+		TransformParameters parameters;
+		TransformPipeline pipeline;
+		TransformTimings first, last;
+		byte expected[];
+
+		wrap = compile(Fixtures.WRAP_XSL);
+		text = compile(TEXT_XSL);
+		parameters = new TransformParameters();
+		parameters.setParameter(null, "name", "outer");
+		expected = Utils.transform(Utils.transform(Utils.transform(
+				XML.getBytes(), wrap, null, null), wrap, null, parameters),
+				text, null, null);
+		pipeline = new TransformPipeline();
+		pipeline.addStage(wrap, null, null, first = new TransformTimings());
+		pipeline.addStage(wrap, null, parameters, new TransformTimings());
+		pipeline.addStage(text, null, null, last = new TransformTimings());
+		assertEquals(-1, pipeline.getNonXmlStage());
+		assertTrue(Arrays.equals(expected, pipeline.transform(
+				XML.getBytes())));
+		assertEquals("4", new String(expected));
+		assertTrue(first.getParseTime() > 0);
+		assertEquals(0, first.getSerializeTime());
+		assertEquals(0, last.getParseTime());
+		assertTrue(last.getSerializeTime() > 0);
+	}
+
+	/**
+	 * Test fixture for getNonXmlStage()
+	 * @throws Exception
+	 */
+	public void testGetNonXmlStage() throws Exception {
+
+		TransformPipeline pipeline;
+
+		pipeline = new TransformPipeline();
+		pipeline.addStage(compile(Fixtures.WRAP_XSL), null, null,
+				new TransformTimings());
+		pipeline.addStage(compile(TEXT_XSL), null, null,
+				new TransformTimings());
+		pipeline.addStage(compile(Fixtures.WRAP_XSL), null, null,
+				new TransformTimings());
+		assertEquals(1, pipeline.getNonXmlStage());
+	}
+
+	/**
+	 * Test fixture for getFailedStage()
+	 * @throws Exception
+	 */
+	public void testGetFailedStage() throws Exception {
+
+		TransformPipeline pipeline;
+
+		pipeline = new TransformPipeline();
+		pipeline.addStage(compile(Fixtures.WRAP_XSL), null, null,
+				new TransformTimings());
+		pipeline.addStage(compile(FAILING_XSL), null, null,
+				new TransformTimings());
+		pipeline.addStage(compile(Fixtures.WRAP_XSL), null, null,
+				new TransformTimings());
+		try {
+			pipeline.transform(XML.getBytes());
+			fail("expected a TransformerException");
+		} catch (TransformerException aException) {
+			assertEquals(1, pipeline.getFailedStage());
+		}
+	}
+}
@@ -0,0 +1,116 @@
+package us.paulevans.basicxslt.test;
+
+import java.io.StringReader;
+import java.util.Arrays;
+
+import javax.xml.transform.Templates;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamSource;
+
+import junit.framework.TestCase;
+import net.blueslate.commons.xml.TransformOutputProperties;
+import net.blueslate.commons.xml.TransformParameters;
+import us.paulevans.basicxslt.TransformPipeline;
+import us.paulevans.basicxslt.TransformTimings;
+import us.paulevans.basicxslt.TransformerPool;
+import us.paulevans.basicxslt.Utils;
+
+/**
+ * Test case for TransformerPool class
+ * @author pevans
+ *
+ */
+public class TestTransformerPool extends TestCase {
+
+	// source document...
+	private static final String XML = "<a/>";
+
+	// instance members...
+	private Templates wrap;
+
+	/**
+	 * Test fixture setup
+	 */
+	protected void setUp() throws Exception {
+		wrap = TransformerFactory.newInstance().newTemplates(
+				new StreamSource(new StringReader(Fixtures.WRAP_XSL)));
+	}
+
+	/**
+	 * Asserts a transformer that is given back is reused.
+	 * @throws Exception
+	 */
+	public void testBorrow() throws Exception {
+
+		TransformerPool pool;
+		Transformer first, second;
+
+		pool = new TransformerPool(1);
+		first = pool.borrow(wrap, null, null);
+		assertEquals(0, pool.getSize());
+		pool.giveBack(wrap, first);
+		assertEquals(1, pool.getSize());
+		second = pool.borrow(wrap, null, null);
+		assertSame(first, second);
+		assertNotSame(first, pool.borrow(wrap, null, null));
+		pool.giveBack(wrap, second);
+		pool.giveBack(wrap, first);
+		assertEquals(1, pool.getSize());
+		assertEquals(3, pool.getBorrows());
+		assertEquals(2, pool.getCreates());
+		assertEquals(1 / 3.0, pool.getReuseRatio(), 0.0001);
+	}
+
+	/**
+	 * Asserts the parameters and output properties of one transform are not
+	 * seen by the next transform that reuses the transformer.
+	 * @throws Exception
+	 */
+	public void testReset() throws Exception {
+
+		TransformParameters parameters;
+		TransformOutputProperties outputProperties;
+
+		parameters = new TransformParameters();
+		parameters.setParameter("", "name", "param");
+		outputProperties = new TransformOutputProperties();
+		outputProperties.setMETHOD("text");
+		assertEquals("", new String(Utils.transform(XML.getBytes(), wrap,
+				outputProperties, parameters)));
+		assertEquals("<wrap><a/></wrap>", new String(Utils.transform(
+				XML.getBytes(), wrap, null, null)));
+		assertEquals("<param><a/></param>", new String(Utils.transform(
+				XML.getBytes(), wrap, null, parameters)));
+		assertEquals("<wrap><a/></wrap>", new String(Utils.transform(
+				XML.getBytes(), wrap, null, null, new TransformTimings())));
+	}
+
+	/**
+	 * Asserts a pipeline gives the same result when its transformers are
+	 * reused.
+	 * @throws Exception
+	 */
+	public void testPipeline() throws Exception {
+
+		TransformParameters parameters;
+		TransformPipeline pipeline;
+		byte expected[];
+		long creates;
+		int loop;
+
+		parameters = new TransformParameters();
+		parameters.setParameter("", "name", "outer");
+		pipeline = new TransformPipeline();
+		pipeline.addStage(wrap, null, null, new TransformTimings());
+		pipeline.addStage(wrap, null, parameters, new TransformTimings());
+		expected = pipeline.transform(XML.getBytes());
+		assertEquals("<outer><wrap><a/></wrap></outer>", new String(expected));
+		creates = TransformerPool.getInstance().getCreates();
+		for (loop = 0; loop < 5; loop++) {
+			assertTrue(Arrays.equals(expected, pipeline.transform(
+					XML.getBytes())));
+		}
+		assertEquals(creates, TransformerPool.getInstance().getCreates());
+	}
+}
@@ -0,0 +1,235 @@
+package us.paulevans.basicxslt.test;
+
+import java.io.File;
+import java.io.IOException;
+
+import javax.xml.transform.Templates;
+
+import junit.framework.TestCase;
+import net.blueslate.commons.io.IOUtils;
+import net.blueslate.commons.xml.TransformOutputProperties;
+import net.blueslate.commons.xml.TransformParameters;
+
+import org.apache.commons.vfs.FileSystemManager;
+import org.apache.commons.vfs.VFS;
+
+import us.paulevans.basicxslt.TemplatesCache;
+import us.paulevans.basicxslt.TransformPipeline;
+import us.paulevans.basicxslt.TransformTimings;
+import us.paulevans.basicxslt.TransletCache;
+import us.paulevans.basicxslt.Utils;
+
+/**
+ * Test case for TransletCache class
+ * @author pevans
+ *
+ */
+public class TestTransletCache extends TestCase {
+
+	// stylesheet that imports another stylesheet...
+	private static final String MAIN_XSL =
+		"<xsl:stylesheet version=\"1.0\" " +
+		"xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">" +
+		"<xsl:import href=\"imported.xsl\"/></xsl:stylesheet>";
+
+	// stylesheet that wraps the document in an element...
+	private static final String IMPORTED_XSL =
+		"<xsl:stylesheet version=\"1.0\" " +
+		"xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">" +
+		"<xsl:param name=\"name\" select=\"'wrap'\"/>" +
+		"<xsl:template match=\"/\"><xsl:element name=\"{$name}\">" +
+		"<xsl:copy-of select=\"/\"/></xsl:element></xsl:template>" +
+		"</xsl:stylesheet>";
+
+	// source document...
+	private static final String XML = "<a/>";
+
+	// instance members...
+	private File dir, transletDir, mainXsl, importedXsl, otherDir, otherMainXsl,
+		otherImportedXsl;
+	private FileSystemManager fsManager;
+
+	/**
+	 * Test fixture setup
+	 */
+	protected void setUp() throws Exception {
+		dir = File.createTempFile("transletcache", "");
+		dir.delete();
+		dir.mkdirs();
+		transletDir = new File(dir, "translets");
+		IOUtils.writeTextFile(mainXsl = new File(dir, "main.xsl"), MAIN_XSL);
+		IOUtils.writeTextFile(importedXsl = new File(dir, "imported.xsl"),
+				IMPORTED_XSL);
+		otherDir = new File(dir, "other");
+		otherDir.mkdirs();
+		IOUtils.writeTextFile(otherMainXsl = new File(otherDir, "main.xsl"),
+				MAIN_XSL);
+		IOUtils.writeTextFile(otherImportedXsl = new File(otherDir,
+				"imported.xsl"), IMPORTED_XSL.replaceAll("'wrap'", "'other'"));
+		fsManager = VFS.getManager();
+	}
+
+	/**
+	 * Test fixture teardown
+	 */
+	protected void tearDown() {
+		new TransletCache(transletDir).clear();
+		transletDir.delete();
+		otherMainXsl.delete();
+		otherImportedXsl.delete();
+		otherDir.delete();
+		mainXsl.delete();
+		importedXsl.delete();
+		dir.delete();
+	}
+
+	/**
+	 * Returns the compiled form of the main stylesheet, read through a new
+	 * TemplatesCache backed by aTransletCache.
+	 * @param aTransletCache
+	 * @return
+	 * @throws Exception
+	 */
+	private Templates getTemplates(TransletCache aTransletCache)
+	throws Exception {
+		return getTemplates(aTransletCache, mainXsl);
+	}
+
+	/**
+	 * Returns the compiled form of aXsl, read through a new TemplatesCache
+	 * backed by aTransletCache.
+	 * @param aTransletCache
+	 * @param aXsl
+	 * @return
+	 * @throws Exception
+	 */
+	private Templates getTemplates(TransletCache aTransletCache, File aXsl)
+	throws Exception {
+		return new TemplatesCache(2, aTransletCache).getTemplates(fsManager,
+				aXsl.getAbsolutePath(), true);
+	}
+
+	/**
+	 * Asserts a translet is loaded from disk rather than compiled again.
+	 * @throws Exception
+	 */
+	public void testGet() throws Exception {
+
+		TransletCache transletCache;
+		Templates templates;
+
+		transletCache = new TransletCache(transletDir);
+		templates = getTemplates(transletCache);
+		assertEquals(0, transletCache.getHits());
+		assertEquals(1, transletCache.getMisses());
+		assertEquals(1, transletDir.list().length);
+		transletCache = new TransletCache(transletDir);
+		templates = getTemplates(transletCache);
+		assertEquals(1, transletCache.getHits());
+		assertEquals("<wrap><a/></wrap>", transform(templates, new TransformParameters()));
+	}
+
+	/**
+	 * Asserts a translet is compiled again once an import changes.
+	 * @throws Exception
+	 */
+	public void testImportChanged() throws Exception {
+
+		TransletCache transletCache;
+		Templates templates;
+
+		getTemplates(new TransletCache(transletDir));
+		IOUtils.writeTextFile(importedXsl, IMPORTED_XSL.replaceAll(
+				"'wrap'", "'changed'"));
+		transletCache = new TransletCache(transletDir);
+		templates = getTemplates(transletCache);
+		assertEquals(0, transletCache.getHits());
+		assertEquals("<changed><a/></changed>", transform(templates, new TransformParameters()));
+	}
+
+	/**
+	 * Asserts a byte-identical stylesheet in another directory is not given
+	 * the translet of the first, whose relative import resolved to another
+	 * file.
+	 * @throws Exception
+	 */
+	public void testSameContentsOtherDirectory() throws Exception {
+
+		TransletCache transletCache;
+
+		transletCache = new TransletCache(transletDir);
+		assertEquals("<wrap><a/></wrap>", transform(getTemplates(
+				transletCache), new TransformParameters()));
+		assertEquals("<other><a/></other>", transform(getTemplates(
+				transletCache, otherMainXsl), new TransformParameters()));
+		assertEquals(0, transletCache.getHits());
+		assertEquals(2, transletDir.list().length);
+	}
+
+	/**
+	 * Asserts the least-recently used translet is evicted once the cache is
+	 * over its maximum size.
+	 * @throws Exception
+	 */
+	public void testEviction() throws Exception {
+
+		TransletCache transletCache;
+		long size;
+
+		transletCache = new TransletCache(transletDir);
+		getTemplates(transletCache);
+		size = transletCache.getSize();
+		assertTrue(size > 0);
+		transletCache = new TransletCache(transletDir, size + size / 2);
+		getTemplates(transletCache, otherMainXsl);
+		assertEquals(1, transletDir.list().length);
+		assertTrue(transletCache.getSize() <= size + size / 2);
+		getTemplates(transletCache);
+		assertEquals(0, transletCache.getHits());
+	}
+
+	/**
+	 * Asserts translets run in a pipeline, with pooled transformers.
+	 * @throws Exception
+	 */
+	public void testPipeline() throws Exception {
+
+		TransformPipeline pipeline;
+		Templates templates;
+		TransformParameters parameters;
+		int loop;
+
+		templates = getTemplates(new TransletCache(transletDir));
+		parameters = new TransformParameters();
+		parameters.setParameter("", "name", "outer");
+		for (loop = 0; loop < 2; loop++) {
+			pipeline = new TransformPipeline();
+			pipeline.addStage(templates, new TransformOutputProperties(),
+					new TransformParameters(), new TransformTimings());
+			pipeline.addStage(templates, new TransformOutputProperties(),
+					parameters, new TransformTimings());
+			assertTrue(new String(pipeline.transform(XML.getBytes())).endsWith(
+					"<outer><wrap><a/></wrap></outer>"));
+		}
+		assertEquals("<outer><a/></outer>", transform(templates, parameters));
+	}
+
+	/**
+	 * Transforms XML with aTemplates and returns the result without the xml
+	 * declaration.
+	 * @param aTemplates
+	 * @param aParameters
+	 * @return
+	 * @throws Exception
+	 */
+	private String transform(Templates aTemplates,
+			TransformParameters aParameters) throws Exception {
+
+		String result;
+
+		result = new String(Utils.transform(XML.getBytes(), aTemplates,
+				new TransformOutputProperties(), aParameters,
+				new TransformTimings()));
+		return result.substring(result.indexOf("?>") + 2);
+	}
+}
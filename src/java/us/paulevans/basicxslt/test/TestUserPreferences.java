@@ -4,9 +4,11 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.List;
 
 import junit.framework.TestCase;
 import us.paulevans.basicxslt.AppConstants;
+import us.paulevans.basicxslt.TransformStage;
 import us.paulevans.basicxslt.UserPreferences;
 
 /**
@@ -235,6 +237,34 @@ public class TestUserPreferences extends TestCase {
                 assertEquals("new_default", userPrefs.loadDefaultConfiguration());
         }
 
+        /**
+         * Test fixture for getTransformStages()
+         *
+         */
+        public void testGetTransformStages() {
+
+                List<TransformStage> stages;
+
+                userPrefs.setConfiguration("test_config", false);
+                userPrefs.setProperty("xsl_0_file", "first.xsl");
+                userPrefs.setProperty("xsl_0_onoff", "true");
+                userPrefs.setProperty("xsl_0_params_0_{}name", "value");
+                userPrefs.setProperty("xsl_1_file", "off.xsl");
+                userPrefs.setProperty("xsl_1_onoff", "false");
+                userPrefs.setProperty("xsl_2_file", "last.xsl");
+                userPrefs.setProperty("xsl_2_onoff", "true");
+                userPrefs.setProperty("xsl_2_outputproperties_" +
+                                AppConstants.METHOD, "text");
+                stages = userPrefs.getTransformStages();
+                assertEquals(2, stages.size());
+                assertEquals("first.xsl", stages.get(0).getStylesheet());
+                assertEquals("value", stages.get(0).getParameters().getParameter(
+                                "{}name"));
+                assertEquals("last.xsl", stages.get(1).getStylesheet());
+                assertEquals("text",
+                                stages.get(1).getOutputProperties().getMETHOD());
+        }
+
         /**
          * Test fixture for persistUserPrefs()
          *
@@ -0,0 +1,118 @@
+package us.paulevans.basicxslt.test;
+
+import java.io.File;
+import java.io.StringReader;
+import java.util.Arrays;
+
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamSource;
+
+import junit.framework.TestCase;
+import net.blueslate.commons.xml.TransformParameters;
+
+import org.apache.commons.io.FileUtils;
+
+import us.paulevans.basicxslt.TransformTimings;
+import us.paulevans.basicxslt.Utils;
+
+/**
+ * Test case for Utils class
+ * @author pevans
+ *
+ */
+public class TestUtils extends TestCase {
+
+	// stylesheet that relies on the implicit html output method...
+	private static final String XSL =
+		"<xsl:stylesheet version=\"1.0\" " +
+		"xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">" +
+		"<xsl:template match=\"/\"><html><body><br/>" +
+		"<xsl:value-of select=\"count(//*)\"/></body></html>" +
+		"</xsl:template></xsl:stylesheet>";
+
+	// source document...
+	private static final String XML = "<a><!-- comment --><b/><c/></a>";
+
+	/**
+	 * Test fixture for transform(byte[],Templates,TransformOutputProperties,
+	 * TransformParameters,TransformTimings)
+	 * @throws Exception
+	 */
+	public void testTransformTimings() throws Exception {
+
+		Templates templates;
+		TransformTimings timings;
+		byte expected[], actual[];
+
+		templates = TransformerFactory.newInstance().newTemplates(
+				new StreamSource(new StringReader(XSL)));
+		timings = new TransformTimings();
+		expected = Utils.transform(XML.getBytes(), templates, null, null);
+		actual = Utils.transform(XML.getBytes(), templates, null, null,
+				timings);
+		assertTrue(Arrays.equals(expected, actual));
+		assertTrue(timings.getParseTime() > 0);
+		assertTrue(timings.getSerializeTime() > 0);
+		assertEquals(timings.getParseTime() + timings.getTransformTime() +
+				timings.getSerializeTime(), timings.getTotalTime());
+	}
+
+	/**
+	 * Test fixture for writeFile(File,byte[])
+	 * @throws Exception
+	 */
+	public void testWriteFile() throws Exception {
+
+		File dir, file;
+
+		dir = File.createTempFile("utils", "");
+		dir.delete();
+		dir.mkdirs();
+		file = new File(dir, "result.xml");
+		Utils.writeFile(file, "<a/>".getBytes());
+		Utils.writeFile(file, XML.getBytes());
+		assertEquals(XML, new String(FileUtils.readFileToByteArray(file)));
+		assertEquals(1, dir.list().length);
+		file.delete();
+		dir.delete();
+	}
+
+	/**
+	 * Test fixture for TransformTimings.add(TransformTimings)
+	 *
+	 */
+	public void testAddTimings() {
+
+		TransformTimings total, timings;
+
+		total = new TransformTimings();
+		timings = new TransformTimings();
+		timings.setCompileTime(1);
+		timings.setParseTime(2);
+		timings.setTransformTime(3);
+		timings.setSerializeTime(4);
+		total.add(timings);
+		total.add(timings);
+		assertEquals(20, total.getTotalTime());
+		assertEquals(4, total.getParseTime());
+	}
+
+	/**
+	 * Test fixture for copyParameters(TransformParameters)
+	 *
+	 */
+	public void testCopyParameters() {
+
+		TransformParameters parameters, copy;
+
+		parameters = new TransformParameters();
+		parameters.setParameter("", "a", "1");
+		parameters.setParameter("urn:b", "b", "2");
+		copy = Utils.copyParameters(parameters);
+		parameters.setParameter("", "a", "changed");
+		assertEquals(2, copy.getSize());
+		assertEquals("1", copy.getParameter("", "a"));
+		assertEquals("2", copy.getParameter("urn:b", "b"));
+	}
+}
@@ -0,0 +1,211 @@
+package us.paulevans.basicxslt.test;
+
+import java.io.File;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import net.blueslate.commons.io.IOUtils;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.vfs.FileContent;
+import org.apache.commons.vfs.FileSystemManager;
+import org.apache.commons.vfs.VFS;
+import org.xml.sax.SAXException;
+
+import us.paulevans.basicxslt.Utils;
+import us.paulevans.basicxslt.ValidationCache;
+
+/**
+ * Test case for ValidationCache class
+ * @author pevans
+ *
+ */
+public class TestValidationCache extends TestCase {
+
+	// instance members...
+	private File dir, cacheFile, xml, dtd;
+	private FileSystemManager fsManager;
+	private List<String> grammars;
+
+	/**
+	 * Test fixture setup
+	 */
+	protected void setUp() throws Exception {
+		dir = File.createTempFile("validationcache", "");
+		dir.delete();
+		dir.mkdirs();
+		cacheFile = new File(dir, "validation.properties");
+		IOUtils.writeTextFile(xml = new File(dir, "note.xml"), "<note/>");
+		IOUtils.writeTextFile(dtd = new File(dir, "note.dtd"),
+				"<!ELEMENT note EMPTY>");
+		fsManager = VFS.getManager();
+		grammars = new ArrayList<String>();
+		grammars.add(dtd.toURI().toString());
+		grammars.add("http://example.com/remote.dtd");
+	}
+
+	/**
+	 * Test fixture teardown
+	 */
+	protected void tearDown() {
+		Utils.getInstance().setValidationCache(ValidationCache.getInstance());
+		cacheFile.delete();
+		xml.delete();
+		dtd.delete();
+		dir.delete();
+	}
+
+	/**
+	 * Asserts a recorded document is valid, only with the same settings,
+	 * and still after a restart.
+	 * @throws Exception
+	 */
+	public void testPut() throws Exception {
+
+		ValidationCache cache;
+
+		cache = new ValidationCache(cacheFile);
+		assertFalse(cache.isValid(getContent(), true, true, true));
+		cache.put(getContent(), true, true, true, "hash", grammars);
+		assertTrue(cache.isValid(getContent(), true, true, true));
+		assertFalse(cache.isValid(getContent(), false, true, true));
+		assertEquals(1, cache.getHits());
+		assertEquals(2, cache.getMisses());
+		cache.flush();
+
+		cache = new ValidationCache(cacheFile);
+		assertTrue(cache.isValid(getContent(), true, true, true));
+	}
+
+	/**
+	 * Asserts a change is written out in the background without a flush.
+	 * @throws Exception
+	 */
+	public void testSavedLater() throws Exception {
+
+		ValidationCache cache;
+		int loop;
+
+		cache = new ValidationCache(cacheFile);
+		cache.put(getContent(), true, true, true, "hash", grammars);
+		for (loop = 0; loop < 100 && !cacheFile.isFile(); loop++) {
+			Thread.sleep(100);
+		}
+		assertTrue(new ValidationCache(cacheFile).isValid(getContent(), true,
+				true, true));
+	}
+
+	/**
+	 * Asserts the least-recently used document is dropped once the cache is
+	 * full.
+	 * @throws Exception
+	 */
+	public void testEviction() throws Exception {
+
+		ValidationCache cache;
+		File other;
+		FileContent otherContent;
+
+		IOUtils.writeTextFile(other = new File(dir, "other.xml"), "<note/>");
+		try {
+			otherContent = fsManager.resolveFile(
+					other.getAbsolutePath()).getContent();
+			cache = new ValidationCache(cacheFile, 1);
+			cache.put(getContent(), true, true, true, "hash", grammars);
+			cache.put(otherContent, true, true, true, "hash", grammars);
+			assertEquals(1, cache.getSize());
+			assertFalse(cache.isValid(getContent(), true, true, true));
+			assertTrue(cache.isValid(otherContent, true, true, true));
+		} finally {
+			other.delete();
+		}
+	}
+
+	/**
+	 * Asserts a document is only validated again once its content or its
+	 * DTD changes.
+	 * @throws Exception
+	 */
+	public void testChanged() throws Exception {
+
+		ValidationCache cache;
+		MessageDigest digest;
+
+		cache = new ValidationCache(cacheFile);
+		digest = ValidationCache.newDigest();
+		digest.update(FileUtils.readFileToByteArray(xml));
+		cache.put(getContent(), true, true, true,
+				ValidationCache.toHex(digest), grammars);
+
+		// touched but not changed...
+		xml.setLastModified(xml.lastModified() + 2000);
+		getContent().getFile().refresh();
+		assertTrue(cache.isValid(getContent(), true, true, true));
+
+		dtd.setLastModified(dtd.lastModified() + 2000);
+		assertFalse(cache.isValid(getContent(), true, true, true));
+
+		cache.put(getContent(), true, true, true, "hash", grammars);
+		IOUtils.writeTextFile(xml, "<note></note>");
+		xml.setLastModified(xml.lastModified() + 4000);
+		getContent().getFile().refresh();
+		assertFalse(cache.isValid(getContent(), true, true, true));
+	}
+
+	/**
+	 * Asserts an unchanged document is not parsed again, and a document is
+	 * validated again once its DTD changes.
+	 * @throws Exception
+	 */
+	public void testIsValidXml() throws Exception {
+
+		ValidationCache cache;
+
+		// a cache of its own, so that nothing is recorded in the user's...
+		cache = new ValidationCache(cacheFile);
+		Utils.getInstance().setValidationCache(cache);
+		IOUtils.writeTextFile(xml,
+				"<!DOCTYPE note SYSTEM \"note.dtd\"><note/>");
+		getContent().getFile().refresh();
+		Utils.getInstance().isValidXml(getContent(), true, true, true);
+		assertEquals(0, cache.getHits());
+		Utils.getInstance().isValidXml(getContent(), true, true, true);
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getSize());
+
+		IOUtils.writeTextFile(dtd, "<!ELEMENT note (to)>");
+		dtd.setLastModified(dtd.lastModified() + 2000);
+		try {
+			Utils.getInstance().isValidXml(getContent(), true, true, true);
+			fail("DTD change not seen");
+		} catch (SAXException aException) {
+			// expected...
+		}
+	}
+
+	/**
+	 * Asserts nothing is recorded while the cache is off.
+	 * @throws Exception
+	 */
+	public void testDisabled() throws Exception {
+
+		ValidationCache cache;
+
+		cache = new ValidationCache(cacheFile);
+		cache.setEnabled(false);
+		cache.put(getContent(), true, true, true, "hash", grammars);
+		cache.setEnabled(true);
+		assertFalse(cache.isValid(getContent(), true, true, true));
+	}
+
+	/**
+	 * Returns the content of the document
+	 * @return
+	 * @throws Exception
+	 */
+	private FileContent getContent() throws Exception {
+		return fsManager.resolveFile(xml.getAbsolutePath()).getContent();
+	}
+}
@@ -0,0 +1,163 @@
+package us.paulevans.basicxslt.test;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.io.FileUtils;
+import org.xml.sax.SAXException;
+
+import us.paulevans.basicxslt.LazyXmlTreeModel;
+import us.paulevans.basicxslt.MappedTextFile;
+import us.paulevans.basicxslt.XmlIndex;
+
+/**
+ * Test case for XmlIndex and LazyXmlTreeModel classes
+ * @author pevans
+ *
+ */
+public class TestXmlIndex extends TestCase {
+
+	// document with a DOCTYPE, comments, entities and CDATA...
+	private static final String NOTES =
+		"<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+		"<!DOCTYPE notes [ <!ELEMENT notes ANY> ]>\n" +
+		"<!-- <ignored> -->\n" +
+		"<notes count = '2'>\n" +
+		"  <note to=\"a &amp; b\">one &lt; two</note>\n" +
+		"  <!-- </notes> -->\n" +
+		"  <note/>\n" +
+		"  tail<![CDATA[<raw>]]>\n" +
+		"</notes>\n";
+
+	// instance members...
+	private File file;
+	private MappedTextFile text;
+
+	/**
+	 * Test fixture setup
+	 */
+	protected void setUp() throws Exception {
+		file = File.createTempFile("xmlindex", ".xml");
+	}
+
+	/**
+	 * Test fixture teardown
+	 */
+	protected void tearDown() {
+		if (text != null) {
+			text.close();
+		}
+		file.delete();
+	}
+
+	/**
+	 * Asserts the elements, their labels and the text between them are
+	 * found.
+	 * @throws Exception
+	 */
+	public void testIndex() throws Exception {
+
+		XmlIndex index;
+		int root, first, second;
+		List<String> texts;
+
+		index = open(NOTES);
+		assertEquals(3, index.getElementCount());
+		root = index.getRoot();
+		assertEquals("<notes count=\"2\">", index.getLabel(root));
+		first = index.getFirstChild(root);
+		assertEquals("<note to=\"a & b\">", index.getLabel(first));
+		assertEquals("[one < two]", index.getTexts(index.getContentStart(
+				first), index.getContentEnd(first)).toString());
+		second = index.getNextSibling(first);
+		assertEquals("<note>", index.getLabel(second));
+		assertEquals(index.getEnd(second), index.getContentStart(second));
+		assertEquals(-1, index.getNextSibling(second));
+		assertEquals(-1, index.getFirstChild(second));
+		texts = index.getTexts(index.getEnd(second), index.getContentEnd(
+				root));
+		assertEquals("[tail, <![CDATA[<raw>]]>]", texts.toString());
+	}
+
+	/**
+	 * Asserts documents that are not well-formed, or not in an encoding
+	 * that can be indexed, are turned down.
+	 * @throws Exception
+	 */
+	public void testNotIndexed() throws Exception {
+		assertNotIndexed("<a><b></a></b>");
+		assertNotIndexed("<a></a><b/>");
+		assertNotIndexed("text <a/>");
+		assertNotIndexed("<a>");
+		assertNotIndexed("<a x=\"1\"");
+		assertNotIndexed("1 < 2");
+		assertNotIndexed("");
+		assertNotIndexed("<?xml version=\"1.0\" encoding=\"UTF-16\"?><a/>");
+		open("<a></a>\n<!-- trailing -->\n");
+	}
+
+	/**
+	 * Asserts tree nodes are only created as the tree is opened.
+	 * @throws Exception
+	 */
+	public void testTreeModel() throws Exception {
+
+		StringBuffer xml;
+		LazyXmlTreeModel model;
+		Object root, item, last;
+		int loop;
+
+		xml = new StringBuffer("<list>");
+		for (loop = 0; loop < 1000; loop++) {
+			xml.append("<item><name>").append(loop).append(
+					"</name></item>");
+		}
+		open(xml.append("</list>").toString());
+		model = new LazyXmlTreeModel(new XmlIndex(text));
+		assertEquals(1, model.getNodeCount());
+		root = model.getChild(model.getRoot(), 0);
+		assertEquals("<list>", root.toString());
+		assertFalse(model.isLeaf(root));
+		assertEquals(1, model.getNodeCount());
+		assertEquals(1000, model.getChildCount(root));
+		assertEquals(1001, model.getNodeCount());
+		item = model.getChild(root, 999);
+		assertEquals(999, model.getIndexOfChild(root, item));
+		last = model.getChild(model.getChild(item, 0), 0);
+		assertEquals("999", last.toString());
+		assertTrue(model.isLeaf(last));
+		assertEquals(1003, model.getNodeCount());
+	}
+
+	/**
+	 * Asserts aXml is not indexed
+	 * @param aXml
+	 * @throws Exception
+	 */
+	private void assertNotIndexed(String aXml) throws Exception {
+		try {
+			open(aXml);
+			fail("indexed " + aXml);
+		} catch (SAXException aException) {
+			// expected...
+		}
+	}
+
+	/**
+	 * Writes aXml to the file and indexes it.
+	 * @param aXml
+	 * @return
+	 * @throws Exception
+	 */
+	private XmlIndex open(String aXml) throws Exception {
+		if (text != null) {
+			text.close();
+		}
+		FileUtils.writeStringToFile(file, aXml, "UTF-8");
+		text = new MappedTextFile(file, Charset.forName("UTF-8"));
+		return new XmlIndex(text);
+	}
+}